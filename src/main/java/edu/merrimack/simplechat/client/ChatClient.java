@@ -2,166 +2,161 @@ package edu.merrimack.simplechat.client;
 
 import edu.merrimack.simplechat.common.Framing;
 import edu.merrimack.simplechat.common.protocol.BaseMessage;
-import edu.merrimack.simplechat.common.protocol.ChatMessage;
 import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
-import edu.merrimack.simplechat.common.protocol.ConnectMessage;
 import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
-import edu.merrimack.simplechat.common.protocol.ErrorMessage;
 import edu.merrimack.simplechat.common.protocol.MessageParser;
-import edu.merrimack.simplechat.common.protocol.MessageType;
-import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
-import edu.merrimack.simplechat.common.protocol.SetUsernameMessage;
-import edu.merrimack.simplechat.common.protocol.ListUsersMessage;
-import edu.merrimack.simplechat.common.protocol.UserListMessage;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.Transport;
 
 import java.io.IOException;
 import java.io.InvalidObjectException;
-import java.net.Socket;
-import java.util.UUID;
+import java.util.concurrent.Flow;
 
 /**
- * Lightweight client wrapper that handles connection setup and messaging helpers.
+ * Lightweight client wrapper that handles connection setup and messaging helpers over a blocking socket
+ * with a dedicated receive thread. See {@link ClientEngine} for hosting many sessions on a few threads.
  */
-public class ChatClient {
+public class ChatClient extends ChatSession {
+
+    private static final long RECONNECT_WINDOW_MS = 30_000;
+    private static final long MAX_BACKOFF_MS = 4_000;
 
     private final String host;
     private final int port;
-    private final String username;
-    private Socket socket;
+    private final Transport transport;
+    private volatile Connection connection;
+    private volatile String resumeToken;
+    private volatile boolean closing;
+    private final Object writeLock = new Object();
     private ClientReceiver receiver;
 
     /**
      * Creates a chat client bound to the given host/port and presenting the provided username.
      */
     public ChatClient(String host, int port, String username) {
-        this.host = host;
-        this.port = port;
-        this.username = username;
+        this(host, port, username, Flow.defaultBufferSize(), ClientEvents.Overflow.BLOCK);
     }
 
     /**
-     * Establishes a socket connection, performs the handshake, and starts the receive thread.
+     * Creates a chat client whose event subscribers each buffer up to {@code eventBufferSize} messages,
+     * handling overflow according to {@code overflow}. A host of the form {@code unix:<path>} connects
+     * through that Unix domain socket instead of TCP, ignoring the port.
      */
-    public void connect() throws IOException, InvalidObjectException {
-        socket = new Socket(host, port);
-
-        ConnectMessage connect = new ConnectMessage(UUID.randomUUID().toString(), username);
-        send(connect);
-
-        String ackJson = Framing.readFrame(socket.getInputStream());
-        if (ackJson == null) {
-            throw new InvalidObjectException("No response from server");
-        }
-        BaseMessage msg = MessageParser.parse(ackJson);
-        if (msg.getType() == MessageType.ERROR) {
-            ErrorMessage err = (ErrorMessage) msg;
-            String reason = err.getMessageText();
-            if ("USERNAME_TAKEN".equalsIgnoreCase(err.getCode())) {
-                reason = "The username '" + username + "' is already in use. Please choose a different name or disconnect the other session.";
-            }
-            if (reason == null || reason.isBlank()) {
-                reason = "Server rejected the connection" + (err.getCode() != null ? " (" + err.getCode() + ")" : "");
-            }
-            throw new InvalidObjectException(reason);
-        }
-        if (msg.getType() != MessageType.CONNECT_ACK) {
-            throw new InvalidObjectException("Unexpected handshake response: " + msg.getType());
-        }
-        ConnectAckMessage ack = (ConnectAckMessage) msg;
-        if (!"OK".equalsIgnoreCase(ack.getStatus())) {
-            throw new InvalidObjectException("Connection rejected: " + ack.getMessageText());
-        }
-
-        receiver = new ClientReceiver(socket, this::handleIncoming);
-        new Thread(receiver, "client-receiver").start();
+    public ChatClient(String host, int port, String username, int eventBufferSize, ClientEvents.Overflow overflow) {
+        this(Transport.forHost(host), host, port, username, eventBufferSize, overflow);
     }
 
     /**
-     * Serializes and transmits a protocol message to the server.
+     * Creates a chat client that connects over {@code transport} instead of TCP.
      */
-    public void send(BaseMessage message) throws IOException {
-        byte[] frame = Framing.frame(message.serialize());
-        socket.getOutputStream().write(frame);
-        socket.getOutputStream().flush();
+    public ChatClient(Transport transport, String host, int port, String username, int eventBufferSize,
+                      ClientEvents.Overflow overflow) {
+        super(username, new ClientEvents(eventBufferSize, overflow));
+        this.transport = transport;
+        this.host = host;
+        this.port = port;
     }
 
     /**
-     * Sends a broadcast chat message to all connected users.
+     * Establishes a connection, performs the handshake, and starts the receive thread.
      */
-    public void sendChatToAll(String content) {
-        ChatMessage msg = new ChatMessage(username, null, false, content);
-        sendWithFriendlyError(msg, "send your message");
+    @Override
+    public void connect() throws IOException, InvalidObjectException {
+        closing = false;
+        openSession(null);
     }
 
     /**
-     * Sends a direct message to the specified recipient.
+     * Connects and handshakes, presenting {@code token} to resume an earlier session when non-null.
+     * Returns the server's acknowledgement.
      */
-    public void sendDirect(String to, String content) {
-        ChatMessage msg = new ChatMessage(username, to, true, content);
-        sendWithFriendlyError(msg, "send your direct message to " + to);
-    }
+    private ConnectAckMessage openSession(String token) throws IOException, InvalidObjectException {
+        connection = transport.connect(host, port);
+        send(connectMessage(token));
 
-    /**
-     * Requests that the server update this session's username.
-     */
-    public void requestUsernameChange(String newName) {
-        SetUsernameMessage msg = new SetUsernameMessage(newName);
-        sendWithFriendlyError(msg, "change your username");
-    }
+        String ackJson = connection.readFrame();
+        if (ackJson == null) {
+            throw new InvalidObjectException("No response from server");
+        }
+        ConnectAckMessage ack = checkHandshake(MessageParser.parse(ackJson));
+        resumeToken = ack.getResumeToken();
 
-    /** Requests the list of currently connected users. */
-    public void requestUserList() {
-        ListUsersMessage msg = new ListUsersMessage();
-        sendWithFriendlyError(msg, "fetch the user list");
+        receiver = new ClientReceiver(connection, this::handleIncoming, this::handleConnectionLost);
+        new Thread(receiver, "client-receiver").start();
+        return ack;
     }
 
     /**
-     * Gracefully disconnects by notifying the server and closing the socket.
+     * Runs on the receiver thread when the connection stops delivering frames. Unless the user disconnected,
+     * reconnects with exponential backoff, presenting the resume token so the server restores the session
+     * and replays missed messages. Transfers in progress fail, since the server cancels them when the
+     * connection drops. Without a token, or once the reconnect window passes, outstanding requests and the
+     * event stream fail instead.
      */
-    public void disconnect() {
-        try {
-            send(new DisconnectMessage("client_exit"));
-        } catch (IOException ignored) {
-        } finally {
+    private void handleConnectionLost() {
+        String token = resumeToken;
+        if (closing) {
+            return;
+        }
+        IOException cause = new IOException("Connection lost");
+        failTransfers(cause);
+        if (token == null) {
+            failPending(cause);
+            events.closeExceptionally(cause);
+            return;
+        }
+        System.out.println("[CLIENT] Connection lost; reconnecting...");
+        long deadline = System.currentTimeMillis() + RECONNECT_WINDOW_MS;
+        long backoff = 250;
+        while (!closing && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
             try {
-                socket.close();
-            } catch (IOException ignored) {
+                ConnectAckMessage ack = openSession(token);
+                System.out.println(ack.isResumed() ? "[CLIENT] Session resumed" : "[CLIENT] Reconnected as a new session");
+                return;
+            } catch (IOException e) {
+                if (connection != null) {
+                    connection.close();
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
             }
         }
+        if (!closing) {
+            System.out.println("[CLIENT] Could not reconnect to the server. Please restart the client.");
+            failPending(cause);
+            events.closeExceptionally(cause);
+        }
     }
 
     /**
-     * Simple console handling for incoming messages from the receiver thread.
+     * Serializes and transmits a protocol message to the server.
      */
-    private void handleIncoming(BaseMessage message) {
-        if (message instanceof ChatMessage) {
-            ChatMessage chat = (ChatMessage) message;
-            if (chat.isDirect()) {
-                System.out.println("[DM from " + chat.getFrom() + "] " + chat.getContent());
-            } else {
-                System.out.println("[" + chat.getFrom() + "] " + chat.getContent());
-            }
-        } else if (message instanceof ServerBroadcastMessage) {
-            System.out.println("[SERVER] " + ((ServerBroadcastMessage) message).getContent());
-        } else if (message instanceof ErrorMessage) {
-            System.out.println("[ERROR] " + ((ErrorMessage) message).getCode() + ": " + ((ErrorMessage) message).getMessageText());
-        } else if (message instanceof DisconnectMessage) {
-            System.out.println("[SERVER] Disconnect: " + ((DisconnectMessage) message).getReason());
-            disconnect();
-        } else if (message instanceof UserListMessage) {
-            UserListMessage list = (UserListMessage) message;
-            System.out.println("[USERS] " + String.join(", ", list.getUsers()));
+    @Override
+    public void send(BaseMessage message) throws IOException {
+        byte[] frame = Framing.frame(message.serialize());
+        synchronized (writeLock) {
+            connection.write(frame);
         }
     }
 
     /**
-     * Helper to send a message and report user-friendly errors when the network is unavailable.
+     * Gracefully disconnects by notifying the server and closing the connection.
      */
-    private void sendWithFriendlyError(BaseMessage message, String action) {
+    @Override
+    public void disconnect() {
+        closing = true;
+        failPending(new IOException("Client disconnected"));
+        events.close();
         try {
-            send(message);
-        } catch (IOException e) {
-            System.out.printf("Could not %s. Please check your connection and try again. (%s)%n", action, e.getMessage());
+            send(new DisconnectMessage("client_exit"));
+        } catch (IOException ignored) {
+        } finally {
+            connection.close();
         }
     }
 }
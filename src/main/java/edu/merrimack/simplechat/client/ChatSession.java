@@ -0,0 +1,354 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.BatchMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.ListUsersMessage;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.protocol.SearchMessage;
+import edu.merrimack.simplechat.common.protocol.SearchResultsMessage;
+import edu.merrimack.simplechat.common.protocol.SetUsernameMessage;
+import edu.merrimack.simplechat.common.protocol.TransferMessage;
+import edu.merrimack.simplechat.common.protocol.TransferOfferMessage;
+import edu.merrimack.simplechat.common.protocol.UserListMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport-independent half of an SCP client session: messaging helpers, request correlation, and the
+ * incoming event stream. Subclasses supply the connection.
+ *
+ * <p>The {@code void} helpers are fire-and-forget and print any server errors. The {@code *Async} methods
+ * instead tag each request with a {@code requestId} and return a future completed by the matching
+ * {@code ACK}, {@code USER_LIST}, {@code SEARCH_RESULTS}, or {@code ERROR} (as {@link RequestFailedException}),
+ * or failed with a {@link java.util.concurrent.TimeoutException} if no answer arrives in time. Any number may
+ * be in flight. Futures complete on the thread that reads from the connection, so dependent callbacks should
+ * not block.
+ *
+ * <p>Payloads too large for a chat message go through {@link #sendTransferAsync}, which splits them into
+ * chunks that share the connection with chat. Offers from other users arrive on {@link #events()} as
+ * {@link TransferOfferMessage}s to {@link #acceptTransfer accept} or {@link #declineTransfer decline}.
+ */
+public abstract class ChatSession {
+
+    private static final long DEFAULT_REQUEST_TIMEOUT_MS = 10_000;
+    /** Optional features every session declares in its handshake. */
+    private static final List<String> CAPABILITIES = List.of(ProtocolConstants.CAP_PRESENCE_DELTA,
+            ProtocolConstants.CAP_TRANSFERS, ProtocolConstants.CAP_BATCH);
+
+    protected final String username;
+    protected final String clientId = UUID.randomUUID().toString();
+    protected final ClientEvents events;
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Map<String, CompletableFuture<BaseMessage>> pending = new ConcurrentHashMap<>();
+    // Transfers only stores the session; it is not used until construction is over
+    @SuppressWarnings("this-escape")
+    private final Transfers transfers = new Transfers(this);
+    private volatile long requestTimeoutMs = DEFAULT_REQUEST_TIMEOUT_MS;
+    private volatile String protocolVersion;
+    private volatile List<String> capabilities = List.of();
+
+    /** Creates a session presenting {@code username} and publishing incoming messages to {@code events}. */
+    protected ChatSession(String username, ClientEvents events) {
+        this.username = username;
+        this.events = events;
+    }
+
+    /**
+     * Establishes the connection and completes the {@code CONNECT} handshake.
+     */
+    public abstract void connect() throws IOException, InvalidObjectException;
+
+    /**
+     * Serializes and transmits a protocol message to the server.
+     */
+    public abstract void send(BaseMessage message) throws IOException;
+
+    /**
+     * Gracefully disconnects by notifying the server and closing the connection.
+     */
+    public abstract void disconnect();
+
+    /**
+     * Stream of incoming messages not claimed by a request future. Subscribe before {@link #connect()} to
+     * see everything; the stream completes on {@link #disconnect()}.
+     */
+    public ClientEvents events() {
+        return events;
+    }
+
+    /** Protocol version agreed in the latest handshake, or null before the first one. */
+    public String getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /**
+     * Optional features the session uses, as agreed in the latest handshake. Servers predating negotiation
+     * do not report theirs, so against them this is everything the client declared.
+     */
+    public List<String> getCapabilities() {
+        return capabilities;
+    }
+
+    /** Sets how long the {@code *Async} methods wait for an answer before failing with a timeout. */
+    public void setRequestTimeout(long millis) {
+        this.requestTimeoutMs = millis;
+    }
+
+    /**
+     * Tags {@code message} with a fresh request id, sends it, and returns a future for the server's answer.
+     */
+    public CompletableFuture<BaseMessage> request(BaseMessage message) {
+        String id = Long.toString(nextRequestId.incrementAndGet(), 36);
+        message.setRequestId(id);
+        CompletableFuture<BaseMessage> future = new CompletableFuture<>();
+        pending.put(id, future);
+        future.orTimeout(requestTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((reply, error) -> pending.remove(id));
+        try {
+            send(message);
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /** Broadcasts {@code content}; completes once the server accepted it. */
+    public CompletableFuture<Void> sendChatToAllAsync(String content) {
+        return request(new ChatMessage(username, null, false, content)).thenApply(reply -> null);
+    }
+
+    /** Sends a direct message; fails with {@code UNKNOWN_USER} if {@code to} is not connected. */
+    public CompletableFuture<Void> sendDirectAsync(String to, String content) {
+        return request(new ChatMessage(username, to, true, content)).thenApply(reply -> null);
+    }
+
+    /** Requests a username change; fails with {@code USERNAME_TAKEN} or {@code INVALID_USERNAME}. */
+    public CompletableFuture<Void> changeUsernameAsync(String newName) {
+        return request(new SetUsernameMessage(newName)).thenApply(reply -> null);
+    }
+
+    /** Sends a user list query (full, paged, filtered, or delta) and returns the server's list. */
+    public CompletableFuture<UserListMessage> listUsersAsync(ListUsersMessage query) {
+        return request(query).thenApply(UserListMessage.class::cast);
+    }
+
+    /** Searches the server's message history and returns one page of matches, newest first. */
+    public CompletableFuture<SearchResultsMessage> searchAsync(SearchMessage query) {
+        return request(query).thenApply(SearchResultsMessage.class::cast);
+    }
+
+    /**
+     * Sends up to {@link ProtocolConstants#MAX_BATCH_SIZE} messages in one frame, handled in order as if sent
+     * one by one, and returns the replies they produced, each tagged with its message's {@code requestId}.
+     */
+    public CompletableFuture<BatchMessage> sendBatchAsync(List<? extends BaseMessage> messages) {
+        return request(new BatchMessage(messages)).thenApply(BatchMessage.class::cast);
+    }
+
+    /**
+     * Offers {@code size} bytes read from {@code source} to {@code to} under the display name {@code name},
+     * then streams them in chunks once the recipient accepts. Completes when the recipient has every chunk;
+     * fails if the offer is refused or the transfer is cancelled by either side. The source is closed when
+     * the transfer ends.
+     */
+    public CompletableFuture<Void> sendTransferAsync(String to, String name, long size, InputStream source) {
+        return transfers.send(username, to, name, size, source);
+    }
+
+    /**
+     * Accepts a transfer offered to this session, writing its payload to {@code sink} as chunks arrive;
+     * completes with the number of bytes received. The caller closes {@code sink}.
+     */
+    public CompletableFuture<Long> acceptTransfer(TransferOfferMessage offer, OutputStream sink) {
+        return transfers.accept(offer, sink);
+    }
+
+    /** Offer from {@code from} with id {@code transferId} that has not been answered yet, or null. */
+    public TransferOfferMessage findTransferOffer(String from, String transferId) {
+        return transfers.findOffer(from, transferId);
+    }
+
+    /** Declines a transfer offered to this session, or abandons one already accepted. */
+    public void declineTransfer(TransferOfferMessage offer) {
+        transfers.decline(offer);
+    }
+
+    /** Cancels a transfer this session is sending; returns false if it has already ended. */
+    public boolean cancelTransfer(String transferId) {
+        return transfers.cancelOutgoing(transferId);
+    }
+
+    /**
+     * Sends a broadcast chat message to all connected users.
+     */
+    public void sendChatToAll(String content) {
+        ChatMessage msg = new ChatMessage(username, null, false, content);
+        sendWithFriendlyError(msg, "send your message");
+    }
+
+    /**
+     * Sends a direct message to the specified recipient.
+     */
+    public void sendDirect(String to, String content) {
+        ChatMessage msg = new ChatMessage(username, to, true, content);
+        sendWithFriendlyError(msg, "send your direct message to " + to);
+    }
+
+    /**
+     * Requests that the server update this session's username.
+     */
+    public void requestUsernameChange(String newName) {
+        SetUsernameMessage msg = new SetUsernameMessage(newName);
+        sendWithFriendlyError(msg, "change your username");
+    }
+
+    /** Requests the list of currently connected users. */
+    public void requestUserList() {
+        ListUsersMessage msg = new ListUsersMessage();
+        sendWithFriendlyError(msg, "fetch the user list");
+    }
+
+    /** Requests one sorted page of up to {@code limit} users after {@code cursor} (null for the first page). */
+    public void requestUserList(String cursor, int limit) {
+        ListUsersMessage msg = new ListUsersMessage(cursor, limit);
+        sendWithFriendlyError(msg, "fetch the user list");
+    }
+
+    /** Requests up to {@code limit} users whose names start with {@code prefix}, e.g. to autocomplete a DM target. */
+    public void requestMatchingUsers(String prefix, int limit) {
+        ListUsersMessage msg = new ListUsersMessage(prefix, null, limit);
+        sendWithFriendlyError(msg, "fetch matching users");
+    }
+
+    /** Requests only the users added and removed since list version {@code sinceVersion}. */
+    public void requestUserListChanges(long sinceVersion) {
+        ListUsersMessage msg = new ListUsersMessage(sinceVersion);
+        sendWithFriendlyError(msg, "fetch user list changes");
+    }
+
+    /**
+     * Searches past messages for every word of {@code query} (null for any), sent by {@code from} when
+     * non-null, fetching up to {@code limit} of the newest matches.
+     */
+    public void requestSearch(String query, String from, int limit) {
+        SearchMessage msg = new SearchMessage(query, from, 0, 0, limit, null);
+        sendWithFriendlyError(msg, "search messages");
+    }
+
+    /** Builds the handshake request, presenting {@code resumeToken} when non-null. */
+    protected ConnectMessage connectMessage(String resumeToken) {
+        return new ConnectMessage(clientId, username, resumeToken, CAPABILITIES);
+    }
+
+    /**
+     * Checks the server's first reply and returns it as an acknowledgement, or throws with a user-facing
+     * reason if the connection was refused.
+     */
+    protected ConnectAckMessage checkHandshake(BaseMessage msg) throws InvalidObjectException {
+        if (msg.getType() == MessageType.ERROR) {
+            ErrorMessage err = (ErrorMessage) msg;
+            String reason = err.getMessageText();
+            if ("USERNAME_TAKEN".equalsIgnoreCase(err.getCode())) {
+                reason = "The username '" + username + "' is already in use. Please choose a different name or disconnect the other session.";
+            }
+            if (reason == null || reason.isBlank()) {
+                reason = "Server rejected the connection" + (err.getCode() != null ? " (" + err.getCode() + ")" : "");
+            }
+            throw new InvalidObjectException(reason);
+        }
+        if (msg.getType() != MessageType.CONNECT_ACK) {
+            throw new InvalidObjectException("Unexpected handshake response: " + msg.getType());
+        }
+        ConnectAckMessage ack = (ConnectAckMessage) msg;
+        if (!"OK".equalsIgnoreCase(ack.getStatus())) {
+            throw new InvalidObjectException("Connection rejected: " + ack.getMessageText());
+        }
+        if (ack.getVersion() != null) {
+            protocolVersion = ack.getVersion();
+            capabilities = List.copyOf(ack.getCapabilities());
+        } else {
+            protocolVersion = ProtocolConstants.VERSION;
+            capabilities = CAPABILITIES;
+        }
+        return ack;
+    }
+
+    /**
+     * Runs on the reading thread for every incoming message: completes the matching request future if
+     * there is one, hands transfer traffic to the session's transfers, and publishes the rest to
+     * {@link #events()} subscribers. Transfer chunks and acks are not published.
+     */
+    protected void handleIncoming(BaseMessage message) {
+        if (message.getRequestId() != null && completePending(message)) {
+            return;
+        }
+        if (message instanceof BatchMessage) {
+            for (BaseMessage item : ((BatchMessage) message).getMessages()) {
+                handleIncoming(item);
+            }
+            return;
+        }
+        if (message instanceof TransferMessage && transfers.handle((TransferMessage) message)) {
+            return;
+        }
+        events.publish(message);
+        if (message instanceof DisconnectMessage) {
+            disconnect();
+        }
+    }
+
+    /** Fails every outstanding request future and transfer with {@code cause}. */
+    protected void failPending(IOException cause) {
+        for (CompletableFuture<BaseMessage> future : pending.values()) {
+            future.completeExceptionally(cause);
+        }
+        failTransfers(cause);
+    }
+
+    /** Fails every transfer in either direction; the server cancels them when a connection drops. */
+    protected void failTransfers(IOException cause) {
+        transfers.failAll(cause);
+    }
+
+    /**
+     * Completes the future waiting on this response's request id; returns false if none is pending.
+     */
+    private boolean completePending(BaseMessage message) {
+        CompletableFuture<BaseMessage> future = pending.remove(message.getRequestId());
+        if (future == null) {
+            return false;
+        }
+        if (message instanceof ErrorMessage) {
+            future.completeExceptionally(new RequestFailedException((ErrorMessage) message));
+        } else {
+            future.complete(message);
+        }
+        return true;
+    }
+
+    /**
+     * Helper to send a message and report user-friendly errors when the network is unavailable.
+     */
+    private void sendWithFriendlyError(BaseMessage message, String action) {
+        try {
+            send(message);
+        } catch (IOException e) {
+            System.out.printf("Could not %s. Please check your connection and try again. (%s)%n", action, e.getMessage());
+        }
+    }
+}
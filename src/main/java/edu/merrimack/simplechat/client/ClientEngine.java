@@ -0,0 +1,79 @@
+package edu.merrimack.simplechat.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many client sessions in one process by multiplexing their non-blocking channels over a few
+ * selector threads, instead of one blocking socket and receive thread per {@link ChatClient}.
+ *
+ * <p>Sessions are spread round-robin across the loops. Each loop decodes from one shared read buffer, and
+ * every session's event stream delivers on one shared work-stealing pool.
+ */
+public class ClientEngine implements AutoCloseable {
+
+    private final List<EngineLoop> loops = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final ExecutorService eventExecutor = Executors.newWorkStealingPool();
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** Starts an engine with {@code selectorThreads} selector loops. */
+    public ClientEngine(int selectorThreads) throws IOException {
+        if (selectorThreads < 1) {
+            throw new IllegalArgumentException("selectorThreads must be at least 1");
+        }
+        for (int i = 0; i < selectorThreads; i++) {
+            EngineLoop loop = new EngineLoop();
+            Thread thread = new Thread(loop, "client-engine-" + i);
+            loops.add(loop);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Creates an unconnected session presenting {@code username}; call {@link EngineSession#connect()} or
+     * {@link EngineSession#connectAsync()} to open it.
+     */
+    public EngineSession newSession(String host, int port, String username) {
+        return newSession(host, port, username, Flow.defaultBufferSize(), ClientEvents.Overflow.BLOCK);
+    }
+
+    /**
+     * Creates an unconnected session whose event subscribers each buffer up to {@code eventBufferSize}
+     * messages, handling overflow according to {@code overflow}.
+     */
+    public EngineSession newSession(String host, int port, String username, int eventBufferSize,
+                                    ClientEvents.Overflow overflow) {
+        EngineLoop loop = loops.get(Math.floorMod(next.getAndIncrement(), loops.size()));
+        return new EngineSession(loop, host, port, username,
+                new ClientEvents(eventBufferSize, overflow, eventExecutor));
+    }
+
+    /** Number of selector threads. */
+    public int getSelectorThreads() {
+        return loops.size();
+    }
+
+    /** Closes every session's channel and stops the selector threads. */
+    @Override
+    public void close() {
+        for (EngineLoop loop : loops) {
+            loop.shutdown();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        eventExecutor.shutdown();
+    }
+}
@@ -0,0 +1,191 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.PresenceDeltaMessage;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Publishes a client's incoming messages as a {@link Flow.Publisher} so consumers run off the socket-read
+ * thread and pull messages at their own pace.
+ *
+ * <p>Each subscriber gets its own bounded buffer and is only sent as many messages as it has requested.
+ * When a subscriber's buffer is full the {@link Overflow} policy decides what happens: {@code BLOCK} stalls
+ * the socket read until the subscriber catches up, which in turn throttles the server through TCP flow
+ * control; {@code DROP_NEWEST} discards the message for that subscriber and counts it.
+ */
+public class ClientEvents implements Flow.Publisher<BaseMessage> {
+
+    /** What to do with a message when a subscriber's buffer is full. */
+    public enum Overflow {
+        /** Block the socket-read thread until the subscriber has room. */
+        BLOCK,
+        /** Drop the message for the lagging subscriber only. */
+        DROP_NEWEST
+    }
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final SubmissionPublisher<BaseMessage> publisher;
+    private final ExecutorService ownExecutor;
+    private final Overflow overflow;
+    private final LongAdder dropped = new LongAdder();
+
+    /** Creates a publisher with {@code bufferSize} slots per subscriber and the given overflow policy. */
+    public ClientEvents(int bufferSize, Overflow overflow) {
+        this.ownExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "client-events-" + THREADS.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.publisher = new SubmissionPublisher<>(ownExecutor, bufferSize);
+        this.overflow = overflow;
+    }
+
+    /** Creates a publisher delivering on a shared {@code executor}, which closing this publisher leaves running. */
+    public ClientEvents(int bufferSize, Overflow overflow, Executor executor) {
+        this.ownExecutor = null;
+        this.publisher = new SubmissionPublisher<>(executor, bufferSize);
+        this.overflow = overflow;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super BaseMessage> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /** Broadcast chat messages. */
+    public Flow.Publisher<ChatMessage> chat() {
+        return filtered(ChatMessage.class, msg -> !msg.isDirect());
+    }
+
+    /** Direct messages addressed to this client. */
+    public Flow.Publisher<ChatMessage> directMessages() {
+        return filtered(ChatMessage.class, ChatMessage::isDirect);
+    }
+
+    /** Coalesced join, leave, and rename events. */
+    public Flow.Publisher<PresenceDeltaMessage> presence() {
+        return filtered(PresenceDeltaMessage.class, msg -> true);
+    }
+
+    /** Errors not claimed by a pending request future. */
+    public Flow.Publisher<ErrorMessage> errors() {
+        return filtered(ErrorMessage.class, msg -> true);
+    }
+
+    /** Messages of {@code type} that match {@code filter}. */
+    public <T extends BaseMessage> Flow.Publisher<T> filtered(Class<T> type, Predicate<? super T> filter) {
+        return subscriber -> publisher.subscribe(new FilteringSubscriber<>(type, filter, subscriber));
+    }
+
+    /** Messages discarded under {@link Overflow#DROP_NEWEST}, summed across subscribers. */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /** Number of current subscribers. */
+    public int subscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * Whether some subscriber has at least half its buffer waiting, a hint for non-blocking transports to
+     * stop reading from the connection until subscribers catch up.
+     */
+    boolean hasBacklog() {
+        return publisher.estimateMaximumLag() >= Math.max(1, publisher.getMaxBufferCapacity() / 2);
+    }
+
+    /**
+     * Hands a message to every subscriber according to the overflow policy; called on the socket-read
+     * thread. Messages published after {@link #close()} are ignored.
+     */
+    void publish(BaseMessage message) {
+        if (publisher.isClosed()) {
+            return;
+        }
+        try {
+            if (overflow == Overflow.BLOCK) {
+                publisher.submit(message);
+            } else {
+                publisher.offer(message, (subscriber, item) -> {
+                    dropped.increment();
+                    return false;
+                });
+            }
+        } catch (IllegalStateException closedConcurrently) {
+            // close() raced with this publish; nothing left to deliver to
+        }
+    }
+
+    /** Completes every subscriber once its buffered messages are delivered. */
+    void close() {
+        publisher.close();
+        shutdownOwnExecutor();
+    }
+
+    /** Fails every subscriber with {@code cause} after its buffered messages. */
+    void closeExceptionally(Throwable cause) {
+        publisher.closeExceptionally(cause);
+        shutdownOwnExecutor();
+    }
+
+    /** Lets the private delivery threads exit once idle; a shared executor is left to its owner. */
+    private void shutdownOwnExecutor() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Passes through messages of one type that match a filter. Skipped messages are re-requested upstream
+     * so they never consume the downstream subscriber's demand.
+     */
+    private static final class FilteringSubscriber<T extends BaseMessage> implements Flow.Subscriber<BaseMessage> {
+        private final Class<T> type;
+        private final Predicate<? super T> filter;
+        private final Flow.Subscriber<? super T> downstream;
+        private Flow.Subscription upstream;
+
+        private FilteringSubscriber(Class<T> type, Predicate<? super T> filter, Flow.Subscriber<? super T> downstream) {
+            this.type = type;
+            this.filter = filter;
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.upstream = subscription;
+            downstream.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(BaseMessage item) {
+            if (type.isInstance(item) && filter.test(type.cast(item))) {
+                downstream.onNext(type.cast(item));
+            } else {
+                upstream.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            downstream.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            downstream.onComplete();
+        }
+    }
+}
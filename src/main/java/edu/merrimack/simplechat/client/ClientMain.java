@@ -3,7 +3,14 @@ package edu.merrimack.simplechat.client;
 import edu.merrimack.simplechat.common.config.HostEntry;
 import edu.merrimack.simplechat.common.config.HostsConfig;
 
+import edu.merrimack.simplechat.common.protocol.TransferOfferMessage;
+
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 import java.util.Scanner;
 
@@ -17,6 +24,7 @@ public class ClientMain {
         System.out.println("Usage: java -jar simplechat-protocol-<version>-client.jar [options]");
         System.out.println("Options:");
         System.out.println("  --host <hostname>      Server host (default 127.0.0.1)");
+        System.out.println("                         or unix:<path> for a Unix domain socket");
         System.out.println("  --port <port>          Server port (default 9000)");
         System.out.println("  --name <alias>         Lookup host/port by alias in hosts file");
         System.out.println("  --username <name>      Username to present to the server (default guest)");
@@ -32,7 +40,11 @@ public class ClientMain {
         System.out.println("  /all <message>         Broadcast to all users");
         System.out.println("  /dm <user> <message>   Direct message a user");
         System.out.println("  /name <new>            Request a username change");
-        System.out.println("  /list                  Show connected users");
+        System.out.println("  /list [prefix]         Show connected users, optionally those starting with prefix");
+        System.out.println("  /search <words>        Find past messages; start with @user to match one sender");
+        System.out.println("  /send <user> <file>    Offer a file to a user");
+        System.out.println("  /accept <user> <id>    Accept a file offer, saving it in the current directory");
+        System.out.println("  /decline <user> <id>   Decline a file offer");
         System.out.println("  /help                  Show this command list");
         System.out.println("  /quit                  Disconnect and exit");
     }
@@ -127,6 +139,7 @@ public class ClientMain {
         }
 
         ChatClient client = new ChatClient(host, port, username);
+        client.events().subscribe(new ConsolePrinter());
         try {
             client.connect();
             System.out.printf("Connected to %s:%d as %s%n", host, port, username);
@@ -178,9 +191,85 @@ public class ClientMain {
             String newName = line.substring(6);
             client.requestUsernameChange(newName);
         } else if (line.startsWith("/list")) {
-            client.requestUserList();
+            String prefix = line.substring(5).trim();
+            if (prefix.isEmpty()) {
+                client.requestUserList();
+            } else {
+                client.requestMatchingUsers(prefix, 20);
+            }
+        } else if (line.startsWith("/search ")) {
+            String query = line.substring(8).trim();
+            String from = null;
+            if (query.startsWith("@")) {
+                String[] parts = query.split("\\s+", 2);
+                from = parts[0].substring(1);
+                query = parts.length > 1 ? parts[1] : null;
+            }
+            client.requestSearch(query, from, 20);
+        } else if (line.startsWith("/send ")) {
+            String[] parts = line.split("\\s+", 3);
+            if (parts.length < 3) {
+                System.out.println("Usage: /send <user> <file>");
+                return;
+            }
+            sendFile(client, parts[1], Path.of(parts[2]));
+        } else if (line.startsWith("/accept ") || line.startsWith("/decline ")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 3) {
+                System.out.println("Usage: " + parts[0] + " <user> <id>");
+                return;
+            }
+            TransferOfferMessage offer = client.findTransferOffer(parts[1], parts[2]);
+            if (offer == null) {
+                System.out.println("No pending transfer " + parts[2] + " from " + parts[1] + ".");
+            } else if (parts[0].equals("/accept")) {
+                receiveFile(client, offer);
+            } else {
+                client.declineTransfer(offer);
+            }
         } else {
             System.out.println("Unknown command. Type /help for the command list.");
         }
     }
+
+    /** Offers {@code file} to {@code to} and reports when the transfer finishes. */
+    private static void sendFile(ChatClient client, String to, Path file) {
+        try {
+            long size = Files.size(file);
+            String name = file.getFileName().toString();
+            client.sendTransferAsync(to, name, size, Files.newInputStream(file)).whenComplete((ok, error) ->
+                    System.out.println(error == null ? "[TRANSFER] Sent " + name + " to " + to
+                            : "[TRANSFER] Could not send " + name + " to " + to + ": " + error.getMessage()));
+            System.out.printf("[TRANSFER] Offered %s (%d bytes) to %s%n", name, size, to);
+        } catch (IOException e) {
+            System.out.println("Could not read " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Accepts {@code offer} into a new file in the current directory named after the offer. Only the last
+     * path element of the offered name is used, and an existing file is never overwritten.
+     */
+    private static void receiveFile(ChatClient client, TransferOfferMessage offer) {
+        Path target = Path.of(offer.getName()).getFileName();
+        if (target == null || target.toString().startsWith(".")) {
+            target = Path.of("transfer-" + offer.getTransferId());
+        }
+        OutputStream sink;
+        try {
+            sink = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW);
+        } catch (IOException e) {
+            System.out.println("Could not create " + target + ": " + e.getMessage());
+            return;
+        }
+        Path saved = target;
+        client.acceptTransfer(offer, sink).whenComplete((bytes, error) -> {
+            try {
+                sink.close();
+            } catch (IOException ignored) {
+            }
+            System.out.println(error == null ? "[TRANSFER] Saved " + bytes + " bytes to " + saved
+                    : "[TRANSFER] Transfer of " + saved + " failed: " + error.getMessage());
+        });
+    }
 }
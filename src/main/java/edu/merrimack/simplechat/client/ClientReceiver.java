@@ -1,8 +1,9 @@
 package edu.merrimack.simplechat.client;
 
-import edu.merrimack.simplechat.common.Framing;
 import edu.merrimack.simplechat.common.protocol.BaseMessage;
 import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.TcpTransport;
 
 import java.io.IOException;
 import java.io.InvalidObjectException;
@@ -14,25 +15,41 @@ import java.util.function.Consumer;
  */
 public class ClientReceiver implements Runnable {
 
-    private final Socket socket;
+    private final Connection connection;
     private final Consumer<BaseMessage> consumer;
+    private final Runnable onClose;
 
     /**
      * Builds a receiver that pulls frames from the given socket and forwards parsed messages.
      */
     public ClientReceiver(Socket socket, Consumer<BaseMessage> consumer) {
-        this.socket = socket;
+        this(socket, consumer, () -> { });
+    }
+
+    /**
+     * Builds a receiver that additionally runs {@code onClose} once the socket stops delivering frames.
+     */
+    public ClientReceiver(Socket socket, Consumer<BaseMessage> consumer, Runnable onClose) {
+        this(new TcpTransport.TcpConnection(socket), consumer, onClose);
+    }
+
+    /**
+     * Builds a receiver that pulls frames from a connection over any transport.
+     */
+    public ClientReceiver(Connection connection, Consumer<BaseMessage> consumer, Runnable onClose) {
+        this.connection = connection;
         this.consumer = consumer;
+        this.onClose = onClose;
     }
 
     /**
-     * Continuously reads framed JSON messages, parsing and forwarding them until the socket closes.
+     * Continuously reads framed JSON messages, parsing and forwarding them until the connection closes.
      */
     @Override
     public void run() {
         try {
-            while (!socket.isClosed()) {
-                String json = Framing.readFrame(socket.getInputStream());
+            while (!connection.isClosed()) {
+                String json = connection.readFrame();
                 if (json == null) {
                     break;
                 }
@@ -44,7 +61,10 @@ public class ClientReceiver implements Runnable {
                 }
             }
         } catch (IOException e) {
-            System.err.println("Receiver error: " + e.getMessage());
+            if (!connection.isClosed()) {
+                System.err.println("Receiver error: " + e.getMessage());
+            }
         }
+        onClose.run();
     }
 }
@@ -0,0 +1,101 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.PresenceDeltaMessage;
+import edu.merrimack.simplechat.common.protocol.SearchResultsMessage;
+import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
+import edu.merrimack.simplechat.common.protocol.TransferCancelMessage;
+import edu.merrimack.simplechat.common.protocol.TransferOfferMessage;
+import edu.merrimack.simplechat.common.protocol.UserListMessage;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.Flow;
+
+/**
+ * Event subscriber used by the interactive client to print incoming messages to the console.
+ */
+public class ConsolePrinter implements Flow.Subscriber<BaseMessage> {
+
+    private Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(BaseMessage message) {
+        print(message);
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.out.println("[CLIENT] " + throwable.getMessage());
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    /** Formats one message for the console. */
+    private static void print(BaseMessage message) {
+        if (message instanceof ChatMessage) {
+            ChatMessage chat = (ChatMessage) message;
+            if (chat.isDirect()) {
+                System.out.println("[DM from " + chat.getFrom() + "] " + chat.getContent());
+            } else {
+                System.out.println("[" + chat.getFrom() + "] " + chat.getContent());
+            }
+        } else if (message instanceof PresenceDeltaMessage) {
+            System.out.println("[SERVER] " + ((PresenceDeltaMessage) message).toSummary());
+        } else if (message instanceof ServerBroadcastMessage) {
+            System.out.println("[SERVER] " + ((ServerBroadcastMessage) message).getContent());
+        } else if (message instanceof ErrorMessage) {
+            System.out.println("[ERROR] " + ((ErrorMessage) message).getCode() + ": " + ((ErrorMessage) message).getMessageText());
+        } else if (message instanceof DisconnectMessage) {
+            System.out.println("[SERVER] Disconnect: " + ((DisconnectMessage) message).getReason());
+        } else if (message instanceof TransferOfferMessage) {
+            TransferOfferMessage offer = (TransferOfferMessage) message;
+            System.out.printf("[TRANSFER] %s offers '%s' (%d bytes). Type /accept %s %s or /decline %s %s%n",
+                    offer.getFrom(), offer.getName(), offer.getSize(), offer.getFrom(), offer.getTransferId(),
+                    offer.getFrom(), offer.getTransferId());
+        } else if (message instanceof TransferCancelMessage) {
+            TransferCancelMessage cancel = (TransferCancelMessage) message;
+            System.out.println("[TRANSFER] " + cancel.getTransferId() + " from " + cancel.getFrom()
+                    + " was cancelled: " + cancel.getReason());
+        } else if (message instanceof SearchResultsMessage) {
+            SearchResultsMessage results = (SearchResultsMessage) message;
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+            if (results.getMessages().isEmpty()) {
+                System.out.println("[SEARCH] no matching messages");
+            }
+            for (ChatMessage chat : results.getMessages()) {
+                String sender = chat.isDirect() ? chat.getFrom() + " -> " + chat.getTo() : chat.getFrom();
+                System.out.println("[SEARCH " + format.format(new Date(chat.getTimestamp())) + "] " + sender + ": "
+                        + chat.getContent());
+            }
+            if (results.getNextCursor() != null) {
+                System.out.println("[SEARCH] older matches available");
+            }
+        } else if (message instanceof UserListMessage) {
+            UserListMessage list = (UserListMessage) message;
+            if (list.isDelta()) {
+                System.out.println("[USERS] joined: " + String.join(", ", list.getAdded())
+                        + "; left: " + String.join(", ", list.getRemoved()));
+            } else {
+                System.out.println("[USERS] " + String.join(", ", list.getUsers()));
+                if (list.getNextCursor() != null) {
+                    System.out.println(list.getTotal() >= 0
+                            ? "[USERS] showing " + list.getUsers().size() + " of " + list.getTotal()
+                            : "[USERS] more matches available");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package edu.merrimack.simplechat.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One selector thread of a {@link ClientEngine}, serving every session assigned to it.
+ *
+ * <p>All sessions on the loop decode from a single shared read buffer. Work from other threads, such as
+ * registering a new channel, is queued and run between selects.
+ */
+final class EngineLoop implements Runnable {
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final long BACKLOG_RECHECK_MS = 20;
+
+    private final Selector selector;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final List<EngineSession> paused = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /** Opens the loop's selector. */
+    EngineLoop() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    /** Selector the loop's sessions register with. */
+    Selector selector() {
+        return selector;
+    }
+
+    /** Runs {@code task} on the loop thread before its next select. */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /** Wakes the loop so interest changes made from other threads take effect. */
+    void wakeup() {
+        selector.wakeup();
+    }
+
+    /** Stops reading {@code session} until its subscribers drain their backlog; loop thread only. */
+    void pause(EngineSession session) {
+        paused.add(session);
+    }
+
+    /**
+     * Selects and dispatches I/O until {@link #shutdown()}, then closes every channel on the loop.
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(paused.isEmpty() ? 0 : BACKLOG_RECHECK_MS);
+            } catch (IOException e) {
+                break;
+            }
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+            resumeDrained();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                EngineSession session = (EngineSession) key.attachment();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isConnectable()) {
+                    session.onConnectable();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    session.onReadable(readBuffer);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    session.onWritable();
+                }
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            ((EngineSession) key.attachment()).onConnectionLost(new IOException("Client engine closed"));
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** Resumes reading sessions whose subscribers have caught up. */
+    private void resumeDrained() {
+        Iterator<EngineSession> it = paused.iterator();
+        while (it.hasNext()) {
+            EngineSession session = it.next();
+            if (session.tryResumeReading()) {
+                it.remove();
+            }
+        }
+    }
+
+    /** Asks the loop to exit after its current pass. */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,268 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A client session whose non-blocking channel is served by a {@link ClientEngine} selector thread. It
+ * offers the same messaging, request, and event API as {@link ChatClient}.
+ *
+ * <p>Sends write straight to the channel when nothing is queued and otherwise queue the frame for the
+ * selector thread to flush. Reading pauses while the session's event subscribers have a backlog, so a slow
+ * consumer throttles its own connection without stalling the other sessions on the loop. Unlike
+ * {@link ChatClient}, a dropped connection is not retried; the event stream fails instead.
+ */
+public class EngineSession extends ChatSession {
+
+    private static final long CONNECT_TIMEOUT_MS = 10_000;
+
+    private final EngineLoop loop;
+    private final String host;
+    private final int port;
+    private final FrameDecoder decoder = new FrameDecoder();
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private volatile SocketChannel channel;
+    private volatile SelectionKey key;
+    private volatile CompletableFuture<ConnectAckMessage> handshake;
+    private volatile boolean closing;
+
+    /** Creates a session served by {@code loop}; see {@link ClientEngine#newSession}. */
+    EngineSession(EngineLoop loop, String host, int port, String username, ClientEvents events) {
+        super(username, events);
+        this.loop = loop;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Connects and completes the handshake, blocking the caller until the server answers.
+     */
+    @Override
+    public void connect() throws IOException, InvalidObjectException {
+        try {
+            connectAsync().get(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while connecting");
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out connecting to " + host + ":" + port);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Starts connecting without blocking; the future completes with the server's acknowledgement, or fails
+     * with an {@link IOException} or {@link InvalidObjectException} if the connection is refused.
+     */
+    public CompletableFuture<ConnectAckMessage> connectAsync() {
+        closing = false;
+        CompletableFuture<ConnectAckMessage> future = new CompletableFuture<>();
+        handshake = future;
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        loop.execute(() -> open(address, future));
+        return future;
+    }
+
+    /** Opens and registers the channel; runs on the loop thread. */
+    private void open(InetSocketAddress address, CompletableFuture<ConnectAckMessage> future) {
+        try {
+            SocketChannel ch = SocketChannel.open();
+            channel = ch;
+            ch.configureBlocking(false);
+            boolean connected = ch.connect(address);
+            key = ch.register(loop.selector(), connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+            if (connected) {
+                send(connectMessage(null));
+            }
+        } catch (IOException e) {
+            onConnectionLost(e);
+        }
+    }
+
+    /** Finishes a pending connect and sends {@code CONNECT}; loop thread only. */
+    void onConnectable() {
+        try {
+            channel.finishConnect();
+            key.interestOps(SelectionKey.OP_READ);
+            send(connectMessage(null));
+        } catch (IOException e) {
+            onConnectionLost(e);
+        }
+    }
+
+    /**
+     * Reads what is available into the loop's shared buffer and dispatches every complete frame; loop
+     * thread only.
+     */
+    void onReadable(ByteBuffer shared) {
+        try {
+            shared.clear();
+            int read = channel.read(shared);
+            if (read < 0) {
+                onConnectionLost(new IOException("Connection closed by server"));
+                return;
+            }
+            shared.flip();
+            decoder.decode(shared, this::dispatch);
+            if (key.isValid() && events.hasBacklog()) {
+                key.interestOpsAnd(~SelectionKey.OP_READ);
+                loop.pause(this);
+            }
+        } catch (IOException e) {
+            onConnectionLost(e);
+        }
+    }
+
+    /** Re-enables reading once subscribers have caught up; returns true if resumed. Loop thread only. */
+    boolean tryResumeReading() {
+        if (!key.isValid()) {
+            return true;
+        }
+        if (events.hasBacklog()) {
+            return false;
+        }
+        key.interestOpsOr(SelectionKey.OP_READ);
+        return true;
+    }
+
+    /** Flushes queued frames; loop thread only. */
+    void onWritable() {
+        try {
+            synchronized (outbound) {
+                while (!outbound.isEmpty()) {
+                    ByteBuffer head = outbound.peek();
+                    channel.write(head);
+                    if (head.hasRemaining()) {
+                        return;
+                    }
+                    outbound.poll();
+                }
+                key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            onConnectionLost(e);
+        }
+    }
+
+    /** Parses one frame; the first completes the handshake, later ones go to the usual dispatch. */
+    private void dispatch(String json) {
+        BaseMessage msg;
+        try {
+            msg = MessageParser.parse(json);
+        } catch (InvalidObjectException e) {
+            CompletableFuture<ConnectAckMessage> pendingHandshake = handshake;
+            if (pendingHandshake != null && !pendingHandshake.isDone()) {
+                pendingHandshake.completeExceptionally(e);
+                return;
+            }
+            System.err.println("Received invalid message: " + e.getMessage());
+            return;
+        }
+        CompletableFuture<ConnectAckMessage> pendingHandshake = handshake;
+        if (pendingHandshake != null && !pendingHandshake.isDone()) {
+            try {
+                pendingHandshake.complete(checkHandshake(msg));
+            } catch (InvalidObjectException e) {
+                pendingHandshake.completeExceptionally(e);
+                closeChannel();
+            }
+            return;
+        }
+        handleIncoming(msg);
+    }
+
+    /**
+     * Serializes and queues a protocol message, writing it immediately when the channel has no backlog.
+     */
+    @Override
+    public void send(BaseMessage message) throws IOException {
+        ByteBuffer frame = ByteBuffer.wrap(Framing.frame(message.serialize()));
+        SocketChannel ch = channel;
+        if (ch == null || !ch.isConnected()) {
+            throw new IOException("Not connected");
+        }
+        synchronized (outbound) {
+            if (outbound.isEmpty()) {
+                ch.write(frame);
+                if (!frame.hasRemaining()) {
+                    return;
+                }
+            }
+            outbound.add(frame);
+            try {
+                key.interestOpsOr(SelectionKey.OP_WRITE);
+            } catch (CancelledKeyException e) {
+                throw new IOException("Connection closed");
+            }
+        }
+        loop.wakeup();
+    }
+
+    /**
+     * Notifies the server, completes the event stream, and closes the channel.
+     */
+    @Override
+    public void disconnect() {
+        closing = true;
+        failPending(new IOException("Client disconnected"));
+        events.close();
+        try {
+            send(new DisconnectMessage("client_exit"));
+        } catch (IOException ignored) {
+        } finally {
+            closeChannel();
+        }
+    }
+
+    /**
+     * Fails the handshake if it is still pending, and outstanding requests and the event stream unless the
+     * user disconnected.
+     */
+    void onConnectionLost(IOException cause) {
+        closeChannel();
+        CompletableFuture<ConnectAckMessage> pendingHandshake = handshake;
+        if (pendingHandshake != null && !pendingHandshake.isDone()) {
+            pendingHandshake.completeExceptionally(cause);
+        }
+        if (!closing) {
+            closing = true;
+            failPending(cause);
+            events.closeExceptionally(cause);
+        }
+    }
+
+    /** Cancels the key and closes the channel. */
+    private void closeChannel() {
+        SelectionKey k = key;
+        if (k != null) {
+            k.cancel();
+        }
+        SocketChannel ch = channel;
+        if (ch != null) {
+            try {
+                ch.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Incremental decoder for length-prefixed frames arriving in arbitrary chunks on a non-blocking channel.
+ *
+ * <p>Complete frames are decoded straight out of the caller's (typically shared) read buffer; only the
+ * trailing partial frame, if any, is copied into a per-connection buffer sized for that frame.
+ */
+final class FrameDecoder {
+
+    /** Largest frame accepted from the server. */
+    static final int MAX_FRAME_BYTES = 1 << 20;
+
+    private ByteBuffer partial;
+
+    /**
+     * Consumes every readable byte of {@code in} (in read mode), passing each complete frame's JSON to
+     * {@code sink} and keeping any remainder for the next call.
+     */
+    void decode(ByteBuffer in, Consumer<String> sink) throws IOException {
+        ByteBuffer source = in;
+        if (partial != null) {
+            if (partial.remaining() < in.remaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(partial.position() + in.remaining());
+                partial.flip();
+                grown.put(partial);
+                partial = grown;
+            }
+            partial.put(in);
+            partial.flip();
+            source = partial;
+        }
+
+        int needed = 0;
+        while (source.remaining() >= 4) {
+            int length = source.getInt(source.position());
+            if (length < 0 || length > MAX_FRAME_BYTES) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (source.remaining() < 4 + length) {
+                needed = 4 + length;
+                break;
+            }
+            source.position(source.position() + 4);
+            byte[] payload = new byte[length];
+            source.get(payload);
+            sink.accept(new String(payload, ProtocolConstants.UTF8));
+        }
+
+        if (!source.hasRemaining()) {
+            partial = null;
+        } else if (source != partial || source.position() > 0) {
+            ByteBuffer rest = ByteBuffer.allocate(Math.max(source.remaining(), needed));
+            rest.put(source);
+            partial = rest;
+        } else {
+            partial.position(partial.limit()).limit(partial.capacity());
+        }
+    }
+
+    /** Bytes held for an incomplete frame. */
+    int buffered() {
+        return partial == null ? 0 : partial.position();
+    }
+}
@@ -0,0 +1,31 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+
+/**
+ * Completes a request future when the server answered the request with {@code ERROR}.
+ */
+public class RequestFailedException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String code;
+    private final long retryAfterMs;
+
+    /** Wraps the server's error response. */
+    public RequestFailedException(ErrorMessage error) {
+        super(error.getCode() + ": " + error.getMessageText());
+        this.code = error.getCode();
+        this.retryAfterMs = error.getRetryAfterMs();
+    }
+
+    /** Machine-readable error code, e.g. {@code UNKNOWN_USER} or {@code RATE_LIMITED}. */
+    public String getCode() {
+        return code;
+    }
+
+    /** Suggested wait before retrying, or 0 when the server gave none. */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
@@ -0,0 +1,297 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.TransferAckMessage;
+import edu.merrimack.simplechat.common.protocol.TransferCancelMessage;
+import edu.merrimack.simplechat.common.protocol.TransferChunkMessage;
+import edu.merrimack.simplechat.common.protocol.TransferMessage;
+import edu.merrimack.simplechat.common.protocol.TransferOfferMessage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client half of chunked transfers for one {@link ChatSession}.
+ *
+ * <p>Each outgoing transfer is read and sent by its own thread, which sends a chunk only while the window
+ * granted by the recipient's acks has room, so it never sends more than
+ * {@link ProtocolConstants#TRANSFER_WINDOW} chunks ahead and the session's other sends interleave with
+ * its chunks. Incoming chunks are written to the accepting caller's stream on the thread that reads from
+ * the connection and acknowledged once written, so a slow sink slows its sender rather than filling memory.
+ */
+final class Transfers {
+
+    private final ChatSession session;
+    private final AtomicLong nextId = new AtomicLong();
+    /** Transfers this session sends, by transfer id. */
+    private final Map<String, Outgoing> outgoing = new ConcurrentHashMap<>();
+    /** Offers received and not yet accepted or declined, by sender and transfer id. */
+    private final Map<String, TransferOfferMessage> offered = new ConcurrentHashMap<>();
+    /** Accepted transfers being received, by sender and transfer id. */
+    private final Map<String, Incoming> incoming = new ConcurrentHashMap<>();
+
+    Transfers(ChatSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Offers {@code size} bytes from {@code source} to {@code to} and starts a thread that sends them once
+     * accepted. The source is closed when the transfer ends.
+     */
+    CompletableFuture<Void> send(String from, String to, String name, long size, InputStream source) {
+        String id = Long.toString(nextId.incrementAndGet(), 36);
+        Outgoing out = new Outgoing(new TransferOfferMessage(id, from, to, name, size), source);
+        outgoing.put(id, out);
+        out.future.whenComplete((ok, error) -> outgoing.remove(id, out));
+        session.request(out.offer).whenComplete((reply, error) -> {
+            if (error != null) {
+                out.fail(error);
+            }
+        });
+        Thread sender = new Thread(() -> pump(out), "transfer-sender");
+        sender.setDaemon(true);
+        sender.start();
+        return out.future;
+    }
+
+    /** Cancels one of this session's outgoing transfers; returns false if it is not active. */
+    boolean cancelOutgoing(String transferId) {
+        Outgoing out = outgoing.get(transferId);
+        if (out == null || !out.fail(new IOException("Transfer cancelled"))) {
+            return false;
+        }
+        sendQuietly(new TransferCancelMessage(transferId, out.offer.getFrom(), out.offer.getTo(), "cancelled"));
+        return true;
+    }
+
+    /**
+     * Accepts an offer, writing its payload to {@code sink}; completes with the number of bytes received.
+     */
+    CompletableFuture<Long> accept(TransferOfferMessage offer, OutputStream sink) {
+        String key = key(offer);
+        if (offered.remove(key) == null) {
+            return CompletableFuture.failedFuture(new IOException("Transfer " + offer.getTransferId()
+                    + " from " + offer.getFrom() + " is no longer on offer"));
+        }
+        Incoming in = new Incoming(offer, sink);
+        incoming.put(key, in);
+        in.future.whenComplete((bytes, error) -> incoming.remove(key, in));
+        if (in.chunks == 0) {
+            in.future.complete(0L);
+        }
+        sendQuietly(new TransferAckMessage(offer.getTransferId(), offer.getFrom(), offer.getTo(), 0));
+        return in.future;
+    }
+
+    /** Offer from {@code from} with id {@code transferId} that awaits an answer, or null. */
+    TransferOfferMessage findOffer(String from, String transferId) {
+        return offered.get(key(from, transferId));
+    }
+
+    /** Declines an offer, or abandons a transfer already accepted from its sender. */
+    void decline(TransferOfferMessage offer) {
+        String key = key(offer);
+        Incoming in = incoming.get(key);
+        boolean active = offered.remove(key) != null || (in != null && in.future.completeExceptionally(
+                new IOException("Transfer declined")));
+        if (active) {
+            sendQuietly(new TransferCancelMessage(offer.getTransferId(), offer.getFrom(), offer.getTo(), "declined"));
+        }
+    }
+
+    /**
+     * Handles a transfer message from the server. Returns true when it was consumed; offers and cancellations
+     * return false so they are also published to the session's event subscribers.
+     */
+    boolean handle(TransferMessage message) {
+        switch (message.getType()) {
+            case TRANSFER_OFFER:
+                offered.put(key(message), (TransferOfferMessage) message);
+                return false;
+            case TRANSFER_CHUNK:
+                received((TransferChunkMessage) message);
+                return true;
+            case TRANSFER_ACK:
+                acked((TransferAckMessage) message);
+                return true;
+            case TRANSFER_CANCEL:
+                cancelled((TransferCancelMessage) message);
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /** Fails every transfer in either direction, e.g. because the connection was lost. */
+    void failAll(IOException cause) {
+        offered.clear();
+        for (Outgoing out : new ArrayList<>(outgoing.values())) {
+            out.fail(cause);
+        }
+        List<Incoming> all = new ArrayList<>(incoming.values());
+        for (Incoming in : all) {
+            in.future.completeExceptionally(cause);
+        }
+    }
+
+    /** Reads and sends chunks as the window allows, until the payload is sent or the transfer ends. */
+    private void pump(Outgoing out) {
+        byte[] buffer = new byte[ProtocolConstants.MAX_TRANSFER_CHUNK_BYTES];
+        TransferOfferMessage offer = out.offer;
+        long chunks = offer.getChunkCount();
+        try (InputStream source = out.source) {
+            for (long seq = 0; seq < chunks; seq++) {
+                out.window.acquire();
+                if (out.future.isDone()) {
+                    return;
+                }
+                int length = (int) Math.min(buffer.length, offer.getSize() - seq * buffer.length);
+                if (source.readNBytes(buffer, 0, length) < length) {
+                    throw new EOFException("Source ended before " + offer.getSize() + " bytes");
+                }
+                session.send(new TransferChunkMessage(offer.getTransferId(), offer.getFrom(), offer.getTo(), seq,
+                        buffer, 0, length));
+            }
+        } catch (IOException e) {
+            if (out.fail(e)) {
+                sendQuietly(new TransferCancelMessage(offer.getTransferId(), offer.getFrom(), offer.getTo(), "send_failed"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            out.fail(new IOException("Interrupted"));
+        }
+    }
+
+    /** The recipient reported progress: widen the window, or finish once it has every chunk. */
+    private void acked(TransferAckMessage ack) {
+        Outgoing out = outgoing.get(ack.getTransferId());
+        if (out == null) {
+            return;
+        }
+        if (ack.getReceived() >= out.offer.getChunkCount()) {
+            out.future.complete(null);
+            out.window.release(ProtocolConstants.TRANSFER_WINDOW);
+            return;
+        }
+        out.grant(ack.getReceived() + ProtocolConstants.TRANSFER_WINDOW);
+    }
+
+    /** Writes the next chunk of an accepted transfer to its sink and acknowledges it. */
+    private void received(TransferChunkMessage chunk) {
+        Incoming in = incoming.get(key(chunk));
+        if (in == null) {
+            return;
+        }
+        try {
+            if (chunk.getSeq() != in.received) {
+                throw new IOException("Expected chunk " + in.received + " but got " + chunk.getSeq());
+            }
+            byte[] data = chunk.getData();
+            in.sink.write(data);
+            in.received++;
+            in.bytes += data.length;
+            if (in.received == in.chunks && in.bytes != in.offer.getSize()) {
+                throw new IOException("Received " + in.bytes + " bytes but " + in.offer.getSize() + " were offered");
+            }
+            if (in.received == in.chunks) {
+                in.sink.flush();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            if (in.future.completeExceptionally(e instanceof IOException ? e : new IOException(e.getMessage()))) {
+                sendQuietly(new TransferCancelMessage(chunk.getTransferId(), chunk.getFrom(), chunk.getTo(), "receive_failed"));
+            }
+            return;
+        }
+        sendQuietly(new TransferAckMessage(chunk.getTransferId(), chunk.getFrom(), chunk.getTo(), in.received));
+        if (in.received == in.chunks) {
+            in.future.complete(in.bytes);
+        }
+    }
+
+    /** The other side or the server abandoned a transfer. */
+    private void cancelled(TransferCancelMessage cancel) {
+        IOException cause = new IOException("Transfer cancelled: " + cancel.getReason());
+        Outgoing out = outgoing.get(cancel.getTransferId());
+        if (out != null && out.offer.getFrom().equals(cancel.getFrom())) {
+            out.fail(cause);
+        }
+        String key = key(cancel);
+        offered.remove(key);
+        Incoming in = incoming.get(key);
+        if (in != null) {
+            in.future.completeExceptionally(cause);
+        }
+    }
+
+    private void sendQuietly(BaseMessage message) {
+        try {
+            session.send(message);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String key(TransferMessage message) {
+        return key(message.getFrom(), message.getTransferId());
+    }
+
+    private static String key(String from, String transferId) {
+        return from + '\n' + transferId;
+    }
+
+    /** A transfer this session sends. */
+    private static final class Outgoing {
+        private final TransferOfferMessage offer;
+        private final InputStream source;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        /** Chunks the sender thread may still send; acks add to it. */
+        private final Semaphore window = new Semaphore(0);
+        /** Highest chunk count the recipient has allowed so far; guarded by the instance. */
+        private long granted;
+
+        private Outgoing(TransferOfferMessage offer, InputStream source) {
+            this.offer = offer;
+            this.source = source;
+        }
+
+        /** Raises the number of chunks that may be sent to {@code allowed}. */
+        private synchronized void grant(long allowed) {
+            if (allowed > granted) {
+                window.release((int) (allowed - granted));
+                granted = allowed;
+            }
+        }
+
+        /** Fails the transfer and wakes its sender thread; returns false if it had already ended. */
+        private boolean fail(Throwable cause) {
+            boolean failed = future.completeExceptionally(cause);
+            window.release(ProtocolConstants.TRANSFER_WINDOW);
+            return failed;
+        }
+    }
+
+    /** A transfer this session accepted; touched only by the thread reading from the connection. */
+    private static final class Incoming {
+        private final TransferOfferMessage offer;
+        private final OutputStream sink;
+        private final long chunks;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+        private long received;
+        private long bytes;
+
+        private Incoming(TransferOfferMessage offer, OutputStream sink) {
+            this.offer = offer;
+            this.sink = sink;
+            this.chunks = offer.getChunkCount();
+        }
+    }
+}
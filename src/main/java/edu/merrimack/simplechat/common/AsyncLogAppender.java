@@ -0,0 +1,109 @@
+package edu.merrimack.simplechat.common;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands log events to a background writer through a bounded ring buffer so the logging thread never waits
+ * on disk I/O.
+ *
+ * <p>Appending never blocks: when the buffer is full the event is dropped and counted. The writer reports
+ * drops in the log itself at most once per second.
+ */
+public class AsyncLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncLogAppender.class);
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long FLUSH_ON_STOP_MS = 1000;
+
+    private final Appender<ILoggingEvent> delegate;
+    private final BlockingQueue<ILoggingEvent> queue;
+    private final LongAdder dropped = new LongAdder();
+    private volatile Thread writer;
+
+    /** Wraps {@code delegate}, which only the writer thread calls, behind a queue of {@code capacity} events. */
+    public AsyncLogAppender(Appender<ILoggingEvent> delegate, int capacity) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /** Total events dropped because the queue was full. */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void start() {
+        Thread t = new Thread(this::drainLoop, "log-writer");
+        t.setDaemon(true);
+        writer = t;
+        super.start();
+        t.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (!queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Stops accepting events, gives the writer up to a second to flush what is queued, then stops the
+     * delegate.
+     */
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        Thread t = writer;
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join(FLUSH_ON_STOP_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        delegate.stop();
+    }
+
+    /** Writes queued events until stopped, then flushes the remainder. */
+    private void drainLoop() {
+        long reported = 0;
+        long nextReport = System.nanoTime() + REPORT_INTERVAL_NANOS;
+        while (isStarted()) {
+            try {
+                ILoggingEvent event = queue.poll(1, TimeUnit.SECONDS);
+                if (event != null) {
+                    delegate.doAppend(event);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (System.nanoTime() - nextReport >= 0) {
+                long total = dropped.sum();
+                if (total > reported) {
+                    log.warn("{} log events dropped because the log queue was full", total - reported);
+                    reported = total;
+                }
+                nextReport = System.nanoTime() + REPORT_INTERVAL_NANOS;
+            }
+        }
+        ILoggingEvent event;
+        while ((event = queue.poll()) != null) {
+            delegate.doAppend(event);
+        }
+    }
+}
@@ -24,6 +24,44 @@ public final class Framing {
         return buffer.array();
     }
 
+    /**
+     * Returns the UTF-8 JSON payload of one complete frame produced by {@link #frame(String)}.
+     */
+    public static String payload(byte[] frame) throws IOException {
+        if (frame.length < 4) {
+            throw new IOException("Incomplete frame length");
+        }
+        int length = ByteBuffer.wrap(frame, 0, 4).getInt();
+        if (length != frame.length - 4) {
+            throw new IOException("Frame length does not match payload");
+        }
+        return new String(frame, 4, length, ProtocolConstants.UTF8);
+    }
+
+    /**
+     * Returns the number of bytes {@code json} takes as a frame payload, without encoding it.
+     */
+    public static int payloadLength(String json) {
+        int length = 0;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < json.length()
+                    && Character.isLowSurrogate(json.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
     /**
      * Reads a single framed message from the input stream. Returns null if EOF is reached cleanly.
      */
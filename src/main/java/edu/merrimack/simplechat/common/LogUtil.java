@@ -4,7 +4,9 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.FileAppender;
+import edu.merrimack.simplechat.common.config.LogConfig;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -12,14 +14,24 @@ import org.slf4j.LoggerFactory;
  */
 public final class LogUtil {
 
+    private static volatile AsyncLogAppender asyncAppender;
+
     /** Utility class; do not instantiate. */
     private LogUtil() {
     }
 
     /**
-     * Configures logback to write INFO+ logs to the given file.
+     * Configures logback to write INFO+ logs to the given file using the default logging settings.
      */
     public static void configureLogging(String logFile) {
+        configureLogging(logFile, new LogConfig());
+    }
+
+    /**
+     * Configures logback to write logs at the configured level to the given file, through a non-blocking
+     * queue and background writer when {@code settings.isAsync()}.
+     */
+    public static void configureLogging(String logFile, LogConfig settings) {
         LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
         context.reset();
 
@@ -28,14 +40,36 @@ public final class LogUtil {
         ple.setPattern("%d{ISO8601} %-5level [%thread] %logger - %msg%n");
         ple.start();
 
-        FileAppender fileAppender = new FileAppender();
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
         fileAppender.setContext(context);
         fileAppender.setFile(logFile);
         fileAppender.setEncoder(ple);
         fileAppender.start();
 
         Logger root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
-        root.addAppender(fileAppender);
-        root.setLevel(Level.INFO);
+        if (settings.isAsync()) {
+            AsyncLogAppender async = new AsyncLogAppender(fileAppender, settings.getQueueSize());
+            async.setContext(context);
+            async.setName("ASYNC");
+            async.start();
+            root.addAppender(async);
+            asyncAppender = async;
+        } else {
+            root.addAppender(fileAppender);
+            asyncAppender = null;
+        }
+        root.setLevel(Level.toLevel(settings.getLevel(), Level.INFO));
+    }
+
+    /** Changes the root log level of the running server. */
+    public static void setLevel(String level) {
+        Logger root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.toLevel(level, Level.INFO));
+    }
+
+    /** Log events dropped because the asynchronous queue was full; 0 when logging is synchronous. */
+    public static long droppedEvents() {
+        AsyncLogAppender async = asyncAppender;
+        return async == null ? 0 : async.getDroppedCount();
     }
 }
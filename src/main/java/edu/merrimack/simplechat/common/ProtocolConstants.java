@@ -7,11 +7,41 @@ import java.nio.charset.StandardCharsets;
  * Central place for protocol-wide constants and limits.
  */
 public final class ProtocolConstants {
+    /** Oldest protocol version; every peer accepts it, so clients send it as {@code CONNECT} {@code version}. */
     public static final String VERSION = "1.0";
+    /** Newest protocol version this code speaks, offered as {@code CONNECT} {@code maxVersion}. */
+    public static final String MAX_VERSION = "1.1";
+    /** Most capabilities one {@code CONNECT} or {@code CONNECT_ACK} may list. */
+    public static final int MAX_CAPABILITIES = 32;
+    /** Longest capability name. */
+    public static final int MAX_CAPABILITY_LENGTH = 64;
     public static final Charset UTF8 = StandardCharsets.UTF_8;
     public static final int MAX_USERNAME_LENGTH = 32;
     public static final int MIN_USERNAME_LENGTH = 3;
     public static final int MAX_CONTENT_LENGTH = 1024;
+    public static final int MAX_USER_PAGE_SIZE = 1000;
+    public static final int MAX_REQUEST_ID_LENGTH = 64;
+    /** Largest payload slice carried by one {@code TRANSFER_CHUNK}, before base64 encoding. */
+    public static final int MAX_TRANSFER_CHUNK_BYTES = 16 * 1024;
+    /** Chunks a transfer sender may have relayed but not yet acknowledged by the recipient. */
+    public static final int TRANSFER_WINDOW = 8;
+    /** Most messages one {@code SEARCH_RESULTS} page carries. */
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+    /** Page size used when a {@code SEARCH} does not ask for one. */
+    public static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    /** Longest {@code query} a {@code SEARCH} may carry. */
+    public static final int MAX_SEARCH_QUERY_LENGTH = 256;
+    /** Most messages one {@code BATCH} may carry. */
+    public static final int MAX_BATCH_SIZE = 100;
+
+    /** Capability a client declares in {@code CONNECT} to receive {@code PRESENCE_DELTA} messages. */
+    public static final String CAP_PRESENCE_DELTA = "presence-delta";
+
+    /** Capability a client declares in {@code CONNECT} to be offered chunked transfers. */
+    public static final String CAP_TRANSFERS = "transfers";
+
+    /** Capability a client declares in {@code CONNECT} to receive deliveries grouped into {@code BATCH} frames. */
+    public static final String CAP_BATCH = "batch";
 
     /** Utility class; no instances. */
     private ProtocolConstants() {
@@ -0,0 +1,121 @@
+package edu.merrimack.simplechat.common.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads back the records a {@link CaptureWriter} wrote, segment by segment, in the order they were captured.
+ */
+public final class CaptureReader implements Closeable {
+
+    private final List<Path> segments;
+    private int nextSegment;
+    private MappedByteBuffer buffer;
+    private long nanos;
+    private long startMillis;
+
+    /**
+     * Opens a capture directory, or a single segment file within one.
+     */
+    public CaptureReader(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.list(path)) {
+                segments = files.filter(p -> p.getFileName().toString().endsWith(".scap")).sorted().toList();
+            }
+            if (segments.isEmpty()) {
+                throw new IOException("No capture segments in " + path);
+            }
+        } else {
+            segments = new ArrayList<>(List.of(path));
+        }
+        openNext();
+    }
+
+    /** Wall-clock time, in epoch milliseconds, at which the capture started. */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Returns the next record, or null once every segment has been read.
+     */
+    public CaptureRecord next() throws IOException {
+        while (buffer != null) {
+            if (!buffer.hasRemaining()) {
+                openNext();
+                continue;
+            }
+            byte tag = buffer.get();
+            if (tag == CaptureWriter.TAG_END) {
+                openNext();
+                continue;
+            }
+            try {
+                int session = (int) getVarLong();
+                nanos += getVarLong();
+                if (tag == CaptureWriter.TAG_CLOSE) {
+                    return new CaptureRecord(CaptureRecord.Kind.CLOSE, session, nanos, new byte[0]);
+                }
+                if (tag != CaptureWriter.TAG_FRAME) {
+                    throw new IOException("Unknown record tag " + tag);
+                }
+                byte[] payload = new byte[(int) getVarLong()];
+                buffer.get(payload);
+                return new CaptureRecord(CaptureRecord.Kind.FRAME, session, nanos, payload);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated record in " + segments.get(nextSegment - 1));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+        nextSegment = segments.size();
+    }
+
+    /** Maps the next segment and checks its header, or clears the buffer when none are left. */
+    private void openNext() throws IOException {
+        buffer = null;
+        if (nextSegment >= segments.size()) {
+            return;
+        }
+        Path path = segments.get(nextSegment++);
+        try (FileChannel channel = FileChannel.open(path)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < CaptureWriter.HEADER_BYTES || buffer.getInt() != CaptureWriter.MAGIC) {
+            throw new IOException("Not a capture segment: " + path);
+        }
+        short version = buffer.getShort();
+        if (version != CaptureWriter.VERSION) {
+            throw new IOException("Unsupported capture version " + version + " in " + path);
+        }
+        buffer.getShort();
+        startMillis = buffer.getLong();
+        buffer.getInt();
+        nanos = buffer.getLong();
+    }
+
+    /** Reads a value written seven bits at a time, low bits first. */
+    private long getVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
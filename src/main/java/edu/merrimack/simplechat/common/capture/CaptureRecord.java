@@ -0,0 +1,47 @@
+package edu.merrimack.simplechat.common.capture;
+
+/**
+ * One event read back from a traffic capture: a frame a session sent, or the session's connection closing.
+ */
+public final class CaptureRecord {
+
+    /** Kind of captured event. */
+    public enum Kind {
+        /** The session sent a frame; {@link #getPayload()} holds its JSON bytes. */
+        FRAME,
+        /** The session's connection closed. */
+        CLOSE
+    }
+
+    private final Kind kind;
+    private final int session;
+    private final long nanos;
+    private final byte[] payload;
+
+    CaptureRecord(Kind kind, int session, long nanos, byte[] payload) {
+        this.kind = kind;
+        this.session = session;
+        this.nanos = nanos;
+        this.payload = payload;
+    }
+
+    /** Whether this is a frame or a close. */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** Capture-local id of the connection, in order of first appearance. */
+    public int getSession() {
+        return session;
+    }
+
+    /** Nanoseconds since the capture started. */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /** UTF-8 JSON payload of a frame, without its length prefix; empty for a close. */
+    public byte[] getPayload() {
+        return payload;
+    }
+}
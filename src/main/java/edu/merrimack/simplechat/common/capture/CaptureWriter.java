@@ -0,0 +1,157 @@
+package edu.merrimack.simplechat.common.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends capture records to a directory of memory-mapped segment files.
+ *
+ * <p>Each segment starts with a fixed header (magic, version, capture start time, segment index, and the
+ * capture-relative time the segment starts at) followed by records: a kind tag, the session id and the
+ * nanoseconds since the previous record as variable-length integers, and for frames a variable-length size
+ * and the payload bytes. A tag of 0 or the end of the file ends the segment. Because times are deltas and
+ * ids and sizes are mostly one or two bytes, a record costs only a few bytes beyond its payload.
+ *
+ * <p>Records are appended through a mapped buffer, so a write is a memory copy rather than a system call.
+ * When a segment fills it is trimmed to its used length and the next one is mapped. Appends are
+ * serialized; callers on many threads take turns.
+ */
+public final class CaptureWriter implements Closeable {
+
+    static final int MAGIC = 0x53434150;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 28;
+    static final byte TAG_END = 0;
+    static final byte TAG_FRAME = 1;
+    static final byte TAG_CLOSE = 2;
+    /** Largest encoding of a record's tag, session id, time delta, and payload size. */
+    private static final int MAX_RECORD_OVERHEAD = 1 + 5 + 10 + 5;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long startMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int segmentIndex;
+    private long lastNanos;
+    private long records;
+    private boolean closed;
+
+    /**
+     * Creates {@code directory} if needed and maps its first segment of {@code segmentBytes}.
+     */
+    public CaptureWriter(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes < HEADER_BYTES + MAX_RECORD_OVERHEAD) {
+            throw new IllegalArgumentException("Segment too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        openSegment(segmentBytes);
+    }
+
+    /** File name of segment {@code index}; names sort in segment order. */
+    static String segmentName(int index) {
+        return String.format("segment-%05d.scap", index);
+    }
+
+    /** Records that {@code session} sent a frame with this JSON payload. */
+    public synchronized void frame(int session, byte[] payload) throws IOException {
+        append(TAG_FRAME, session, payload);
+    }
+
+    /** Records that {@code session}'s connection closed. */
+    public synchronized void closed(int session) throws IOException {
+        append(TAG_CLOSE, session, null);
+    }
+
+    /** Number of records appended so far. */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /** Directory holding the segment files. */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /** Trims and closes the current segment; later appends are ignored. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeSegment();
+    }
+
+    /** Appends one record, rolling over to a new segment when it does not fit. */
+    private void append(byte tag, int session, byte[] payload) throws IOException {
+        if (closed) {
+            return;
+        }
+        int length = payload == null ? 0 : payload.length;
+        int needed = MAX_RECORD_OVERHEAD + length;
+        if (buffer.remaining() < needed) {
+            closeSegment();
+            segmentIndex++;
+            openSegment(Math.max(segmentBytes, HEADER_BYTES + needed + 1));
+        }
+        long now = System.nanoTime() - startNanos;
+        buffer.put(tag);
+        putVarLong(session);
+        putVarLong(now - lastNanos);
+        lastNanos = now;
+        if (payload != null) {
+            putVarLong(length);
+            buffer.put(payload);
+        }
+        records++;
+    }
+
+    /** Creates and maps the next segment file and writes its header. */
+    private void openSegment(int size) throws IOException {
+        Path path = directory.resolve(segmentName(segmentIndex));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putLong(startMillis);
+        buffer.putInt(segmentIndex);
+        buffer.putLong(lastNanos);
+    }
+
+    /**
+     * Marks the end of the current segment, flushes it, and trims the file to its used length. Where the OS
+     * refuses to trim a mapped file the zeroed tail stays; readers stop at the end tag either way.
+     */
+    private void closeSegment() throws IOException {
+        int used = buffer.position();
+        if (buffer.hasRemaining()) {
+            buffer.put(TAG_END);
+        }
+        buffer.force();
+        try {
+            channel.truncate(used);
+        } catch (IOException ignored) {
+        }
+        channel.close();
+    }
+
+    /** Writes {@code value} seven bits at a time, low bits first. */
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
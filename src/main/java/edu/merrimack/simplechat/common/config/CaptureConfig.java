@@ -0,0 +1,90 @@
+package edu.merrimack.simplechat.common.config;
+
+import edu.merrimack.simplechat.common.JsonSerializable;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Traffic capture settings: whether inbound frames are recorded, where, and in what segment size.
+ */
+public class CaptureConfig implements JsonSerializable {
+
+    private boolean enabled;
+    private String directory = "captures";
+    private int segmentMegabytes = 64;
+
+    /** Creates a configuration populated with the defaults; capture is off. */
+    public CaptureConfig() {
+    }
+
+    /**
+     * Whether every inbound frame is recorded for later replay.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Directory under which each server run writes its capture into a subdirectory of its own.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Size of each memory-mapped segment file; a full segment is trimmed and the next one started.
+     */
+    public int getSegmentMegabytes() {
+        return segmentMegabytes;
+    }
+
+    /**
+     * Ensures the directory is named and the segment size is in range.
+     */
+    void validate() throws InvalidObjectException {
+        if (directory == null || directory.isBlank()) {
+            throw new InvalidObjectException("capture.directory is required");
+        }
+        if (segmentMegabytes < 1 || segmentMegabytes > 1024) {
+            throw new InvalidObjectException("capture.segmentMegabytes must be between 1 and 1024");
+        }
+    }
+
+    /**
+     * Serializes the settings to JSON.
+     */
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = new JSONObject();
+        obj.put("enabled", enabled);
+        obj.put("directory", directory);
+        obj.put("segmentMegabytes", segmentMegabytes);
+        return obj;
+    }
+
+    /**
+     * Populates fields from JSON; omitted fields keep their defaults.
+     */
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("Expected JSON object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        try {
+            if (obj.containsKey("enabled")) {
+                this.enabled = obj.getBoolean("enabled");
+            }
+            if (obj.containsKey("directory")) {
+                this.directory = obj.getString("directory");
+            }
+            if (obj.containsKey("segmentMegabytes")) {
+                this.segmentMegabytes = obj.getInt("segmentMegabytes");
+            }
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid capture: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package edu.merrimack.simplechat.common.config;
+
+import edu.merrimack.simplechat.common.JsonSerializable;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+import java.util.Set;
+
+/**
+ * Server logging settings: level, asynchronous queueing, and sampling of high-volume log sites.
+ */
+public class LogConfig implements JsonSerializable {
+
+    private static final Set<String> LEVELS = Set.of("TRACE", "DEBUG", "INFO", "WARN", "ERROR", "OFF");
+
+    private String level = "INFO";
+    private boolean async = true;
+    private int queueSize = 8192;
+    private double hotPathPerSecond = 20;
+    private int hotPathBurst = 100;
+
+    /** Creates a configuration populated with the defaults. */
+    public LogConfig() {
+    }
+
+    /**
+     * Root log level, e.g. {@code INFO}.
+     */
+    public String getLevel() {
+        return level;
+    }
+
+    /**
+     * Whether log events are queued and written by a background thread instead of the logging thread.
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Capacity of the asynchronous queue; events arriving while it is full are dropped and counted.
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Sustained rate at which each high-volume log site (joins, leaves, send failures) may log.
+     */
+    public double getHotPathPerSecond() {
+        return hotPathPerSecond;
+    }
+
+    /**
+     * Burst of high-volume log lines allowed per site before sampling starts.
+     */
+    public int getHotPathBurst() {
+        return hotPathBurst;
+    }
+
+    /**
+     * Ensures the level is known and the sizes and rates are in range.
+     */
+    void validate() throws InvalidObjectException {
+        if (level == null || !LEVELS.contains(level.toUpperCase())) {
+            throw new InvalidObjectException("logging.level must be one of " + LEVELS);
+        }
+        if (queueSize < 16) {
+            throw new InvalidObjectException("logging.queueSize must be at least 16");
+        }
+        if (hotPathPerSecond <= 0 || hotPathBurst < 1) {
+            throw new InvalidObjectException("logging.hotPathPerSecond and logging.hotPathBurst must be positive");
+        }
+    }
+
+    /**
+     * Serializes the settings to JSON.
+     */
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = new JSONObject();
+        obj.put("level", level);
+        obj.put("async", async);
+        obj.put("queueSize", queueSize);
+        obj.put("hotPathPerSecond", hotPathPerSecond);
+        obj.put("hotPathBurst", hotPathBurst);
+        return obj;
+    }
+
+    /**
+     * Populates fields from JSON; omitted fields keep their defaults.
+     */
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("Expected JSON object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        try {
+            if (obj.containsKey("level")) {
+                this.level = obj.getString("level");
+            }
+            if (obj.containsKey("async")) {
+                this.async = obj.getBoolean("async");
+            }
+            if (obj.containsKey("queueSize")) {
+                this.queueSize = obj.getInt("queueSize");
+            }
+            if (obj.containsKey("hotPathPerSecond")) {
+                this.hotPathPerSecond = obj.getDouble("hotPathPerSecond");
+            }
+            if (obj.containsKey("hotPathBurst")) {
+                this.hotPathBurst = obj.getInt("hotPathBurst");
+            }
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid logging: " + e.getMessage());
+        }
+    }
+}
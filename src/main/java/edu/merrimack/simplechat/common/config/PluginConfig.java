@@ -0,0 +1,108 @@
+package edu.merrimack.simplechat.common.config;
+
+import edu.merrimack.simplechat.common.JsonSerializable;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * In-process plugin settings: which plugin classes the server loads at startup, how many events each
+ * plugin may have waiting, and how long routing waits for a plugin to review a message.
+ */
+public class PluginConfig implements JsonSerializable {
+
+    private List<String> classes = new ArrayList<>();
+    private int queueSize = 1024;
+    private int reviewBudgetMs = 5;
+
+    /** Creates a configuration populated with the defaults; no plugins are loaded. */
+    public PluginConfig() {
+    }
+
+    /**
+     * Fully qualified names of {@code ChatPlugin} classes, each with a public no-arg constructor, to load
+     * when the server starts.
+     */
+    public List<String> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * Events and sends each plugin may have waiting for its thread; any beyond this are dropped.
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Milliseconds routing waits for reviewing plugins before letting a message through unreviewed.
+     */
+    public int getReviewBudgetMs() {
+        return reviewBudgetMs;
+    }
+
+    /**
+     * Ensures class names are present and the queue and budget are in range.
+     */
+    void validate() throws InvalidObjectException {
+        for (String name : classes) {
+            if (name == null || name.isBlank()) {
+                throw new InvalidObjectException("plugins.classes cannot contain blank names");
+            }
+        }
+        if (queueSize < 1) {
+            throw new InvalidObjectException("plugins.queueSize must be positive");
+        }
+        if (reviewBudgetMs < 1 || reviewBudgetMs > 1000) {
+            throw new InvalidObjectException("plugins.reviewBudgetMs must be between 1 and 1000");
+        }
+    }
+
+    /**
+     * Serializes the settings to JSON.
+     */
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = new JSONObject();
+        JSONArray array = new JSONArray();
+        array.addAll(classes);
+        obj.put("classes", array);
+        obj.put("queueSize", queueSize);
+        obj.put("reviewBudgetMs", reviewBudgetMs);
+        return obj;
+    }
+
+    /**
+     * Populates fields from JSON; omitted fields keep their defaults.
+     */
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("Expected JSON object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        try {
+            if (obj.containsKey("classes")) {
+                JSONArray array = obj.getArray("classes");
+                List<String> names = new ArrayList<>();
+                for (int i = 0; i < array.size(); i++) {
+                    names.add(array.getString(i));
+                }
+                this.classes = names;
+            }
+            if (obj.containsKey("queueSize")) {
+                this.queueSize = obj.getInt("queueSize");
+            }
+            if (obj.containsKey("reviewBudgetMs")) {
+                this.reviewBudgetMs = obj.getInt("reviewBudgetMs");
+            }
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid plugins: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package edu.merrimack.simplechat.common.config;
+
+import edu.merrimack.simplechat.common.JsonSerializable;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * A single token-bucket limit: sustained rate plus the burst a client may spend at once.
+ */
+public class RateLimit implements JsonSerializable {
+
+    private double perSecond;
+    private int burst;
+
+    /** Default constructor for JSON deserialization. */
+    public RateLimit() {
+    }
+
+    /** Creates a limit allowing {@code perSecond} messages per second with bursts up to {@code burst}. */
+    public RateLimit(double perSecond, int burst) {
+        this.perSecond = perSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Sustained messages per second.
+     */
+    public double getPerSecond() {
+        return perSecond;
+    }
+
+    /**
+     * Maximum messages accepted back-to-back before the rate applies.
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Ensures the rate and burst are usable by a token bucket.
+     */
+    void validate(String name) throws InvalidObjectException {
+        if (perSecond <= 0) {
+            throw new InvalidObjectException(name + ".perSecond must be positive");
+        }
+        if (burst < 1) {
+            throw new InvalidObjectException(name + ".burst must be at least 1");
+        }
+    }
+
+    /**
+     * Serializes the limit to JSON.
+     */
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = new JSONObject();
+        obj.put("perSecond", perSecond);
+        obj.put("burst", burst);
+        return obj;
+    }
+
+    /**
+     * Populates fields from a JSON object.
+     */
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("Expected JSON object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        try {
+            this.perSecond = obj.getDouble("perSecond");
+            this.burst = obj.getInt("burst");
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid rate limit: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package edu.merrimack.simplechat.common.config;
+
+import edu.merrimack.simplechat.common.JsonSerializable;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Per-session rate limits for each class of client request, plus the abuse threshold that triggers a disconnect.
+ */
+public class RateLimitConfig implements JsonSerializable {
+
+    private boolean enabled = true;
+    private RateLimit broadcast = new RateLimit(5, 10);
+    private RateLimit direct = new RateLimit(10, 20);
+    private RateLimit listUsers = new RateLimit(1, 5);
+    private RateLimit setUsername = new RateLimit(0.2, 3);
+    private RateLimit search = new RateLimit(1, 5);
+    private int maxViolations = 20;
+    private int violationWindowSeconds = 10;
+
+    /** Creates a configuration populated with the default limits. */
+    public RateLimitConfig() {
+    }
+
+    /**
+     * Whether rate limiting is applied at all.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Limit for public chat messages.
+     */
+    public RateLimit getBroadcast() {
+        return broadcast;
+    }
+
+    /**
+     * Limit for direct messages.
+     */
+    public RateLimit getDirect() {
+        return direct;
+    }
+
+    /**
+     * Limit for {@code LIST_USERS} requests.
+     */
+    public RateLimit getListUsers() {
+        return listUsers;
+    }
+
+    /**
+     * Limit for {@code SET_USERNAME} requests.
+     */
+    public RateLimit getSetUsername() {
+        return setUsername;
+    }
+
+    /**
+     * Limit for {@code SEARCH} requests.
+     */
+    public RateLimit getSearch() {
+        return search;
+    }
+
+    /**
+     * Rate-limited messages tolerated within the violation window before the session is disconnected.
+     */
+    public int getMaxViolations() {
+        return maxViolations;
+    }
+
+    /**
+     * Length of the window, in seconds, over which violations are counted.
+     */
+    public int getViolationWindowSeconds() {
+        return violationWindowSeconds;
+    }
+
+    /**
+     * Ensures every limit and threshold is in range.
+     */
+    void validate() throws InvalidObjectException {
+        broadcast.validate("rateLimits.broadcast");
+        direct.validate("rateLimits.direct");
+        listUsers.validate("rateLimits.listUsers");
+        setUsername.validate("rateLimits.setUsername");
+        search.validate("rateLimits.search");
+        if (maxViolations < 1) {
+            throw new InvalidObjectException("rateLimits.maxViolations must be positive");
+        }
+        if (violationWindowSeconds < 1) {
+            throw new InvalidObjectException("rateLimits.violationWindowSeconds must be positive");
+        }
+    }
+
+    /**
+     * Serializes the limits to JSON.
+     */
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = new JSONObject();
+        obj.put("enabled", enabled);
+        obj.put("broadcast", broadcast.toJSONType());
+        obj.put("direct", direct.toJSONType());
+        obj.put("listUsers", listUsers.toJSONType());
+        obj.put("setUsername", setUsername.toJSONType());
+        obj.put("search", search.toJSONType());
+        obj.put("maxViolations", maxViolations);
+        obj.put("violationWindowSeconds", violationWindowSeconds);
+        return obj;
+    }
+
+    /**
+     * Populates fields from JSON; omitted fields keep their defaults.
+     */
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("Expected JSON object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        try {
+            if (obj.containsKey("enabled")) {
+                this.enabled = obj.getBoolean("enabled");
+            }
+            this.broadcast = readLimit(obj, "broadcast", broadcast);
+            this.direct = readLimit(obj, "direct", direct);
+            this.listUsers = readLimit(obj, "listUsers", listUsers);
+            this.setUsername = readLimit(obj, "setUsername", setUsername);
+            this.search = readLimit(obj, "search", search);
+            if (obj.containsKey("maxViolations")) {
+                this.maxViolations = obj.getInt("maxViolations");
+            }
+            if (obj.containsKey("violationWindowSeconds")) {
+                this.violationWindowSeconds = obj.getInt("violationWindowSeconds");
+            }
+        } catch (InvalidObjectException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid rateLimits: " + e.getMessage());
+        }
+    }
+
+    /** Reads an optional nested limit, falling back to the supplied default. */
+    private static RateLimit readLimit(JSONObject obj, String key, RateLimit fallback) throws InvalidObjectException {
+        if (!obj.containsKey(key)) {
+            return fallback;
+        }
+        RateLimit limit = new RateLimit();
+        limit.deserialize(obj.getObject(key));
+        return limit;
+    }
+}
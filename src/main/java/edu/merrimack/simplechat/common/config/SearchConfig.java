@@ -0,0 +1,91 @@
+package edu.merrimack.simplechat.common.config;
+
+import edu.merrimack.simplechat.common.JsonSerializable;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Message history settings: whether chat messages are kept and indexed for {@code SEARCH}, how many are
+ * kept, and how many may wait to be indexed.
+ */
+public class SearchConfig implements JsonSerializable {
+
+    private boolean enabled;
+    private int maxMessages = 1_000_000;
+    private int queueSize = 65536;
+
+    /** Creates a configuration populated with the defaults; history is off. */
+    public SearchConfig() {
+    }
+
+    /**
+     * Whether chat messages are kept and searchable.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Messages kept before the oldest are discarded, in whole segments, so slightly more may be kept.
+     */
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    /**
+     * Messages that may wait for the indexer; any arriving while it is full are not kept.
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Ensures the history and queue sizes are in range.
+     */
+    void validate() throws InvalidObjectException {
+        if (maxMessages < 1000) {
+            throw new InvalidObjectException("search.maxMessages must be at least 1000");
+        }
+        if (queueSize < 1) {
+            throw new InvalidObjectException("search.queueSize must be positive");
+        }
+    }
+
+    /**
+     * Serializes the settings to JSON.
+     */
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = new JSONObject();
+        obj.put("enabled", enabled);
+        obj.put("maxMessages", maxMessages);
+        obj.put("queueSize", queueSize);
+        return obj;
+    }
+
+    /**
+     * Populates fields from JSON; omitted fields keep their defaults.
+     */
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("Expected JSON object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        try {
+            if (obj.containsKey("enabled")) {
+                this.enabled = obj.getBoolean("enabled");
+            }
+            if (obj.containsKey("maxMessages")) {
+                this.maxMessages = obj.getInt("maxMessages");
+            }
+            if (obj.containsKey("queueSize")) {
+                this.queueSize = obj.getInt("queueSize");
+            }
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid search: " + e.getMessage());
+        }
+    }
+}
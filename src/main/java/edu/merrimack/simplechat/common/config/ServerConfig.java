@@ -9,15 +9,38 @@ import merrimackutil.json.types.JSONObject;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents the server configuration file with port, logging, and capacity settings.
+ *
+ * <p>A running server reloads the file when it changes. Settings marked <em>restart only</em> below keep
+ * their startup value until the server is restarted; see {@link #restartOnlyChanges(ServerConfig)}.
  */
 public class ServerConfig implements JsonSerializable {
 
     private int port;
     private String logFile;
     private int maxClients;
+    private RateLimitConfig rateLimits = new RateLimitConfig();
+    private LogConfig logging = new LogConfig();
+    private CaptureConfig capture = new CaptureConfig();
+    private SearchConfig search = new SearchConfig();
+    private PluginConfig plugins = new PluginConfig();
+    private TopTalkersConfig topTalkers = new TopTalkersConfig();
+    private int drainTimeoutSeconds = 10;
+    private int resumeGraceSeconds = 30;
+    private int replayBufferSize = 256;
+    private int presenceWindowMs = 250;
+    private int acceptBacklog = 50;
+    private int acceptorThreads = 1;
+    private boolean reusePort = true;
+    private int waitQueueSize;
+    private int waitQueueTimeoutSeconds = 30;
+    private int fanOutThreshold = 512;
+    private String unixSocketPath;
 
     /** Default constructor for JSON deserialization. */
     public ServerConfig() {
@@ -54,17 +77,107 @@ public class ServerConfig implements JsonSerializable {
         if (maxClients <= 0) {
             throw new InvalidObjectException("maxClients must be positive");
         }
+        if (acceptBacklog <= 0) {
+            throw new InvalidObjectException("acceptBacklog must be positive");
+        }
+        if (acceptorThreads < 1) {
+            throw new InvalidObjectException("acceptorThreads must be at least 1");
+        }
+        if (waitQueueSize < 0) {
+            throw new InvalidObjectException("waitQueueSize cannot be negative");
+        }
+        if (waitQueueTimeoutSeconds <= 0) {
+            throw new InvalidObjectException("waitQueueTimeoutSeconds must be positive");
+        }
+        if (resumeGraceSeconds < 0) {
+            throw new InvalidObjectException("resumeGraceSeconds cannot be negative");
+        }
+        if (replayBufferSize < 0) {
+            throw new InvalidObjectException("replayBufferSize cannot be negative");
+        }
+        if (presenceWindowMs < 0) {
+            throw new InvalidObjectException("presenceWindowMs cannot be negative");
+        }
+        if (fanOutThreshold < 0) {
+            throw new InvalidObjectException("fanOutThreshold cannot be negative");
+        }
+        if (drainTimeoutSeconds < 0) {
+            throw new InvalidObjectException("drainTimeoutSeconds cannot be negative");
+        }
+        if (unixSocketPath != null && unixSocketPath.isBlank()) {
+            throw new InvalidObjectException("unixSocketPath cannot be blank");
+        }
+        rateLimits.validate();
+        logging.validate();
+        capture.validate();
+        search.validate();
+        plugins.validate();
+        topTalkers.validate();
     }
 
     /**
-     * Server listen port.
+     * Lists the restart-only settings whose value in {@code next} differs from this config; a reload
+     * leaves these at their current value.
+     */
+    public List<String> restartOnlyChanges(ServerConfig next) {
+        List<String> changed = new ArrayList<>();
+        if (port != next.port) {
+            changed.add("port");
+        }
+        if (!Objects.equals(logFile, next.logFile)) {
+            changed.add("logFile");
+        }
+        if (acceptBacklog != next.acceptBacklog) {
+            changed.add("acceptBacklog");
+        }
+        if (acceptorThreads != next.acceptorThreads) {
+            changed.add("acceptorThreads");
+        }
+        if (reusePort != next.reusePort) {
+            changed.add("reusePort");
+        }
+        if (!Objects.equals(unixSocketPath, next.unixSocketPath)) {
+            changed.add("unixSocketPath");
+        }
+        if (waitQueueSize != next.waitQueueSize) {
+            changed.add("waitQueueSize");
+        }
+        if (resumeGraceSeconds != next.resumeGraceSeconds) {
+            changed.add("resumeGraceSeconds");
+        }
+        if (presenceWindowMs != next.presenceWindowMs) {
+            changed.add("presenceWindowMs");
+        }
+        if (logging.isAsync() != next.logging.isAsync()) {
+            changed.add("logging.async");
+        }
+        if (logging.getQueueSize() != next.logging.getQueueSize()) {
+            changed.add("logging.queueSize");
+        }
+        if (!capture.toJSONType().equals(next.capture.toJSONType())) {
+            changed.add("capture");
+        }
+        if (!search.toJSONType().equals(next.search.toJSONType())) {
+            changed.add("search");
+        }
+        if (!plugins.toJSONType().equals(next.plugins.toJSONType())) {
+            changed.add("plugins");
+        }
+        if (!topTalkers.toJSONType().equals(next.topTalkers.toJSONType())) {
+            changed.add("topTalkers");
+        }
+        return changed;
+    }
+
+    /**
+     * Server listen port. Restart only.
      */
     public int getPort() {
         return port;
     }
 
     /**
-     * Log file path for server logging.
+     * Log file path for server logging. Restart only.
      */
     public String getLogFile() {
         return logFile;
@@ -77,6 +190,130 @@ public class ServerConfig implements JsonSerializable {
         return maxClients;
     }
 
+    /**
+     * Pending-connection backlog requested from the OS for the listening socket. Restart only.
+     */
+    public int getAcceptBacklog() {
+        return acceptBacklog;
+    }
+
+    /**
+     * Number of accept loops, each feeding its own shard of handler threads. Restart only.
+     */
+    public int getAcceptorThreads() {
+        return acceptorThreads;
+    }
+
+    /**
+     * Whether multiple acceptors bind their own sockets with {@code SO_REUSEPORT} when the OS supports it. Restart only.
+     */
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    /**
+     * Path of a Unix domain socket the server also listens on, for clients on the same host; null listens
+     * on TCP only. Restart only.
+     */
+    public String getUnixSocketPath() {
+        return unixSocketPath;
+    }
+
+    /**
+     * Connections parked while the server is at capacity; 0 rejects them immediately with {@code SERVER_BUSY}. Restart only.
+     */
+    public int getWaitQueueSize() {
+        return waitQueueSize;
+    }
+
+    /**
+     * Seconds a parked connection waits for a free slot before being rejected.
+     */
+    public int getWaitQueueTimeoutSeconds() {
+        return waitQueueTimeoutSeconds;
+    }
+
+    /**
+     * Number of connected sessions at which a broadcast is delivered in parallel stripes on the fan-out pool
+     * instead of on the sender's thread; 0 always delivers on the sender's thread.
+     */
+    public int getFanOutThreshold() {
+        return fanOutThreshold;
+    }
+
+    /**
+     * Seconds to wait for sessions to drain during shutdown before force-closing them.
+     */
+    public int getDrainTimeoutSeconds() {
+        return drainTimeoutSeconds;
+    }
+
+    /**
+     * Seconds a dropped session keeps its username and buffers messages for resumption; 0 disables resumption. Restart only.
+     */
+    public int getResumeGraceSeconds() {
+        return resumeGraceSeconds;
+    }
+
+    /**
+     * Maximum messages buffered for a detached session; older messages are dropped first. A reload
+     * applies to sessions that connect afterwards.
+     */
+    public int getReplayBufferSize() {
+        return replayBufferSize;
+    }
+
+    /**
+     * Milliseconds over which join, leave, and rename events are coalesced into one presence update; 0 sends each immediately. Restart only.
+     */
+    public int getPresenceWindowMs() {
+        return presenceWindowMs;
+    }
+
+    /**
+     * Per-session rate limits; defaults apply when the config omits them. A reload applies to sessions
+     * that connect afterwards.
+     */
+    public RateLimitConfig getRateLimits() {
+        return rateLimits;
+    }
+
+    /**
+     * Logging level, queueing, and sampling settings; defaults apply when the config omits them. The
+     * queue settings are restart only.
+     */
+    public LogConfig getLogging() {
+        return logging;
+    }
+
+    /**
+     * Traffic capture settings; capture is off unless the config enables it. Restart only.
+     */
+    public CaptureConfig getCapture() {
+        return capture;
+    }
+
+    /**
+     * Message history and search settings; history is off unless the config enables it. Restart only.
+     */
+    public SearchConfig getSearch() {
+        return search;
+    }
+
+    /**
+     * Plugins loaded at startup and the limits every plugin runs under. Restart only.
+     */
+    public PluginConfig getPlugins() {
+        return plugins;
+    }
+
+    /**
+     * Heavy-hitter tracking of the busiest senders, recipients, and addresses. Restart only.
+     */
+    public TopTalkersConfig getTopTalkers() {
+        return topTalkers;
+    }
+
     /**
      * Serializes the configuration to JSON.
      */
@@ -86,6 +323,25 @@ public class ServerConfig implements JsonSerializable {
         obj.put("port", port);
         obj.put("logFile", logFile);
         obj.put("maxClients", maxClients);
+        obj.put("acceptBacklog", acceptBacklog);
+        obj.put("acceptorThreads", acceptorThreads);
+        obj.put("reusePort", reusePort);
+        if (unixSocketPath != null) {
+            obj.put("unixSocketPath", unixSocketPath);
+        }
+        obj.put("waitQueueSize", waitQueueSize);
+        obj.put("waitQueueTimeoutSeconds", waitQueueTimeoutSeconds);
+        obj.put("fanOutThreshold", fanOutThreshold);
+        obj.put("drainTimeoutSeconds", drainTimeoutSeconds);
+        obj.put("resumeGraceSeconds", resumeGraceSeconds);
+        obj.put("replayBufferSize", replayBufferSize);
+        obj.put("presenceWindowMs", presenceWindowMs);
+        obj.put("rateLimits", rateLimits.toJSONType());
+        obj.put("logging", logging.toJSONType());
+        obj.put("capture", capture.toJSONType());
+        obj.put("search", search.toJSONType());
+        obj.put("plugins", plugins.toJSONType());
+        obj.put("topTalkers", topTalkers.toJSONType());
         return obj;
     }
 
@@ -102,6 +358,57 @@ public class ServerConfig implements JsonSerializable {
             this.port = obj.getInt("port");
             this.logFile = obj.getString("logFile");
             this.maxClients = obj.getInt("maxClients");
+            if (obj.containsKey("acceptBacklog")) {
+                this.acceptBacklog = obj.getInt("acceptBacklog");
+            }
+            if (obj.containsKey("acceptorThreads")) {
+                this.acceptorThreads = obj.getInt("acceptorThreads");
+            }
+            if (obj.containsKey("reusePort")) {
+                this.reusePort = obj.getBoolean("reusePort");
+            }
+            if (obj.containsKey("unixSocketPath")) {
+                this.unixSocketPath = obj.getString("unixSocketPath");
+            }
+            if (obj.containsKey("waitQueueSize")) {
+                this.waitQueueSize = obj.getInt("waitQueueSize");
+            }
+            if (obj.containsKey("waitQueueTimeoutSeconds")) {
+                this.waitQueueTimeoutSeconds = obj.getInt("waitQueueTimeoutSeconds");
+            }
+            if (obj.containsKey("fanOutThreshold")) {
+                this.fanOutThreshold = obj.getInt("fanOutThreshold");
+            }
+            if (obj.containsKey("drainTimeoutSeconds")) {
+                this.drainTimeoutSeconds = obj.getInt("drainTimeoutSeconds");
+            }
+            if (obj.containsKey("resumeGraceSeconds")) {
+                this.resumeGraceSeconds = obj.getInt("resumeGraceSeconds");
+            }
+            if (obj.containsKey("replayBufferSize")) {
+                this.replayBufferSize = obj.getInt("replayBufferSize");
+            }
+            if (obj.containsKey("presenceWindowMs")) {
+                this.presenceWindowMs = obj.getInt("presenceWindowMs");
+            }
+            if (obj.containsKey("rateLimits")) {
+                rateLimits.deserialize(obj.getObject("rateLimits"));
+            }
+            if (obj.containsKey("logging")) {
+                logging.deserialize(obj.getObject("logging"));
+            }
+            if (obj.containsKey("capture")) {
+                capture.deserialize(obj.getObject("capture"));
+            }
+            if (obj.containsKey("search")) {
+                search.deserialize(obj.getObject("search"));
+            }
+            if (obj.containsKey("plugins")) {
+                plugins.deserialize(obj.getObject("plugins"));
+            }
+            if (obj.containsKey("topTalkers")) {
+                topTalkers.deserialize(obj.getObject("topTalkers"));
+            }
         } catch (Exception e) {
             throw new InvalidObjectException("Invalid server config: " + e.getMessage());
         }
@@ -0,0 +1,123 @@
+package edu.merrimack.simplechat.common.config;
+
+import edu.merrimack.simplechat.common.JsonSerializable;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Heavy-hitter tracking settings: whether the server estimates its busiest senders, recipients, and
+ * connecting addresses, how many candidates each estimate keeps, the window it covers, and how often the
+ * leaders are logged.
+ */
+public class TopTalkersConfig implements JsonSerializable {
+
+    private boolean enabled = true;
+    private int capacity = 256;
+    private int windowSeconds = 60;
+    private int reportIntervalSeconds;
+    private int reportSize = 10;
+
+    /** Creates a configuration populated with the defaults; tracking is on and never logged. */
+    public TopTalkersConfig() {
+    }
+
+    /**
+     * Whether the server tracks its top talkers.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Candidates each estimate keeps per sixth of the window. Anything above 1/{@code capacity} of the
+     * traffic in a slice is always among them; memory stays fixed however many users there are.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Seconds of traffic the estimates cover, advancing in sixths of the window.
+     */
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /**
+     * Seconds between log reports of the leaders; 0 never logs them.
+     */
+    public int getReportIntervalSeconds() {
+        return reportIntervalSeconds;
+    }
+
+    /**
+     * Leaders listed for each estimate in a log report.
+     */
+    public int getReportSize() {
+        return reportSize;
+    }
+
+    /**
+     * Ensures the capacity, window, and report settings are in range.
+     */
+    void validate() throws InvalidObjectException {
+        if (capacity < 16 || capacity > 65536) {
+            throw new InvalidObjectException("topTalkers.capacity must be between 16 and 65536");
+        }
+        if (windowSeconds < 6 || windowSeconds > 86400) {
+            throw new InvalidObjectException("topTalkers.windowSeconds must be between 6 and 86400");
+        }
+        if (reportIntervalSeconds < 0) {
+            throw new InvalidObjectException("topTalkers.reportIntervalSeconds cannot be negative");
+        }
+        if (reportSize < 1 || reportSize > 100) {
+            throw new InvalidObjectException("topTalkers.reportSize must be between 1 and 100");
+        }
+    }
+
+    /**
+     * Serializes the settings to JSON.
+     */
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = new JSONObject();
+        obj.put("enabled", enabled);
+        obj.put("capacity", capacity);
+        obj.put("windowSeconds", windowSeconds);
+        obj.put("reportIntervalSeconds", reportIntervalSeconds);
+        obj.put("reportSize", reportSize);
+        return obj;
+    }
+
+    /**
+     * Populates fields from JSON; omitted fields keep their defaults.
+     */
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("Expected JSON object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        try {
+            if (obj.containsKey("enabled")) {
+                this.enabled = obj.getBoolean("enabled");
+            }
+            if (obj.containsKey("capacity")) {
+                this.capacity = obj.getInt("capacity");
+            }
+            if (obj.containsKey("windowSeconds")) {
+                this.windowSeconds = obj.getInt("windowSeconds");
+            }
+            if (obj.containsKey("reportIntervalSeconds")) {
+                this.reportIntervalSeconds = obj.getInt("reportIntervalSeconds");
+            }
+            if (obj.containsKey("reportSize")) {
+                this.reportSize = obj.getInt("reportSize");
+            }
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid topTalkers: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Server confirmation that the request carrying {@code requestId} succeeded. Sent only for requests that
+ * set a {@code requestId} and would otherwise get no reply, such as chat messages and username changes.
+ */
+public class AckMessage extends BaseMessage {
+
+    /** No-arg constructor for JSON deserialization. */
+    public AckMessage() {
+        super(MessageType.ACK);
+    }
+
+    /** Acknowledges the request identified by {@code requestId}. */
+    public AckMessage(String requestId) {
+        this();
+        this.requestId = requestId;
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        return baseToJson();
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("ACK expects object");
+        }
+        baseFromJson((JSONObject) jsonType);
+    }
+}
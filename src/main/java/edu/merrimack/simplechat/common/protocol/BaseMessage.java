@@ -8,11 +8,16 @@ import java.io.InvalidObjectException;
 
 /**
  * Common base for all protocol messages carrying type and timestamp metadata.
+ *
+ * <p>Any message may carry an optional client-chosen {@code requestId}; the server copies it onto the
+ * {@code ACK}, {@code ERROR}, {@code USER_LIST}, or {@code SEARCH_RESULTS} that answers the request so
+ * pipelined requests can be matched to their outcomes.
  */
 public abstract class BaseMessage implements JsonSerializable {
 
     protected MessageType type;
     protected long timestamp;
+    protected String requestId;
 
     /**
      * Constructs a message with the provided type and captures the current timestamp.
@@ -42,6 +47,20 @@ public abstract class BaseMessage implements JsonSerializable {
         return timestamp;
     }
 
+    /**
+     * Returns the correlation id, or null when the message is not part of a tracked request.
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Sets the correlation id; null removes it.
+     */
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
     /**
      * Serializes common fields to JSON.
      */
@@ -49,6 +68,9 @@ public abstract class BaseMessage implements JsonSerializable {
         JSONObject obj = new JSONObject();
         obj.put("type", type.name());
         obj.put("timestamp", timestamp);
+        if (requestId != null) {
+            obj.put("requestId", requestId);
+        }
         return obj;
     }
 
@@ -59,6 +81,7 @@ public abstract class BaseMessage implements JsonSerializable {
         try {
             this.type = MessageType.valueOf(obj.getString("type"));
             this.timestamp = obj.getLong("timestamp");
+            this.requestId = obj.getString("requestId");
         } catch (Exception e) {
             throw new InvalidObjectException("Invalid base message: " + e.getMessage());
         }
@@ -0,0 +1,88 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Envelope carrying an ordered list of messages in one frame, in either direction.
+ *
+ * <p>A client batch is handled item by item, in order, as if each had arrived in its own frame; the
+ * replies the items produce come back together in one {@code BATCH}, each tagged with its item's
+ * {@code requestId}. The server also groups deliveries into batches for clients that negotiated
+ * {@code batch}. Batches do not nest and never carry a handshake.
+ */
+public class BatchMessage extends BaseMessage {
+
+    private final List<BaseMessage> messages = new ArrayList<>();
+
+    /** No-arg constructor for JSON deserialization. */
+    public BatchMessage() {
+        super(MessageType.BATCH);
+    }
+
+    /** Builds a batch of {@code messages}, kept in order. */
+    public BatchMessage(List<? extends BaseMessage> messages) {
+        this();
+        this.messages.addAll(messages);
+    }
+
+    /** Immutable view of the batched messages, in order. */
+    public List<BaseMessage> getMessages() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = baseToJson();
+        JSONArray array = new JSONArray();
+        for (BaseMessage message : messages) {
+            array.add(message.toJSONType());
+        }
+        obj.put("messages", array);
+        return obj;
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("BATCH expects object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        baseFromJson(obj);
+        JSONArray array;
+        try {
+            array = obj.getArray("messages");
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid BATCH: " + e.getMessage());
+        }
+        if (array == null) {
+            throw new InvalidObjectException("Invalid BATCH: messages required");
+        }
+        if (array.size() > ProtocolConstants.MAX_BATCH_SIZE) {
+            throw new InvalidObjectException("A batch holds at most " + ProtocolConstants.MAX_BATCH_SIZE + " messages");
+        }
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject item;
+            try {
+                item = array.getObject(i);
+            } catch (Exception e) {
+                throw new InvalidObjectException("Invalid BATCH message " + i + ": expected object");
+            }
+            if (MessageType.BATCH.name().equals(item.get("type"))) {
+                throw new InvalidObjectException("Invalid BATCH message " + i + ": BATCH cannot be batched");
+            }
+            try {
+                messages.add(MessageParser.parse(item));
+            } catch (InvalidObjectException e) {
+                throw new InvalidObjectException("Invalid BATCH message " + i + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -33,6 +33,15 @@ public class ChatMessage extends BaseMessage {
         this.content = content;
     }
 
+    /**
+     * Creates a chat message stamped with {@code timestamp} rather than the current time, e.g. one
+     * returned from the server's message history.
+     */
+    public ChatMessage(String from, String to, boolean direct, String content, long timestamp) {
+        this(from, to, direct, content);
+        this.timestamp = timestamp;
+    }
+
     /** Sender username. */
     public String getFrom() {
         return from;
@@ -1,9 +1,13 @@
 package edu.merrimack.simplechat.common.protocol;
 
+import merrimackutil.json.types.JSONArray;
 import merrimackutil.json.types.JSONType;
 import merrimackutil.json.types.JSONObject;
 
 import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Server response to a CONNECT handshake indicating status and message.
@@ -12,6 +16,10 @@ public class ConnectAckMessage extends BaseMessage {
 
     private String status;
     private String message;
+    private String resumeToken;
+    private boolean resumed;
+    private String version;
+    private final List<String> capabilities = new ArrayList<>();
 
     /** No-arg constructor for JSON deserialization. */
     public ConnectAckMessage() {
@@ -25,6 +33,27 @@ public class ConnectAckMessage extends BaseMessage {
         this.message = message;
     }
 
+    /**
+     * Builds a successful acknowledgement carrying the session's resume token and whether an earlier
+     * session was resumed.
+     */
+    public ConnectAckMessage(String status, String message, String resumeToken, boolean resumed) {
+        this(status, message);
+        this.resumeToken = resumeToken;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Builds a successful acknowledgement that also reports the negotiated protocol {@code version} and the
+     * {@code capabilities} the session will use.
+     */
+    public ConnectAckMessage(String status, String message, String resumeToken, boolean resumed, String version,
+                             List<String> capabilities) {
+        this(status, message, resumeToken, resumed);
+        this.version = version;
+        this.capabilities.addAll(capabilities);
+    }
+
     /** Machine-readable status such as {@code OK} or {@code ERROR}. */
     public String getStatus() {
         return status;
@@ -35,11 +64,41 @@ public class ConnectAckMessage extends BaseMessage {
         return message;
     }
 
+    /** Token the client presents to resume this session after a dropped connection; may be null. */
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    /** Whether the server resumed an earlier session instead of starting a new one. */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /** Negotiated protocol version, or null from servers, and for sessions, predating negotiation. */
+    public String getVersion() {
+        return version;
+    }
+
+    /** Capabilities the session uses; meaningful only when {@link #getVersion()} is present. */
+    public List<String> getCapabilities() {
+        return Collections.unmodifiableList(capabilities);
+    }
+
     @Override
     public JSONType toJSONType() {
         JSONObject obj = baseToJson();
         obj.put("status", status);
         obj.put("message", message);
+        if (resumeToken != null) {
+            obj.put("resumeToken", resumeToken);
+            obj.put("resumed", resumed);
+        }
+        if (version != null) {
+            obj.put("version", version);
+            JSONArray array = new JSONArray();
+            array.addAll(capabilities);
+            obj.put("capabilities", array);
+        }
         return obj;
     }
 
@@ -53,6 +112,15 @@ public class ConnectAckMessage extends BaseMessage {
         try {
             this.status = obj.getString("status");
             this.message = obj.getString("message");
+            this.resumeToken = obj.getString("resumeToken");
+            this.resumed = Boolean.TRUE.equals(obj.getBoolean("resumed"));
+            this.version = obj.getString("version");
+            JSONArray array = obj.getArray("capabilities");
+            if (array != null) {
+                for (int i = 0; i < array.size(); i++) {
+                    capabilities.add(array.getString(i));
+                }
+            }
         } catch (Exception e) {
             throw new InvalidObjectException("Invalid CONNECT_ACK: " + e.getMessage());
         }
@@ -1,10 +1,14 @@
 package edu.merrimack.simplechat.common.protocol;
 
 import edu.merrimack.simplechat.common.ProtocolConstants;
+import merrimackutil.json.types.JSONArray;
 import merrimackutil.json.types.JSONType;
 import merrimackutil.json.types.JSONObject;
 
 import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Client handshake message sent when first connecting to the server.
@@ -14,6 +18,9 @@ public class ConnectMessage extends BaseMessage {
     private String clientId;
     private String username;
     private String version;
+    private String maxVersion;
+    private String resumeToken;
+    private final List<String> capabilities = new ArrayList<>();
 
     /**
      * No-arg constructor for JSON deserialization.
@@ -30,6 +37,25 @@ public class ConnectMessage extends BaseMessage {
         this.clientId = clientId;
         this.username = username;
         this.version = ProtocolConstants.VERSION;
+        this.maxVersion = ProtocolConstants.MAX_VERSION;
+    }
+
+    /**
+     * Constructs a handshake that asks the server to resume the session identified by {@code resumeToken}.
+     */
+    public ConnectMessage(String clientId, String username, String resumeToken) {
+        this(clientId, username);
+        this.resumeToken = resumeToken;
+    }
+
+    /**
+     * Constructs a handshake that also declares the optional protocol features the client understands.
+     */
+    public ConnectMessage(String clientId, String username, String resumeToken, List<String> capabilities) {
+        this(clientId, username, resumeToken);
+        if (capabilities != null) {
+            this.capabilities.addAll(capabilities);
+        }
     }
 
     /** Unique client identifier supplied by the caller. */
@@ -42,11 +68,31 @@ public class ConnectMessage extends BaseMessage {
         return username;
     }
 
-    /** Protocol version the client supports. */
+    /** Oldest protocol version the client supports; the only one for clients that predate negotiation. */
     public String getVersion() {
         return version;
     }
 
+    /** Newest protocol version the client supports, or null if it supports only {@link #getVersion()}. */
+    public String getMaxVersion() {
+        return maxVersion;
+    }
+
+    /** Optional features the client supports; empty for clients that predate capabilities. */
+    public List<String> getCapabilities() {
+        return Collections.unmodifiableList(capabilities);
+    }
+
+    /** Whether the client declared {@code capability}. */
+    public boolean hasCapability(String capability) {
+        return capabilities.contains(capability);
+    }
+
+    /** Token from a previous {@code CONNECT_ACK} when reconnecting; null for a new session. */
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
     /**
      * Serializes the connect message to JSON.
      */
@@ -56,6 +102,17 @@ public class ConnectMessage extends BaseMessage {
         obj.put("clientId", clientId);
         obj.put("username", username);
         obj.put("version", version);
+        if (maxVersion != null) {
+            obj.put("maxVersion", maxVersion);
+        }
+        if (resumeToken != null) {
+            obj.put("resumeToken", resumeToken);
+        }
+        if (!capabilities.isEmpty()) {
+            JSONArray array = new JSONArray();
+            array.addAll(capabilities);
+            obj.put("capabilities", array);
+        }
         return obj;
     }
 
@@ -73,6 +130,14 @@ public class ConnectMessage extends BaseMessage {
             this.clientId = obj.getString("clientId");
             this.username = obj.getString("username");
             this.version = obj.getString("version");
+            this.maxVersion = obj.getString("maxVersion");
+            this.resumeToken = obj.getString("resumeToken");
+            JSONArray array = obj.getArray("capabilities");
+            if (array != null) {
+                for (int i = 0; i < array.size(); i++) {
+                    capabilities.add(array.getString(i));
+                }
+            }
         } catch (Exception e) {
             throw new InvalidObjectException("Invalid CONNECT: " + e.getMessage());
         }
@@ -12,6 +12,7 @@ public class ErrorMessage extends BaseMessage {
 
     private String code;
     private String message;
+    private long retryAfterMs;
 
     /** No-arg constructor for JSON deserialization. */
     public ErrorMessage() {
@@ -25,6 +26,12 @@ public class ErrorMessage extends BaseMessage {
         this.message = message;
     }
 
+    /** Creates an error response that also tells the client how long to wait before retrying. */
+    public ErrorMessage(String code, String message, long retryAfterMs) {
+        this(code, message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
     /** Short machine-readable error code. */
     public String getCode() {
         return code;
@@ -35,11 +42,19 @@ public class ErrorMessage extends BaseMessage {
         return message;
     }
 
+    /** Suggested wait in milliseconds before retrying; 0 when no hint was given. */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
     @Override
     public JSONType toJSONType() {
         JSONObject obj = baseToJson();
         obj.put("code", code);
         obj.put("message", message);
+        if (retryAfterMs > 0) {
+            obj.put("retryAfterMs", retryAfterMs);
+        }
         return obj;
     }
 
@@ -53,6 +68,9 @@ public class ErrorMessage extends BaseMessage {
         try {
             this.code = obj.getString("code");
             this.message = obj.getString("message");
+            if (obj.containsKey("retryAfterMs")) {
+                this.retryAfterMs = obj.getLong("retryAfterMs");
+            }
         } catch (Exception e) {
             throw new InvalidObjectException("Invalid ERROR: " + e.getMessage());
         }
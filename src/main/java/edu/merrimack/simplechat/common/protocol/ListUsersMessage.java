@@ -7,18 +7,79 @@ import java.io.InvalidObjectException;
 
 /**
  * Client request asking the server to return the current list of connected usernames.
+ *
+ * <p>With no options the full list is returned. A {@code limit} (and the {@code cursor} from a previous
+ * page) requests one sorted page; {@code sinceVersion} requests only the names added and removed after
+ * that list version. A {@code prefix} restricts the reply to matching names, which is how clients
+ * autocomplete usernames without fetching the whole list.
  */
 public class ListUsersMessage extends BaseMessage {
 
+    private String prefix;
+    private String cursor;
+    private int limit;
+    private long sinceVersion = -1;
+
     /** No-arg constructor for JSON deserialization. */
     public ListUsersMessage() {
         super(MessageType.LIST_USERS);
     }
 
+    /** Requests up to {@code limit} names sorting after {@code cursor} (null for the first page). */
+    public ListUsersMessage(String cursor, int limit) {
+        this();
+        this.cursor = cursor;
+        this.limit = limit;
+    }
+
+    /** Requests up to {@code limit} names starting with {@code prefix}, after {@code cursor} when paging. */
+    public ListUsersMessage(String prefix, String cursor, int limit) {
+        this(cursor, limit);
+        this.prefix = prefix;
+    }
+
+    /** Requests the changes made since list version {@code sinceVersion}. */
+    public ListUsersMessage(long sinceVersion) {
+        this();
+        this.sinceVersion = sinceVersion;
+    }
+
+    /** Case-sensitive username prefix to match; null when unfiltered. */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /** Exclusive lower bound for the page, as returned in a previous page's {@code nextCursor}; may be null. */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /** Page size; 0 when no paging was requested. */
+    public int getLimit() {
+        return limit;
+    }
+
+    /** List version the client already holds, or -1 when no delta was requested. */
+    public long getSinceVersion() {
+        return sinceVersion;
+    }
+
     @Override
     public JSONType toJSONType() {
-        // No additional fields beyond the type/timestamp envelope.
-        return baseToJson();
+        JSONObject obj = baseToJson();
+        if (prefix != null) {
+            obj.put("prefix", prefix);
+        }
+        if (cursor != null) {
+            obj.put("cursor", cursor);
+        }
+        if (limit > 0) {
+            obj.put("limit", limit);
+        }
+        if (sinceVersion >= 0) {
+            obj.put("sinceVersion", sinceVersion);
+        }
+        return obj;
     }
 
     @Override
@@ -26,6 +87,19 @@ public class ListUsersMessage extends BaseMessage {
         if (!(jsonType instanceof JSONObject)) {
             throw new InvalidObjectException("LIST_USERS expects object");
         }
-        baseFromJson((JSONObject) jsonType);
+        JSONObject obj = (JSONObject) jsonType;
+        baseFromJson(obj);
+        try {
+            this.prefix = obj.getString("prefix");
+            this.cursor = obj.getString("cursor");
+            if (obj.containsKey("limit")) {
+                this.limit = obj.getInt("limit");
+            }
+            if (obj.containsKey("sinceVersion")) {
+                this.sinceVersion = obj.getLong("sinceVersion");
+            }
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid LIST_USERS: " + e.getMessage());
+        }
     }
 }
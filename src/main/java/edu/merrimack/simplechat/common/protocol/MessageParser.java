@@ -25,7 +25,14 @@ public final class MessageParser {
         } catch (InvalidJSONException e) {
             throw new InvalidObjectException("Bad JSON: " + e.getMessage());
         }
+        return parse(obj);
+    }
 
+    /**
+     * Reads an already parsed JSON object as a specific message type and validates it, as for the messages
+     * inside a {@code BATCH}.
+     */
+    public static BaseMessage parse(JSONObject obj) throws InvalidObjectException {
         String typeStr;
         try {
             typeStr = obj.getString("type");
@@ -69,6 +76,33 @@ public final class MessageParser {
             case DISCONNECT:
                 message = new DisconnectMessage();
                 break;
+            case PRESENCE_DELTA:
+                message = new PresenceDeltaMessage();
+                break;
+            case ACK:
+                message = new AckMessage();
+                break;
+            case TRANSFER_OFFER:
+                message = new TransferOfferMessage();
+                break;
+            case TRANSFER_CHUNK:
+                message = new TransferChunkMessage();
+                break;
+            case TRANSFER_ACK:
+                message = new TransferAckMessage();
+                break;
+            case TRANSFER_CANCEL:
+                message = new TransferCancelMessage();
+                break;
+            case SEARCH:
+                message = new SearchMessage();
+                break;
+            case SEARCH_RESULTS:
+                message = new SearchResultsMessage();
+                break;
+            case BATCH:
+                message = new BatchMessage();
+                break;
             default:
                 throw new InvalidObjectException("Unsupported type: " + type);
         }
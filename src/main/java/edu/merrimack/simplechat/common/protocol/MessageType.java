@@ -12,5 +12,14 @@ public enum MessageType {
     USER_LIST,
     SERVER_BROADCAST,
     ERROR,
-    DISCONNECT
+    DISCONNECT,
+    PRESENCE_DELTA,
+    ACK,
+    TRANSFER_OFFER,
+    TRANSFER_CHUNK,
+    TRANSFER_ACK,
+    TRANSFER_CANCEL,
+    SEARCH,
+    SEARCH_RESULTS,
+    BATCH
 }
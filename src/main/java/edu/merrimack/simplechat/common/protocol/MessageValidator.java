@@ -3,6 +3,7 @@ package edu.merrimack.simplechat.common.protocol;
 import edu.merrimack.simplechat.common.ProtocolConstants;
 
 import java.io.InvalidObjectException;
+import java.util.List;
 
 /**
  * Validates message fields against protocol constraints.
@@ -20,6 +21,10 @@ public final class MessageValidator {
         if (message.getTimestamp() <= 0) {
             throw new InvalidObjectException("timestamp missing");
         }
+        if (message.getRequestId() != null && (message.getRequestId().isEmpty()
+                || message.getRequestId().length() > ProtocolConstants.MAX_REQUEST_ID_LENGTH)) {
+            throw new InvalidObjectException("requestId must be 1-" + ProtocolConstants.MAX_REQUEST_ID_LENGTH + " characters");
+        }
 
         switch (message.getType()) {
             case CONNECT:
@@ -35,7 +40,7 @@ public final class MessageValidator {
                 validateChat((ChatMessage) message);
                 break;
             case LIST_USERS:
-                // No payload to validate; presence of timestamp already checked.
+                validateListUsers((ListUsersMessage) message);
                 break;
             case USER_LIST:
                 validateUserList((UserListMessage) message);
@@ -51,11 +56,124 @@ public final class MessageValidator {
             case DISCONNECT:
                 // reason may be null/blank; no strict requirement
                 break;
+            case PRESENCE_DELTA:
+                // lists are always present after deserialization; empty deltas are permitted
+                break;
+            case ACK:
+                if (message.getRequestId() == null) {
+                    throw new InvalidObjectException("ACK requires requestId");
+                }
+                break;
+            case TRANSFER_OFFER:
+            case TRANSFER_CHUNK:
+            case TRANSFER_ACK:
+            case TRANSFER_CANCEL:
+                validateTransfer((TransferMessage) message);
+                break;
+            case SEARCH:
+                validateSearch((SearchMessage) message);
+                break;
+            case SEARCH_RESULTS:
+                for (ChatMessage result : ((SearchResultsMessage) message).getMessages()) {
+                    validateChat(result);
+                }
+                break;
+            case BATCH:
+                validateBatch((BatchMessage) message);
+                break;
             default:
                 throw new InvalidObjectException("Unhandled type");
         }
     }
 
+    /**
+     * Bounds the batch size and keeps handshakes and nested batches out of it; each message inside was
+     * validated as it was read.
+     */
+    private static void validateBatch(BatchMessage msg) throws InvalidObjectException {
+        if (msg.getMessages().size() > ProtocolConstants.MAX_BATCH_SIZE) {
+            throw new InvalidObjectException("A batch holds at most " + ProtocolConstants.MAX_BATCH_SIZE + " messages");
+        }
+        for (BaseMessage item : msg.getMessages()) {
+            MessageType type = item.getType();
+            if (type == MessageType.CONNECT || type == MessageType.CONNECT_ACK || type == MessageType.BATCH) {
+                throw new InvalidObjectException(type + " cannot be batched");
+            }
+        }
+    }
+
+    /**
+     * Validates the transfer id and parties, then the fields of the specific transfer message.
+     */
+    private static void validateTransfer(TransferMessage msg) throws InvalidObjectException {
+        String id = msg.getTransferId();
+        if (id == null || id.isEmpty() || id.length() > ProtocolConstants.MAX_REQUEST_ID_LENGTH) {
+            throw new InvalidObjectException("transferId must be 1-" + ProtocolConstants.MAX_REQUEST_ID_LENGTH + " characters");
+        }
+        validateUsername(msg.getFrom());
+        validateUsername(msg.getTo());
+        if (msg instanceof TransferOfferMessage) {
+            TransferOfferMessage offer = (TransferOfferMessage) msg;
+            validateContent(offer.getName(), "name");
+            if (offer.getSize() < 0) {
+                throw new InvalidObjectException("size cannot be negative");
+            }
+        } else if (msg instanceof TransferChunkMessage) {
+            TransferChunkMessage chunk = (TransferChunkMessage) msg;
+            if (chunk.getSeq() < 0) {
+                throw new InvalidObjectException("seq cannot be negative");
+            }
+            if (chunk.getEncodedData() == null || chunk.getEncodedData().isEmpty()) {
+                throw new InvalidObjectException("data required");
+            }
+            if (chunk.getEncodedData().length() > TransferChunkMessage.MAX_ENCODED_LENGTH) {
+                throw new InvalidObjectException("data too long");
+            }
+        } else if (msg instanceof TransferAckMessage && ((TransferAckMessage) msg).getReceived() < 0) {
+            throw new InvalidObjectException("received cannot be negative");
+        }
+    }
+
+    /**
+     * Ensures a search has something to match on and that its filters and paging options are in range.
+     */
+    private static void validateSearch(SearchMessage msg) throws InvalidObjectException {
+        String query = msg.getQuery();
+        if (query != null && query.length() > ProtocolConstants.MAX_SEARCH_QUERY_LENGTH) {
+            throw new InvalidObjectException("query too long");
+        }
+        if ((query == null || query.isBlank()) && msg.getFrom() == null) {
+            throw new InvalidObjectException("query or from required");
+        }
+        if (msg.getFrom() != null) {
+            validateUsername(msg.getFrom());
+        }
+        if (msg.getSince() < 0 || msg.getUntil() < 0 || (msg.getUntil() > 0 && msg.getSince() > msg.getUntil())) {
+            throw new InvalidObjectException("since and until must be non-negative with since <= until");
+        }
+        if (msg.getLimit() < 0 || msg.getLimit() > ProtocolConstants.MAX_SEARCH_PAGE_SIZE) {
+            throw new InvalidObjectException("limit must be between 1 and " + ProtocolConstants.MAX_SEARCH_PAGE_SIZE);
+        }
+        if (msg.getCursor() != null && !msg.getCursor().matches("^[0-9]{1,18}$")) {
+            throw new InvalidObjectException("cursor invalid");
+        }
+    }
+
+    /**
+     * Ensures optional paging options are in range.
+     */
+    private static void validateListUsers(ListUsersMessage msg) throws InvalidObjectException {
+        if (msg.getLimit() < 0 || msg.getLimit() > ProtocolConstants.MAX_USER_PAGE_SIZE) {
+            throw new InvalidObjectException("limit must be between 1 and " + ProtocolConstants.MAX_USER_PAGE_SIZE);
+        }
+        if (msg.getCursor() != null && msg.getCursor().length() > ProtocolConstants.MAX_USERNAME_LENGTH) {
+            throw new InvalidObjectException("cursor too long");
+        }
+        if (msg.getPrefix() != null && msg.getPrefix().length() > ProtocolConstants.MAX_USERNAME_LENGTH) {
+            throw new InvalidObjectException("prefix too long");
+        }
+    }
+
     /**
      * Ensures the user list is present; empty list is permitted.
      */
@@ -66,13 +184,18 @@ public final class MessageValidator {
     }
 
     /**
-     * Ensures connect message fields are present and version matches.
+     * Ensures connect message fields are present and the version range and capabilities are well formed.
      */
     private static void validateConnect(ConnectMessage msg) throws InvalidObjectException {
         validateContent(msg.getClientId(), "clientId");
-        if (msg.getVersion() == null || !ProtocolConstants.VERSION.equals(msg.getVersion())) {
-            throw new InvalidObjectException("Unsupported version");
+        if (!Negotiation.isVersion(msg.getVersion())) {
+            throw new InvalidObjectException("version must look like 1.0");
         }
+        if (msg.getMaxVersion() != null && (!Negotiation.isVersion(msg.getMaxVersion())
+                || Negotiation.compare(msg.getMaxVersion(), msg.getVersion()) < 0)) {
+            throw new InvalidObjectException("maxVersion must look like 1.0 and not be older than version");
+        }
+        validateCapabilities(msg.getCapabilities());
         String username = msg.getUsername();
         if (username != null && !username.isBlank()) {
             validateUsername(username);
@@ -85,6 +208,26 @@ public final class MessageValidator {
     private static void validateConnectAck(ConnectAckMessage msg) throws InvalidObjectException {
         validateContent(msg.getStatus(), "status");
         validateContent(msg.getMessageText(), "message");
+        if (msg.getVersion() != null && !Negotiation.isVersion(msg.getVersion())) {
+            throw new InvalidObjectException("version must look like 1.0");
+        }
+        validateCapabilities(msg.getCapabilities());
+    }
+
+    /**
+     * Bounds how many capabilities are listed and how long each name is.
+     */
+    private static void validateCapabilities(List<String> capabilities) throws InvalidObjectException {
+        if (capabilities.size() > ProtocolConstants.MAX_CAPABILITIES) {
+            throw new InvalidObjectException("At most " + ProtocolConstants.MAX_CAPABILITIES + " capabilities");
+        }
+        for (String capability : capabilities) {
+            if (capability == null || capability.isBlank()
+                    || capability.length() > ProtocolConstants.MAX_CAPABILITY_LENGTH) {
+                throw new InvalidObjectException("capabilities must be names of 1-"
+                        + ProtocolConstants.MAX_CAPABILITY_LENGTH + " characters");
+            }
+        }
     }
 
     /**
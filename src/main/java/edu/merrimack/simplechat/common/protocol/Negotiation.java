@@ -0,0 +1,54 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Settles the protocol version and optional features a session uses from what each side of the
+ * {@code CONNECT} handshake supports.
+ */
+public final class Negotiation {
+
+    private static final Pattern VERSION = Pattern.compile("^[0-9]{1,4}\\.[0-9]{1,4}$");
+
+    /** Utility class; no instances. */
+    private Negotiation() {
+    }
+
+    /** Whether {@code version} has the {@code major.minor} form versions are written in. */
+    public static boolean isVersion(String version) {
+        return version != null && VERSION.matcher(version).matches();
+    }
+
+    /** Orders two well-formed versions numerically, so {@code "1.10"} follows {@code "1.9"}. */
+    public static int compare(String a, String b) {
+        int dotA = a.indexOf('.');
+        int dotB = b.indexOf('.');
+        int major = Integer.compare(Integer.parseInt(a.substring(0, dotA)), Integer.parseInt(b.substring(0, dotB)));
+        return major != 0 ? major
+                : Integer.compare(Integer.parseInt(a.substring(dotA + 1)), Integer.parseInt(b.substring(dotB + 1)));
+    }
+
+    /**
+     * The highest version in both the range {@code [min, max]} a client offers and {@code [ownMin, ownMax]},
+     * or null when the ranges do not overlap.
+     */
+    public static String version(String min, String max, String ownMin, String ownMax) {
+        String high = compare(max, ownMax) <= 0 ? max : ownMax;
+        String low = compare(min, ownMin) >= 0 ? min : ownMin;
+        return compare(high, low) >= 0 ? high : null;
+    }
+
+    /** The capabilities in {@code offered} that also appear in {@code supported}, once each, in offered order. */
+    public static List<String> capabilities(Collection<String> offered, Collection<String> supported) {
+        List<String> agreed = new ArrayList<>();
+        for (String capability : offered) {
+            if (supported.contains(capability) && !agreed.contains(capability)) {
+                agreed.add(capability);
+            }
+        }
+        return agreed;
+    }
+}
@@ -0,0 +1,160 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Server-emitted batch of presence changes coalesced over a short window. Clients apply departures,
+ * then renames, then arrivals.
+ */
+public class PresenceDeltaMessage extends BaseMessage {
+
+    private static final int SUMMARY_NAMES = 5;
+
+    private final List<String> joined = new ArrayList<>();
+    private final List<String> left = new ArrayList<>();
+    private final List<Rename> renamed = new ArrayList<>();
+
+    /** No-arg constructor for JSON deserialization. */
+    public PresenceDeltaMessage() {
+        super(MessageType.PRESENCE_DELTA);
+    }
+
+    /** Creates a delta from the users who joined, left, and were renamed during the window. */
+    public PresenceDeltaMessage(List<String> joined, List<String> left, List<Rename> renamed) {
+        this();
+        this.joined.addAll(joined);
+        this.left.addAll(left);
+        this.renamed.addAll(renamed);
+    }
+
+    /** Usernames that arrived during the window. */
+    public List<String> getJoined() {
+        return Collections.unmodifiableList(joined);
+    }
+
+    /** Usernames that departed during the window. */
+    public List<String> getLeft() {
+        return Collections.unmodifiableList(left);
+    }
+
+    /** Username changes during the window, collapsed to first and last name. */
+    public List<Rename> getRenamed() {
+        return Collections.unmodifiableList(renamed);
+    }
+
+    /** Whether the delta carries no changes. */
+    public boolean isEmpty() {
+        return joined.isEmpty() && left.isEmpty() && renamed.isEmpty();
+    }
+
+    /**
+     * Human-readable one-line summary, truncated so it fits a {@code SERVER_BROADCAST}.
+     */
+    public String toSummary() {
+        List<String> parts = new ArrayList<>();
+        if (!joined.isEmpty()) {
+            parts.add(names(joined) + " joined");
+        }
+        if (!left.isEmpty()) {
+            parts.add(names(left) + " left");
+        }
+        int shown = Math.min(renamed.size(), SUMMARY_NAMES);
+        for (int i = 0; i < shown; i++) {
+            parts.add(renamed.get(i).getFrom() + " is now known as " + renamed.get(i).getTo());
+        }
+        if (renamed.size() > shown) {
+            parts.add((renamed.size() - shown) + " more renamed");
+        }
+        String summary = String.join("; ", parts);
+        if (summary.length() > ProtocolConstants.MAX_CONTENT_LENGTH) {
+            summary = summary.substring(0, ProtocolConstants.MAX_CONTENT_LENGTH - 3) + "...";
+        }
+        return summary;
+    }
+
+    /** Lists up to a few names, then a count of the rest. */
+    private static String names(List<String> users) {
+        if (users.size() <= SUMMARY_NAMES) {
+            return String.join(", ", users);
+        }
+        return String.join(", ", users.subList(0, SUMMARY_NAMES)) + " and " + (users.size() - SUMMARY_NAMES) + " others";
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = baseToJson();
+        JSONArray joinedArray = new JSONArray();
+        joinedArray.addAll(joined);
+        JSONArray leftArray = new JSONArray();
+        leftArray.addAll(left);
+        JSONArray renamedArray = new JSONArray();
+        for (Rename rename : renamed) {
+            JSONObject entry = new JSONObject();
+            entry.put("from", rename.getFrom());
+            entry.put("to", rename.getTo());
+            renamedArray.add(entry);
+        }
+        obj.put("joined", joinedArray);
+        obj.put("left", leftArray);
+        obj.put("renamed", renamedArray);
+        return obj;
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("PRESENCE_DELTA expects object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        baseFromJson(obj);
+        try {
+            JSONArray joinedArray = obj.getArray("joined");
+            for (int i = 0; i < joinedArray.size(); i++) {
+                joined.add(joinedArray.getString(i));
+            }
+            JSONArray leftArray = obj.getArray("left");
+            for (int i = 0; i < leftArray.size(); i++) {
+                left.add(leftArray.getString(i));
+            }
+            JSONArray renamedArray = obj.getArray("renamed");
+            for (int i = 0; i < renamedArray.size(); i++) {
+                JSONObject entry = renamedArray.getObject(i);
+                renamed.add(new Rename(entry.getString("from"), entry.getString("to")));
+            }
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid PRESENCE_DELTA: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A username change from {@code from} to {@code to}.
+     */
+    public static final class Rename {
+        private final String from;
+        private final String to;
+
+        /** Creates a rename entry. */
+        public Rename(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /** Name before the change. */
+        public String getFrom() {
+            return from;
+        }
+
+        /** Name after the change. */
+        public String getTo() {
+            return to;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Client request for past chat messages, answered with a {@code SEARCH_RESULTS} page, newest first.
+ *
+ * <p>A message matches when it contains every word of {@code query} (case-insensitively; words joined by
+ * {@code -} or {@code _}, such as {@code outage-4312}, match as a whole), was sent by {@code from} when
+ * given, and reached the server within {@code [since, until]} when those are given. Each page returns a
+ * {@code nextCursor} while older matches remain; sending it back as {@code cursor} fetches the next page.
+ */
+public class SearchMessage extends BaseMessage {
+
+    private String query;
+    private String from;
+    private long since;
+    private long until;
+    private int limit;
+    private String cursor;
+
+    /** No-arg constructor for JSON deserialization. */
+    public SearchMessage() {
+        super(MessageType.SEARCH);
+    }
+
+    /** Searches for messages containing every word of {@code query}, in pages of up to {@code limit}. */
+    public SearchMessage(String query, int limit) {
+        this();
+        this.query = query;
+        this.limit = limit;
+    }
+
+    /**
+     * Searches for messages containing every word of {@code query} (null for any) sent by {@code from}
+     * (null for anyone) between {@code since} and {@code until} epoch milliseconds (0 for unbounded),
+     * continuing after {@code cursor} when paging.
+     */
+    public SearchMessage(String query, String from, long since, long until, int limit, String cursor) {
+        this(query, limit);
+        this.from = from;
+        this.since = since;
+        this.until = until;
+        this.cursor = cursor;
+    }
+
+    /** Words every result must contain; may be null when searching by sender or time alone. */
+    public String getQuery() {
+        return query;
+    }
+
+    /** Sender every result must have; null for anyone. */
+    public String getFrom() {
+        return from;
+    }
+
+    /** Earliest arrival time to include, in epoch milliseconds; 0 when unbounded. */
+    public long getSince() {
+        return since;
+    }
+
+    /** Latest arrival time to include, in epoch milliseconds; 0 when unbounded. */
+    public long getUntil() {
+        return until;
+    }
+
+    /** Page size; 0 to use the server's default. */
+    public int getLimit() {
+        return limit;
+    }
+
+    /** Position after which the page starts, as returned in a previous page's {@code nextCursor}; may be null. */
+    public String getCursor() {
+        return cursor;
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = baseToJson();
+        if (query != null) {
+            obj.put("query", query);
+        }
+        if (from != null) {
+            obj.put("from", from);
+        }
+        if (since > 0) {
+            obj.put("since", since);
+        }
+        if (until > 0) {
+            obj.put("until", until);
+        }
+        if (limit > 0) {
+            obj.put("limit", limit);
+        }
+        if (cursor != null) {
+            obj.put("cursor", cursor);
+        }
+        return obj;
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("SEARCH expects object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        baseFromJson(obj);
+        try {
+            this.query = obj.getString("query");
+            this.from = obj.getString("from");
+            if (obj.containsKey("since")) {
+                this.since = obj.getLong("since");
+            }
+            if (obj.containsKey("until")) {
+                this.until = obj.getLong("until");
+            }
+            if (obj.containsKey("limit")) {
+                this.limit = obj.getInt("limit");
+            }
+            this.cursor = obj.getString("cursor");
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid SEARCH: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Server response to a {@code SEARCH}: one page of matching chat messages, newest first, each stamped with
+ * the time it reached the server. {@code nextCursor} is present while older matches may remain.
+ */
+public class SearchResultsMessage extends BaseMessage {
+
+    private final List<ChatMessage> messages = new ArrayList<>();
+    private String nextCursor;
+
+    /** No-arg constructor for JSON deserialization. */
+    public SearchResultsMessage() {
+        super(MessageType.SEARCH_RESULTS);
+    }
+
+    /** Builds a page of {@code messages}; {@code nextCursor} is null on the last page. */
+    public SearchResultsMessage(List<ChatMessage> messages, String nextCursor) {
+        this();
+        this.messages.addAll(messages);
+        this.nextCursor = nextCursor;
+    }
+
+    /** Immutable view of the matching messages, newest first. */
+    public List<ChatMessage> getMessages() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    /** Cursor for the next, older page, or null when this is the last page. */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = baseToJson();
+        JSONArray array = new JSONArray();
+        for (ChatMessage message : messages) {
+            array.add(message.toJSONType());
+        }
+        obj.put("messages", array);
+        if (nextCursor != null) {
+            obj.put("nextCursor", nextCursor);
+        }
+        return obj;
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("SEARCH_RESULTS expects object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        baseFromJson(obj);
+        try {
+            JSONArray array = obj.getArray("messages");
+            for (int i = 0; i < array.size(); i++) {
+                ChatMessage message = new ChatMessage();
+                message.deserialize(array.getObject(i));
+                messages.add(message);
+            }
+            this.nextCursor = obj.getString("nextCursor");
+        } catch (InvalidObjectException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid SEARCH_RESULTS: " + e.getMessage());
+        }
+    }
+}
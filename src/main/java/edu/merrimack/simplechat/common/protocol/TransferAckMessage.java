@@ -0,0 +1,53 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Sent by a transfer's recipient to report how many chunks it has received. The first one, with
+ * {@code received} of 0, accepts the offer. Each one lets the sender have chunks up to
+ * {@code received + TRANSFER_WINDOW} outstanding, so a slow recipient throttles its sender.
+ */
+public class TransferAckMessage extends TransferMessage {
+
+    private long received;
+
+    /** No-arg constructor for JSON deserialization. */
+    public TransferAckMessage() {
+        super(MessageType.TRANSFER_ACK, null, null, null);
+    }
+
+    /** Reports that {@code to} has received the first {@code received} chunks of {@code from}'s transfer. */
+    public TransferAckMessage(String transferId, String from, String to, long received) {
+        super(MessageType.TRANSFER_ACK, transferId, from, to);
+        this.received = received;
+    }
+
+    /** Chunks received so far, counted from the start of the transfer. */
+    public long getReceived() {
+        return received;
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = transferToJson();
+        obj.put("received", received);
+        return obj;
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("TRANSFER_ACK expects object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        transferFromJson(obj);
+        try {
+            this.received = obj.getLong("received");
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid TRANSFER_ACK: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Abandons a transfer. Either party may send it, including a recipient declining an offer; the server also
+ * sends it when one side disconnects or breaks the transfer's flow control.
+ */
+public class TransferCancelMessage extends TransferMessage {
+
+    private String reason;
+
+    /** No-arg constructor for JSON deserialization. */
+    public TransferCancelMessage() {
+        super(MessageType.TRANSFER_CANCEL, null, null, null);
+    }
+
+    /** Cancels {@code from}'s transfer to {@code to} for an optional {@code reason}. */
+    public TransferCancelMessage(String transferId, String from, String to, String reason) {
+        super(MessageType.TRANSFER_CANCEL, transferId, from, to);
+        this.reason = reason;
+    }
+
+    /** Why the transfer was cancelled; may be null. */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = transferToJson();
+        obj.put("reason", reason);
+        return obj;
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("TRANSFER_CANCEL expects object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        transferFromJson(obj);
+        try {
+            this.reason = obj.getString("reason");
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid TRANSFER_CANCEL: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import merrimackutil.json.types.JSONArray;
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * One slice of a transfer's payload, base64 encoded. Chunks are numbered from 0 and sent in order; every
+ * chunk but the last carries exactly {@link ProtocolConstants#MAX_TRANSFER_CHUNK_BYTES} bytes.
+ *
+ * <p>The encoded bytes travel as an array of strings of at most {@link #SEGMENT_LENGTH} characters, to be
+ * joined before decoding. Parsing a JSON string costs time quadratic in its length, so one long string
+ * would make a full chunk over ten times slower to parse.
+ */
+public class TransferChunkMessage extends TransferMessage {
+
+    /** Longest {@code data} field a full chunk encodes to. */
+    public static final int MAX_ENCODED_LENGTH = (ProtocolConstants.MAX_TRANSFER_CHUNK_BYTES + 2) / 3 * 4;
+    /** Longest string in the {@code data} array. */
+    public static final int SEGMENT_LENGTH = 512;
+
+    private long seq;
+    private String data;
+
+    /** No-arg constructor for JSON deserialization. */
+    public TransferChunkMessage() {
+        super(MessageType.TRANSFER_CHUNK, null, null, null);
+    }
+
+    /** Carries bytes {@code [offset, offset + length)} of {@code buffer} as chunk {@code seq}. */
+    public TransferChunkMessage(String transferId, String from, String to, long seq, byte[] buffer, int offset,
+                                int length) {
+        super(MessageType.TRANSFER_CHUNK, transferId, from, to);
+        this.seq = seq;
+        byte[] slice = offset == 0 && length == buffer.length ? buffer : Arrays.copyOfRange(buffer, offset, offset + length);
+        this.data = Base64.getEncoder().encodeToString(slice);
+    }
+
+    /** Number of chunks a payload of {@code size} bytes is split into; an empty payload has none. */
+    public static long chunkCount(long size) {
+        return (size + ProtocolConstants.MAX_TRANSFER_CHUNK_BYTES - 1) / ProtocolConstants.MAX_TRANSFER_CHUNK_BYTES;
+    }
+
+    /** Zero-based position of this chunk in the transfer. */
+    public long getSeq() {
+        return seq;
+    }
+
+    /** Base64 encoding of the chunk's bytes, joined from the segments carried on the wire. */
+    public String getEncodedData() {
+        return data;
+    }
+
+    /** Decodes the chunk's bytes. */
+    public byte[] getData() {
+        return Base64.getDecoder().decode(data);
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = transferToJson();
+        obj.put("seq", seq);
+        JSONArray segments = new JSONArray();
+        for (int start = 0; start < data.length(); start += SEGMENT_LENGTH) {
+            segments.add(data.substring(start, Math.min(data.length(), start + SEGMENT_LENGTH)));
+        }
+        obj.put("data", segments);
+        return obj;
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("TRANSFER_CHUNK expects object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        transferFromJson(obj);
+        try {
+            this.seq = obj.getLong("seq");
+            JSONArray segments = obj.getArray("data");
+            StringBuilder joined = new StringBuilder();
+            for (int i = 0; i < segments.size(); i++) {
+                joined.append(segments.getString(i));
+            }
+            this.data = joined.toString();
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid TRANSFER_CHUNK: " + e.getMessage());
+        }
+    }
+}
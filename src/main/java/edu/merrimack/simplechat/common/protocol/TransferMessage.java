@@ -0,0 +1,62 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import merrimackutil.json.types.JSONObject;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Common fields of the messages that move one chunked transfer between two users: the id the sender chose
+ * for the transfer, and who it is from and to. {@code from} and {@code to} name the transfer's sender and
+ * recipient whichever way the message travels, so the pair of {@code from} and {@code transferId} identifies
+ * a transfer on both ends.
+ */
+public abstract class TransferMessage extends BaseMessage {
+
+    protected String transferId;
+    protected String from;
+    protected String to;
+
+    /** Creates a transfer message of the given type. */
+    protected TransferMessage(MessageType type, String transferId, String from, String to) {
+        super(type);
+        this.transferId = transferId;
+        this.from = from;
+        this.to = to;
+    }
+
+    /** Sender-chosen id of the transfer, unique among that sender's active transfers. */
+    public String getTransferId() {
+        return transferId;
+    }
+
+    /** Username of the transfer's sender. */
+    public String getFrom() {
+        return from;
+    }
+
+    /** Username of the transfer's recipient. */
+    public String getTo() {
+        return to;
+    }
+
+    /** Serializes the base and transfer fields. */
+    protected JSONObject transferToJson() {
+        JSONObject obj = baseToJson();
+        obj.put("transferId", transferId);
+        obj.put("from", from);
+        obj.put("to", to);
+        return obj;
+    }
+
+    /** Reads the base and transfer fields. */
+    protected void transferFromJson(JSONObject obj) throws InvalidObjectException {
+        baseFromJson(obj);
+        try {
+            this.transferId = obj.getString("transferId");
+            this.from = obj.getString("from");
+            this.to = obj.getString("to");
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid " + type + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package edu.merrimack.simplechat.common.protocol;
+
+import merrimackutil.json.types.JSONObject;
+import merrimackutil.json.types.JSONType;
+
+import java.io.InvalidObjectException;
+
+/**
+ * Proposes sending {@code size} bytes named {@code name} to another user. Nothing is sent until the
+ * recipient accepts with a {@link TransferAckMessage}, or declines with a {@link TransferCancelMessage}.
+ */
+public class TransferOfferMessage extends TransferMessage {
+
+    private String name;
+    private long size;
+
+    /** No-arg constructor for JSON deserialization. */
+    public TransferOfferMessage() {
+        super(MessageType.TRANSFER_OFFER, null, null, null);
+    }
+
+    /** Offers {@code size} bytes called {@code name} from {@code from} to {@code to}. */
+    public TransferOfferMessage(String transferId, String from, String to, String name, long size) {
+        super(MessageType.TRANSFER_OFFER, transferId, from, to);
+        this.name = name;
+        this.size = size;
+    }
+
+    /** Display name of the payload, such as a file name; not a path to trust. */
+    public String getName() {
+        return name;
+    }
+
+    /** Total payload size in bytes. */
+    public long getSize() {
+        return size;
+    }
+
+    /** Number of chunks the payload is split into. */
+    public long getChunkCount() {
+        return TransferChunkMessage.chunkCount(size);
+    }
+
+    @Override
+    public JSONType toJSONType() {
+        JSONObject obj = transferToJson();
+        obj.put("name", name);
+        obj.put("size", size);
+        return obj;
+    }
+
+    @Override
+    public void deserialize(JSONType jsonType) throws InvalidObjectException {
+        if (!(jsonType instanceof JSONObject)) {
+            throw new InvalidObjectException("TRANSFER_OFFER expects object");
+        }
+        JSONObject obj = (JSONObject) jsonType;
+        transferFromJson(obj);
+        try {
+            this.name = obj.getString("name");
+            this.size = obj.getLong("size");
+        } catch (Exception e) {
+            throw new InvalidObjectException("Invalid TRANSFER_OFFER: " + e.getMessage());
+        }
+    }
+}
@@ -11,10 +11,20 @@ import java.util.List;
 
 /**
  * Server response that carries the list of currently connected usernames.
+ *
+ * <p>Responses are stamped with the registry's list {@code version}. A paged response also carries the
+ * total user count and a {@code nextCursor} when more pages remain; a delta response leaves {@code users}
+ * empty and lists the names {@code added} and {@code removed} since the requested version.
  */
 public class UserListMessage extends BaseMessage {
 
     private final List<String> users = new ArrayList<>();
+    private final List<String> added = new ArrayList<>();
+    private final List<String> removed = new ArrayList<>();
+    private long version;
+    private int total = -1;
+    private String nextCursor;
+    private boolean delta;
 
     /** No-arg constructor for JSON deserialization. */
     public UserListMessage() {
@@ -28,11 +38,58 @@ public class UserListMessage extends BaseMessage {
         }
     }
 
+    /** Builds a full or paged list at {@code version}; {@code nextCursor} is null on the last page. */
+    public UserListMessage(List<String> usernames, long version, int total, String nextCursor) {
+        this(usernames);
+        this.version = version;
+        this.total = total;
+        this.nextCursor = nextCursor;
+    }
+
+    /** Builds a delta bringing a client's list up to {@code version}. */
+    public UserListMessage(long version, List<String> added, List<String> removed) {
+        this();
+        this.version = version;
+        this.delta = true;
+        this.added.addAll(added);
+        this.removed.addAll(removed);
+    }
+
     /** Immutable view of connected usernames. */
     public List<String> getUsers() {
         return Collections.unmodifiableList(users);
     }
 
+    /** List version this response reflects; 0 when the server did not stamp one. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Total users at this version, or -1 when not reported. */
+    public int getTotal() {
+        return total;
+    }
+
+    /** Cursor for the next page, or null when this is the last page. */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /** Whether this response is a delta rather than a list. */
+    public boolean isDelta() {
+        return delta;
+    }
+
+    /** Names added since the requested version (delta responses only). */
+    public List<String> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /** Names removed since the requested version (delta responses only). */
+    public List<String> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
     @Override
     public JSONType toJSONType() {
         JSONObject obj = baseToJson();
@@ -41,6 +98,24 @@ public class UserListMessage extends BaseMessage {
             array.add(user);
         }
         obj.put("users", array);
+        if (version > 0) {
+            obj.put("version", version);
+        }
+        if (total >= 0) {
+            obj.put("total", total);
+        }
+        if (nextCursor != null) {
+            obj.put("nextCursor", nextCursor);
+        }
+        if (delta) {
+            obj.put("delta", true);
+            JSONArray addedArray = new JSONArray();
+            addedArray.addAll(added);
+            JSONArray removedArray = new JSONArray();
+            removedArray.addAll(removed);
+            obj.put("added", addedArray);
+            obj.put("removed", removedArray);
+        }
         return obj;
     }
 
@@ -56,6 +131,24 @@ public class UserListMessage extends BaseMessage {
             for (int i = 0; i < array.size(); i++) {
                 users.add(array.getString(i));
             }
+            if (obj.containsKey("version")) {
+                this.version = obj.getLong("version");
+            }
+            if (obj.containsKey("total")) {
+                this.total = obj.getInt("total");
+            }
+            this.nextCursor = obj.getString("nextCursor");
+            this.delta = Boolean.TRUE.equals(obj.getBoolean("delta"));
+            if (delta) {
+                JSONArray addedArray = obj.getArray("added");
+                for (int i = 0; i < addedArray.size(); i++) {
+                    added.add(addedArray.getString(i));
+                }
+                JSONArray removedArray = obj.getArray("removed");
+                for (int i = 0; i < removedArray.size(); i++) {
+                    removed.add(removedArray.getString(i));
+                }
+            }
         } catch (Exception e) {
             throw new InvalidObjectException("Invalid USER_LIST: " + e.getMessage());
         }
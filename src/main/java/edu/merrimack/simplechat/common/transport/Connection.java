@@ -0,0 +1,41 @@
+package edu.merrimack.simplechat.common.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * One end of a transport connection carrying length-prefixed frames.
+ */
+public interface Connection extends Closeable {
+
+    /**
+     * Blocks until the next frame arrives and returns its JSON payload, or null once the peer has closed.
+     */
+    String readFrame() throws IOException;
+
+    /**
+     * Writes one complete frame as produced by {@link edu.merrimack.simplechat.common.Framing#frame(String)}.
+     */
+    void write(byte[] frame) throws IOException;
+
+    /** Address of the peer, such as an IP address, or null when the transport has none to report. */
+    default String remoteAddress() {
+        return null;
+    }
+
+    /** Whether this end has been closed. */
+    boolean isClosed();
+
+    /** Closes this end; the peer sees end of stream. Never throws. */
+    @Override
+    void close();
+
+    /**
+     * Hands every inbound frame to {@code receiver} as it arrives instead of through {@link #readFrame()},
+     * so the connection needs no reading thread. Returns false when this transport must be read with
+     * {@link #readFrame()}.
+     */
+    default boolean pushTo(FrameReceiver receiver) {
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package edu.merrimack.simplechat.common.transport;
+
+/**
+ * Callback for connections that push inbound frames; see {@link Connection#pushTo(FrameReceiver)}.
+ */
+public interface FrameReceiver {
+
+    /** Handles one inbound frame's JSON payload. */
+    void onFrame(String json);
+
+    /** Called once when the peer closes or the connection fails; no frames follow. */
+    void onClosed();
+}
@@ -0,0 +1,26 @@
+package edu.merrimack.simplechat.common.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Accepts inbound connections on one bound address.
+ */
+public interface Listener extends Closeable {
+
+    /** Blocks until a peer connects; throws once the listener is closed. */
+    Connection accept() throws IOException;
+
+    /** Stops accepting; a thread blocked in {@link #accept()} gets an {@link IOException}. Never throws. */
+    @Override
+    void close();
+
+    /**
+     * Hands each new connection to {@code handler} as it arrives instead of through {@link #accept()}, so no
+     * accept thread is needed. Returns false when this listener must be polled with {@link #accept()}.
+     */
+    default boolean acceptTo(Consumer<Connection> handler) {
+        return false;
+    }
+}
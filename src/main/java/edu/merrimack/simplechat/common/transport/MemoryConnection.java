@@ -0,0 +1,146 @@
+package edu.merrimack.simplechat.common.transport;
+
+import edu.merrimack.simplechat.common.Framing;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One end of a {@link MemoryTransport} connection. Frames written here reach the peer when the
+ * transport runs the corresponding event. Besides the blocking {@link #readFrame()}, simulated clients can
+ * take received frames with {@link #pollFrame()} without blocking.
+ */
+public final class MemoryConnection implements Connection {
+
+    private final MemoryTransport transport;
+    private final ArrayDeque<String> inbox = new ArrayDeque<>();
+    private MemoryConnection peer;
+    private FrameReceiver receiver;
+    private boolean closed;
+    private boolean endOfStream;
+
+    MemoryConnection(MemoryTransport transport) {
+        this.transport = transport;
+    }
+
+    /** Links this end to the other one. */
+    void pair(MemoryConnection peer) {
+        this.peer = peer;
+    }
+
+    @Override
+    public synchronized String readFrame() throws IOException {
+        try {
+            while (inbox.isEmpty() && !endOfStream && !closed) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading", e);
+        }
+        if (closed) {
+            throw new IOException("Connection closed");
+        }
+        return inbox.poll();
+    }
+
+    /** Takes the next received frame's JSON payload without blocking, or null if none is waiting. */
+    public synchronized String pollFrame() {
+        return inbox.poll();
+    }
+
+    /** Number of received frames not yet read. */
+    public synchronized int available() {
+        return inbox.size();
+    }
+
+    /** Whether the peer has closed and no more frames will arrive. */
+    public synchronized boolean isEndOfStream() {
+        return endOfStream;
+    }
+
+    /** Fails, like a reset TCP connection, once either end has closed. */
+    @Override
+    public void write(byte[] frame) throws IOException {
+        synchronized (this) {
+            if (closed || endOfStream) {
+                throw new IOException("Connection closed");
+            }
+        }
+        String json = Framing.payload(frame);
+        transport.schedule(() -> peer.arrive(json));
+    }
+
+    @Override
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        if (peer != null) {
+            transport.schedule(peer::peerClosed);
+        }
+    }
+
+    @Override
+    public boolean pushTo(FrameReceiver receiver) {
+        List<String> queued;
+        boolean ended;
+        synchronized (this) {
+            this.receiver = receiver;
+            queued = new ArrayList<>(inbox);
+            inbox.clear();
+            ended = endOfStream;
+        }
+        for (String json : queued) {
+            receiver.onFrame(json);
+        }
+        if (ended) {
+            receiver.onClosed();
+        }
+        return true;
+    }
+
+    /** Event: a frame from the peer arrives. Frames arriving after this end closed are dropped. */
+    private void arrive(String json) {
+        FrameReceiver target;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            target = receiver;
+            if (target == null) {
+                inbox.add(json);
+                notifyAll();
+                return;
+            }
+        }
+        target.onFrame(json);
+    }
+
+    /** Event: the peer closed its end. */
+    private void peerClosed() {
+        FrameReceiver target;
+        synchronized (this) {
+            if (endOfStream) {
+                return;
+            }
+            endOfStream = true;
+            notifyAll();
+            target = closed ? null : receiver;
+        }
+        if (target != null) {
+            target.onClosed();
+        }
+    }
+}
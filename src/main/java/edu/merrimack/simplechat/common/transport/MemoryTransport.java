@@ -0,0 +1,204 @@
+package edu.merrimack.simplechat.common.transport;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * In-memory transport for simulation tests.
+ *
+ * <p>Connections are pairs of {@link MemoryConnection}s, and every connect, frame, and close is an event on a
+ * virtual clock. Nothing is delivered until the caller runs events with {@link #advance(long)} or
+ * {@link #runUntilIdle()}, so a test drives the whole system from one thread and every run repeats
+ * exactly. Each event becomes due {@code latencyMillis} of virtual time after it was sent; events due at
+ * the same time run in the order they were sent.
+ *
+ * <p>Listeners and connections push to their owner ({@link Listener#acceptTo}, {@link Connection#pushTo}),
+ * which is how the server should use this transport. Blocking {@link Connection#readFrame()} works too,
+ * but then some other thread must keep running events.
+ */
+public class MemoryTransport implements Transport {
+
+    private final long latencyMillis;
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final Map<Integer, MemoryListener> listeners = new HashMap<>();
+    private long now;
+    private long sequence;
+
+    /** Creates a transport that delivers events without virtual delay. */
+    public MemoryTransport() {
+        this(0);
+    }
+
+    /** Creates a transport that delivers every event {@code latencyMillis} of virtual time after it is sent. */
+    public MemoryTransport(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public synchronized Listener listen(int port, int backlog, boolean reusePort) throws IOException {
+        if (listeners.containsKey(port)) {
+            throw new BindException("Port " + port + " is already bound");
+        }
+        MemoryListener listener = new MemoryListener(port);
+        listeners.put(port, listener);
+        return listener;
+    }
+
+    /** Connects to the listener on {@code port}; the host is ignored. The listener sees it once events run. */
+    @Override
+    public Connection connect(String host, int port) throws IOException {
+        MemoryListener listener;
+        synchronized (this) {
+            listener = listeners.get(port);
+        }
+        if (listener == null) {
+            throw new ConnectException("Nothing listening on port " + port);
+        }
+        MemoryConnection client = new MemoryConnection(this);
+        MemoryConnection server = new MemoryConnection(this);
+        client.pair(server);
+        server.pair(client);
+        schedule(() -> listener.arrive(server));
+        return client;
+    }
+
+    /** Current virtual time in milliseconds. */
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    /** Number of events waiting to run. */
+    public synchronized int pendingEvents() {
+        return events.size();
+    }
+
+    /**
+     * Runs every event due within the next {@code millis} of virtual time, including events those events
+     * send, then moves the clock to the end of the interval. Returns the number of events run.
+     */
+    public int advance(long millis) {
+        long until;
+        synchronized (this) {
+            until = now + millis;
+        }
+        int ran = runUntil(until);
+        synchronized (this) {
+            now = Math.max(now, until);
+        }
+        return ran;
+    }
+
+    /** Runs events, moving the clock to each one's due time, until none are left. Returns the number run. */
+    public int runUntilIdle() {
+        return runUntil(Long.MAX_VALUE);
+    }
+
+    /** Runs events due at or before {@code until} in due-time, then send, order. */
+    private int runUntil(long until) {
+        int ran = 0;
+        while (true) {
+            Event next;
+            synchronized (this) {
+                next = events.peek();
+                if (next == null || next.dueMillis > until) {
+                    return ran;
+                }
+                events.poll();
+                now = Math.max(now, next.dueMillis);
+            }
+            next.action.run();
+            ran++;
+        }
+    }
+
+    /** Queues {@code action} to run {@code latencyMillis} from now. */
+    synchronized void schedule(Runnable action) {
+        events.add(new Event(now + latencyMillis, sequence++, action));
+    }
+
+    /** Forgets a closed listener so its port can be bound again. */
+    private synchronized void unbind(MemoryListener listener) {
+        listeners.remove(listener.port, listener);
+    }
+
+    /** An action due at a virtual time, ordered by due time and then by send order. */
+    private static final class Event implements Comparable<Event> {
+        private final long dueMillis;
+        private final long sequence;
+        private final Runnable action;
+
+        private Event(long dueMillis, long sequence, Runnable action) {
+            this.dueMillis = dueMillis;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(dueMillis, other.dueMillis);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /** Listener bound to one virtual port. */
+    private final class MemoryListener implements Listener {
+        private final int port;
+        private final LinkedBlockingQueue<MemoryConnection> backlog = new LinkedBlockingQueue<>();
+        private volatile Consumer<Connection> handler;
+        private volatile boolean closed;
+
+        private MemoryListener(int port) {
+            this.port = port;
+        }
+
+        /** Delivers a new server-side connection, refusing it if the listener closed meanwhile. */
+        private void arrive(MemoryConnection connection) {
+            Consumer<Connection> target = handler;
+            if (closed) {
+                connection.close();
+            } else if (target != null) {
+                target.accept(connection);
+            } else {
+                backlog.add(connection);
+            }
+        }
+
+        @Override
+        public Connection accept() throws IOException {
+            try {
+                MemoryConnection next = backlog.take();
+                if (closed) {
+                    throw new IOException("Listener closed");
+                }
+                return next;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while accepting", e);
+            }
+        }
+
+        @Override
+        public boolean acceptTo(Consumer<Connection> handler) {
+            this.handler = handler;
+            MemoryConnection queued;
+            while ((queued = backlog.poll()) != null) {
+                handler.accept(queued);
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            unbind(this);
+            // wake a thread blocked in accept()
+            backlog.add(new MemoryConnection(MemoryTransport.this));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package edu.merrimack.simplechat.common.transport;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.NetUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+
+/**
+ * Transport over blocking TCP sockets. Every frame is written with a single call, so Nagle's algorithm is
+ * disabled: it would only hold a short reply back behind the previous one until the peer's delayed ACK.
+ */
+public class TcpTransport implements Transport {
+
+    @Override
+    public Listener listen(int port, int backlog, boolean reusePort) throws IOException {
+        ServerSocket socket = new ServerSocket();
+        if (reusePort) {
+            socket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        socket.bind(new InetSocketAddress(port), backlog);
+        return new TcpListener(socket);
+    }
+
+    @Override
+    public Connection connect(String host, int port) throws IOException {
+        return new TcpConnection(noDelay(new Socket(host, port)));
+    }
+
+    /** Disables Nagle's algorithm on a connected socket. */
+    private static Socket noDelay(Socket socket) throws IOException {
+        try {
+            socket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            NetUtil.closeQuietly(socket);
+            throw e;
+        }
+        return socket;
+    }
+
+    /** Whether this JVM and OS let a listening socket set {@code SO_REUSEPORT}. */
+    @Override
+    public boolean supportsReusePort() {
+        try (ServerSocket probe = new ServerSocket()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /** Accepts sockets from a bound server socket. */
+    private static final class TcpListener implements Listener {
+        private final ServerSocket serverSocket;
+
+        private TcpListener(ServerSocket serverSocket) {
+            this.serverSocket = serverSocket;
+        }
+
+        @Override
+        public Connection accept() throws IOException {
+            return new TcpConnection(noDelay(serverSocket.accept()));
+        }
+
+        @Override
+        public void close() {
+            NetUtil.closeQuietly(serverSocket);
+        }
+    }
+
+    /** Frames read from and written to a connected socket. */
+    public static final class TcpConnection implements Connection {
+        private final Socket socket;
+
+        /** Wraps a connected socket. */
+        public TcpConnection(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public String readFrame() throws IOException {
+            return Framing.readFrame(socket.getInputStream());
+        }
+
+        @Override
+        public void write(byte[] frame) throws IOException {
+            socket.getOutputStream().write(frame);
+            socket.getOutputStream().flush();
+        }
+
+        @Override
+        public String remoteAddress() {
+            return socket.getInetAddress() != null ? socket.getInetAddress().getHostAddress() : null;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return socket.isClosed();
+        }
+
+        @Override
+        public void close() {
+            NetUtil.closeQuietly(socket);
+        }
+
+        /** Underlying socket, for socket options. */
+        public Socket getSocket() {
+            return socket;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package edu.merrimack.simplechat.common.transport;
+
+import java.io.IOException;
+
+/**
+ * Creates listeners and outbound connections for the chat server and clients. {@link TcpTransport} is the
+ * default; {@link MemoryTransport} runs whole sessions in memory for simulation tests.
+ */
+public interface Transport {
+
+    /**
+     * Binds a listener on {@code port}. With {@code reusePort} several listeners may bind the same port;
+     * callers must check {@link #supportsReusePort()} first.
+     */
+    Listener listen(int port, int backlog, boolean reusePort) throws IOException;
+
+    /** Opens a connection to a listener at {@code host}:{@code port}. */
+    Connection connect(String host, int port) throws IOException;
+
+    /**
+     * Transport for a client-supplied host: {@link UnixTransport} for a {@code unix:<path>} host, otherwise TCP.
+     */
+    static Transport forHost(String host) {
+        return UnixTransport.isUnixHost(host) ? UnixTransport.forHost(host) : new TcpTransport();
+    }
+
+    /** Whether several listeners may share a port, letting the transport spread connections between them. */
+    default boolean supportsReusePort() {
+        return false;
+    }
+}
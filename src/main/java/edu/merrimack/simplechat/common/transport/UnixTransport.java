@@ -0,0 +1,151 @@
+package edu.merrimack.simplechat.common.transport;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.NetUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Transport over a Unix domain socket, for clients on the same host as the server. Frames skip the TCP
+ * loopback stack; the framing and protocol are unchanged.
+ *
+ * <p>A Unix domain socket is addressed by a file path rather than a host and port, so the port passed to
+ * {@link #listen} and the host and port passed to {@link #connect} are ignored in favour of the path this
+ * transport was created with.
+ */
+public class UnixTransport implements Transport {
+
+    /** Host prefix that selects this transport, as in {@code unix:/run/simplechat.sock}. */
+    public static final String HOST_PREFIX = "unix:";
+
+    private final Path path;
+
+    /** Creates a transport for the socket file at {@code path}. */
+    public UnixTransport(Path path) {
+        this.path = path;
+    }
+
+    /** Whether {@code host} names a Unix domain socket with the {@link #HOST_PREFIX} prefix. */
+    public static boolean isUnixHost(String host) {
+        return host != null && host.startsWith(HOST_PREFIX);
+    }
+
+    /** Creates a transport for a {@code unix:<path>} host. */
+    public static UnixTransport forHost(String host) {
+        return new UnixTransport(Path.of(host.substring(HOST_PREFIX.length())));
+    }
+
+    /**
+     * Binds the socket file, replacing one left behind by a server that did not shut down cleanly. The
+     * file is removed again when the listener closes.
+     */
+    @Override
+    public Listener listen(int port, int backlog, boolean reusePort) throws IOException {
+        Files.deleteIfExists(path);
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.bind(UnixDomainSocketAddress.of(path), backlog);
+        } catch (IOException e) {
+            NetUtil.closeQuietly(channel);
+            throw e;
+        }
+        return new UnixListener(channel);
+    }
+
+    @Override
+    public Connection connect(String host, int port) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(path));
+        } catch (IOException e) {
+            NetUtil.closeQuietly(channel);
+            throw e;
+        }
+        return new UnixConnection(channel);
+    }
+
+    /** Path of the socket file. */
+    public Path getPath() {
+        return path;
+    }
+
+    /** Accepts connections on a bound socket file. */
+    private final class UnixListener implements Listener {
+        private final ServerSocketChannel channel;
+
+        private UnixListener(ServerSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public Connection accept() throws IOException {
+            return new UnixConnection(channel.accept());
+        }
+
+        @Override
+        public void close() {
+            NetUtil.closeQuietly(channel);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Frames read from and written to a blocking socket channel. Reads and writes go to the channel
+     * directly rather than through {@link java.nio.channels.Channels} streams, whose reads hold a lock that
+     * would stall writers while a reader waits for the next frame.
+     */
+    private static final class UnixConnection implements Connection {
+        private final SocketChannel channel;
+        private final InputStream in;
+
+        private UnixConnection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return channel.read(ByteBuffer.wrap(b, off, len));
+                }
+            };
+        }
+
+        @Override
+        public String readFrame() throws IOException {
+            return Framing.readFrame(in);
+        }
+
+        @Override
+        public void write(byte[] frame) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return !channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            NetUtil.closeQuietly(channel);
+        }
+    }
+}
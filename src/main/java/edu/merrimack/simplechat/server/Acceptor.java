@@ -0,0 +1,125 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.Listener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One accept loop and the shard of connections it feeds.
+ *
+ * <p>Each acceptor owns its handler executor so connections accepted on one core are served by that
+ * shard's threads. Acceptors either bind their own listener on the shared port with
+ * {@code SO_REUSEPORT}, letting the kernel spread incoming connections, or all block in {@code accept()}
+ * on one shared listener. A listener that pushes connections needs no accept loop, and its connections
+ * need no shard thread when they push frames too.
+ */
+class Acceptor implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(Acceptor.class);
+
+    private final int index;
+    private final ChatServer server;
+    private final Listener listener;
+    private final boolean ownsListener;
+    private final ExecutorService shard;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder handshakes = new LongAdder();
+
+    /** Creates an acceptor that accepts on {@code listener}; {@code ownsListener} controls who closes it. */
+    Acceptor(int index, ChatServer server, Listener listener, boolean ownsListener) {
+        this.index = index;
+        this.server = server;
+        this.listener = listener;
+        this.ownsListener = ownsListener;
+        AtomicInteger threads = new AtomicInteger();
+        this.shard = Executors.newCachedThreadPool(r -> new Thread(r, "shard-" + index + "-client-" + threads.incrementAndGet()));
+    }
+
+    /**
+     * Has the listener hand new connections straight to admission when it can push them; returns false
+     * when this acceptor must run its accept loop instead.
+     */
+    boolean attach() {
+        return listener.acceptTo(connection -> {
+            accepted.increment();
+            server.admit(connection, this);
+        });
+    }
+
+    /**
+     * Accepts connections until the listener closes, handing each to the server for admission.
+     */
+    @Override
+    public void run() {
+        while (server.isRunning()) {
+            try {
+                Connection connection = listener.accept();
+                accepted.increment();
+                server.admit(connection, this);
+            } catch (SocketException se) {
+                if (!server.isRunning()) {
+                    break;
+                }
+                log.warn("Acceptor {} socket error: {}", index, se.getMessage());
+                break;
+            } catch (IOException e) {
+                if (!server.isRunning()) {
+                    break;
+                }
+                log.warn("Acceptor {} failed to accept: {}", index, e.getMessage());
+            }
+        }
+    }
+
+    /** Submits a handler to this acceptor's shard. */
+    void submit(ClientHandler handler) {
+        shard.submit(handler);
+    }
+
+    /** Records a completed CONNECT handshake on this shard. */
+    void handshakeCompleted() {
+        handshakes.increment();
+    }
+
+    /** Closes the listener if this acceptor owns it and stops taking new handlers. */
+    void close() {
+        if (ownsListener) {
+            listener.close();
+        }
+        shard.shutdown();
+    }
+
+    /** Waits until every handler on this shard finished or the deadline passes. */
+    boolean awaitTermination(long deadlineNanos) throws InterruptedException {
+        return shard.awaitTermination(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /** Interrupts any handler threads still running on this shard. */
+    void shutdownNow() {
+        shard.shutdownNow();
+    }
+
+    /** Acceptor index, also used as the shard id. */
+    int getIndex() {
+        return index;
+    }
+
+    /** Total connections accepted by this acceptor. */
+    long getAccepted() {
+        return accepted.sum();
+    }
+
+    /** Total handshakes completed on this shard. */
+    long getHandshakes() {
+        return handshakes.sum();
+    }
+}
@@ -0,0 +1,164 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.transport.Connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Capacity gate covering every live connection from accept to close, with an optional bounded wait queue.
+ *
+ * <p>A slot is reserved atomically before a handler is created and released only when that handler's
+ * connection closes, so sessions still handshaking count against capacity just like registered ones.
+ */
+public class AdmissionController {
+
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final BlockingQueue<Waiting> waiting;
+    private volatile long waitTimeoutNanos;
+    private volatile int capacity;
+
+    /**
+     * Creates a controller admitting {@code capacity} connections and parking up to {@code waitQueueSize}
+     * more for at most {@code waitTimeoutMillis}.
+     */
+    public AdmissionController(int capacity, int waitQueueSize, long waitTimeoutMillis) {
+        this.capacity = capacity;
+        this.waiting = waitQueueSize > 0 ? new ArrayBlockingQueue<>(waitQueueSize) : null;
+        this.waitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+    }
+
+    /**
+     * Reserves a slot if one is free; returns false when at capacity.
+     */
+    public boolean tryReserve() {
+        while (true) {
+            int current = reserved.get();
+            if (current >= capacity) {
+                return false;
+            }
+            if (reserved.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserves a slot for a newly accepted connection only if one is free and no connection is parked, so
+     * arrivals never take a slot ahead of connections already waiting; returns false otherwise.
+     */
+    public boolean tryReserveNew() {
+        return (waiting == null || waiting.isEmpty()) && tryReserve();
+    }
+
+    /** Returns a slot previously obtained from {@link #tryReserve()} or {@link #tryReserveNew()}. */
+    public void release() {
+        reserved.decrementAndGet();
+    }
+
+    /**
+     * Parks a connection until a slot frees; returns false when queueing is disabled or the queue is full.
+     */
+    public boolean enqueue(Connection connection) {
+        return waiting != null && waiting.offer(new Waiting(connection, System.nanoTime() + waitTimeoutNanos));
+    }
+
+    /**
+     * Reserves a slot for and dequeues the oldest live waiting connection; returns null if none can be admitted.
+     * Closed and expired waiters are skipped and handed to {@code expired}.
+     */
+    public Connection admitNext(List<Connection> expired) {
+        if (waiting == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        while (!waiting.isEmpty()) {
+            if (!tryReserve()) {
+                return null;
+            }
+            Waiting next = waiting.poll();
+            if (next == null) {
+                release();
+                return null;
+            }
+            if (next.connection.isClosed() || now - next.deadlineNanos > 0) {
+                release();
+                expired.add(next.connection);
+                continue;
+            }
+            return next.connection;
+        }
+        return null;
+    }
+
+    /**
+     * Removes waiters whose deadline has passed and returns their connections.
+     */
+    public List<Connection> expire() {
+        List<Connection> expired = new ArrayList<>();
+        if (waiting == null) {
+            return expired;
+        }
+        long now = System.nanoTime();
+        waiting.removeIf(w -> {
+            if (w.connection.isClosed() || now - w.deadlineNanos > 0) {
+                expired.add(w.connection);
+                return true;
+            }
+            return false;
+        });
+        return expired;
+    }
+
+    /** Removes and returns every waiting connection, e.g. during shutdown. */
+    public List<Connection> drainWaiting() {
+        List<Connection> drained = new ArrayList<>();
+        if (waiting != null) {
+            Waiting w;
+            while ((w = waiting.poll()) != null) {
+                drained.add(w.connection);
+            }
+        }
+        return drained;
+    }
+
+    /** Number of reserved slots, i.e. live connections from accept to close. */
+    public int reservedCount() {
+        return reserved.get();
+    }
+
+    /** Number of connections parked in the wait queue. */
+    public int waitingCount() {
+        return waiting == null ? 0 : waiting.size();
+    }
+
+    /** Current connection capacity. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Changes capacity; existing connections above a lowered limit are kept until they close. */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /** Changes how long newly parked connections wait; connections already parked keep their deadline. */
+    public void setWaitTimeoutMillis(long waitTimeoutMillis) {
+        this.waitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+    }
+
+    /** A parked connection and the time after which it is rejected. */
+    private static final class Waiting {
+        private final Connection connection;
+        private final long deadlineNanos;
+
+        private Waiting(Connection connection, long deadlineNanos) {
+            this.connection = connection;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
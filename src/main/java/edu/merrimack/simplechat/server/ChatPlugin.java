@@ -0,0 +1,37 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+
+/**
+ * A bot or integration hosted inside the server, taking the place of a client connected over TCP.
+ *
+ * <p>Each plugin appears as a virtual user registered under {@link #getUsername()}. It receives what that
+ * user would be sent, as the message objects the server routes rather than frames to parse, and it sends
+ * through its {@link PluginContext}. Every call into the plugin runs on a thread of its own, behind a
+ * bounded queue, so a slow plugin falls behind and loses events instead of holding up delivery to anyone
+ * else. Implement {@link MessageReviewer} as well to veto chat messages before they are routed.
+ */
+public interface ChatPlugin {
+
+    /** Username the plugin's virtual user registers under. */
+    String getUsername();
+
+    /** Called once, on the plugin's thread, before any message is delivered. */
+    default void start(PluginContext context) {
+    }
+
+    /**
+     * Receives one message sent to the plugin's virtual user: broadcasts, direct messages, presence deltas,
+     * server announcements, and errors answering its own sends. Messages may be shared with other
+     * recipients and must not be modified.
+     */
+    default void onMessage(BaseMessage message) {
+    }
+
+    /**
+     * Called once when the plugin is removed or the server stops, after its queued events have run or a
+     * second has passed, on the thread removing it.
+     */
+    default void stop() {
+    }
+}
@@ -1,21 +1,29 @@
 package edu.merrimack.simplechat.server;
 
 import edu.merrimack.simplechat.common.Framing;
-import edu.merrimack.simplechat.common.NetUtil;
+import edu.merrimack.simplechat.common.LogUtil;
+import edu.merrimack.simplechat.common.config.LogConfig;
 import edu.merrimack.simplechat.common.config.ServerConfig;
 import edu.merrimack.simplechat.common.protocol.ErrorMessage;
 import edu.merrimack.simplechat.common.protocol.MessageValidator;
-import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.Listener;
+import edu.merrimack.simplechat.common.transport.TcpTransport;
+import edu.merrimack.simplechat.common.transport.Transport;
+import edu.merrimack.simplechat.common.transport.UnixTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
-import java.util.concurrent.ExecutorService;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -26,82 +34,425 @@ public class ChatServer {
     private static final Logger log = LoggerFactory.getLogger(ChatServer.class);
 
     private final ServerConfig config;
-    private final ClientRegistry registry = new ClientRegistry();
+    private final Transport transport;
+    private volatile ServerConfig live;
+    private final LogThrottle sessionLog;
+    private final LogThrottle sendFailureLog;
+    private final LogThrottle membershipLog;
+    private final LogThrottle pluginLog;
+    private final ClientRegistry registry;
+    private final AdmissionController admission;
+    private final SessionResumer resumer;
+    private final PresenceAggregator presence;
+    private final FanOut fanOut;
+    private final SearchIndex search;
+    private final PluginHost plugins;
+    private final TopTalkers topTalkers;
+    private final Set<ClientHandler> sessions = ConcurrentHashMap.newKeySet();
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private ServerSocket serverSocket;
-    private ExecutorService executor;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final List<Acceptor> acceptors = new ArrayList<>();
+    private ScheduledExecutorService admissionSweeper;
+    private ScheduledExecutorService topTalkersReporter;
+    private volatile TrafficCapture capture;
 
-    /** Constructs a server instance using the provided configuration. */
+    /** Constructs a server instance using the provided configuration, listening over TCP. */
     public ChatServer(ServerConfig config) {
+        this(config, new TcpTransport());
+    }
+
+    /**
+     * Constructs a server that listens over {@code transport}, e.g. a {@code MemoryTransport} in simulations.
+     * The plugin host it creates only stores a reference to the server until {@link #addPlugin} is called.
+     */
+    @SuppressWarnings("this-escape")
+    public ChatServer(ServerConfig config, Transport transport) {
         this.config = config;
+        this.transport = transport;
+        this.live = config;
+        LogConfig logging = config.getLogging();
+        this.sessionLog = new LogThrottle(logging.getHotPathPerSecond(), logging.getHotPathBurst());
+        this.sendFailureLog = new LogThrottle(logging.getHotPathPerSecond(), logging.getHotPathBurst());
+        this.membershipLog = new LogThrottle(logging.getHotPathPerSecond(), logging.getHotPathBurst());
+        this.pluginLog = new LogThrottle(logging.getHotPathPerSecond(), logging.getHotPathBurst());
+        this.registry = new ClientRegistry(membershipLog);
+        this.admission = new AdmissionController(config.getMaxClients(), config.getWaitQueueSize(),
+                TimeUnit.SECONDS.toMillis(config.getWaitQueueTimeoutSeconds()));
+        this.resumer = new SessionResumer(config.getResumeGraceSeconds());
+        this.presence = new PresenceAggregator(registry, config.getPresenceWindowMs());
+        this.fanOut = new FanOut(config.getFanOutThreshold());
+        this.search = config.getSearch().isEnabled() ? new SearchIndex(config.getSearch()) : null;
+        this.plugins = new PluginHost(this, config.getPlugins(), pluginLog);
+        this.topTalkers = config.getTopTalkers().isEnabled()
+                ? new TopTalkers(config.getTopTalkers(), System::currentTimeMillis) : null;
     }
 
     /**
-     * Binds the server socket, accepts clients, and hands each to a handler until stopped.
+     * Binds the listener(s), starts the configured acceptors, and blocks in the first acceptor's loop until
+     * stopped. With a transport whose listeners push connections it returns as soon as they are bound.
+     * When a Unix domain socket path is configured, one more acceptor serves it, admitting its connections
+     * into the same registry as TCP clients.
      */
     public void start() throws IOException {
-        serverSocket = new ServerSocket(config.getPort());
-        executor = Executors.newCachedThreadPool();
+        int count = config.getAcceptorThreads();
+        boolean reusePort = count > 1 && config.isReusePort() && transport.supportsReusePort();
+        if (count > 1 && config.isReusePort() && !reusePort) {
+            log.info("SO_REUSEPORT unavailable; {} acceptors will share one listening socket", count);
+        }
+
+        Listener shared = reusePort ? null : transport.listen(config.getPort(), config.getAcceptBacklog(), false);
+        for (int i = 0; i < count; i++) {
+            Listener listener = reusePort ? transport.listen(config.getPort(), config.getAcceptBacklog(), true) : shared;
+            acceptors.add(new Acceptor(i, this, listener, reusePort || i == 0));
+        }
+        String unixPath = config.getUnixSocketPath();
+        if (unixPath != null) {
+            Listener unix = new UnixTransport(Path.of(unixPath)).listen(0, config.getAcceptBacklog(), false);
+            acceptors.add(new Acceptor(count, this, unix, true));
+        }
+
+        if (config.getWaitQueueSize() > 0) {
+            admissionSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "admission-sweeper");
+                t.setDaemon(true);
+                return t;
+            });
+            admissionSweeper.scheduleWithFixedDelay(this::expireWaiting, 1, 1, TimeUnit.SECONDS);
+        }
+        int reportSeconds = config.getTopTalkers().getReportIntervalSeconds();
+        if (topTalkers != null && reportSeconds > 0) {
+            topTalkersReporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "top-talkers-report");
+                t.setDaemon(true);
+                return t;
+            });
+            topTalkersReporter.scheduleAtFixedRate(this::reportTopTalkers, reportSeconds, reportSeconds,
+                    TimeUnit.SECONDS);
+        }
+        capture = TrafficCapture.open(config.getCapture());
         running.set(true);
-        log.info("Server listening on port {}", config.getPort());
+        loadPlugins();
+        log.info("Server listening on port {} (backlog {}, {} acceptor(s){})", config.getPort(),
+                config.getAcceptBacklog(), count, reusePort ? ", SO_REUSEPORT" : "");
+        if (unixPath != null) {
+            log.info("Server listening on Unix domain socket {}", unixPath);
+        }
+
+        for (int i = 1; i < acceptors.size(); i++) {
+            if (!acceptors.get(i).attach()) {
+                new Thread(acceptors.get(i), "acceptor-" + i).start();
+            }
+        }
+        if (!acceptors.get(0).attach()) {
+            acceptors.get(0).run();
+        }
+    }
 
-        while (running.get()) {
+    /** Logs the current leaders of every top-talker estimate. */
+    private void reportTopTalkers() {
+        log.info("Top talkers over the last {} s: {}", topTalkers.getWindowSeconds(),
+                topTalkers.report(config.getTopTalkers().getReportSize()));
+    }
+
+    /** Instantiates and starts the plugin classes named in the configuration, skipping any that fail. */
+    private void loadPlugins() {
+        for (String className : config.getPlugins().getClasses()) {
             try {
-                Socket socket = serverSocket.accept();
-                if (registry.size() >= config.getMaxClients()) {
-                    rejectClient(socket, "SERVER_BUSY", "Server is at capacity");
-                    continue;
-                }
-                ClientHandler handler = new ClientHandler(socket, registry);
-                executor.submit(handler);
-            } catch (SocketException se) {
-                if (!running.get()) {
-                    break;
+                ChatPlugin plugin = (ChatPlugin) Class.forName(className).getDeclaredConstructor().newInstance();
+                if (!addPlugin(plugin)) {
+                    log.warn("Plugin {} not started: username '{}' is taken", className, plugin.getUsername());
                 }
-                throw se;
+            } catch (ReflectiveOperationException | ClassCastException | IllegalArgumentException e) {
+                log.warn("Plugin {} not started: {}", className, e.toString());
             }
         }
     }
 
     /**
-     * Sends an error response to a would-be client and closes the socket.
+     * Starts {@code plugin} as a virtual user under its username, announcing it like a client that joined.
+     * Returns false if the username is taken or the plugin is already running; throws
+     * {@link IllegalArgumentException} if the username is not one a client could choose.
+     */
+    public boolean addPlugin(ChatPlugin plugin) {
+        return plugins.add(plugin);
+    }
+
+    /**
+     * Stops {@code plugin}, letting its queued events run for up to a second, and announces that its virtual
+     * user left. Returns false if it was not running.
      */
-    private void rejectClient(Socket socket, String code, String message) {
-        try (OutputStream out = socket.getOutputStream()) {
+    public boolean removePlugin(ChatPlugin plugin) {
+        return plugins.remove(plugin);
+    }
+
+    /** Whether acceptors should keep taking connections. */
+    boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Applies admission control to a freshly accepted connection: start it, park it, or reject it. While
+     * other connections are parked it joins the back of the queue, and slots go out in arrival order.
+     */
+    void admit(Connection connection, Acceptor acceptor) {
+        String address = connection.remoteAddress();
+        if (topTalkers != null && address != null) {
+            topTalkers.connected(address);
+        }
+        if (admission.tryReserveNew()) {
+            launch(connection, acceptor);
+        } else if (admission.enqueue(connection)) {
+            admitWaiting(acceptor);
+        } else {
+            rejectClient(connection, "SERVER_BUSY", "Server is at capacity");
+        }
+    }
+
+    /**
+     * Starts a handler for a connection that already holds an admission slot: on the connection's own push
+     * delivery when the transport offers it, otherwise on the acceptor's shard. While traffic capture is
+     * on, the connection is wrapped so its inbound frames are recorded.
+     */
+    private void launch(Connection connection, Acceptor acceptor) {
+        TrafficCapture recorder = capture;
+        if (recorder != null) {
+            connection = recorder.wrap(connection);
+        }
+        ClientHandler handler = new ClientHandler(connection, this, acceptor);
+        sessions.add(handler);
+        if (handler.attach()) {
+            return;
+        }
+        try {
+            acceptor.submit(handler);
+        } catch (RejectedExecutionException e) {
+            sessions.remove(handler);
+            admission.release();
+            rejectClient(connection, "SERVER_DRAINING", "Server is shutting down");
+        }
+    }
+
+    /**
+     * Admits parked connections onto {@code acceptor}'s shard while slots are free, rejecting any that
+     * expired while waiting.
+     */
+    private void admitWaiting(Acceptor acceptor) {
+        List<Connection> expired = new ArrayList<>();
+        Connection next;
+        while (!draining.get() && (next = admission.admitNext(expired)) != null) {
+            launch(next, acceptor);
+        }
+        for (Connection connection : expired) {
+            rejectClient(connection, "SERVER_BUSY", "Server is at capacity; timed out waiting for a free slot");
+        }
+    }
+
+    /** Periodically rejects parked connections whose wait deadline passed. */
+    private void expireWaiting() {
+        for (Connection connection : admission.expire()) {
+            rejectClient(connection, "SERVER_BUSY", "Server is at capacity; timed out waiting for a free slot");
+        }
+    }
+
+    /**
+     * Sends an error response to a would-be client and closes the connection.
+     */
+    private void rejectClient(Connection connection, String code, String message) {
+        try {
             ErrorMessage error = new ErrorMessage(code, message);
             MessageValidator.validate(error);
-            out.write(Framing.frame(error.serialize()));
-            out.flush();
+            connection.write(Framing.frame(error.serialize()));
         } catch (Exception ignored) {
         } finally {
-            NetUtil.closeQuietly(socket);
+            connection.close();
         }
     }
 
     /**
-     * Stops accepting new clients, terminates worker threads, and notifies connected users.
+     * Applies a reloaded configuration to the running server. Capacity, wait timeout, drain timeout, fan-out
+     * threshold, log level, and log sampling take effect immediately; rate limits and the replay buffer size apply to
+     * sessions that connect afterwards. Restart-only settings keep their startup value and are returned so
+     * the caller can report them.
+     */
+    public synchronized List<String> reconfigure(ServerConfig next) {
+        ServerConfig previous = live;
+        int oldCapacity = previous.getMaxClients();
+        admission.setCapacity(next.getMaxClients());
+        admission.setWaitTimeoutMillis(TimeUnit.SECONDS.toMillis(next.getWaitQueueTimeoutSeconds()));
+        fanOut.setThreshold(next.getFanOutThreshold());
+
+        LogConfig logging = next.getLogging();
+        sessionLog.reconfigure(logging.getHotPathPerSecond(), logging.getHotPathBurst());
+        sendFailureLog.reconfigure(logging.getHotPathPerSecond(), logging.getHotPathBurst());
+        membershipLog.reconfigure(logging.getHotPathPerSecond(), logging.getHotPathBurst());
+        pluginLog.reconfigure(logging.getHotPathPerSecond(), logging.getHotPathBurst());
+        if (!logging.getLevel().equalsIgnoreCase(previous.getLogging().getLevel())) {
+            LogUtil.setLevel(logging.getLevel());
+        }
+        live = next;
+
+        if (next.getMaxClients() > oldCapacity && !draining.get() && !acceptors.isEmpty()) {
+            admitWaiting(acceptors.get(0));
+        }
+        log.info("Configuration reloaded: maxClients {} -> {}, log level {}", oldCapacity, next.getMaxClients(),
+                logging.getLevel());
+        return config.restartOnlyChanges(next);
+    }
+
+    /**
+     * Drains all sessions using the configured deadline.
      */
     public void stop() {
+        drain("Server shutting down", TimeUnit.SECONDS.toMillis(live.getDrainTimeoutSeconds()));
+    }
+
+    /**
+     * Stops accepting connections, rejects new chat traffic, lets broadcasts and presence changes accepted
+     * before the drain reach their sessions, sends every session a {@code DISCONNECT} with {@code reason},
+     * and waits up to {@code timeoutMillis} in all for sessions to close before force-closing the rest.
+     * Returns the number of sessions that drained cleanly.
+     */
+    public int drain(String reason, long timeoutMillis) {
+        if (!draining.compareAndSet(false, true)) {
+            return 0;
+        }
         running.set(false);
-        if (serverSocket != null) {
-            try {
-                serverSocket.close();
-            } catch (IOException ignored) {
+        for (Acceptor acceptor : acceptors) {
+            acceptor.close();
+        }
+        if (admissionSweeper != null) {
+            admissionSweeper.shutdownNow();
+        }
+        if (topTalkersReporter != null) {
+            topTalkersReporter.shutdownNow();
+        }
+        for (Connection connection : admission.drainWaiting()) {
+            rejectClient(connection, "SERVER_DRAINING", "Server is shutting down");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            if (!fanOut.shutdown(deadline)) {
+                log.warn("Drain deadline passed with broadcasts still being delivered");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        presence.shutdown();
+        presence.flush();
+
+        List<ClientHandler> snapshot = List.copyOf(sessions);
+        log.info("Draining {} sessions ({} ms deadline)", snapshot.size(), timeoutMillis);
+        for (ClientHandler handler : snapshot) {
+            handler.drain(reason);
+        }
+        resumer.shutdown();
+        plugins.shutdown();
+        if (search != null) {
+            search.shutdown();
+        }
+
+        try {
+            for (Acceptor acceptor : acceptors) {
+                acceptor.awaitTermination(deadline);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int forced = 0;
+        for (ClientHandler handler : snapshot) {
+            if (sessions.contains(handler)) {
+                handler.forceClose();
+                forced++;
+            }
+        }
+        for (Acceptor acceptor : acceptors) {
+            acceptor.shutdownNow();
+            log.info("Acceptor {}: {} accepted, {} handshakes", acceptor.getIndex(), acceptor.getAccepted(),
+                    acceptor.getHandshakes());
+        }
+        if (capture != null) {
+            capture.close();
         }
-        if (executor != null) {
-            executor.shutdownNow();
+        int drained = snapshot.size() - forced;
+        log.info("Shutdown complete: {} sessions drained cleanly, {} force-closed", drained, forced);
+        if (LogUtil.droppedEvents() > 0) {
+            log.warn("{} log events were dropped because the log queue was full", LogUtil.droppedEvents());
         }
-        broadcastSystem("Server shutting down");
+        return drained;
+    }
+
+    /** Whether the server is shutting down and refusing new chat traffic. */
+    boolean isDraining() {
+        return draining.get();
+    }
+
+    /** Called by a handler once its connection is fully closed; frees its slot for a waiting client. */
+    void sessionClosed(ClientHandler handler) {
+        if (sessions.remove(handler)) {
+            admission.release();
+            if (!draining.get()) {
+                admitWaiting(handler.getAcceptor());
+            }
+        }
+    }
+
+    /** Shared registry of named sessions. */
+    ClientRegistry getRegistry() {
+        return registry;
+    }
+
+    /** Acceptors started by {@link #start()}, in index order. */
+    List<Acceptor> getAcceptors() {
+        return List.copyOf(acceptors);
+    }
+
+    /** Holder for dropped sessions awaiting resumption. */
+    SessionResumer getResumer() {
+        return resumer;
+    }
+
+    /** Coalesces presence events into periodic deltas. */
+    PresenceAggregator getPresence() {
+        return presence;
+    }
+
+    /** Pool delivering broadcasts to large audiences. */
+    FanOut getFanOut() {
+        return fanOut;
+    }
+
+    /** History of routed chat messages for {@code SEARCH}, or null when search is disabled. */
+    SearchIndex getSearch() {
+        return search;
+    }
+
+    /** Running plugins and the review step they impose on chat routing. */
+    PluginHost getPlugins() {
+        return plugins;
     }
 
     /**
-     * Broadcasts a server-generated message to all connected clients.
+     * Approximate leaders of recent traffic by sender, recipient, and connecting address, or null when
+     * {@code topTalkers.enabled} is off.
      */
-    private void broadcastSystem(String content) {
-        ServerBroadcastMessage msg = new ServerBroadcastMessage(content);
-        for (ClientHandler handler : registry.all()) {
-            handler.send(msg);
-        }
+    public TopTalkers getTopTalkers() {
+        return topTalkers;
+    }
+
+    /** Sampler for per-session lifecycle log lines. */
+    LogThrottle getSessionLog() {
+        return sessionLog;
+    }
+
+    /** Sampler for failed-write log lines. */
+    LogThrottle getSendFailureLog() {
+        return sendFailureLog;
+    }
+
+    /** Current configuration, including any reloaded changes; restart-only values are those in effect at startup. */
+    ServerConfig getConfig() {
+        return live;
     }
 }
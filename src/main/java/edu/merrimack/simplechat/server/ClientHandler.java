@@ -1,9 +1,10 @@
 package edu.merrimack.simplechat.server;
 
 import edu.merrimack.simplechat.common.Framing;
-import edu.merrimack.simplechat.common.NetUtil;
 import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.protocol.AckMessage;
 import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.BatchMessage;
 import edu.merrimack.simplechat.common.protocol.ChatMessage;
 import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
 import edu.merrimack.simplechat.common.protocol.ConnectMessage;
@@ -12,59 +13,209 @@ import edu.merrimack.simplechat.common.protocol.ErrorMessage;
 import edu.merrimack.simplechat.common.protocol.ListUsersMessage;
 import edu.merrimack.simplechat.common.protocol.MessageParser;
 import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.protocol.Negotiation;
+import edu.merrimack.simplechat.common.protocol.SearchMessage;
 import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
 import edu.merrimack.simplechat.common.protocol.SetUsernameMessage;
+import edu.merrimack.simplechat.common.protocol.TransferAckMessage;
+import edu.merrimack.simplechat.common.protocol.TransferCancelMessage;
+import edu.merrimack.simplechat.common.protocol.TransferChunkMessage;
+import edu.merrimack.simplechat.common.protocol.TransferMessage;
+import edu.merrimack.simplechat.common.protocol.TransferOfferMessage;
 import edu.merrimack.simplechat.common.protocol.UserListMessage;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.FrameReceiver;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InvalidObjectException;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Handles a single client connection lifecycle.
  */
-public class ClientHandler implements Runnable {
+public class ClientHandler implements Runnable, FrameReceiver {
 
     private static final Logger log = LoggerFactory.getLogger(ClientHandler.class);
 
-    private final Socket socket;
+    /** Bulk frames queued for a slow connection before further chat senders wait for the writer. */
+    static final int MAX_QUEUED_BULK = 1024;
+    /** Frames one thread writes before handing the writer role to a sender waiting for queue space. */
+    private static final int WRITE_BATCH = 32;
+    /** How long closing a connection waits for queued frames to be written. */
+    private static final long CLOSE_FLUSH_MILLIS = 1000;
+    /** Relayed messages a session may have waiting on the fan-out pool before its read loop waits for them. */
+    private static final int MAX_PENDING_FANOUTS = 64;
+    /** Optional features this server implements; a session uses those its client also declares. */
+    static final List<String> CAPABILITIES = List.of(ProtocolConstants.CAP_PRESENCE_DELTA,
+            ProtocolConstants.CAP_TRANSFERS, ProtocolConstants.CAP_BATCH);
+    /** Largest total of queued chat frames grouped into one {@code BATCH} for a client that negotiated it. */
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+    private static final byte[] BATCH_HEAD = "{\"type\":\"BATCH\",\"timestamp\":".getBytes(ProtocolConstants.UTF8);
+    private static final byte[] BATCH_ITEMS = ",\"messages\":[".getBytes(ProtocolConstants.UTF8);
+    private static final byte[] BATCH_TAIL = "]}".getBytes(ProtocolConstants.UTF8);
+
+    private final Connection connection;
+    private final ChatServer server;
+    private final Acceptor acceptor;
     private final ClientRegistry registry;
+    private final RateLimiter rateLimiter;
+    private final Object sendLock = new Object();
+    private final ArrayDeque<BaseMessage> replay = new ArrayDeque<>();
+    private final OutboundQueue outbound = new OutboundQueue();
+    private final TransferRelay transfers;
+    private final TopTalkers talkers;
+    private final int replayLimit;
     private volatile boolean active = true;
+    private volatile boolean draining;
+    private volatile boolean resumable;
+    private volatile boolean presenceDeltas;
+    private volatile boolean transfersSupported;
+    private volatile boolean batchDeliveries;
+    /** Protocol version negotiated in the handshake; null until then and for virtual users. */
+    private volatile String protocolVersion;
+    /** Capabilities negotiated in the handshake. */
+    private volatile List<String> capabilities = List.of();
+    private boolean connectionLost;
+    /** Whether some thread is writing the outbound queue; guarded by {@code sendLock}. */
+    private boolean writing;
+    /** Entries the writer has taken off the queue and is writing, or null; guarded by {@code sendLock}. */
+    private OutboundQueue.Entry inFlight;
+    private List<OutboundQueue.Entry> inFlightJoined;
+    private int blockedSenders;
+    /** Whether a presence delta was dropped for a full bulk lane; guarded by {@code sendLock}. */
+    private boolean presenceStale;
+    private int replayDropped;
+    private ClientHandler resumedBy;
+    private String resumeToken;
     private String username;
+    /** Slot in the registry's session table while registered, else -1; guarded by the registry's lock. */
+    private int sessionId = -1;
+    /** Correlation id of the request being handled; touched only by the handler thread. */
+    private String requestId;
+    /** Replies collected for the batch being handled, or null outside one; touched only by the handler thread. */
+    private List<BaseMessage> batchReplies;
+    /** Completion of this session's latest relay on the fan-out pool; touched only by the handler thread. */
+    private CompletableFuture<Void> fanOutTail = CompletableFuture.completedFuture(null);
+    private final AtomicInteger pendingFanOuts = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    /** Whether the first frame, which must be the CONNECT handshake, has been processed. */
+    private boolean handshaken;
+    /** Whether the connection pushes frames to this handler instead of a shard thread reading them. */
+    private volatile boolean pushed;
+
+    /** Creates a handler for a single client connection owned by the given server and accepted by {@code acceptor}. */
+    ClientHandler(Connection connection, ChatServer server, Acceptor acceptor) {
+        this.connection = connection;
+        this.server = server;
+        this.acceptor = acceptor;
+        this.registry = server.getRegistry();
+        this.rateLimiter = new RateLimiter(server.getConfig().getRateLimits());
+        this.replayLimit = server.getConfig().getReplayBufferSize();
+        this.transfers = new TransferRelay(this, registry);
+        this.talkers = server.getTopTalkers();
+    }
 
-    /** Creates a handler for a single client socket tied to the shared registry. */
-    public ClientHandler(Socket socket, ClientRegistry registry) {
-        this.socket = socket;
-        this.registry = registry;
+    /**
+     * Creates a session with no connection, for a plugin's virtual user; the subclass delivers what the
+     * session is sent. It receives presence changes as {@code PRESENCE_DELTA} messages.
+     */
+    ClientHandler(ChatServer server) {
+        this(null, server, null);
+        this.presenceDeltas = true;
     }
 
     /**
-     * Primary Runnable entry point; delegates to lifecycle handling.
+     * Primary Runnable entry point for connections read on a shard thread: reads frames until the client
+     * disconnects or an error occurs.
      */
     @Override
     public void run() {
         try {
-            handleClient();
+            String json = connection.readFrame();
+            if (json == null) {
+                throw new IOException("Empty handshake from client");
+            }
+            process(json);
+            while (active) {
+                json = connection.readFrame();
+                if (json == null) {
+                    break;
+                }
+                process(json);
+            }
         } catch (Exception e) {
-            log.warn("Client handler error: {}", e.getMessage());
+            server.getSessionLog().warn(log, "Client handler error: {}", e.getMessage());
         } finally {
             cleanup();
         }
     }
 
     /**
-     * Processes initial handshake then enters the listen loop while active.
+     * Has the connection push frames to this handler when the transport supports it; returns false when the
+     * handler must instead be run on a shard thread.
      */
-    private void handleClient() throws IOException {
-        String firstJson = Framing.readFrame(socket.getInputStream());
-        if (firstJson == null) {
-            throw new IOException("Empty handshake from client");
+    boolean attach() {
+        pushed = true;
+        if (connection.pushTo(this)) {
+            return true;
+        }
+        pushed = false;
+        return false;
+    }
+
+    /** Handles one frame pushed by the connection, closing the session once it is no longer active. */
+    @Override
+    public void onFrame(String json) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            process(json);
+        } catch (RuntimeException e) {
+            server.getSessionLog().warn(log, "Client handler error: {}", e.getMessage());
+            active = false;
         }
+        if (!active) {
+            cleanup();
+        }
+    }
 
+    /** The pushing connection reached end of stream. */
+    @Override
+    public void onClosed() {
+        cleanup();
+    }
+
+    /** Treats the first frame as the handshake and every later one as a session message. */
+    private void process(String json) {
+        if (handshaken) {
+            if (talkers != null && username != null) {
+                talkers.received(username, Framing.payloadLength(json));
+            }
+            handleMessage(json);
+        } else {
+            handshaken = true;
+            handshake(json);
+        }
+    }
+
+    /**
+     * Processes the initial CONNECT handshake, registering or resuming the session.
+     */
+    private void handshake(String firstJson) {
         BaseMessage base;
         try {
             base = MessageParser.parse(firstJson);
@@ -82,7 +233,21 @@ public class ClientHandler implements Runnable {
             return;
         }
 
+        if (server.isDraining()) {
+            send(new ErrorMessage("SERVER_DRAINING", "The server is shutting down and is not accepting new sessions."));
+            active = false;
+            return;
+        }
+
         ConnectMessage connect = (ConnectMessage) base;
+        if (!negotiate(connect)) {
+            active = false;
+            return;
+        }
+        if (connect.getResumeToken() != null && resume(connect.getResumeToken())) {
+            return;
+        }
+
         String desired = connect.getUsername();
         if (desired == null || desired.isBlank()) {
             desired = "guest-" + UUID.randomUUID().toString().substring(0, 8);
@@ -93,47 +258,229 @@ public class ClientHandler implements Runnable {
             return;
         }
 
-        ConnectAckMessage ack = new ConnectAckMessage("OK", "Welcome to SCP v1");
-        send(ack);
-        registry.broadcast(new ServerBroadcastMessage(username + " joined"), this);
+        SessionResumer resumer = server.getResumer();
+        resumeToken = resumer.isEnabled() ? resumer.newToken() : null;
+        send(welcome("Welcome to SCP v1", false));
+        resumable = resumeToken != null;
+        acceptor.handshakeCompleted();
+        server.getPresence().joined(username);
+    }
 
-        listenLoop();
+    /**
+     * Settles the protocol version and capabilities from the client's offer and records them for the
+     * session. Returns false, having told the client, when no version is supported by both sides.
+     */
+    private boolean negotiate(ConnectMessage connect) {
+        String max = connect.getMaxVersion() != null ? connect.getMaxVersion() : connect.getVersion();
+        protocolVersion = Negotiation.version(connect.getVersion(), max, ProtocolConstants.VERSION,
+                ProtocolConstants.MAX_VERSION);
+        if (protocolVersion == null) {
+            String offered = max.equals(connect.getVersion()) ? max : connect.getVersion() + " to " + max;
+            send(new ErrorMessage("UNSUPPORTED_VERSION", "This server speaks SCP " + ProtocolConstants.VERSION
+                    + " to " + ProtocolConstants.MAX_VERSION + ", but your client speaks " + offered + "."));
+            return false;
+        }
+        capabilities = List.copyOf(Negotiation.capabilities(connect.getCapabilities(), CAPABILITIES));
+        presenceDeltas = capabilities.contains(ProtocolConstants.CAP_PRESENCE_DELTA);
+        transfersSupported = capabilities.contains(ProtocolConstants.CAP_TRANSFERS);
+        batchDeliveries = capabilities.contains(ProtocolConstants.CAP_BATCH);
+        return true;
     }
 
     /**
-     * Reads framed messages until the client disconnects or an error occurs.
+     * Builds the successful handshake reply. Sessions on the oldest version get the reply they always did;
+     * later ones are also told the negotiated version and capabilities.
      */
-    private void listenLoop() throws IOException {
-        while (active) {
-            String json = Framing.readFrame(socket.getInputStream());
-            if (json == null) {
-                break;
+    private ConnectAckMessage welcome(String text, boolean resumed) {
+        if (ProtocolConstants.VERSION.equals(protocolVersion)) {
+            return new ConnectAckMessage("OK", text, resumeToken, resumed);
+        }
+        return new ConnectAckMessage("OK", text, resumeToken, resumed, protocolVersion, capabilities);
+    }
+
+    /**
+     * Takes over a session parked after a dropped connection: rebinds its username to this connection and
+     * replays everything it missed before any live traffic can reach the new connection. Returns false when the
+     * token is unknown or has expired, in which case the client is treated as a new session.
+     */
+    private boolean resume(String token) {
+        SessionResumer resumer = server.getResumer();
+        ClientHandler previous = resumer.claim(token);
+        if (previous == null) {
+            return false;
+        }
+        List<BaseMessage> missed = new ArrayList<>();
+        boolean mustWrite;
+        synchronized (sendLock) {
+            if (!registry.replace(previous.username, previous, this)) {
+                return false;
             }
-            BaseMessage msg;
-            try {
-                msg = MessageParser.parse(json);
-            } catch (InvalidObjectException e) {
-                send(new ErrorMessage("INVALID_MESSAGE", "We could not process that message: "
-                        + friendlyReason(e.getMessage())));
-                continue;
+            username = previous.username;
+            resumeToken = resumer.newToken();
+            resumable = true;
+            int dropped = previous.handOff(this, missed);
+            queue(welcome("Welcome back to SCP v1", true));
+            if (dropped > 0) {
+                queue(new ServerBroadcastMessage(dropped + " messages were dropped while you were disconnected"));
+            }
+            for (BaseMessage message : missed) {
+                queue(message);
             }
+            mustWrite = claimWriter();
+        }
+        if (mustWrite) {
+            writeQueued();
+        }
+        acceptor.handshakeCompleted();
+        server.getSessionLog().info(log, "Resumed session for {} ({} messages replayed)", username, missed.size());
+        return true;
+    }
 
-            switch (msg.getType()) {
-                case SET_USERNAME:
-                    handleSetUsername((SetUsernameMessage) msg);
-                    break;
-                case CHAT_MESSAGE:
-                    handleChatMessage((ChatMessage) msg);
-                    break;
-                case DISCONNECT:
-                    handleDisconnect((DisconnectMessage) msg);
-                    break;
-                case LIST_USERS:
-                    handleListUsers((ListUsersMessage) msg);
+    /**
+     * Hands this parked session's buffered messages to {@code successor} and forwards any later sends to it.
+     * Returns how many messages were dropped because the buffer was full.
+     */
+    private int handOff(ClientHandler successor, List<BaseMessage> missed) {
+        synchronized (sendLock) {
+            missed.addAll(replay);
+            replay.clear();
+            resumedBy = successor;
+            return replayDropped;
+        }
+    }
+
+    /**
+     * Parses and dispatches one framed message from a connected client.
+     */
+    private void handleMessage(String json) {
+        BaseMessage msg;
+        requestId = null;
+        try {
+            msg = MessageParser.parse(json);
+        } catch (InvalidObjectException e) {
+            send(new ErrorMessage("INVALID_MESSAGE", "We could not process that message: "
+                    + friendlyReason(e.getMessage())));
+            return;
+        }
+        requestId = msg.getRequestId();
+        if (msg.getType() == MessageType.BATCH) {
+            handleBatch((BatchMessage) msg);
+        } else {
+            dispatch(msg, json);
+        }
+    }
+
+    /**
+     * Handles a batch's messages in order, each as if it had arrived in its own frame, and answers with one
+     * {@code BATCH} of the replies they produced. The answer is skipped when there are no replies and the
+     * batch asked for no correlation.
+     */
+    private void handleBatch(BatchMessage batch) {
+        String batchId = requestId;
+        List<BaseMessage> replies = new ArrayList<>();
+        batchReplies = replies;
+        try {
+            for (BaseMessage item : batch.getMessages()) {
+                if (!active) {
                     break;
-                default:
-                    send(new ErrorMessage("NOT_ALLOWED", "That message type is not allowed after connecting. You can chat, change your username, list users, or disconnect."));
+                }
+                requestId = item.getRequestId();
+                dispatch(item, null);
             }
+        } finally {
+            batchReplies = null;
+            requestId = batchId;
+        }
+        if (!replies.isEmpty() || batchId != null) {
+            reply(new BatchMessage(replies));
+        }
+    }
+
+    /**
+     * Applies rate limits and the draining check to one request and handles it. {@code json} is the frame's
+     * payload, or null for a message from a batch.
+     */
+    private void dispatch(BaseMessage msg, String json) {
+        if (!admit(msg)) {
+            return;
+        }
+        if (server.isDraining() && (msg.getType() == MessageType.CHAT_MESSAGE
+                || msg.getType() == MessageType.SET_USERNAME || msg.getType() == MessageType.TRANSFER_OFFER)) {
+            reply(new ErrorMessage("SERVER_DRAINING", "The server is shutting down; your message was not delivered."));
+            return;
+        }
+        if (json == null && msg instanceof TransferMessage) {
+            reply(new ErrorMessage("NOT_ALLOWED", "Transfer messages cannot be batched. Send each in its own frame."));
+            return;
+        }
+
+        switch (msg.getType()) {
+            case SET_USERNAME:
+                handleSetUsername((SetUsernameMessage) msg);
+                break;
+            case CHAT_MESSAGE:
+                handleChatMessage((ChatMessage) msg);
+                break;
+            case DISCONNECT:
+                handleDisconnect((DisconnectMessage) msg);
+                break;
+            case LIST_USERS:
+                handleListUsers((ListUsersMessage) msg);
+                break;
+            case TRANSFER_OFFER:
+                transferOutcome(transfers.offer((TransferOfferMessage) msg));
+                break;
+            case TRANSFER_CHUNK:
+                transferOutcome(transfers.chunk((TransferChunkMessage) msg, Framing.frame(json)));
+                break;
+            case TRANSFER_ACK:
+                transferOutcome(transfers.ack((TransferAckMessage) msg, Framing.frame(json)));
+                break;
+            case TRANSFER_CANCEL:
+                transferOutcome(transfers.cancel((TransferCancelMessage) msg, Framing.frame(json)));
+                break;
+            case SEARCH:
+                handleSearch((SearchMessage) msg);
+                break;
+            default:
+                reply(new ErrorMessage("NOT_ALLOWED", "That message type is not allowed after connecting. You can chat, change your username, list users, search messages, or disconnect."));
+        }
+    }
+
+    /**
+     * Applies the session's rate limits; sends {@code RATE_LIMITED} when over and disconnects sustained abusers.
+     */
+    private boolean admit(BaseMessage msg) {
+        long waitNanos = rateLimiter.check(msg);
+        if (waitNanos == 0L) {
+            return true;
+        }
+        if (rateLimiter.recordViolation()) {
+            server.getSessionLog().warn(log, "Disconnecting {} for exceeding rate limits", username);
+            resumable = false;
+            send(new DisconnectMessage("rate_limit_exceeded"));
+            active = false;
+            return false;
+        }
+        long retryAfterMs = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        reply(new ErrorMessage("RATE_LIMITED", "You are sending " + describe(msg) + " too quickly. Try again in "
+                + retryAfterMs + " ms.", retryAfterMs));
+        return false;
+    }
+
+    /** Short user-facing label for the request class a message belongs to. */
+    private static String describe(BaseMessage msg) {
+        switch (msg.getType()) {
+            case CHAT_MESSAGE:
+                return ((ChatMessage) msg).isDirect() ? "direct messages" : "messages";
+            case LIST_USERS:
+                return "user list requests";
+            case SET_USERNAME:
+                return "username changes";
+            case SEARCH:
+                return "searches";
+            default:
+                return "requests";
         }
     }
 
@@ -141,7 +488,8 @@ public class ClientHandler implements Runnable {
     private void handleSetUsername(SetUsernameMessage msg) {
         String oldName = this.username;
         if (attemptSetUsername(msg.getUsername())) {
-            registry.broadcast(new ServerBroadcastMessage(oldName + " is now known as " + msg.getUsername()), this);
+            server.getPresence().renamed(oldName, msg.getUsername());
+            acknowledge();
         }
     }
 
@@ -151,77 +499,630 @@ public class ClientHandler implements Runnable {
      */
     private boolean attemptSetUsername(String desired) {
         if (desired == null || desired.isBlank()) {
-            send(new ErrorMessage("INVALID_USERNAME", "Please choose a username (" + ProtocolConstants.MIN_USERNAME_LENGTH
+            reply(new ErrorMessage("INVALID_USERNAME", "Please choose a username (" + ProtocolConstants.MIN_USERNAME_LENGTH
                     + "-" + ProtocolConstants.MAX_USERNAME_LENGTH
                     + " characters using letters, numbers, '.', '-', or '_')."));
             return false;
         }
-        if (!desired.equals(username) && !registry.register(desired, this)) {
-            send(new ErrorMessage("USERNAME_TAKEN", "That username is already connected. Please pick a different name."));
-            return false;
-        }
-        if (username != null && !username.equals(desired)) {
-            registry.unregister(username);
+        if (!desired.equals(username)) {
+            boolean bound = username == null ? registry.register(desired, this) : registry.rename(username, desired, this);
+            if (!bound) {
+                reply(new ErrorMessage("USERNAME_TAKEN", "That username is already connected. Please pick a different name."));
+                return false;
+            }
         }
         this.username = desired;
         return true;
     }
 
     /**
-     * Routes chat messages either to a direct recipient or broadcast to all.
+     * Registers a session without a connection under {@code name}; returns false if the name is taken.
+     */
+    boolean registerAs(String name) {
+        if (!registry.register(name, this)) {
+            return false;
+        }
+        username = name;
+        return true;
+    }
+
+    /**
+     * Routes a chat message this session authored without parsing or rate limiting it, as a plugin's
+     * virtual user does. Must be called from one thread at a time, which acts as the session's reader.
+     */
+    void routeChat(ChatMessage msg) {
+        requestId = msg.getRequestId();
+        if (server.isDraining()) {
+            reply(new ErrorMessage("SERVER_DRAINING", "The server is shutting down; your message was not delivered."));
+            return;
+        }
+        handleChatMessage(msg);
+    }
+
+    /**
+     * Routes chat messages either to a direct recipient or broadcast to all, unless a plugin vetoes them.
      */
     private void handleChatMessage(ChatMessage msg) {
         if (!username.equals(msg.getFrom())) {
-            send(new ErrorMessage("INVALID_SENDER", "The 'from' field must match your current username (" + username + ")."));
+            reply(new ErrorMessage("INVALID_SENDER", "The 'from' field must match your current username (" + username + ")."));
+            return;
+        }
+        ErrorMessage veto = server.getPlugins().review(msg);
+        if (veto != null) {
+            reply(veto);
             return;
         }
         if (msg.isDirect()) {
             ClientHandler target = registry.get(msg.getTo());
             if (target == null) {
-                send(new ErrorMessage("UNKNOWN_USER", "Could not find user '" + msg.getTo() + "'. They may be offline."));
+                reply(new ErrorMessage("UNKNOWN_USER", "Could not find user '" + msg.getTo() + "'. They may be offline."));
+                return;
+            }
+            if (talkers != null) {
+                talkers.direct(target.getUsername());
+            }
+            msg.setRequestId(null);
+            relay(() -> target.send(msg));
+        } else {
+            msg.setRequestId(null);
+            FanOut fanOut = server.getFanOut();
+            if (talkers != null) {
+                talkers.broadcast(username, registry.size() - 1);
+            }
+            if (fanOut.isLarge(registry.size())) {
+                chain(() -> fanOut.deliver(registry.sessions(), msg, this));
+            } else {
+                relay(() -> registry.broadcast(msg, this));
+            }
+        }
+        SearchIndex history = server.getSearch();
+        if (history != null) {
+            history.record(msg);
+        }
+        acknowledge();
+    }
+
+    /**
+     * Delivers a relayed message inline, unless an earlier one from this session is still on the fan-out
+     * pool, in which case it queues behind it so recipients see this sender's messages in order.
+     */
+    private void relay(Runnable delivery) {
+        if (fanOutTail.isDone()) {
+            delivery.run();
+        } else {
+            chain(delivery);
+        }
+    }
+
+    /**
+     * Queues a delivery on the fan-out pool after this session's previous one. When too many are pending
+     * the read loop waits, which pushes back on the sender through TCP.
+     */
+    private void chain(Runnable delivery) {
+        if (pendingFanOuts.get() >= MAX_PENDING_FANOUTS) {
+            fanOutTail.join();
+        }
+        pendingFanOuts.incrementAndGet();
+        fanOutTail = server.getFanOut().after(fanOutTail, () -> {
+            try {
+                delivery.run();
+            } finally {
+                pendingFanOuts.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Answers a user list request with a delta since the client's version, one sorted page, or the cached
+     * full list, in that order of preference.
+     */
+    private void handleListUsers(ListUsersMessage msg) {
+        if (msg.getPrefix() != null) {
+            int limit = msg.getLimit() > 0 ? msg.getLimit() : ProtocolConstants.MAX_USER_PAGE_SIZE;
+            reply(registry.findByPrefix(msg.getPrefix(), msg.getCursor(), limit));
+            return;
+        }
+        if (msg.getSinceVersion() >= 0) {
+            UserListMessage delta = registry.changesSince(msg.getSinceVersion());
+            if (delta != null) {
+                reply(delta);
                 return;
             }
-            target.send(msg);
+        }
+        UserListSnapshot snapshot = registry.snapshot();
+        if (msg.getLimit() > 0) {
+            reply(snapshot.page(msg.getCursor(), msg.getLimit()));
+        } else if (requestId != null || batchReplies != null) {
+            reply(snapshot.fullList());
         } else {
-            registry.broadcast(msg, this);
+            sendFramed(snapshot.fullFrame());
+        }
+    }
+
+    /** Answers a search of the message history with one page of matches. */
+    private void handleSearch(SearchMessage msg) {
+        SearchIndex history = server.getSearch();
+        if (history == null) {
+            reply(new ErrorMessage("SEARCH_DISABLED", "Message search is not enabled on this server."));
+            return;
         }
+        reply(history.search(msg));
     }
 
-    /** Returns the current user list to the requesting client. */
-    private void handleListUsers(ListUsersMessage ignored) {
-        UserListMessage response = new UserListMessage(registry.listUsernames());
-        send(response);
+    /** Replies with a transfer request's error, or acknowledges it when there was none. */
+    private void transferOutcome(ErrorMessage error) {
+        if (error != null) {
+            reply(error);
+        } else {
+            acknowledge();
+        }
     }
 
     /** Handles graceful disconnects initiated by the client. */
     private void handleDisconnect(DisconnectMessage msg) {
-        log.info("Disconnect requested by {}: {}", username, msg.getReason());
+        server.getSessionLog().info(log, "Disconnect requested by {}: {}", username, msg.getReason());
+        resumable = false;
         active = false;
     }
 
     /**
-     * Frames and writes a message to the client socket; deactivates on failure.
+     * Queues a message for the client in its priority lane and writes the queue unless another thread
+     * already is. Chat senders wait while the connection's bulk lane is full. While the connection is
+     * down and the session is resumable the message is buffered for replay, and once a reconnect has taken
+     * over the session it is forwarded to the new connection.
+     */
+    public void send(BaseMessage message) {
+        send(message, Framing.frame(message.serialize()));
+    }
+
+    /** Sends a message already framed by the caller, so a broadcast serializes once for every recipient. */
+    void send(BaseMessage message, byte[] frame) {
+        OutboundQueue.Lane lane = OutboundQueue.laneOf(message.getType());
+        ClientHandler successor;
+        boolean mustWrite = false;
+        synchronized (sendLock) {
+            successor = resumedBy;
+            if (successor == null) {
+                if (lane == OutboundQueue.Lane.BULK) {
+                    awaitBulkRoom();
+                }
+                if (connectionLost) {
+                    stash(message);
+                } else {
+                    outbound.add(lane, message, frame);
+                    mustWrite = claimWriter();
+                }
+            }
+        }
+        if (successor != null) {
+            successor.send(message, frame);
+        } else if (mustWrite) {
+            writeQueued();
+        }
+    }
+
+    /**
+     * Offers a presence update without waiting for room in the bulk lane, so one slow reader cannot hold
+     * up the presence flush for every session. An update that does not fit is dropped. With a
+     * {@code snapshot}, the session is then marked stale and the next offer that finds room sends the full
+     * user list instead, which supersedes every dropped delta. Deltas still queued are dropped with it, since
+     * the list goes out in the control lane ahead of them. {@code update} may be null to only retry that.
+     * Returns false while the session is still stale.
+     */
+    boolean offerPresence(BaseMessage update, byte[] frame, UserListSnapshot snapshot) {
+        ClientHandler successor;
+        boolean mustWrite = false;
+        synchronized (sendLock) {
+            successor = resumedBy;
+            if (successor == null) {
+                if (connectionLost) {
+                    if (presenceStale && snapshot != null) {
+                        stash(snapshot.fullList());
+                        presenceStale = false;
+                    } else if (update != null) {
+                        stash(update);
+                    }
+                } else if (writing && outbound.bulkSize() >= MAX_QUEUED_BULK) {
+                    presenceStale = snapshot != null;
+                    return !presenceStale;
+                } else if (presenceStale && snapshot != null) {
+                    outbound.removeBulk(MessageType.PRESENCE_DELTA);
+                    outbound.add(OutboundQueue.Lane.CONTROL, null, snapshot.fullFrame());
+                    presenceStale = false;
+                    mustWrite = claimWriter();
+                } else if (update != null) {
+                    outbound.add(OutboundQueue.Lane.BULK, update, frame);
+                    mustWrite = claimWriter();
+                }
+            }
+        }
+        if (successor != null) {
+            return successor.offerPresence(update, frame, snapshot);
+        }
+        if (mustWrite) {
+            writeQueued();
+        }
+        return true;
+    }
+
+    /**
+     * Sends a response to the request being handled, tagged with its {@code requestId} if it had one. Inside
+     * a batch the response is collected for the batch's reply instead.
+     */
+    private void reply(BaseMessage response) {
+        response.setRequestId(requestId);
+        if (batchReplies != null) {
+            batchReplies.add(response);
+        } else {
+            send(response);
+        }
+    }
+
+    /** Confirms success of a request that asked for correlation and gets no other response. */
+    private void acknowledge() {
+        if (requestId != null) {
+            reply(new AckMessage(requestId));
+        }
+    }
+
+    /**
+     * Writes an already framed message, such as a cached response shared by many clients. Unlike
+     * {@link #send(BaseMessage)} the frame is not buffered for replay if the connection is down.
+     */
+    void sendFramed(byte[] frame) {
+        sendFramed(OutboundQueue.Lane.CONTROL, frame);
+    }
+
+    /**
+     * Relays a framed transfer message in the lane for its type. Like {@link #sendFramed(byte[])} it is
+     * dropped rather than buffered while the connection is down; the relay cancels the transfer instead.
+     */
+    void sendTransfer(MessageType type, byte[] frame) {
+        sendFramed(OutboundQueue.laneOf(type), frame);
+    }
+
+    /** Queues an already framed message in {@code lane} without buffering it for replay. */
+    private void sendFramed(OutboundQueue.Lane lane, byte[] frame) {
+        ClientHandler successor;
+        boolean mustWrite = false;
+        synchronized (sendLock) {
+            successor = resumedBy;
+            if (successor == null && !connectionLost) {
+                outbound.add(lane, null, frame);
+                mustWrite = claimWriter();
+            }
+        }
+        if (successor != null) {
+            successor.sendFramed(lane, frame);
+        } else if (mustWrite) {
+            writeQueued();
+        }
+    }
+
+    /** Queues a message in its lane without waiting for room; caller holds {@code sendLock}. */
+    private void queue(BaseMessage message) {
+        outbound.add(OutboundQueue.laneOf(message.getType()), message, Framing.frame(message.serialize()));
+    }
+
+    /**
+     * Waits while the bulk lane is full and another thread is writing it, so a slow reader pushes back on
+     * chat senders instead of growing its queue without bound. The wait is a managed block, so a fan-out
+     * pool thread stuck here is replaced by a spare. Caller holds {@code sendLock}.
+     */
+    private void awaitBulkRoom() {
+        if (!bulkFull()) {
+            return;
+        }
+        blockedSenders++;
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    sendLock.wait();
+                    return !bulkFull();
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return !bulkFull();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            blockedSenders--;
+        }
+    }
+
+    /** Whether chat senders must wait for room in the bulk lane; caller holds {@code sendLock}. */
+    private boolean bulkFull() {
+        return writing && !connectionLost && outbound.bulkSize() >= MAX_QUEUED_BULK;
+    }
+
+    /** Takes the writer role if it is free; caller holds {@code sendLock}. */
+    private boolean claimWriter() {
+        if (writing) {
+            return false;
+        }
+        writing = true;
+        return true;
+    }
+
+    /**
+     * Writes queued frames in priority order on the thread that claimed the writer role, until the queue
+     * is empty. After each batch the role is handed to a sender waiting for queue space, so one thread does
+     * not keep writing to a slow connection on behalf of everyone else. For a client that negotiated
+     * batching, chat frames waiting together are written as one {@code BATCH} frame.
+     */
+    private void writeQueued() {
+        int written = 0;
+        while (true) {
+            OutboundQueue.Entry next;
+            List<OutboundQueue.Entry> joined = null;
+            synchronized (sendLock) {
+                inFlight = null;
+                inFlightJoined = null;
+                boolean handOff = written >= WRITE_BATCH && blockedSenders > 0;
+                next = connectionLost || handOff ? null : outbound.poll();
+                if (next == null) {
+                    writing = false;
+                    sendLock.notifyAll();
+                    return;
+                }
+                if (batchDeliveries && next.message != null && outbound.bulkSize() > 0
+                        && OutboundQueue.laneOf(next.message.getType()) == OutboundQueue.Lane.BULK) {
+                    joined = outbound.pollBulk(ProtocolConstants.MAX_BATCH_SIZE - 1,
+                            MAX_BATCH_BYTES - next.frame.length);
+                }
+                inFlight = next;
+                inFlightJoined = joined;
+                if (blockedSenders > 0) {
+                    sendLock.notifyAll();
+                }
+            }
+            boolean batched = joined != null && !joined.isEmpty();
+            if (write(batched ? batchFrame(next, joined) : next.frame)) {
+                written += batched ? 1 + joined.size() : 1;
+                continue;
+            }
+            List<BaseMessage> unsent = new ArrayList<>();
+            ClientHandler successor;
+            synchronized (sendLock) {
+                connectionLost = true;
+                writing = false;
+                successor = resumedBy;
+                if (successor == null) {
+                    stashQueued();
+                } else {
+                    takeQueued(unsent);
+                }
+                sendLock.notifyAll();
+            }
+            if (successor != null) {
+                for (BaseMessage message : unsent) {
+                    successor.send(message);
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Frames {@code first} and {@code rest} as one {@code BATCH}, splicing in their already serialized
+     * payloads rather than serializing the messages again.
+     */
+    private static byte[] batchFrame(OutboundQueue.Entry first, List<OutboundQueue.Entry> rest) {
+        byte[] timestamp = Long.toString(System.currentTimeMillis()).getBytes(ProtocolConstants.UTF8);
+        int length = BATCH_HEAD.length + timestamp.length + BATCH_ITEMS.length + first.frame.length - 4
+                + BATCH_TAIL.length;
+        for (OutboundQueue.Entry entry : rest) {
+            length += 1 + entry.frame.length - 4;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+        buffer.putInt(length).put(BATCH_HEAD).put(timestamp).put(BATCH_ITEMS);
+        buffer.put(first.frame, 4, first.frame.length - 4);
+        for (OutboundQueue.Entry entry : rest) {
+            buffer.put((byte) ',').put(entry.frame, 4, entry.frame.length - 4);
+        }
+        buffer.put(BATCH_TAIL);
+        return buffer.array();
+    }
+
+    /** Buffers a message for replay if the session can be resumed; caller holds {@code sendLock}. */
+    private void stash(BaseMessage message) {
+        if (resumable && replayLimit > 0) {
+            if (replay.size() >= replayLimit) {
+                replay.pollFirst();
+                replayDropped++;
+            }
+            replay.addLast(message);
+        }
+    }
+
+    /**
+     * Moves the messages being written and those still queued for a lost connection into the replay buffer,
+     * in order; caller holds {@code sendLock}. A frame the writer finished just as the connection dropped may
+     * be replayed as well.
      */
-    public synchronized void send(BaseMessage message) {
+    private void stashQueued() {
+        List<BaseMessage> queued = new ArrayList<>();
+        takeQueued(queued);
+        for (BaseMessage message : queued) {
+            stash(message);
+        }
+    }
+
+    /**
+     * Adds the messages being written, then those still queued, to {@code into} and empties the queue, so a
+     * failing writer never hands them on a second time; caller holds {@code sendLock}.
+     */
+    private void takeQueued(List<BaseMessage> into) {
+        if (inFlight != null) {
+            if (inFlight.message != null) {
+                into.add(inFlight.message);
+            }
+            if (inFlightJoined != null) {
+                for (OutboundQueue.Entry entry : inFlightJoined) {
+                    into.add(entry.message);
+                }
+            }
+            inFlight = null;
+            inFlightJoined = null;
+        }
+        OutboundQueue.Entry entry;
+        while ((entry = outbound.poll()) != null) {
+            if (entry.message != null) {
+                into.add(entry.message);
+            }
+        }
+    }
+
+    /** Waits up to {@link #CLOSE_FLUSH_MILLIS} for queued frames to be written before the connection closes. */
+    private void awaitFlushed() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_FLUSH_MILLIS);
+        synchronized (sendLock) {
+            try {
+                while (writing && !connectionLost) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    sendLock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes a frame to the connection; on failure deactivates the session and returns false. On a fan-out
+     * pool thread the write is a managed block, since a slow reader can stall it indefinitely.
+     */
+    private boolean write(byte[] frame) {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+            return FanOut.blocking(() -> writeNow(frame));
+        }
+        return writeNow(frame);
+    }
+
+    /** Writes a frame on the calling thread; see {@link #write(byte[])}. */
+    private boolean writeNow(byte[] frame) {
         try {
-            byte[] framed = Framing.frame(message.serialize());
-            socket.getOutputStream().write(framed);
-            socket.getOutputStream().flush();
+            connection.write(frame);
+            return true;
         } catch (IOException e) {
-            log.warn("Failed to send to {}: {}", username, e.getMessage());
+            server.getSendFailureLog().warn(log, "Failed to send to {}: {}", username, e.getMessage());
             active = false;
+            return false;
+        }
+    }
+
+    /**
+     * Sends a final {@code DISCONNECT} at the tail of the bulk lane rather than in the control lane, so chat
+     * and presence already queued for the client reach it first; clients close as soon as they read it. The
+     * session then closes when the client hangs up or the server's drain deadline expires.
+     */
+    void drain(String reason) {
+        draining = true;
+        resumable = false;
+        sendFramed(OutboundQueue.Lane.BULK, Framing.frame(new DisconnectMessage(reason).serialize()));
+    }
+
+    /** Protocol version negotiated in the handshake, or null before it and for plugins' virtual users. */
+    String getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /** Whether the session negotiated {@code capability}. */
+    boolean hasCapability(String capability) {
+        return capabilities.contains(capability);
+    }
+
+    /** Whether the client asked for structured {@code PRESENCE_DELTA} updates instead of summary lines. */
+    boolean supportsPresenceDeltas() {
+        return presenceDeltas;
+    }
+
+    /** Whether the client declared it can be offered chunked transfers. */
+    boolean supportsTransfers() {
+        return transfersSupported;
+    }
+
+    /** Transfers this session is sending or receiving. */
+    TransferRelay getTransfers() {
+        return transfers;
+    }
+
+    /** This session's id in the registry's session table, or -1 while it is not registered. */
+    int getSessionId() {
+        return sessionId;
+    }
+
+    /** Records the session table id the registry assigned; called under the registry's lock. */
+    void setSessionId(int sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    /** Username the session is registered under, or null before the handshake completes. */
+    String getUsername() {
+        return username;
+    }
+
+    /** Acceptor whose shard runs this handler. */
+    Acceptor getAcceptor() {
+        return acceptor;
+    }
+
+    /**
+     * Closes the connection immediately, unblocking the reader thread; a pushed session has no reader, so it
+     * is cleaned up here.
+     */
+    void forceClose() {
+        active = false;
+        connection.close();
+        if (pushed) {
+            cleanup();
         }
     }
 
     /**
-     * Releases resources and informs others that the user left.
+     * Releases resources and informs others that the user left. A session that dropped without a
+     * {@code DISCONNECT} is parked for resumption instead, keeping its username and buffering messages.
+     * Departure broadcasts are skipped while the server drains since every session is leaving. Transfers in
+     * either direction are cancelled, since their chunks are not buffered. Runs once, however many of the
+     * reader, the pushing connection, and a forced close get here.
      */
     private void cleanup() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        boolean park = username != null && resumable && !draining && !server.isDraining();
+        transfers.cancelAll();
+        if (!park) {
+            awaitFlushed();
+        }
+        connection.close();
         if (username != null) {
-            registry.unregister(username);
-            registry.broadcast(new ServerBroadcastMessage(username + " left"), this);
+            if (park) {
+                synchronized (sendLock) {
+                    connectionLost = true;
+                    stashQueued();
+                }
+                server.getResumer().park(resumeToken, this, this::expire);
+                server.getSessionLog().info(log, "{} dropped; holding session for resumption", username);
+            } else if (registry.unregister(username, this) && !draining) {
+                server.getPresence().left(username);
+            }
+        }
+        server.sessionClosed(this);
+    }
+
+    /** Grace window passed without a resume: release the username and announce the departure. */
+    private void expire() {
+        if (registry.unregister(username, this)) {
+            server.getPresence().left(username);
         }
-        NetUtil.closeQuietly(socket);
     }
 
     /** Turns terse validation errors into human-readable reasons. */
@@ -241,8 +1142,8 @@ public class ClientHandler implements Runnable {
         if (normalized.contains("username required")) {
             return "a username is required";
         }
-        if (normalized.contains("unsupported version")) {
-            return "the client version is not supported by this server";
+        if (normalized.contains("must look like 1.0")) {
+            return "protocol versions are written as major.minor, e.g. " + ProtocolConstants.VERSION;
         }
         if (normalized.contains("missing type")) {
             return "every message needs a 'type' field";
@@ -1,31 +1,77 @@
 package edu.merrimack.simplechat.server;
 
+import edu.merrimack.simplechat.common.Framing;
 import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.UserListMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
 
 /**
  * Thread-safe registry mapping usernames to client handlers.
+ *
+ * <p>Each registered session holds a dense integer id in a {@link SessionTable}, which the handler carries
+ * itself. Usernames index straight to the handler, so routing by name is one lookup with no boxed id in
+ * between, broadcasts walk the table's array directly, and a rename only moves the name while the session
+ * keeps its id.
+ *
+ * <p>Every membership change bumps a list version and is appended to a bounded change log, so clients can
+ * fetch a cached sorted snapshot or just the names added and removed since a version they already hold.
+ * A sorted skip-list index over the usernames answers prefix queries in time proportional to the prefix
+ * and the number of matches, independent of how many users are connected.
+ *
+ * <p>Membership changes take a short lock so the handler map, the prefix index, and the change log always
+ * move together; lookups never lock.
  */
 public class ClientRegistry {
 
     private static final Logger log = LoggerFactory.getLogger(ClientRegistry.class);
+    private static final int CHANGE_LOG_CAPACITY = 4096;
 
-    private final Map<String, ClientHandler> clients = new ConcurrentHashMap<>();
+    private final Map<String, ClientHandler> names = new ConcurrentHashMap<>();
+    private final SessionTable sessions = new SessionTable();
+    private final NavigableSet<String> index = new ConcurrentSkipListSet<>();
+    private final AtomicLong version = new AtomicLong();
+    private final ArrayDeque<Change> changeLog = new ArrayDeque<>();
+    private volatile UserListSnapshot snapshot = new UserListSnapshot(0, List.of());
+    private final LogThrottle membershipLog;
+
+    /** Creates a registry with the default sampling for membership log lines. */
+    public ClientRegistry() {
+        this(new LogThrottle(20, 100));
+    }
+
+    /** Creates a registry whose membership log lines are sampled by {@code membershipLog}. */
+    ClientRegistry(LogThrottle membershipLog) {
+        this.membershipLog = membershipLog;
+    }
 
     /**
      * Attempts to register a username; returns false if already present.
      */
     public boolean register(String username, ClientHandler handler) {
-        ClientHandler existing = clients.putIfAbsent(username, handler);
-        if (existing != null) {
-            return false;
+        synchronized (changeLog) {
+            if (names.containsKey(username)) {
+                return false;
+            }
+            handler.setSessionId(sessions.add(handler));
+            names.put(username, handler);
+            recordChange(username, true);
         }
-        log.info("Registered user {}", username);
+        membershipLog.info(log, "Registered user {}", username);
         return true;
     }
 
@@ -33,40 +79,245 @@ public class ClientRegistry {
      * Removes the username from the registry if present.
      */
     public void unregister(String username) {
-        if (username != null) {
-            clients.remove(username);
-            log.info("Unregistered user {}", username);
+        if (username == null) {
+            return;
+        }
+        synchronized (changeLog) {
+            ClientHandler handler = names.remove(username);
+            if (handler == null) {
+                return;
+            }
+            release(handler);
+            recordChange(username, false);
+        }
+        membershipLog.info(log, "Unregistered user {}", username);
+    }
+
+    /**
+     * Removes the username only if it is still bound to {@code handler}.
+     */
+    public boolean unregister(String username, ClientHandler handler) {
+        if (username == null) {
+            return false;
+        }
+        synchronized (changeLog) {
+            if (!names.remove(username, handler)) {
+                return false;
+            }
+            release(handler);
+            recordChange(username, false);
+        }
+        membershipLog.info(log, "Unregistered user {}", username);
+        return true;
+    }
+
+    /**
+     * Moves {@code handler} from {@code oldName} to {@code newName} in one step, keeping its session id;
+     * returns false, changing nothing, if {@code newName} is taken or {@code oldName} is not bound to
+     * {@code handler}.
+     */
+    public boolean rename(String oldName, String newName, ClientHandler handler) {
+        synchronized (changeLog) {
+            if (names.containsKey(newName) || names.get(oldName) != handler) {
+                return false;
+            }
+            names.remove(oldName);
+            names.put(newName, handler);
+            recordChange(newName, true);
+            recordChange(oldName, false);
+        }
+        membershipLog.info(log, "Renamed user {} to {}", oldName, newName);
+        return true;
+    }
+
+    /**
+     * Atomically rebinds a username from {@code current} to {@code replacement}; returns false if the
+     * username is no longer bound to {@code current}.
+     */
+    public boolean replace(String username, ClientHandler current, ClientHandler replacement) {
+        synchronized (changeLog) {
+            if (names.get(username) != current) {
+                return false;
+            }
+            int id = current.getSessionId();
+            names.put(username, replacement);
+            sessions.set(id, replacement);
+            replacement.setSessionId(id);
+            current.setSessionId(-1);
+            return true;
         }
     }
 
     /** Retrieves the handler for a username or null if not found. */
     public ClientHandler get(String username) {
-        return clients.get(username);
+        return names.get(username);
     }
 
     /** Returns the current number of registered clients. */
     public int size() {
-        return clients.size();
+        return sessions.size();
     }
 
     /**
      * Broadcasts a message to all clients except an optional sender to exclude.
      */
     public void broadcast(BaseMessage message, ClientHandler exclude) {
-        for (ClientHandler handler : clients.values()) {
+        byte[] frame = Framing.frame(message.serialize());
+        forEach(handler -> {
             if (handler != exclude) {
-                handler.send(message);
+                handler.send(message, frame);
+            }
+        });
+    }
+
+    /** Runs {@code action} for every registered handler by walking the session table. */
+    void forEach(Consumer<ClientHandler> action) {
+        int limit = sessions.limit();
+        AtomicReferenceArray<ClientHandler> slots = sessions.slots();
+        for (int id = 0; id < limit; id++) {
+            ClientHandler handler = slots.get(id);
+            if (handler != null) {
+                action.accept(handler);
             }
         }
     }
 
+    /** Table of registered sessions by id, which the fan-out pool splits into id ranges. */
+    SessionTable sessions() {
+        return sessions;
+    }
+
     /** Snapshot of all registered handlers. */
     public Collection<ClientHandler> all() {
-        return clients.values();
+        List<ClientHandler> handlers = new ArrayList<>(sessions.size());
+        forEach(handlers::add);
+        return handlers;
     }
 
-    /** Returns a snapshot list of all registered usernames. */
-    public java.util.List<String> listUsernames() {
-        return java.util.List.copyOf(clients.keySet());
+    /** Returns a snapshot list of all registered usernames, sorted. */
+    public List<String> listUsernames() {
+        return snapshot().getUsers();
+    }
+
+    /**
+     * Returns up to {@code limit} usernames starting with {@code prefix}, in ascending order, after
+     * {@code cursor} when continuing a previous page. Walks only the matching range of the index.
+     */
+    public UserListMessage findByPrefix(String prefix, String cursor, int limit) {
+        NavigableSet<String> range = cursor != null && cursor.compareTo(prefix) >= 0
+                ? index.tailSet(cursor, false)
+                : index.tailSet(prefix, true);
+        List<String> matches = new ArrayList<>(Math.min(limit, 64));
+        String next = null;
+        for (String name : range) {
+            if (!name.startsWith(prefix)) {
+                break;
+            }
+            if (matches.size() == limit) {
+                next = matches.get(limit - 1);
+                break;
+            }
+            matches.add(name);
+        }
+        return new UserListMessage(matches, 0, -1, next);
+    }
+
+    /** Current list version; increases on every registration and removal. */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Returns the sorted snapshot for the current version, rebuilding it only if membership changed since
+     * the last call. The names are copied under the change-log lock, so the list holds exactly the changes
+     * up to its version and a later {@link #changesSince(long)} never replays one of them.
+     */
+    public UserListSnapshot snapshot() {
+        UserListSnapshot current = snapshot;
+        if (current.getVersion() == version.get()) {
+            return current;
+        }
+        synchronized (this) {
+            long v;
+            List<String> users;
+            synchronized (changeLog) {
+                current = snapshot;
+                v = version.get();
+                if (current.getVersion() == v) {
+                    return current;
+                }
+                users = new ArrayList<>(names.keySet());
+            }
+            Collections.sort(users);
+            current = new UserListSnapshot(v, Collections.unmodifiableList(users));
+            snapshot = current;
+            return current;
+        }
+    }
+
+    /**
+     * Returns the net names added and removed after {@code sinceVersion} as a delta response, or null when
+     * the change log no longer reaches back that far and the client needs the full list.
+     */
+    public UserListMessage changesSince(long sinceVersion) {
+        synchronized (changeLog) {
+            long latest = version.get();
+            if (sinceVersion > latest) {
+                return null;
+            }
+            if (sinceVersion < latest && (changeLog.isEmpty() || changeLog.peekFirst().version > sinceVersion + 1)) {
+                return null;
+            }
+            Map<String, Boolean> net = new LinkedHashMap<>();
+            for (Change change : changeLog) {
+                if (change.version <= sinceVersion) {
+                    continue;
+                }
+                Boolean previous = net.get(change.username);
+                if (previous != null && previous != change.added) {
+                    net.remove(change.username);
+                } else {
+                    net.put(change.username, change.added);
+                }
+            }
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (Map.Entry<String, Boolean> entry : net.entrySet()) {
+                (entry.getValue() ? added : removed).add(entry.getKey());
+            }
+            return new UserListMessage(latest, added, removed);
+        }
+    }
+
+    /** Frees the handler's session id; caller holds the change-log lock. */
+    private void release(ClientHandler handler) {
+        sessions.remove(handler.getSessionId());
+        handler.setSessionId(-1);
+    }
+
+    /** Updates the prefix index, bumps the list version, and logs the change; caller holds the change-log lock. */
+    private void recordChange(String username, boolean added) {
+        if (added) {
+            index.add(username);
+        } else {
+            index.remove(username);
+        }
+        changeLog.addLast(new Change(version.incrementAndGet(), username, added));
+        if (changeLog.size() > CHANGE_LOG_CAPACITY) {
+            changeLog.removeFirst();
+        }
+    }
+
+    /** One membership change at a list version. */
+    private static final class Change {
+        private final long version;
+        private final String username;
+        private final boolean added;
+
+        private Change(long version, String username, boolean added) {
+            this.version = version;
+            this.username = username;
+            this.added = added;
+        }
     }
 }
@@ -0,0 +1,103 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.config.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the server's config file and applies valid edits to the running server. An edit that fails to
+ * parse or validate is logged and rejected, leaving the current configuration in place.
+ */
+public final class ConfigWatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConfigWatcher.class);
+
+    /** Quiet period after the last change event before reloading, so an editor's multi-step save reads once. */
+    private static final long SETTLE_MILLIS = 200;
+
+    private final Path file;
+    private final ChatServer server;
+    private final WatchService watcher;
+    private final Thread thread;
+
+    /**
+     * Starts watching {@code configPath} on a daemon thread, applying changes to {@code server}.
+     */
+    public ConfigWatcher(String configPath, ChatServer server) throws IOException {
+        this.file = Path.of(configPath).toAbsolutePath().normalize();
+        this.server = server;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Waits for change events on the config file and reloads it once they settle. */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = drainEvents(key);
+                // Collapse the burst of events a single save produces
+                WatchKey more;
+                while ((more = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drainEvents(more);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /** Consumes a key's events, returning whether any concern the config file, and re-arms the key. */
+    private boolean drainEvents(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /** Loads and validates the file, then hands it to the server. */
+    void reload() {
+        ServerConfig next;
+        try {
+            next = ServerConfig.load(file.toString());
+        } catch (Exception e) {
+            log.warn("Rejected config change in {}: {}; keeping the running configuration", file, e.getMessage());
+            return;
+        }
+        List<String> ignored = server.reconfigure(next);
+        if (!ignored.isEmpty()) {
+            log.warn("Config change to {} takes effect only after a restart", String.join(", ", ignored));
+        }
+    }
+
+    /** Stops watching. */
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (IOException ignored) {
+        }
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,185 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Dedicated fork/join pool that delivers broadcasts to large audiences off the sender's read thread.
+ *
+ * <p>A broadcast reaching at least the configured threshold of sessions is split into stripes of up to
+ * {@link #STRIPE_SIZE} session ids that pool threads deliver in parallel; smaller broadcasts are cheaper to
+ * deliver inline. Each sender chains its deliveries with {@link #after(CompletableFuture, Runnable)}, so
+ * every recipient still sees one sender's messages in the order they were sent.
+ *
+ * <p>A pool thread that has to wait on a slow recipient, for queue room or for a socket write, does so
+ * through {@link ForkJoinPool#managedBlock}, so the pool starts a spare thread meanwhile and other senders'
+ * deliveries keep moving.
+ */
+final class FanOut {
+
+    private static final Logger log = LoggerFactory.getLogger(FanOut.class);
+
+    /** Session ids one pool task covers before the rest of its range is split off. */
+    static final int STRIPE_SIZE = 256;
+    /** Extra threads the pool may start while workers are blocked; beyond that blocked workers are not replaced. */
+    private static final int MAX_SPARES = 256;
+
+    private final ForkJoinPool pool;
+    private volatile int threshold;
+
+    /**
+     * Creates a pool with one thread per core, plus up to {@link #MAX_SPARES} spares standing in for threads
+     * blocked on slow recipients; {@code threshold} 0 delivers every broadcast inline.
+     */
+    FanOut(int threshold) {
+        this.threshold = threshold;
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(cores, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("fan-out-" + t.getPoolIndex());
+            return t;
+        }, null, false, 0, cores + MAX_SPARES, 1, p -> true, 60, TimeUnit.SECONDS);
+    }
+
+    /** Changes the audience size at which broadcasts move to the pool. */
+    void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /** Whether a broadcast to {@code recipients} sessions should run on the pool. */
+    boolean isLarge(int recipients) {
+        int t = threshold;
+        return t > 0 && recipients >= t;
+    }
+
+    /**
+     * Runs {@code delivery} on the pool once {@code previous} has completed and returns its completion.
+     * A failing delivery is logged and does not break the chain.
+     */
+    CompletableFuture<Void> after(CompletableFuture<Void> previous, Runnable delivery) {
+        return previous.thenRunAsync(() -> {
+            try {
+                delivery.run();
+            } catch (RuntimeException e) {
+                log.warn("Fan-out delivery failed: {}", e.getMessage());
+            }
+        }, pool);
+    }
+
+    /**
+     * Delivers {@code message} to every session in {@code sessions} except {@code exclude}, in parallel
+     * stripes of session ids, and returns once all have it queued.
+     */
+    void deliver(SessionTable sessions, BaseMessage message, ClientHandler exclude) {
+        byte[] frame = Framing.frame(message.serialize());
+        int limit = sessions.limit();
+        pool.invoke(new Stripe(sessions.slots(), 0, limit, message, frame, exclude));
+    }
+
+    /**
+     * Runs {@code io}, which may block on a slow connection, and returns its result. On a fork/join worker it
+     * runs as a managed block, so the pool can start a spare thread while it waits.
+     */
+    static boolean blocking(BooleanSupplier io) {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+            return io.getAsBoolean();
+        }
+        BlockingCall call = new BlockingCall(io);
+        try {
+            ForkJoinPool.managedBlock(call);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return call.result;
+    }
+
+    /** Stops the pool; deliveries chained afterwards are dropped. */
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Lets deliveries already accepted, and those chained behind them, finish until {@code deadline}, a
+     * {@link System#nanoTime()} value, then stops the pool. Returns false if some were abandoned.
+     */
+    boolean shutdown(long deadline) throws InterruptedException {
+        pool.awaitQuiescence(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        pool.shutdown();
+        if (pool.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        pool.shutdownNow();
+        return false;
+    }
+
+    /** One call to a possibly blocking operation, run through {@link ForkJoinPool#managedBlock}. */
+    private static final class BlockingCall implements ForkJoinPool.ManagedBlocker {
+        private final BooleanSupplier io;
+        private boolean done;
+        private boolean result;
+
+        private BlockingCall(BooleanSupplier io) {
+            this.io = io;
+        }
+
+        @Override
+        public boolean block() {
+            result = io.getAsBoolean();
+            done = true;
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+
+    /** Delivers to a range of session ids, splitting it in half while it is larger than a stripe. */
+    private static final class Stripe extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient AtomicReferenceArray<ClientHandler> slots;
+        private final int from;
+        private final int to;
+        private final transient BaseMessage message;
+        private final transient byte[] frame;
+        private final transient ClientHandler exclude;
+
+        private Stripe(AtomicReferenceArray<ClientHandler> slots, int from, int to, BaseMessage message,
+                       byte[] frame, ClientHandler exclude) {
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+            this.message = message;
+            this.frame = frame;
+            this.exclude = exclude;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= STRIPE_SIZE) {
+                for (int i = from; i < to; i++) {
+                    ClientHandler handler = slots.get(i);
+                    if (handler != null && handler != exclude) {
+                        handler.send(message, frame);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Stripe(slots, from, mid, message, frame, exclude),
+                    new Stripe(slots, mid, to, message, frame, exclude));
+        }
+    }
+}
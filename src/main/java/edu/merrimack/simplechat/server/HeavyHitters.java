@@ -0,0 +1,172 @@
+package edu.merrimack.simplechat.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate heaviest keys over a sliding window, in fixed memory, using the Space-Saving algorithm.
+ *
+ * <p>The window is cut into {@link #SLICES} slices, each summarised separately and cleared when the clock
+ * comes round to it again, so the estimate covers between five and six sixths of the window. Keys are
+ * spread over {@link #STRIPES} independently locked summaries per slice, so concurrent updates rarely
+ * contend. A summary keeps its {@code capacity} heaviest candidates; a new key evicts the lightest one and
+ * inherits its count as possible overestimate. Any key holding more than {@code 1/capacity} of a stripe's
+ * weight in a slice is always kept, and no estimate is below the true weight.
+ */
+final class HeavyHitters {
+
+    static final int SLICES = 6;
+    private static final int STRIPES = 4;
+
+    private final Summary[] summaries = new Summary[SLICES * STRIPES];
+    private final long sliceMillis;
+    private final LongSupplier clock;
+
+    /**
+     * Creates a tracker keeping about {@code capacity} candidates per slice over a window of
+     * {@code windowMillis}, read from {@code clock}.
+     */
+    HeavyHitters(int capacity, long windowMillis, LongSupplier clock) {
+        this.sliceMillis = Math.max(1, windowMillis / SLICES);
+        this.clock = clock;
+        int perStripe = (capacity + STRIPES - 1) / STRIPES;
+        for (int i = 0; i < summaries.length; i++) {
+            summaries[i] = new Summary(perStripe);
+        }
+    }
+
+    /** Adds {@code weight} to {@code key} in the current slice. */
+    void add(String key, long weight) {
+        long slice = clock.getAsLong() / sliceMillis;
+        int h = key.hashCode();
+        int stripe = (h ^ (h >>> 16)) & (STRIPES - 1);
+        Summary summary = summaries[(int) Math.floorMod(slice, (long) SLICES) * STRIPES + stripe];
+        synchronized (summary) {
+            if (summary.slice != slice) {
+                summary.reset(slice);
+            }
+            summary.add(key, weight);
+        }
+    }
+
+    /** The {@code k} heaviest keys in the window, heaviest first, ties by key. */
+    List<TopTalkers.Entry> top(int k) {
+        long slice = clock.getAsLong() / sliceMillis;
+        Map<String, long[]> merged = new HashMap<>();
+        for (Summary summary : summaries) {
+            synchronized (summary) {
+                if (summary.slice <= slice && summary.slice > slice - SLICES) {
+                    summary.collect(merged);
+                }
+            }
+        }
+        List<TopTalkers.Entry> entries = new ArrayList<>(merged.size());
+        for (Map.Entry<String, long[]> e : merged.entrySet()) {
+            entries.add(new TopTalkers.Entry(e.getKey(), e.getValue()[0], e.getValue()[1]));
+        }
+        entries.sort((a, b) -> a.getCount() != b.getCount()
+                ? Long.compare(b.getCount(), a.getCount()) : a.getKey().compareTo(b.getKey()));
+        return entries.size() > k ? new ArrayList<>(entries.subList(0, k)) : entries;
+    }
+
+    /** One slice of one stripe: a min-heap of candidates by count, with an index from key to heap slot. */
+    private static final class Summary {
+        private final String[] keys;
+        private final long[] counts;
+        private final long[] errors;
+        private final Map<String, Integer> slots;
+        private int size;
+        private long slice = Long.MIN_VALUE;
+
+        private Summary(int capacity) {
+            keys = new String[capacity];
+            counts = new long[capacity];
+            errors = new long[capacity];
+            slots = new HashMap<>(capacity * 2);
+        }
+
+        private void reset(long slice) {
+            this.slice = slice;
+            Arrays.fill(keys, 0, size, null);
+            slots.clear();
+            size = 0;
+        }
+
+        private void add(String key, long weight) {
+            Integer at = slots.get(key);
+            if (at != null) {
+                counts[at] += weight;
+                siftDown(at);
+            } else if (size < keys.length) {
+                keys[size] = key;
+                counts[size] = weight;
+                errors[size] = 0;
+                slots.put(key, size);
+                siftUp(size++);
+            } else {
+                slots.remove(keys[0]);
+                keys[0] = key;
+                errors[0] = counts[0];
+                counts[0] += weight;
+                slots.put(key, 0);
+                siftDown(0);
+            }
+        }
+
+        /** Adds every candidate's count and possible overestimate to {@code merged}. */
+        private void collect(Map<String, long[]> merged) {
+            for (int i = 0; i < size; i++) {
+                long[] sum = merged.computeIfAbsent(keys[i], k -> new long[2]);
+                sum[0] += counts[i];
+                sum[1] += errors[i];
+            }
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (counts[parent] <= counts[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int least = i;
+                int left = 2 * i + 1;
+                if (left < size && counts[left] < counts[least]) {
+                    least = left;
+                }
+                if (left + 1 < size && counts[left + 1] < counts[least]) {
+                    least = left + 1;
+                }
+                if (least == i) {
+                    return;
+                }
+                swap(i, least);
+                i = least;
+            }
+        }
+
+        private void swap(int a, int b) {
+            String key = keys[a];
+            keys[a] = keys[b];
+            keys[b] = key;
+            long count = counts[a];
+            counts[a] = counts[b];
+            counts[b] = count;
+            long error = errors[a];
+            errors[a] = errors[b];
+            errors[b] = error;
+            slots.put(keys[a], a);
+            slots.put(keys[b], b);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package edu.merrimack.simplechat.server;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate-limits one high-volume log site. Lines beyond the allowed rate are skipped and counted, and the next
+ * line that gets through reports how many similar lines were suppressed.
+ */
+final class LogThrottle {
+
+    private volatile TokenBucket bucket;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /** Allows {@code perSecond} lines per second with bursts of up to {@code burst}. */
+    LogThrottle(double perSecond, int burst) {
+        this.bucket = new TokenBucket(perSecond, burst);
+    }
+
+    /** Replaces the rate and burst; the new bucket starts full. */
+    void reconfigure(double perSecond, int burst) {
+        this.bucket = new TokenBucket(perSecond, burst);
+    }
+
+    /** Logs at INFO if the site is within its rate. */
+    void info(Logger log, String format, Object... args) {
+        if (log.isInfoEnabled()) {
+            long skipped = admit();
+            if (skipped >= 0) {
+                log.info(withSuppressed(format, skipped), withSuppressed(args, skipped));
+            }
+        }
+    }
+
+    /** Logs at WARN if the site is within its rate. */
+    void warn(Logger log, String format, Object... args) {
+        if (log.isWarnEnabled()) {
+            long skipped = admit();
+            if (skipped >= 0) {
+                log.warn(withSuppressed(format, skipped), withSuppressed(args, skipped));
+            }
+        }
+    }
+
+    /** Returns -1 to skip this line, otherwise how many lines were skipped since the last one logged. */
+    long admit() {
+        if (bucket.tryAcquire(System.nanoTime()) != 0L) {
+            suppressed.incrementAndGet();
+            return -1;
+        }
+        return suppressed.getAndSet(0);
+    }
+
+    private static String withSuppressed(String format, long skipped) {
+        return skipped == 0 ? format : format + " ({} similar lines suppressed)";
+    }
+
+    private static Object[] withSuppressed(Object[] args, long skipped) {
+        if (skipped == 0) {
+            return args;
+        }
+        Object[] extended = new Object[args.length + 1];
+        System.arraycopy(args, 0, extended, 0, args.length);
+        extended[args.length] = skipped;
+        return extended;
+    }
+}
@@ -0,0 +1,20 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+
+/**
+ * Lets a {@link ChatPlugin} veto chat messages before the server routes them.
+ *
+ * <p>Every inbound chat message, broadcast or direct, is offered to each reviewer on a review thread of its
+ * plugin, separate from the thread its other calls run on, so the two must be safe to run concurrently.
+ * Routing waits for reviews only up to the configured budget ({@code plugins.reviewBudgetMs}); a reviewer
+ * that has not answered in time, or whose review queue is full, lets the message through.
+ */
+public interface MessageReviewer {
+
+    /**
+     * Returns why {@code message} must not be delivered, which its sender is told, or null to allow it.
+     * The message must not be modified.
+     */
+    String review(ChatMessage message);
+}
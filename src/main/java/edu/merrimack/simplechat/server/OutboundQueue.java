@@ -0,0 +1,128 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frames waiting to be written to one connection, split into priority lanes.
+ *
+ * <p>The control lane carries replies, errors, handshake and disconnect frames; the bulk lane carries chat
+ * and presence traffic, and the {@code DISCONNECT} of a server drain so it follows them; the transfer lane
+ * carries the chunks of large transfers. Control frames are written
+ * ahead of the other lanes, but after {@link #CONTROL_BURST} control frames in a row a waiting bulk or
+ * transfer frame goes next, so chat keeps draining under sustained control traffic. Bulk and transfer
+ * frames alternate while both are waiting, so a transfer never holds chat back by more than one chunk.
+ * Order within each lane is preserved.
+ *
+ * <p>Not thread-safe; the owning {@link ClientHandler} guards it with its send lock.
+ */
+final class OutboundQueue {
+
+    /** Priority class of an outbound frame. */
+    enum Lane {
+        CONTROL,
+        BULK,
+        TRANSFER
+    }
+
+    /** Control frames written in a row before a waiting bulk frame is let through. */
+    static final int CONTROL_BURST = 8;
+
+    private final ArrayDeque<Entry> control = new ArrayDeque<>();
+    private final ArrayDeque<Entry> bulk = new ArrayDeque<>();
+    private final ArrayDeque<Entry> transfer = new ArrayDeque<>();
+    private int controlStreak;
+    private boolean transferNext;
+
+    /**
+     * Lane for a message type: chat and presence traffic is bulk, transfer chunks have their own lane, and
+     * everything else, including transfer offers and acks, is control.
+     */
+    static Lane laneOf(MessageType type) {
+        switch (type) {
+            case CHAT_MESSAGE:
+            case SERVER_BROADCAST:
+            case PRESENCE_DELTA:
+                return Lane.BULK;
+            case TRANSFER_CHUNK:
+                return Lane.TRANSFER;
+            default:
+                return Lane.CONTROL;
+        }
+    }
+
+    /** Queues a frame; {@code message} is kept for replay and may be null for frames that are not replayed. */
+    void add(Lane lane, BaseMessage message, byte[] frame) {
+        switch (lane) {
+            case CONTROL:
+                control.addLast(new Entry(message, frame));
+                break;
+            case BULK:
+                bulk.addLast(new Entry(message, frame));
+                break;
+            default:
+                transfer.addLast(new Entry(message, frame));
+        }
+    }
+
+    /** Next frame to write, or null when every lane is empty. */
+    Entry poll() {
+        if (!control.isEmpty() && (controlStreak < CONTROL_BURST || (bulk.isEmpty() && transfer.isEmpty()))) {
+            controlStreak++;
+            return control.pollFirst();
+        }
+        controlStreak = 0;
+        boolean takeTransfer = !transfer.isEmpty() && (transferNext || bulk.isEmpty());
+        transferNext = !takeTransfer;
+        return takeTransfer ? transfer.pollFirst() : bulk.pollFirst();
+    }
+
+    /**
+     * Takes the bulk frames queued behind one just polled from the bulk lane, oldest first, to be written
+     * with it: at most {@code max} frames of at most {@code maxBytes} in total, stopping at any frame kept
+     * without its message.
+     */
+    List<Entry> pollBulk(int max, int maxBytes) {
+        List<Entry> taken = new ArrayList<>();
+        int bytes = 0;
+        while (taken.size() < max && !bulk.isEmpty()) {
+            Entry next = bulk.peekFirst();
+            if (next.message == null || bytes + next.frame.length > maxBytes) {
+                break;
+            }
+            bytes += next.frame.length;
+            taken.add(bulk.pollFirst());
+        }
+        return taken;
+    }
+
+    /** Drops the bulk frames queued for messages of {@code type}, such as deltas a full user list supersedes. */
+    void removeBulk(MessageType type) {
+        bulk.removeIf(entry -> entry.message != null && entry.message.getType() == type);
+    }
+
+    /** Number of frames waiting in the bulk lane. */
+    int bulkSize() {
+        return bulk.size();
+    }
+
+    /** Whether no frames are waiting. */
+    boolean isEmpty() {
+        return control.isEmpty() && bulk.isEmpty() && transfer.isEmpty();
+    }
+
+    /** A queued frame and, when it should be replayed after a dropped connection, the message it encodes. */
+    static final class Entry {
+        final BaseMessage message;
+        final byte[] frame;
+
+        private Entry(BaseMessage message, byte[] frame) {
+            this.message = message;
+            this.frame = frame;
+        }
+    }
+}
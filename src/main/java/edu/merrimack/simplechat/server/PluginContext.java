@@ -0,0 +1,31 @@
+package edu.merrimack.simplechat.server;
+
+import java.util.List;
+
+/**
+ * What a {@link ChatPlugin} can do as its virtual user.
+ *
+ * <p>Sends are queued behind the plugin's pending events and routed in order on its thread, like a
+ * client's, except that they are not rate limited. They may be called from any thread.
+ */
+public interface PluginContext {
+
+    /** Username the plugin is registered under. */
+    String getUsername();
+
+    /**
+     * Broadcasts {@code content} to every other user; returns false if it is not valid chat content or the
+     * plugin's queue is full.
+     */
+    boolean broadcast(String content);
+
+    /**
+     * Sends {@code content} to {@code to} alone; returns false if it is not valid chat content or the
+     * plugin's queue is full. If {@code to} is not connected the plugin receives an {@code UNKNOWN_USER}
+     * error.
+     */
+    boolean sendDirect(String to, String content);
+
+    /** Usernames currently registered, sorted, including virtual users. */
+    List<String> listUsernames();
+}
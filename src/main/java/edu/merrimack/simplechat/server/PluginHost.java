@@ -0,0 +1,145 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.config.PluginConfig;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.MessageValidator;
+import edu.merrimack.simplechat.common.protocol.SetUsernameMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The plugins running in one server, and the review step they impose on chat routing.
+ *
+ * <p>Routing asks every reviewing plugin at once and waits for their answers up to a shared deadline, so a
+ * message is held for at most the review budget however many reviewers there are. With no reviewers the
+ * check costs one volatile read.
+ */
+final class PluginHost {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginHost.class);
+
+    private final ChatServer server;
+    private final int queueSize;
+    private final long budgetNanos;
+    private final LogThrottle pluginLog;
+    /** Running plugins by identity; guarded by the instance. */
+    private final Map<ChatPlugin, PluginSession> plugins = new IdentityHashMap<>();
+    private volatile PluginSession[] reviewers = new PluginSession[0];
+
+    /** Creates an empty host for {@code server} applying the limits in {@code config}. */
+    PluginHost(ChatServer server, PluginConfig config, LogThrottle pluginLog) {
+        this.server = server;
+        this.queueSize = config.getQueueSize();
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(config.getReviewBudgetMs());
+        this.pluginLog = pluginLog;
+    }
+
+    /**
+     * Starts {@code plugin} as a virtual user. Returns false if its username is taken or it is already
+     * running; throws {@link IllegalArgumentException} if the username is not valid.
+     */
+    synchronized boolean add(ChatPlugin plugin) {
+        try {
+            MessageValidator.validate(new SetUsernameMessage(plugin.getUsername()));
+        } catch (InvalidObjectException e) {
+            throw new IllegalArgumentException("Invalid plugin username '" + plugin.getUsername() + "': "
+                    + e.getMessage());
+        }
+        if (plugins.containsKey(plugin)) {
+            return false;
+        }
+        PluginSession session = new PluginSession(server, plugin, queueSize, pluginLog);
+        if (!session.open()) {
+            return false;
+        }
+        plugins.put(plugin, session);
+        updateReviewers();
+        return true;
+    }
+
+    /** Stops {@code plugin} and announces that its virtual user left; returns false if it was not running. */
+    boolean remove(ChatPlugin plugin) {
+        PluginSession session;
+        synchronized (this) {
+            session = plugins.remove(plugin);
+            if (session == null) {
+                return false;
+            }
+            updateReviewers();
+        }
+        session.close(true);
+        return true;
+    }
+
+    /**
+     * Offers {@code message} to every reviewing plugin and returns the error to send its author if one
+     * vetoed it, or null to route it. Reviews not answered within the budget count as approval.
+     */
+    ErrorMessage review(ChatMessage message) {
+        PluginSession[] current = reviewers;
+        if (current.length == 0) {
+            return null;
+        }
+        List<Future<String>> answers = new ArrayList<>(current.length);
+        for (PluginSession reviewer : current) {
+            answers.add(reviewer.review(message));
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        String reason = null;
+        for (int i = 0; i < current.length; i++) {
+            Future<String> answer = answers.get(i);
+            if (answer == null) {
+                pluginLog.warn(log, "Plugin {} is falling behind on reviews; a message was let through unreviewed",
+                        current[i].getName());
+                continue;
+            }
+            if (reason != null) {
+                answer.cancel(false);
+                continue;
+            }
+            try {
+                reason = answer.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                answer.cancel(false);
+                pluginLog.warn(log, "Plugin {} did not review a message within {} ms; it was let through",
+                        current[i].getName(), TimeUnit.NANOSECONDS.toMillis(budgetNanos));
+            } catch (ExecutionException e) {
+                pluginLog.warn(log, "Plugin {} failed to review a message: {}", current[i].getName(),
+                        e.getCause().toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                answer.cancel(false);
+            }
+        }
+        return reason == null ? null : new ErrorMessage("MESSAGE_REJECTED", "Your message was not delivered: " + reason);
+    }
+
+    /** Stops every plugin without announcing departures, as the server is shutting down. */
+    void shutdown() {
+        List<PluginSession> all;
+        synchronized (this) {
+            all = new ArrayList<>(plugins.values());
+            plugins.clear();
+            updateReviewers();
+        }
+        for (PluginSession session : all) {
+            session.close(false);
+        }
+    }
+
+    /** Republishes the reviewer array after a change; caller holds the instance lock. */
+    private void updateReviewers() {
+        reviewers = plugins.values().stream().filter(PluginSession::isReviewer).toArray(PluginSession[]::new);
+    }
+}
@@ -0,0 +1,207 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.MessageValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InvalidObjectException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The virtual user of one {@link ChatPlugin}: a session registered like any client's, whose messages are
+ * handed to the plugin as objects instead of being framed and written to a connection.
+ *
+ * <p>Deliveries, the plugin's own sends, and its lifecycle calls all run in order on one thread behind a
+ * bounded queue; a delivery that finds the queue full is dropped and counted, so routing never waits for
+ * the plugin. Reviews run on a second thread with its own bounded queue, so a review is never stuck behind
+ * a backlog of deliveries.
+ */
+final class PluginSession extends ClientHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(PluginSession.class);
+
+    /** How long closing waits for queued events to run before calling {@link ChatPlugin#stop()}. */
+    private static final long CLOSE_WAIT_MILLIS = 1000;
+
+    private final ChatServer server;
+    private final ChatPlugin plugin;
+    private final MessageReviewer reviewer;
+    private final String name;
+    private final ThreadPoolExecutor events;
+    private final ThreadPoolExecutor reviews;
+    private final LogThrottle pluginLog;
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Creates the session for {@code plugin}, whose queues each hold up to {@code queueSize} tasks. */
+    PluginSession(ChatServer server, ChatPlugin plugin, int queueSize, LogThrottle pluginLog) {
+        super(server);
+        this.server = server;
+        this.plugin = plugin;
+        this.reviewer = plugin instanceof MessageReviewer ? (MessageReviewer) plugin : null;
+        this.name = plugin.getUsername();
+        this.pluginLog = pluginLog;
+        this.events = executor("plugin-" + name, queueSize);
+        this.reviews = reviewer != null ? executor("plugin-review-" + name, queueSize) : null;
+    }
+
+    /**
+     * Registers the virtual user, announces it, and queues the plugin's start. Returns false, starting
+     * nothing, if the username is taken.
+     */
+    boolean open() {
+        if (!registerAs(name)) {
+            shutdownExecutors();
+            return false;
+        }
+        run(() -> plugin.start(new Context()));
+        server.getPresence().joined(name);
+        log.info("Started plugin {} ({})", name, plugin.getClass().getName());
+        return true;
+    }
+
+    /**
+     * Unregisters the virtual user, announcing its departure when {@code announce} is set, lets queued
+     * events run for up to a second, and then stops the plugin.
+     */
+    void close(boolean announce) {
+        if (server.getRegistry().unregister(name, this) && announce) {
+            server.getPresence().left(name);
+        }
+        shutdownExecutors();
+        try {
+            if (!events.awaitTermination(CLOSE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                events.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        guard(plugin::stop);
+        if (dropped.get() > 0) {
+            log.warn("Plugin {} fell behind and missed {} events", name, dropped.get());
+        }
+    }
+
+    /** Whether the plugin reviews chat messages before they are routed. */
+    boolean isReviewer() {
+        return reviewer != null;
+    }
+
+    /** Username of the plugin's virtual user. */
+    String getName() {
+        return name;
+    }
+
+    /** Queues a review of {@code message}; returns null when the review queue is full or closed. */
+    Future<String> review(ChatMessage message) {
+        try {
+            return reviews.submit(() -> reviewer.review(message));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /** Hands {@code message} to the plugin instead of writing it to a connection. */
+    @Override
+    public void send(BaseMessage message) {
+        run(() -> plugin.onMessage(message));
+    }
+
+    @Override
+    void send(BaseMessage message, byte[] frame) {
+        run(() -> plugin.onMessage(message));
+    }
+
+    /** Presence updates go through the plugin's bounded queue, which never holds up the flusher. */
+    @Override
+    boolean offerPresence(BaseMessage update, byte[] frame, UserListSnapshot snapshot) {
+        if (update != null) {
+            run(() -> plugin.onMessage(update));
+        }
+        return true;
+    }
+
+    /** Framed sends only answer requests read from a connection, which a virtual user never makes. */
+    @Override
+    void sendFramed(byte[] frame) {
+    }
+
+    /** Queues {@code task} on the plugin's thread; returns false, counting a drop, if the queue is full. */
+    private boolean run(Runnable task) {
+        try {
+            events.execute(() -> guard(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (!events.isShutdown()) {
+                pluginLog.warn(log, "Plugin {} is falling behind; {} events dropped", name, dropped.incrementAndGet());
+            }
+            return false;
+        }
+    }
+
+    /** Runs plugin code, logging rather than propagating what it throws. */
+    private void guard(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            pluginLog.warn(log, "Plugin {} failed: {}", name, e.toString());
+        }
+    }
+
+    /** Validates a chat message from the plugin and queues it to be routed on the plugin's thread. */
+    private boolean submit(ChatMessage message) {
+        try {
+            MessageValidator.validate(message);
+        } catch (InvalidObjectException e) {
+            return false;
+        }
+        return run(() -> routeChat(message));
+    }
+
+    private void shutdownExecutors() {
+        events.shutdown();
+        if (reviews != null) {
+            reviews.shutdownNow();
+        }
+    }
+
+    /** A single daemon thread fed by a queue of {@code queueSize} tasks, rejecting tasks beyond that. */
+    private static ThreadPoolExecutor executor(String threadName, int queueSize) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** The plugin's handle on its virtual user. */
+    private final class Context implements PluginContext {
+
+        @Override
+        public String getUsername() {
+            return name;
+        }
+
+        @Override
+        public boolean broadcast(String content) {
+            return submit(new ChatMessage(name, null, false, content));
+        }
+
+        @Override
+        public boolean sendDirect(String to, String content) {
+            return submit(new ChatMessage(name, to, true, content));
+        }
+
+        @Override
+        public List<String> listUsernames() {
+            return server.getRegistry().listUsernames();
+        }
+    }
+}
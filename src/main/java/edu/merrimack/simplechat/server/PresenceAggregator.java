@@ -0,0 +1,153 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.protocol.PresenceDeltaMessage;
+import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects join, leave, and rename events and publishes them as one {@code PRESENCE_DELTA} per window,
+ * so a reconnect storm of N users costs N frames per window instead of N per event.
+ *
+ * <p>Events are coalesced to net changes: a user who joins and leaves within one window produces nothing,
+ * a chain of renames collapses to its first and last name, and a user who leaves and returns under the same
+ * name is omitted. Clients that did not declare the presence-delta capability receive the same information
+ * as a single {@code SERVER_BROADCAST} summary line.
+ *
+ * <p>Updates are offered without waiting for room in a session's bulk lane. A summary line that does not
+ * fit is dropped; a delta client whose lane was full is sent the full user list once it has room again.
+ */
+public final class PresenceAggregator {
+
+    private final ClientRegistry registry;
+    private final long windowMillis;
+    private final ScheduledExecutorService flusher;
+
+    /** Current name to name at window start; a null value means the user joined during the window. */
+    private final Map<String, String> present = new LinkedHashMap<>();
+    /** Names present at window start that have since left. */
+    private final Set<String> departed = new LinkedHashSet<>();
+    /** Whether some delta client missed a delta and is still owed the full user list. */
+    private volatile boolean resyncPending;
+
+    /** Creates an aggregator publishing every {@code windowMillis}; 0 publishes each event immediately. */
+    public PresenceAggregator(ClientRegistry registry, long windowMillis) {
+        this.registry = registry;
+        this.windowMillis = windowMillis;
+        if (windowMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "presence-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /** Records that {@code username} joined. */
+    public void joined(String username) {
+        synchronized (this) {
+            if (departed.remove(username)) {
+                present.put(username, username);
+            } else {
+                present.put(username, null);
+            }
+        }
+        flushIfImmediate();
+    }
+
+    /** Records that {@code username} left. */
+    public void left(String username) {
+        synchronized (this) {
+            if (present.containsKey(username)) {
+                String origin = present.remove(username);
+                if (origin != null) {
+                    departed.add(origin);
+                }
+            } else {
+                departed.add(username);
+            }
+        }
+        flushIfImmediate();
+    }
+
+    /** Records that {@code oldName} is now known as {@code newName}. */
+    public void renamed(String oldName, String newName) {
+        synchronized (this) {
+            String origin = present.containsKey(oldName) ? present.remove(oldName) : oldName;
+            present.put(newName, origin);
+        }
+        flushIfImmediate();
+    }
+
+    /**
+     * Publishes the coalesced changes collected since the last flush, if any.
+     */
+    public void flush() {
+        PresenceDeltaMessage delta;
+        synchronized (this) {
+            List<String> joined = new ArrayList<>();
+            List<PresenceDeltaMessage.Rename> renamed = new ArrayList<>();
+            for (Map.Entry<String, String> entry : present.entrySet()) {
+                if (entry.getValue() == null) {
+                    joined.add(entry.getKey());
+                } else if (!entry.getValue().equals(entry.getKey())) {
+                    renamed.add(new PresenceDeltaMessage.Rename(entry.getValue(), entry.getKey()));
+                }
+            }
+            delta = new PresenceDeltaMessage(joined, new ArrayList<>(departed), renamed);
+            present.clear();
+            departed.clear();
+        }
+        if (delta.isEmpty() && !resyncPending) {
+            return;
+        }
+        UserListSnapshot snapshot = registry.snapshot();
+        AtomicBoolean stale = new AtomicBoolean();
+        if (delta.isEmpty()) {
+            registry.forEach(handler -> {
+                if (handler.supportsPresenceDeltas() && !handler.offerPresence(null, null, snapshot)) {
+                    stale.set(true);
+                }
+            });
+        } else {
+            ServerBroadcastMessage summary = new ServerBroadcastMessage(delta.toSummary());
+            byte[] deltaFrame = Framing.frame(delta.serialize());
+            byte[] summaryFrame = Framing.frame(summary.serialize());
+            registry.forEach(handler -> {
+                if (!handler.supportsPresenceDeltas()) {
+                    handler.offerPresence(summary, summaryFrame, null);
+                } else if (!handler.offerPresence(delta, deltaFrame, snapshot)) {
+                    stale.set(true);
+                }
+            });
+        }
+        resyncPending = stale.get();
+    }
+
+    /** Stops the periodic flush. */
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+    }
+
+    /** Publishes straight away when coalescing is disabled. */
+    private void flushIfImmediate() {
+        if (windowMillis <= 0) {
+            flush();
+        }
+    }
+}
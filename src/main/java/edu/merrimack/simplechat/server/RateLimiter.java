@@ -0,0 +1,72 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.config.RateLimit;
+import edu.merrimack.simplechat.common.config.RateLimitConfig;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+
+/**
+ * Per-session set of token buckets, one per limited request class, plus a violation bucket for abuse detection.
+ */
+public class RateLimiter {
+
+    private final boolean enabled;
+    private final TokenBucket broadcast;
+    private final TokenBucket direct;
+    private final TokenBucket listUsers;
+    private final TokenBucket setUsername;
+    private final TokenBucket search;
+    private final TokenBucket violations;
+
+    /** Builds fresh buckets for one session from the configured limits. */
+    public RateLimiter(RateLimitConfig config) {
+        this.enabled = config.isEnabled();
+        this.broadcast = bucket(config.getBroadcast());
+        this.direct = bucket(config.getDirect());
+        this.listUsers = bucket(config.getListUsers());
+        this.setUsername = bucket(config.getSetUsername());
+        this.search = bucket(config.getSearch());
+        this.violations = new TokenBucket((double) config.getMaxViolations() / config.getViolationWindowSeconds(),
+                config.getMaxViolations());
+    }
+
+    /**
+     * Checks the bucket for the message's request class; returns 0 when allowed or the nanoseconds to wait.
+     * Message types without a limit are always allowed.
+     */
+    public long check(BaseMessage message) {
+        if (!enabled) {
+            return 0L;
+        }
+        TokenBucket bucket;
+        switch (message.getType()) {
+            case CHAT_MESSAGE:
+                bucket = ((ChatMessage) message).isDirect() ? direct : broadcast;
+                break;
+            case LIST_USERS:
+                bucket = listUsers;
+                break;
+            case SET_USERNAME:
+                bucket = setUsername;
+                break;
+            case SEARCH:
+                bucket = search;
+                break;
+            default:
+                return 0L;
+        }
+        return bucket.tryAcquire();
+    }
+
+    /**
+     * Records a rejected message; returns true when the session has exceeded its violation allowance.
+     */
+    public boolean recordViolation() {
+        return violations.tryAcquire() > 0;
+    }
+
+    /** Creates a bucket for a configured limit. */
+    private static TokenBucket bucket(RateLimit limit) {
+        return new TokenBucket(limit.getPerSecond(), limit.getBurst());
+    }
+}
@@ -0,0 +1,469 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.config.SearchConfig;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.SearchMessage;
+import edu.merrimack.simplechat.common.protocol.SearchResultsMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Searchable history of the chat messages the server has routed.
+ *
+ * <p>Routing a message only offers it to a bounded queue; a dedicated indexer thread takes messages off
+ * it in batches, so indexing never runs on a session's read loop. When the queue is full the message is
+ * still delivered but not kept. Each message gets an id in arrival order and is stored in a segment of up
+ * to {@link #SEGMENT_SIZE} messages that keeps arrival times, senders, and UTF-8 text in flat arrays, with
+ * an inverted index from each word, and from each sender, to the ascending ids of its messages.
+ * Because ids follow arrival time, a time range maps to an id range by binary search over a segment's
+ * times, and segments entirely outside the range are skipped by their first and last times.
+ *
+ * <p>A search walks segments newest first. Within one it follows the shortest posting list of its words
+ * and sender downwards from the end of the range, binary searching the others for each candidate, and it
+ * stops as soon as a page is full, so its cost follows the rarest term and the page size rather than the
+ * length of the history. Old messages are discarded a whole segment at a time.
+ *
+ * <p>Direct messages are never kept. Usernames are released on disconnect and can be taken by anyone, so a
+ * name is no basis for deciding who may read a private message later.
+ */
+final class SearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndex.class);
+
+    /** Messages per segment. */
+    static final int SEGMENT_SIZE = 1 << 16;
+    /** Most queued messages the indexer applies under one acquisition of the write lock. */
+    private static final int INDEX_BATCH = 1024;
+    /** Longest word indexed whole; longer words are indexed only by their joined parts. */
+    private static final int MAX_WORD_LENGTH = 64;
+
+    private final int maxMessages;
+    private final int segmentSize;
+    private final BlockingQueue<ChatMessage> queue;
+    private final Thread indexer;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Segments oldest first; guarded by {@code lock}, as is everything in them. */
+    private final List<Segment> segments = new ArrayList<>();
+    private long nextId;
+    private long lastTime;
+    private long retained;
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    /** Messages the indexer has finished with; guarded by the instance. */
+    private long indexed;
+
+    /** Creates an empty history with the configured retention and queue size and starts its indexer. */
+    SearchIndex(SearchConfig config) {
+        this(config.getMaxMessages(), config.getQueueSize(), SEGMENT_SIZE);
+    }
+
+    /** Creates an empty history with segments of {@code segmentSize} messages and starts its indexer. */
+    SearchIndex(int maxMessages, int queueSize, int segmentSize) {
+        this.maxMessages = maxMessages;
+        this.segmentSize = segmentSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.indexer = new Thread(this::run, "search-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /**
+     * Queues a routed broadcast for indexing without waiting; direct messages are ignored. The message must
+     * not change afterwards.
+     */
+    void record(ChatMessage message) {
+        if (message.isDirect()) {
+            return;
+        }
+        offered.incrementAndGet();
+        if (!queue.offer(message)) {
+            offered.decrementAndGet();
+            if (dropped.getAndIncrement() == 0) {
+                log.warn("Search index queue is full; messages are not being kept until it catches up");
+            }
+        }
+    }
+
+    /**
+     * Answers {@code request} with one page of matches, newest first.
+     */
+    SearchResultsMessage search(SearchMessage request) {
+        List<String> words = words(request.getQuery(), false);
+        if (words.isEmpty() && request.getFrom() == null) {
+            return new SearchResultsMessage(List.of(), null);
+        }
+        Query query = new Query(words.toArray(new String[0]), request.getFrom(),
+                request.getSince(), request.getUntil() > 0 ? request.getUntil() : Long.MAX_VALUE,
+                request.getCursor() != null ? Long.parseLong(request.getCursor()) : Long.MAX_VALUE,
+                request.getLimit() > 0 ? request.getLimit() : ProtocolConstants.DEFAULT_SEARCH_PAGE_SIZE);
+        lock.readLock().lock();
+        try {
+            for (int i = segments.size() - 1; i >= 0 && query.page.size() < query.limit; i--) {
+                Segment segment = segments.get(i);
+                if (segment.lastTime() < query.since) {
+                    break;
+                }
+                if (segment.base < query.before && segment.firstTime() <= query.until) {
+                    segment.collect(query);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        String next = query.page.size() == query.limit ? Long.toString(query.lastId) : null;
+        return new SearchResultsMessage(query.page, next);
+    }
+
+    /** Number of messages currently kept. */
+    long size() {
+        lock.readLock().lock();
+        try {
+            return retained;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of messages not kept because the queue was full. */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /** Waits until every message recorded so far has been indexed. */
+    void awaitIndexed() throws InterruptedException {
+        long target = offered.get();
+        synchronized (this) {
+            while (indexed < target) {
+                wait();
+            }
+        }
+    }
+
+    /** Stops the indexer; messages still queued are not indexed. */
+    void shutdown() {
+        indexer.interrupt();
+        if (dropped.get() > 0) {
+            log.warn("{} chat messages were not kept for search because the index queue was full", dropped.get());
+        }
+    }
+
+    /**
+     * Splits {@code text} into lower-case words: runs of letters and digits, joined by any {@code -} or
+     * {@code _} between them. For indexing, {@code parts} also yields the pieces of joined words, so
+     * {@code outage-4312} is found by {@code outage} as well as by {@code outage-4312}.
+     */
+    static List<String> words(String text, boolean parts) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            int c = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                i += Character.charCount(c);
+                continue;
+            }
+            int start = i;
+            int end = i;
+            boolean joined = false;
+            while (i < n) {
+                c = text.codePointAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    i += Character.charCount(c);
+                    end = i;
+                } else if (c == '-' || c == '_') {
+                    i++;
+                    joined |= i < n && Character.isLetterOrDigit(text.codePointAt(i));
+                } else {
+                    break;
+                }
+            }
+            String word = text.substring(start, end).toLowerCase(Locale.ROOT);
+            if (!parts || word.length() <= MAX_WORD_LENGTH) {
+                words.add(word);
+            }
+            if (parts && joined) {
+                for (String part : word.split("[-_]+")) {
+                    if (part.length() <= MAX_WORD_LENGTH) {
+                        words.add(part);
+                    }
+                }
+            }
+        }
+        return words;
+    }
+
+    /** Indexer loop: takes queued messages in batches and appends each batch under the write lock. */
+    private void run() {
+        List<ChatMessage> batch = new ArrayList<>(INDEX_BATCH);
+        List<List<String>> batchWords = new ArrayList<>(INDEX_BATCH);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, INDEX_BATCH - 1);
+                for (ChatMessage message : batch) {
+                    batchWords.add(words(message.getContent(), true));
+                }
+                lock.writeLock().lock();
+                try {
+                    long now = System.currentTimeMillis();
+                    for (int i = 0; i < batch.size(); i++) {
+                        append(batch.get(i), batchWords.get(i), now);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Failed to index {} chat messages: {}", batch.size(), e.getMessage());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                synchronized (this) {
+                    indexed += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+                batchWords.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Appends one message, starting a new segment and discarding the oldest as needed; holds the write lock. */
+    private void append(ChatMessage message, List<String> words, long now) {
+        Segment tail = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (tail == null || tail.count == segmentSize) {
+            if (tail != null) {
+                tail.seal();
+            }
+            tail = new Segment(nextId, segmentSize);
+            segments.add(tail);
+        }
+        lastTime = Math.max(lastTime, now);
+        tail.append(message, words, lastTime);
+        nextId++;
+        retained++;
+        while (retained - segments.get(0).count >= maxMessages) {
+            retained -= segments.remove(0).count;
+        }
+    }
+
+    /** The options of one search and the page it has collected so far. */
+    private static final class Query {
+        private final String[] words;
+        private final String from;
+        private final long since;
+        private final long until;
+        private final long before;
+        private final int limit;
+        private final List<ChatMessage> page = new ArrayList<>();
+        /** Id of the last message added to the page. */
+        private long lastId = -1;
+
+        private Query(String[] words, String from, long since, long until, long before, int limit) {
+            this.words = words;
+            this.from = from;
+            this.since = since;
+            this.until = until;
+            this.before = before;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * Up to a fixed number of consecutive messages, with their inverted index. Messages are numbered
+     * within the segment from 0; a message's id is the segment's base plus its number.
+     */
+    private static final class Segment {
+        private final long base;
+        private final long[] times;
+        private final int[] senders;
+        /** End offset in {@code text} of each message's content; it starts where the previous one ends. */
+        private final int[] ends;
+        private byte[] text = new byte[4096];
+        private int count;
+        private final Map<String, Postings> words = new HashMap<>();
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        /** Messages sent by each name, by name id. */
+        private final List<Postings> bySender = new ArrayList<>();
+
+        private Segment(long base, int capacity) {
+            this.base = base;
+            this.times = new long[capacity];
+            this.senders = new int[capacity];
+            this.ends = new int[capacity];
+        }
+
+        private long firstTime() {
+            return count == 0 ? Long.MAX_VALUE : times[0];
+        }
+
+        private long lastTime() {
+            return count == 0 ? Long.MIN_VALUE : times[count - 1];
+        }
+
+        private void append(ChatMessage message, List<String> messageWords, long time) {
+            int doc = count;
+            byte[] bytes = message.getContent().getBytes(ProtocolConstants.UTF8);
+            int start = doc == 0 ? 0 : ends[doc - 1];
+            if (start + bytes.length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, start + bytes.length));
+            }
+            System.arraycopy(bytes, 0, text, start, bytes.length);
+            ends[doc] = start + bytes.length;
+            times[doc] = time;
+            int sender = nameId(message.getFrom());
+            senders[doc] = sender;
+            bySender.get(sender).add(doc);
+            for (String word : messageWords) {
+                words.computeIfAbsent(word, w -> new Postings()).add(doc);
+            }
+            count = doc + 1;
+        }
+
+        /** Trims the segment's arrays once it is full. */
+        private void seal() {
+            text = Arrays.copyOf(text, ends[count - 1]);
+            for (Postings postings : words.values()) {
+                postings.trim();
+            }
+            for (Postings postings : bySender) {
+                postings.trim();
+            }
+        }
+
+        private int nameId(String name) {
+            Integer id = nameIds.get(name);
+            if (id == null) {
+                id = names.size();
+                nameIds.put(name, id);
+                names.add(name);
+                bySender.add(new Postings());
+            }
+            return id;
+        }
+
+        /** Adds this segment's matches for {@code query}, newest first, until its page is full. */
+        private void collect(Query query) {
+            int hi = (int) Math.min(count, query.before - base);
+            if (query.until != Long.MAX_VALUE) {
+                hi = Math.min(hi, firstAfter(query.until));
+            }
+            int lo = query.since > 0 ? firstAfter(query.since - 1) : 0;
+            if (lo >= hi) {
+                return;
+            }
+            Postings[] lists = new Postings[query.words.length + (query.from != null ? 1 : 0)];
+            for (int i = 0; i < query.words.length; i++) {
+                lists[i] = words.get(query.words[i]);
+                if (lists[i] == null) {
+                    return;
+                }
+            }
+            if (query.from != null) {
+                Integer sender = nameIds.get(query.from);
+                if (sender == null) {
+                    return;
+                }
+                lists[lists.length - 1] = bySender.get(sender);
+            }
+
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+            Postings driver = lists[0];
+            int[] bounds = new int[lists.length];
+            for (int i = 1; i < lists.length; i++) {
+                bounds[i] = lists[i].size;
+            }
+            candidates:
+            for (int p = driver.firstAtLeast(hi, driver.size) - 1; p >= 0 && query.page.size() < query.limit; p--) {
+                int doc = driver.ids[p];
+                if (doc < lo) {
+                    break;
+                }
+                for (int i = 1; i < lists.length; i++) {
+                    int at = lists[i].firstAtLeast(doc, bounds[i]);
+                    bounds[i] = at;
+                    if (at == lists[i].size || lists[i].ids[at] != doc) {
+                        continue candidates;
+                    }
+                }
+                add(query, doc);
+            }
+        }
+
+        /** Adds message {@code doc} to the page. */
+        private void add(Query query, int doc) {
+            int start = doc == 0 ? 0 : ends[doc - 1];
+            String content = new String(text, start, ends[doc] - start, ProtocolConstants.UTF8);
+            query.page.add(new ChatMessage(names.get(senders[doc]), null, false, content, times[doc]));
+            query.lastId = base + doc;
+        }
+
+        /** Number of the first message that arrived after {@code time}, or the count if none did. */
+        private int firstAfter(long time) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] <= time) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /** Ascending message numbers within one segment. */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        /** Appends {@code doc} unless it is already the last entry, as when a word repeats in a message. */
+        private void add(int doc) {
+            if (size > 0 && ids[size - 1] == doc) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = doc;
+        }
+
+        private void trim() {
+            if (ids.length > size) {
+                ids = Arrays.copyOf(ids, size);
+            }
+        }
+
+        /** Position of the first entry at or above {@code doc} among the first {@code limit}. */
+        private int firstAtLeast(int doc, int limit) {
+            int lo = 0;
+            int hi = limit;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ids[mid] < doc) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
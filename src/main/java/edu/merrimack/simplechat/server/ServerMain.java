@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.net.BindException;
 import java.net.SocketException;
@@ -74,7 +75,7 @@ public class ServerMain {
         }
 
         try {
-            LogUtil.configureLogging(config.getLogFile());
+            LogUtil.configureLogging(config.getLogFile(), config.getLogging());
             log.info("Loaded config from {}", configPath);
         } catch (Exception e) {
             System.err.println("Failed to configure logging. Check logFile path in config: " + e.getMessage());
@@ -82,7 +83,19 @@ public class ServerMain {
         }
 
         ChatServer server = new ChatServer(config);
-        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        ConfigWatcher watcher = null;
+        try {
+            watcher = new ConfigWatcher(configPath, server);
+        } catch (IOException e) {
+            log.warn("Cannot watch {} for changes; edits will need a restart: {}", configPath, e.getMessage());
+        }
+        ConfigWatcher reloads = watcher;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (reloads != null) {
+                reloads.close();
+            }
+            server.stop();
+        }));
         try {
             server.start();
         } catch (BindException e) {
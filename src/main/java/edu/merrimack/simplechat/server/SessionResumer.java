@@ -0,0 +1,77 @@
+package edu.merrimack.simplechat.server;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds sessions whose connection dropped so a reconnecting client can reclaim them by resume token.
+ *
+ * <p>A parked session keeps its username registered and buffers outbound messages. Whichever of
+ * {@link #claim(String)} or the grace-window expiry removes the token first wins, so a session is either
+ * resumed or expired, never both.
+ */
+public class SessionResumer {
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, ClientHandler> parked = new ConcurrentHashMap<>();
+    private final long graceMillis;
+    private final ScheduledExecutorService expirer;
+
+    /** Creates a resumer holding dropped sessions for {@code graceSeconds}; 0 disables resumption. */
+    public SessionResumer(int graceSeconds) {
+        this.graceMillis = TimeUnit.SECONDS.toMillis(graceSeconds);
+        this.expirer = graceSeconds > 0 ? Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-expirer");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+    }
+
+    /** Whether dropped sessions are held for resumption. */
+    public boolean isEnabled() {
+        return expirer != null;
+    }
+
+    /** Generates an unguessable 128-bit resume token. */
+    public String newToken() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Parks a detached session under {@code token}; {@code onExpire} runs if nobody claims it within the
+     * grace window.
+     */
+    public void park(String token, ClientHandler handler, Runnable onExpire) {
+        parked.put(token, handler);
+        expirer.schedule(() -> {
+            if (parked.remove(token, handler)) {
+                onExpire.run();
+            }
+        }, graceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Removes and returns the session parked under {@code token}, or null if none is waiting. */
+    public ClientHandler claim(String token) {
+        return token == null ? null : parked.remove(token);
+    }
+
+    /** Number of sessions currently parked. */
+    public int parkedCount() {
+        return parked.size();
+    }
+
+    /** Drops every parked session and stops the expiry timer. */
+    public void shutdown() {
+        parked.clear();
+        if (expirer != null) {
+            expirer.shutdownNow();
+        }
+    }
+}
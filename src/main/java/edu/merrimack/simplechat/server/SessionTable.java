@@ -0,0 +1,90 @@
+package edu.merrimack.simplechat.server;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Registered sessions indexed by dense integer ids.
+ *
+ * <p>Ids released by departing sessions are handed out again before the table grows, so the ids in use
+ * stay close to the number of sessions and iterating the table touches one contiguous array instead of
+ * hash buckets. Lookups and iteration never lock; mutations are made by {@link ClientRegistry} under its
+ * change-log lock.
+ */
+final class SessionTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile AtomicReferenceArray<ClientHandler> slots = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    /** One past the highest id ever assigned; slots at or beyond it are empty. */
+    private volatile int limit;
+    private volatile int size;
+    private int[] free = new int[16];
+    private int freeCount;
+
+    /** Stores {@code handler} under a free id and returns the id. */
+    int add(ClientHandler handler) {
+        int id;
+        if (freeCount > 0) {
+            id = free[--freeCount];
+            slots.set(id, handler);
+        } else {
+            id = limit;
+            if (id == slots.length()) {
+                grow();
+            }
+            slots.set(id, handler);
+            limit = id + 1;
+        }
+        size++;
+        return id;
+    }
+
+    /** Rebinds {@code id} to another handler, e.g. when a reconnect takes over a session. */
+    void set(int id, ClientHandler handler) {
+        slots.set(id, handler);
+    }
+
+    /** Empties the slot and makes {@code id} available for reuse. */
+    void remove(int id) {
+        slots.set(id, null);
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = id;
+        size--;
+    }
+
+    /** Handler stored under {@code id}, or null if the slot is empty. */
+    ClientHandler get(int id) {
+        return slots.get(id);
+    }
+
+    /** Number of occupied slots. */
+    int size() {
+        return size;
+    }
+
+    /** One past the highest id in use or previously used; iterate ids below this. */
+    int limit() {
+        return limit;
+    }
+
+    /**
+     * Backing array for iteration. Read {@link #limit()} first: the array returned afterwards always covers
+     * every id below it.
+     */
+    AtomicReferenceArray<ClientHandler> slots() {
+        return slots;
+    }
+
+    /** Doubles the backing array before the next id would overflow it. */
+    private void grow() {
+        AtomicReferenceArray<ClientHandler> current = slots;
+        AtomicReferenceArray<ClientHandler> bigger = new AtomicReferenceArray<>(current.length() * 2);
+        for (int i = 0; i < current.length(); i++) {
+            bigger.set(i, current.get(i));
+        }
+        slots = bigger;
+    }
+}
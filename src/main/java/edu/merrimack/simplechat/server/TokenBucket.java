@@ -0,0 +1,55 @@
+package edu.merrimack.simplechat.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm over a single atomic timestamp.
+ *
+ * <p>Instead of storing a token count, the bucket tracks the theoretical arrival time (TAT) of the next
+ * conforming request. A request conforms while the TAT is no more than the burst tolerance ahead of now,
+ * so checking a limit is one CAS on a {@code long} and never allocates.
+ */
+public final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Creates a bucket that refills {@code ratePerSecond} tokens per second and holds at most {@code burst} tokens.
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1");
+        }
+        this.emissionIntervalNanos = Math.max(1L, (long) (NANOS_PER_SECOND / ratePerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+    }
+
+    /**
+     * Attempts to take one token at {@code nowNanos}; returns 0 on success or the nanoseconds to wait before retrying.
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = tat == Long.MIN_VALUE || tat - nowNanos < 0 ? nowNanos : tat;
+            long ahead = base - nowNanos;
+            if (ahead > burstToleranceNanos) {
+                return ahead - burstToleranceNanos;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + emissionIntervalNanos)) {
+                return 0L;
+            }
+        }
+    }
+
+    /** Convenience overload using {@link System#nanoTime()}. */
+    public long tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+}
@@ -0,0 +1,128 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.config.TopTalkersConfig;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate leaders of the server's recent traffic: who sends the most frames and bytes, who receives
+ * the most direct messages, whose broadcasts cause the most deliveries, and which addresses connect most.
+ *
+ * <p>Each estimate covers roughly the last {@code topTalkers.windowSeconds} and uses fixed memory however
+ * many sessions there are, so counts are upper bounds: a listed count may exceed the true one by at most
+ * its {@link Entry#getError()}. Keys with a large share of the traffic are always listed.
+ */
+public final class TopTalkers {
+
+    private final HeavyHitters frames;
+    private final HeavyHitters bytes;
+    private final HeavyHitters recipients;
+    private final HeavyHitters broadcasters;
+    private final HeavyHitters addresses;
+    private final int windowSeconds;
+
+    /** Creates empty estimates sized by {@code config}, read against {@code clock}. */
+    TopTalkers(TopTalkersConfig config, LongSupplier clock) {
+        long window = TimeUnit.SECONDS.toMillis(config.getWindowSeconds());
+        int capacity = config.getCapacity();
+        this.frames = new HeavyHitters(capacity, window, clock);
+        this.bytes = new HeavyHitters(capacity, window, clock);
+        this.recipients = new HeavyHitters(capacity, window, clock);
+        this.broadcasters = new HeavyHitters(capacity, window, clock);
+        this.addresses = new HeavyHitters(capacity, window, clock);
+        this.windowSeconds = config.getWindowSeconds();
+    }
+
+    /** Counts a frame of {@code length} payload bytes read from {@code username}'s connection. */
+    void received(String username, int length) {
+        frames.add(username, 1);
+        bytes.add(username, length);
+    }
+
+    /** Counts a direct message routed to {@code recipient}. */
+    void direct(String recipient) {
+        recipients.add(recipient, 1);
+    }
+
+    /** Counts a broadcast from {@code sender} delivered to {@code audience} sessions. */
+    void broadcast(String sender, int audience) {
+        broadcasters.add(sender, audience);
+    }
+
+    /** Counts a connection accepted from {@code address}. */
+    void connected(String address) {
+        addresses.add(address, 1);
+    }
+
+    /** Seconds of traffic the estimates cover. */
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /** The {@code k} users sending the most frames, heaviest first. */
+    public List<Entry> topSenders(int k) {
+        return frames.top(k);
+    }
+
+    /** The {@code k} users sending the most payload characters, about one byte each for typical chat. */
+    public List<Entry> topSendersByBytes(int k) {
+        return bytes.top(k);
+    }
+
+    /** The {@code k} users receiving the most direct messages. */
+    public List<Entry> topRecipients(int k) {
+        return recipients.top(k);
+    }
+
+    /** The {@code k} users whose broadcasts were delivered to the most sessions in total. */
+    public List<Entry> topBroadcasters(int k) {
+        return broadcasters.top(k);
+    }
+
+    /** The {@code k} remote addresses opening the most connections, including rejected ones. */
+    public List<Entry> topAddresses(int k) {
+        return addresses.top(k);
+    }
+
+    /** One line listing the {@code k} leaders of every estimate, for the log. */
+    String report(int k) {
+        return "senders " + topSenders(k) + ", bytes " + topSendersByBytes(k) + ", DM recipients "
+                + topRecipients(k) + ", broadcast deliveries " + topBroadcasters(k) + ", addresses "
+                + topAddresses(k);
+    }
+
+    /** An estimated leader: its key, its count, and how far that count may overstate the truth. */
+    public static final class Entry {
+        private final String key;
+        private final long count;
+        private final long error;
+
+        Entry(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        /** Username or address counted. */
+        public String getKey() {
+            return key;
+        }
+
+        /** Estimated count; never below the true count. */
+        public long getCount() {
+            return count;
+        }
+
+        /** Most by which {@link #getCount()} may exceed the true count. */
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return error == 0 ? key + "=" + count : key + "=" + (count - error) + ".." + count;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.capture.CaptureWriter;
+import edu.merrimack.simplechat.common.config.CaptureConfig;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.FrameReceiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records every inbound frame, and when each connection closes, so real traffic can be replayed later
+ * with {@code ReplayTool}.
+ *
+ * <p>Connections are wrapped as they are admitted, which captures frames however the transport delivers
+ * them. A capture that fails to write is logged once and switched off; it never affects the sessions.
+ */
+final class TrafficCapture {
+
+    private static final Logger log = LoggerFactory.getLogger(TrafficCapture.class);
+
+    private final CaptureWriter writer;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private volatile boolean failed;
+
+    private TrafficCapture(CaptureWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Starts a capture in a new subdirectory of the configured directory named after the start time, or
+     * returns null when capture is disabled or cannot start.
+     */
+    static TrafficCapture open(CaptureConfig config) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        Path directory = Path.of(config.getDirectory(), "capture-" + System.currentTimeMillis());
+        try {
+            CaptureWriter writer = new CaptureWriter(directory, config.getSegmentMegabytes() * 1024 * 1024);
+            log.info("Capturing inbound traffic to {}", directory);
+            return new TrafficCapture(writer);
+        } catch (IOException e) {
+            log.warn("Traffic capture disabled; could not open {}: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Wraps a newly admitted connection so its inbound frames and close are recorded. */
+    Connection wrap(Connection connection) {
+        return new Captured(connection, sessions.getAndIncrement());
+    }
+
+    /** Closes the current segment; frames arriving afterwards are not recorded. */
+    void close() {
+        try {
+            writer.close();
+            log.info("Captured {} records to {}", writer.getRecords(), writer.getDirectory());
+        } catch (IOException e) {
+            log.warn("Failed to close traffic capture: {}", e.getMessage());
+        }
+    }
+
+    private void frame(int session, String json) {
+        if (failed) {
+            return;
+        }
+        try {
+            writer.frame(session, json.getBytes(ProtocolConstants.UTF8));
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void closed(int session) {
+        if (failed) {
+            return;
+        }
+        try {
+            writer.closed(session);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Exception e) {
+        if (!failed) {
+            failed = true;
+            log.warn("Traffic capture stopped after a write failure: {}", e.getMessage());
+        }
+    }
+
+    /** Connection that records what it reads before handing it on. */
+    private final class Captured implements Connection, FrameReceiver {
+        private final Connection delegate;
+        private final int session;
+        private final AtomicBoolean recordedClose = new AtomicBoolean();
+        private FrameReceiver receiver;
+
+        private Captured(Connection delegate, int session) {
+            this.delegate = delegate;
+            this.session = session;
+        }
+
+        @Override
+        public String readFrame() throws IOException {
+            String json;
+            try {
+                json = delegate.readFrame();
+            } catch (IOException e) {
+                recordClose();
+                throw e;
+            }
+            if (json == null) {
+                recordClose();
+            } else {
+                frame(session, json);
+            }
+            return json;
+        }
+
+        @Override
+        public void write(byte[] frame) throws IOException {
+            delegate.write(frame);
+        }
+
+        @Override
+        public String remoteAddress() {
+            return delegate.remoteAddress();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return delegate.isClosed();
+        }
+
+        @Override
+        public void close() {
+            recordClose();
+            delegate.close();
+        }
+
+        @Override
+        public boolean pushTo(FrameReceiver receiver) {
+            this.receiver = receiver;
+            return delegate.pushTo(this);
+        }
+
+        @Override
+        public void onFrame(String json) {
+            frame(session, json);
+            receiver.onFrame(json);
+        }
+
+        @Override
+        public void onClosed() {
+            recordClose();
+            receiver.onClosed();
+        }
+
+        private void recordClose() {
+            if (recordedClose.compareAndSet(false, true)) {
+                closed(session);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.protocol.TransferAckMessage;
+import edu.merrimack.simplechat.common.protocol.TransferCancelMessage;
+import edu.merrimack.simplechat.common.protocol.TransferChunkMessage;
+import edu.merrimack.simplechat.common.protocol.TransferOfferMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The chunked transfers one session is sending or receiving through the server.
+ *
+ * <p>Chunks are relayed as they arrive, by queueing the sender's frame unchanged on the recipient's
+ * connection; the server never holds a whole payload. Flow control is enforced here rather than trusted to
+ * the sender: a chunk is relayed only once the recipient has accepted, in order, and while fewer than
+ * {@link ProtocolConstants#TRANSFER_WINDOW} relayed chunks are unacknowledged, so each transfer costs at most
+ * a window of chunks however large the payload. A sender that breaks these rules has the transfer cancelled.
+ *
+ * <p>Transfer frames are never buffered for session resumption; when either side's connection closes,
+ * its transfers are cancelled and the other side is told.
+ */
+final class TransferRelay {
+
+    /** Transfers a session may be sending at once. */
+    static final int MAX_OUTGOING = 8;
+
+    private final ClientHandler owner;
+    private final ClientRegistry registry;
+    /** Transfers this session sends, by transfer id. */
+    private final Map<String, Transfer> outgoing = new ConcurrentHashMap<>();
+    /** Transfers this session receives, by sender name at offer time and transfer id. */
+    private final Map<String, Transfer> incoming = new ConcurrentHashMap<>();
+
+    /** Creates the relay for {@code owner}, finding recipients in {@code registry}. */
+    TransferRelay(ClientHandler owner, ClientRegistry registry) {
+        this.owner = owner;
+        this.registry = registry;
+    }
+
+    /**
+     * Forwards an offer from this session to its recipient. Returns the error to send back, or null once the
+     * offer has been passed on.
+     */
+    ErrorMessage offer(TransferOfferMessage offer) {
+        if (!offer.getFrom().equals(owner.getUsername())) {
+            return new ErrorMessage("INVALID_SENDER", "The 'from' field must match your current username ("
+                    + owner.getUsername() + ").");
+        }
+        if (outgoing.size() >= MAX_OUTGOING) {
+            return new ErrorMessage("TOO_MANY_TRANSFERS", "You can send at most " + MAX_OUTGOING
+                    + " transfers at once. Wait for one to finish or cancel it.");
+        }
+        if (outgoing.containsKey(offer.getTransferId())) {
+            return new ErrorMessage("DUPLICATE_TRANSFER", "You already have a transfer with id '"
+                    + offer.getTransferId() + "'.");
+        }
+        ClientHandler target = registry.get(offer.getTo());
+        if (target == null) {
+            return new ErrorMessage("UNKNOWN_USER", "Could not find user '" + offer.getTo() + "'. They may be offline.");
+        }
+        if (!target.supportsTransfers()) {
+            return new ErrorMessage("TRANSFERS_UNSUPPORTED", offer.getTo() + "'s client cannot receive transfers.");
+        }
+        Transfer transfer = new Transfer(offer, owner, target);
+        outgoing.put(transfer.id, transfer);
+        target.getTransfers().incoming.put(transfer.key(), transfer);
+        offer.setRequestId(null);
+        target.sendTransfer(MessageType.TRANSFER_OFFER, Framing.frame(offer.serialize()));
+        return null;
+    }
+
+    /**
+     * Relays the next chunk of one of this session's transfers, passing {@code frame} on as received.
+     * Returns the error to send back, or null once the chunk has been queued for the recipient.
+     */
+    ErrorMessage chunk(TransferChunkMessage chunk, byte[] frame) {
+        Transfer transfer = outgoing.get(chunk.getTransferId());
+        if (transfer == null || !transfer.from.equals(chunk.getFrom()) || !transfer.to.equals(chunk.getTo())) {
+            return unknown(chunk.getTransferId());
+        }
+        String violation;
+        synchronized (transfer) {
+            if (!transfer.accepted) {
+                violation = "sent a chunk before the recipient accepted";
+            } else if (chunk.getSeq() != transfer.relayed || chunk.getSeq() >= transfer.chunks) {
+                violation = "sent chunk " + chunk.getSeq() + " when " + transfer.relayed + " was expected";
+            } else if (transfer.relayed - transfer.acked >= ProtocolConstants.TRANSFER_WINDOW) {
+                violation = "sent more than " + ProtocolConstants.TRANSFER_WINDOW + " unacknowledged chunks";
+            } else {
+                violation = null;
+                transfer.relayed++;
+            }
+        }
+        if (violation != null) {
+            cancel(transfer, "flow_control_violation", true, true);
+            return new ErrorMessage("TRANSFER_VIOLATION", "Transfer '" + transfer.id + "' was cancelled: you "
+                    + violation + ".");
+        }
+        transfer.recipient.sendTransfer(MessageType.TRANSFER_CHUNK, frame);
+        return null;
+    }
+
+    /**
+     * Passes the recipient's progress on a transfer this session receives back to its sender, opening the
+     * sender's window. Returns the error to send back, or null once forwarded.
+     */
+    ErrorMessage ack(TransferAckMessage ack, byte[] frame) {
+        Transfer transfer = incoming.get(key(ack.getFrom(), ack.getTransferId()));
+        if (transfer == null) {
+            return unknown(ack.getTransferId());
+        }
+        boolean complete;
+        synchronized (transfer) {
+            if (ack.getReceived() < transfer.acked || ack.getReceived() > transfer.relayed) {
+                return new ErrorMessage("INVALID_TRANSFER_ACK", "Transfer '" + transfer.id + "' has "
+                        + transfer.relayed + " chunks relayed and " + transfer.acked + " acknowledged.");
+            }
+            transfer.accepted = true;
+            transfer.acked = ack.getReceived();
+            complete = transfer.acked == transfer.chunks;
+        }
+        if (complete) {
+            transfer.remove();
+        }
+        transfer.sender.sendTransfer(MessageType.TRANSFER_ACK, frame);
+        return null;
+    }
+
+    /**
+     * Cancels a transfer this session sends or receives and tells the other side. Returns the error to send
+     * back, or null once cancelled.
+     */
+    ErrorMessage cancel(TransferCancelMessage cancel, byte[] frame) {
+        Transfer transfer = outgoing.get(cancel.getTransferId());
+        if (transfer != null && transfer.from.equals(cancel.getFrom())) {
+            if (transfer.remove()) {
+                transfer.recipient.sendTransfer(MessageType.TRANSFER_CANCEL, frame);
+            }
+            return null;
+        }
+        transfer = incoming.get(key(cancel.getFrom(), cancel.getTransferId()));
+        if (transfer != null) {
+            if (transfer.remove()) {
+                transfer.sender.sendTransfer(MessageType.TRANSFER_CANCEL, frame);
+            }
+            return null;
+        }
+        return unknown(cancel.getTransferId());
+    }
+
+    /** Cancels every transfer this session sends or receives, telling the other sides; used when it closes. */
+    void cancelAll() {
+        List<Transfer> all = new ArrayList<>(outgoing.values());
+        for (Transfer transfer : all) {
+            cancel(transfer, "sender_disconnected", false, true);
+        }
+        all = new ArrayList<>(incoming.values());
+        for (Transfer transfer : all) {
+            cancel(transfer, "recipient_disconnected", true, false);
+        }
+    }
+
+    /** Number of transfers this session is sending or receiving. */
+    int size() {
+        return outgoing.size() + incoming.size();
+    }
+
+    /** Removes {@code transfer} and sends a cancel to the sender, the recipient, or both. */
+    private static void cancel(Transfer transfer, String reason, boolean notifySender, boolean notifyRecipient) {
+        if (!transfer.remove()) {
+            return;
+        }
+        byte[] frame = Framing.frame(new TransferCancelMessage(transfer.id, transfer.from, transfer.to, reason).serialize());
+        if (notifyRecipient) {
+            transfer.recipient.sendTransfer(MessageType.TRANSFER_CANCEL, frame);
+        }
+        if (notifySender) {
+            transfer.sender.sendTransfer(MessageType.TRANSFER_CANCEL, frame);
+        }
+    }
+
+    private static ErrorMessage unknown(String transferId) {
+        return new ErrorMessage("UNKNOWN_TRANSFER", "There is no active transfer with id '" + transferId + "'.");
+    }
+
+    private static String key(String from, String transferId) {
+        return from + '\n' + transferId;
+    }
+
+    /** One transfer in flight, shared by the sender's and the recipient's relays. */
+    private static final class Transfer {
+        private final String id;
+        private final String from;
+        private final String to;
+        private final long chunks;
+        private final ClientHandler sender;
+        private final ClientHandler recipient;
+        /** Progress, guarded by the transfer's monitor. */
+        private boolean accepted;
+        private long relayed;
+        private long acked;
+        private boolean removed;
+
+        private Transfer(TransferOfferMessage offer, ClientHandler sender, ClientHandler recipient) {
+            this.id = offer.getTransferId();
+            this.from = offer.getFrom();
+            this.to = offer.getTo();
+            this.chunks = offer.getChunkCount();
+            this.sender = sender;
+            this.recipient = recipient;
+        }
+
+        private String key() {
+            return TransferRelay.key(from, id);
+        }
+
+        /** Drops the transfer from both relays; returns false if it was already gone. */
+        private boolean remove() {
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                }
+                removed = true;
+            }
+            sender.getTransfers().outgoing.remove(id, this);
+            recipient.getTransfers().incoming.remove(key(), this);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.protocol.UserListMessage;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, sorted view of the registered usernames at one registry version.
+ *
+ * <p>The fully framed {@code USER_LIST} response is built at most once per snapshot and then shared by
+ * every client asking for the full list until membership changes.
+ */
+public final class UserListSnapshot {
+
+    private final long version;
+    private final List<String> sorted;
+    private volatile byte[] fullFrame;
+
+    /** Wraps an already sorted, immutable name list taken at {@code version}. */
+    UserListSnapshot(long version, List<String> sorted) {
+        this.version = version;
+        this.sorted = sorted;
+    }
+
+    /** Registry version the snapshot reflects. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** All usernames in ascending order. */
+    public List<String> getUsers() {
+        return sorted;
+    }
+
+    /** Builds a fresh full-list response, for callers that need to tag it. */
+    public UserListMessage fullList() {
+        return new UserListMessage(sorted, version, sorted.size(), null);
+    }
+
+    /** Framed full-list response, serialized on first use and cached. */
+    public byte[] fullFrame() {
+        byte[] frame = fullFrame;
+        if (frame == null) {
+            frame = Framing.frame(fullList().serialize());
+            fullFrame = frame;
+        }
+        return frame;
+    }
+
+    /**
+     * Returns up to {@code limit} names sorting strictly after {@code cursor} (from the start when null),
+     * plus the cursor for the following page.
+     */
+    public UserListMessage page(String cursor, int limit) {
+        int from = 0;
+        if (cursor != null) {
+            int idx = Collections.binarySearch(sorted, cursor);
+            from = idx >= 0 ? idx + 1 : -idx - 1;
+        }
+        int to = Math.min(sorted.size(), from + limit);
+        List<String> page = sorted.subList(from, to);
+        String next = to < sorted.size() && !page.isEmpty() ? page.get(page.size() - 1) : null;
+        return new UserListMessage(page, version, sorted.size(), next);
+    }
+}
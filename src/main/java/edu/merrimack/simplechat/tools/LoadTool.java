@@ -0,0 +1,184 @@
+package edu.merrimack.simplechat.tools;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.NetUtil;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection-storm load generator: opens many sessions against a server and reports accept and
+ * handshake throughput plus handshake latency percentiles.
+ */
+public final class LoadTool {
+
+    /** Latency slot value for a session that did not complete its handshake. */
+    private static final long FAILED = -1;
+
+    /** Utility entry point; not instantiable. */
+    private LoadTool() {
+    }
+
+    /** Prints CLI usage for the load tool. */
+    private static void printUsage() {
+        System.out.println("Usage: java -cp <server-jar> edu.merrimack.simplechat.tools.LoadTool [options]");
+        System.out.println("Options:");
+        System.out.println("  --host <hostname>      Server host (default 127.0.0.1)");
+        System.out.println("  --port <port>          Server port (default 9000)");
+        System.out.println("  --connections <n>      Sessions to open (default 1000)");
+        System.out.println("  --concurrency <n>      Sessions opened in parallel (default 64)");
+        System.out.println("  --prefix <name>        Username prefix (default load)");
+        System.out.println("  --hold                 Keep every session open until all have connected");
+        System.out.println("  --help                 Show this help and exit");
+    }
+
+    /**
+     * Parses options, runs the connection storm, and prints a summary.
+     */
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = 9000;
+        int connections = 1000;
+        int concurrency = 64;
+        String prefix = "load";
+        boolean hold = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(args[++i]);
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--prefix":
+                    prefix = args[++i];
+                    break;
+                case "--hold":
+                    hold = true;
+                    break;
+                case "--help":
+                    printUsage();
+                    return;
+                default:
+                    System.err.println("Unknown arg: " + args[i]);
+                    printUsage();
+                    return;
+            }
+        }
+
+        Report report = runConnectStorm(host, port, connections, concurrency, prefix, hold);
+        report.print(System.out);
+    }
+
+    /**
+     * Opens {@code connections} sessions with up to {@code concurrency} in flight, timing each from socket
+     * connect to {@code CONNECT_ACK}.
+     */
+    static Report runConnectStorm(String host, int port, int connections, int concurrency, String prefix,
+                                  boolean hold) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long[] latencies = new long[connections];
+        Arrays.fill(latencies, FAILED);
+        List<Socket> held = hold ? Collections.synchronizedList(new ArrayList<>()) : null;
+        List<Future<?>> futures = new ArrayList<>(connections);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            final int id = i;
+            futures.add(pool.submit(() -> {
+                long t0 = System.nanoTime();
+                Socket socket = null;
+                try {
+                    socket = new Socket(host, port);
+                    OutputStream out = socket.getOutputStream();
+                    out.write(Framing.frame(new ConnectMessage("load-" + id, prefix + "-" + id).serialize()));
+                    out.flush();
+                    String reply = Framing.readFrame(socket.getInputStream());
+                    BaseMessage msg = reply == null ? null : MessageParser.parse(reply);
+                    if (msg == null || msg.getType() != MessageType.CONNECT_ACK) {
+                        return;
+                    }
+                    latencies[id] = System.nanoTime() - t0;
+                    if (held != null) {
+                        held.add(socket);
+                        socket = null;
+                    } else {
+                        out.write(Framing.frame(new DisconnectMessage("load_done").serialize()));
+                        out.flush();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    latencies[id] = FAILED;
+                } finally {
+                    NetUtil.closeQuietly(socket);
+                }
+            }));
+        }
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (Exception ignored) {
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        if (held != null) {
+            for (Socket socket : held) {
+                NetUtil.closeQuietly(socket);
+            }
+        }
+        return new Report(latencies, elapsed);
+    }
+
+    /** Summary of a load run. */
+    static final class Report {
+        private final long[] latencies;
+        private final int failures;
+        private final long elapsedNanos;
+
+        /** Summarises per-session latencies, where {@link #FAILED} marks a session that did not connect. */
+        Report(long[] latencies, long elapsedNanos) {
+            this.latencies = Arrays.stream(latencies).filter(l -> l != FAILED).sorted().toArray();
+            this.failures = latencies.length - this.latencies.length;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** Prints throughput and latency percentiles. */
+        void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.printf("Sessions: %d ok, %d failed in %.2f s%n", latencies.length, failures, seconds);
+            out.printf("Handshake rate: %.0f/s%n", latencies.length / seconds);
+            if (latencies.length > 0) {
+                out.printf("Handshake latency ms: p50=%.2f p99=%.2f max=%.2f%n",
+                        percentile(0.50), percentile(0.99), latencies[latencies.length - 1] / 1e6);
+            }
+        }
+
+        /** Latency at quantile {@code q} in milliseconds. */
+        private double percentile(double q) {
+            int idx = (int) Math.min(latencies.length - 1, Math.floor(q * latencies.length));
+            return latencies[idx] / 1e6;
+        }
+    }
+}
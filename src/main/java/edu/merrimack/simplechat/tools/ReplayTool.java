@@ -0,0 +1,375 @@
+package edu.merrimack.simplechat.tools;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.capture.CaptureReader;
+import edu.merrimack.simplechat.common.capture.CaptureRecord;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.Transport;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a traffic capture recorded by the server against a running server and reports how it kept up.
+ *
+ * <p>Each captured session gets its own connection. Frames are sent at their captured offsets scaled by
+ * the chosen speed, or as fast as possible, and always in the order that session sent them; different
+ * sessions proceed independently. Handshake and request latency come from the server's replies,
+ * matching {@code CONNECT_ACK} to the session's {@code CONNECT} and replies to frames by {@code requestId}.
+ * Unpaced runs lose the ordering between sessions, so a message can reach the server before its recipient
+ * has connected; expect some {@code UNKNOWN_USER} errors at {@code max}.
+ */
+public final class ReplayTool {
+
+    /** How long to wait for outstanding replies once every frame has been sent. */
+    private static final long SETTLE_MILLIS = 5_000;
+
+    /** Utility entry point; not instantiable. */
+    private ReplayTool() {
+    }
+
+    /** Prints CLI usage for the replay tool. */
+    private static void printUsage() {
+        System.out.println("Usage: java -cp <server-jar> edu.merrimack.simplechat.tools.ReplayTool --capture <dir> [options]");
+        System.out.println("Options:");
+        System.out.println("  --capture <path>       Capture directory (or one segment file) to replay");
+        System.out.println("  --host <hostname>      Server host, or unix:<path> (default 127.0.0.1)");
+        System.out.println("  --port <port>          Server port (default 9000)");
+        System.out.println("  --speed <n|max>        Replay at n times the captured rate, or max for no pacing (default 1)");
+        System.out.println("  --threads <n>          Threads sending frames (default 16)");
+        System.out.println("  --help                 Show this help and exit");
+    }
+
+    /**
+     * Parses options, replays the capture, and prints a summary.
+     */
+    public static void main(String[] args) throws Exception {
+        Path capture = null;
+        String host = "127.0.0.1";
+        int port = 9000;
+        double speed = 1;
+        int threads = 16;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--capture":
+                    capture = Path.of(args[++i]);
+                    break;
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--speed":
+                    speed = parseSpeed(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--help":
+                    printUsage();
+                    return;
+                default:
+                    System.err.println("Unknown arg: " + args[i]);
+                    printUsage();
+                    return;
+            }
+        }
+        if (capture == null) {
+            printUsage();
+            return;
+        }
+
+        try (CaptureReader reader = new CaptureReader(capture)) {
+            Report report = replay(reader, Transport.forHost(host), host, port, speed, threads);
+            report.print(System.out);
+        }
+    }
+
+    /** Parses {@code max}, {@code 4}, or {@code 4x}; 0 means unpaced. */
+    static double parseSpeed(String value) {
+        if (value.equalsIgnoreCase("max")) {
+            return 0;
+        }
+        double speed = Double.parseDouble(value.endsWith("x") ? value.substring(0, value.length() - 1) : value);
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Speed must be positive or max");
+        }
+        return speed;
+    }
+
+    /**
+     * Replays every record from {@code reader} against {@code host}:{@code port}, pacing by {@code speed}
+     * (0 for unpaced) and sending on {@code threads} threads.
+     */
+    static Report replay(CaptureReader reader, Transport transport, String host, int port, double speed,
+                         int threads) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "replay-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        Stats stats = new Stats();
+        Map<Integer, Session> sessions = new HashMap<>();
+        List<CompletableFuture<Void>> tails = new ArrayList<>();
+
+        long start = System.nanoTime();
+        long firstNanos = -1;
+        long lastNanos = 0;
+        CaptureRecord record;
+        while ((record = reader.next()) != null) {
+            if (firstNanos < 0) {
+                firstNanos = record.getNanos();
+            }
+            lastNanos = record.getNanos();
+            long due = speed == 0 ? System.nanoTime() : start + (long) ((record.getNanos() - firstNanos) / speed);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Session session = sessions.computeIfAbsent(record.getSession(),
+                    id -> new Session(transport, host, port, stats));
+            CaptureRecord next = record;
+            session.tail = session.tail.thenRunAsync(() -> session.deliver(next, due), pool);
+        }
+        for (Session session : sessions.values()) {
+            tails.add(session.tail);
+        }
+        CompletableFuture.allOf(tails.toArray(CompletableFuture<?>[]::new)).join();
+        long sentNanos = System.nanoTime() - start;
+
+        long settleDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SETTLE_MILLIS);
+        while (System.nanoTime() < settleDeadline && sessions.values().stream().anyMatch(Session::awaitingReplies)) {
+            Thread.sleep(10);
+        }
+        for (Session session : sessions.values()) {
+            session.finish();
+        }
+        pool.shutdown();
+        return new Report(stats, sessions.size(), firstNanos < 0 ? 0 : lastNanos - firstNanos, sentNanos);
+    }
+
+    /** One captured session replayed over its own connection. */
+    private static final class Session {
+        private final Transport transport;
+        private final String host;
+        private final int port;
+        private final Stats stats;
+        private final Map<String, Long> pending = new ConcurrentHashMap<>();
+        /** Last delivery chained for this session; touched only by the dispatcher thread. */
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private volatile Connection connection;
+        private volatile long connectSentAt;
+        private boolean failed;
+
+        private Session(Transport transport, String host, int port, Stats stats) {
+            this.transport = transport;
+            this.host = host;
+            this.port = port;
+            this.stats = stats;
+        }
+
+        /** Sends a captured frame or closes the connection; runs on a sender thread, one at a time. */
+        void deliver(CaptureRecord record, long due) {
+            if (failed) {
+                return;
+            }
+            if (record.getKind() == CaptureRecord.Kind.CLOSE) {
+                close();
+                return;
+            }
+            try {
+                if (connection == null) {
+                    connection = transport.connect(host, port);
+                    Thread reader = new Thread(this::readReplies, "replay-reader");
+                    reader.setDaemon(true);
+                    reader.start();
+                }
+                String json = new String(record.getPayload(), ProtocolConstants.UTF8);
+                track(json);
+                long now = System.nanoTime();
+                connection.write(Framing.frame(json));
+                stats.lag.add(Math.max(0, now - due));
+                stats.sent.incrementAndGet();
+            } catch (IOException e) {
+                failed = true;
+                stats.failedSessions.incrementAndGet();
+                close();
+            }
+        }
+
+        /** Notes when a handshake or correlated request was sent so its reply can be timed. */
+        private void track(String json) {
+            BaseMessage msg;
+            try {
+                msg = MessageParser.parse(json);
+            } catch (InvalidObjectException e) {
+                return;
+            }
+            if (msg.getType() == MessageType.CONNECT) {
+                connectSentAt = System.nanoTime();
+            } else if (msg.getRequestId() != null) {
+                pending.put(msg.getRequestId(), System.nanoTime());
+            }
+        }
+
+        /** Reads the server's replies until the connection closes, timing the ones that match a request. */
+        private void readReplies() {
+            Connection conn = connection;
+            try {
+                String json;
+                while ((json = conn.readFrame()) != null) {
+                    stats.received.incrementAndGet();
+                    long now = System.nanoTime();
+                    BaseMessage msg;
+                    try {
+                        msg = MessageParser.parse(json);
+                    } catch (InvalidObjectException e) {
+                        continue;
+                    }
+                    if (msg.getType() == MessageType.CONNECT_ACK) {
+                        stats.handshakes.add(now - connectSentAt);
+                    } else if (msg.getType() == MessageType.ERROR) {
+                        stats.errors.incrementAndGet();
+                    }
+                    Long sentAt = msg.getRequestId() == null ? null : pending.remove(msg.getRequestId());
+                    if (sentAt != null) {
+                        stats.requests.add(now - sentAt);
+                    }
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        /** Whether correlated requests are still waiting for a reply. */
+        boolean awaitingReplies() {
+            Connection conn = connection;
+            return conn != null && !conn.isClosed() && !pending.isEmpty();
+        }
+
+        /**
+         * Disconnects a session the capture left open, so a resume grace period on the server does not keep
+         * its username taken for the next run.
+         */
+        void finish() {
+            Connection conn = connection;
+            if (conn != null && !conn.isClosed()) {
+                try {
+                    conn.write(Framing.frame(new DisconnectMessage("replay_complete").serialize()));
+                } catch (IOException ignored) {
+                }
+            }
+            close();
+        }
+
+        void close() {
+            Connection conn = connection;
+            if (conn != null) {
+                conn.close();
+            }
+        }
+    }
+
+    /** Counters and latency samples shared by every session. */
+    private static final class Stats {
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicInteger errors = new AtomicInteger();
+        private final AtomicInteger failedSessions = new AtomicInteger();
+        private final Samples lag = new Samples();
+        private final Samples handshakes = new Samples();
+        private final Samples requests = new Samples();
+    }
+
+    /** Growable list of nanosecond samples. */
+    private static final class Samples {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /** Summary of a replay run. */
+    static final class Report {
+        private final int sessions;
+        private final long sent;
+        private final long received;
+        private final int errors;
+        private final int failedSessions;
+        private final long capturedNanos;
+        private final long replayedNanos;
+        private final long[] lag;
+        private final long[] handshakes;
+        private final long[] requests;
+
+        private Report(Stats stats, int sessions, long capturedNanos, long replayedNanos) {
+            this.sessions = sessions;
+            this.sent = stats.sent.get();
+            this.received = stats.received.get();
+            this.errors = stats.errors.get();
+            this.failedSessions = stats.failedSessions.get();
+            this.capturedNanos = capturedNanos;
+            this.replayedNanos = replayedNanos;
+            this.lag = stats.lag.sorted();
+            this.handshakes = stats.handshakes.sorted();
+            this.requests = stats.requests.sorted();
+        }
+
+        /** Prints throughput, pacing, and latency percentiles. */
+        void print(PrintStream out) {
+            double seconds = replayedNanos / 1e9;
+            out.printf("Sessions: %d (%d failed); frames sent %d, received %d, errors %d%n",
+                    sessions, failedSessions, sent, received, errors);
+            out.printf("Replayed %.2f s of traffic in %.2f s: %.0f frames/s%n",
+                    capturedNanos / 1e9, seconds, sent / Math.max(seconds, 1e-9));
+            printLatency(out, "Send lag behind schedule", lag);
+            printLatency(out, "Handshake latency", handshakes);
+            printLatency(out, "Request latency", requests);
+        }
+
+        private static void printLatency(PrintStream out, String label, long[] sorted) {
+            if (sorted.length == 0) {
+                return;
+            }
+            out.printf("%s ms (%d): p50=%.2f p99=%.2f max=%.2f%n", label, sorted.length,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+        }
+
+        /** Value at quantile {@code q} in milliseconds. */
+        private static double percentile(long[] sorted, double q) {
+            int idx = (int) Math.min(sorted.length - 1, Math.floor(q * sorted.length));
+            return sorted[idx] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package edu.merrimack.simplechat.tools;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.config.ServerConfig;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.TcpTransport;
+import edu.merrimack.simplechat.common.transport.Transport;
+import edu.merrimack.simplechat.common.transport.UnixTransport;
+import edu.merrimack.simplechat.server.ChatServer;
+import merrimackutil.json.JsonIO;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares loopback TCP with a Unix domain socket: starts a server listening on both, then measures
+ * request round-trip latency and pipelined message throughput over each.
+ *
+ * <p>Every request is a direct message to the sender itself carrying a {@code requestId}, so it travels
+ * the full chat path and completes when the server's {@code ACK} comes back.
+ */
+public final class TransportBenchmark {
+
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    /** Utility entry point; not instantiable. */
+    private TransportBenchmark() {
+    }
+
+    /** Prints CLI usage for the benchmark. */
+    private static void printUsage() {
+        System.out.println("Usage: java -cp <server-jar> edu.merrimack.simplechat.tools.TransportBenchmark [options]");
+        System.out.println("Options:");
+        System.out.println("  --round-trips <n>      Sequential requests timed for latency (default 20000)");
+        System.out.println("  --messages <n>         Pipelined requests per session for throughput (default 50000)");
+        System.out.println("  --sessions <n>         Sessions sending in parallel for throughput (default 4)");
+        System.out.println("  --size <bytes>         Message content length (default 64)");
+        System.out.println("  --help                 Show this help and exit");
+    }
+
+    /**
+     * Parses options, runs both transports against an in-process server, and prints a summary of each.
+     */
+    public static void main(String[] args) throws Exception {
+        int roundTrips = 20_000;
+        int messages = 50_000;
+        int sessions = 4;
+        int size = 64;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--round-trips":
+                    roundTrips = Integer.parseInt(args[++i]);
+                    break;
+                case "--messages":
+                    messages = Integer.parseInt(args[++i]);
+                    break;
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--help":
+                    printUsage();
+                    return;
+                default:
+                    System.err.println("Unknown arg: " + args[i]);
+                    printUsage();
+                    return;
+            }
+        }
+
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        Path dir = Files.createTempDirectory("simplechat-bench");
+        Path socket = dir.resolve("chat.sock");
+        ServerConfig config = new ServerConfig();
+        config.deserialize(JsonIO.readObject("{\"port\": " + port + ", \"logFile\": \"bench.log\","
+                + " \"maxClients\": " + (sessions * 4 + 16) + ", \"unixSocketPath\": \"" + socket + "\","
+                + " \"resumeGraceSeconds\": 0, \"rateLimits\": {\"enabled\": false}}"));
+        ChatServer server = new ChatServer(config);
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                System.err.println("Server failed: " + e.getMessage());
+            }
+        }, "bench-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        String content = "x".repeat(size);
+        Transport tcp = new TcpTransport();
+        Transport unix = new UnixTransport(socket);
+        try {
+            awaitListening(tcp, port);
+            awaitListening(unix, port);
+            for (int pass = 0; pass < 2; pass++) {
+                boolean warmup = pass == 0;
+                Report tcpReport = run("tcp", tcp, port, warmup ? roundTrips / 10 : roundTrips,
+                        warmup ? messages / 10 : messages, sessions, content);
+                Report unixReport = run("unix", unix, port, warmup ? roundTrips / 10 : roundTrips,
+                        warmup ? messages / 10 : messages, sessions, content);
+                if (!warmup) {
+                    tcpReport.print(System.out);
+                    unixReport.print(System.out);
+                }
+            }
+        } finally {
+            server.drain("benchmark_done", 1000);
+            Files.deleteIfExists(socket);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /** Retries connecting until the server's listener for {@code transport} is up. */
+    private static void awaitListening(Transport transport, int port) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (true) {
+            try {
+                transport.connect("127.0.0.1", port).close();
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    /** Measures latency with one session, then throughput with {@code sessions} in parallel. */
+    static Report run(String name, Transport transport, int port, int roundTrips, int messages, int sessions,
+                      String content) throws Exception {
+        String prefix = "bench-" + name + "-" + RUNS.incrementAndGet();
+        long[] latencies = new long[roundTrips];
+        try (Session session = Session.open(transport, port, prefix + "-rtt")) {
+            for (int i = 0; i < roundTrips; i++) {
+                long t0 = System.nanoTime();
+                session.request(i, content);
+                session.awaitAck();
+                latencies[i] = System.nanoTime() - t0;
+            }
+        }
+
+        List<Session> open = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            open.add(Session.open(transport, port, prefix + "-" + s));
+        }
+        CountDownLatch done = new CountDownLatch(sessions);
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (Session session : open) {
+            Thread reader = new Thread(() -> {
+                try {
+                    for (int i = 0; i < messages; i++) {
+                        session.awaitAck();
+                    }
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                }
+                done.countDown();
+            }, "bench-reader");
+            reader.start();
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < messages; i++) {
+                        session.request(i, content);
+                    }
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                }
+            }, "bench-writer").start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        for (Session session : open) {
+            session.close();
+        }
+        return new Report(name, latencies, (long) messages * sessions, elapsed, failures.get());
+    }
+
+    /** One benchmark session speaking the protocol directly over a connection. */
+    private static final class Session implements AutoCloseable {
+        private final Connection connection;
+        private final String username;
+
+        private Session(Connection connection, String username) {
+            this.connection = connection;
+            this.username = username;
+        }
+
+        /** Connects and completes the handshake. */
+        static Session open(Transport transport, int port, String username) throws IOException {
+            Connection connection = transport.connect("127.0.0.1", port);
+            connection.write(Framing.frame(new ConnectMessage(username, username).serialize()));
+            BaseMessage ack = parse(connection.readFrame());
+            if (ack.getType() != MessageType.CONNECT_ACK) {
+                connection.close();
+                throw new IOException("Handshake failed: " + ack.getType());
+            }
+            return new Session(connection, username);
+        }
+
+        /** Sends a direct message to this session's own user, tagged with a request id. */
+        void request(int id, String content) throws IOException {
+            ChatMessage chat = new ChatMessage(username, username, true, content);
+            chat.setRequestId(Integer.toString(id));
+            connection.write(Framing.frame(chat.serialize()));
+        }
+
+        /** Reads past the echoed direct message until the next {@code ACK}. */
+        void awaitAck() throws IOException {
+            while (true) {
+                BaseMessage msg = parse(connection.readFrame());
+                if (msg.getType() == MessageType.ACK) {
+                    return;
+                }
+                if (msg.getType() == MessageType.ERROR) {
+                    throw new IOException("Server error: " + msg.serialize());
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                connection.write(Framing.frame(new DisconnectMessage("bench_done").serialize()));
+            } catch (IOException ignored) {
+            }
+            connection.close();
+        }
+
+        private static BaseMessage parse(String json) throws IOException {
+            if (json == null) {
+                throw new IOException("Server closed the connection");
+            }
+            return MessageParser.parse(json);
+        }
+    }
+
+    /** Results for one transport. */
+    static final class Report {
+        private final String name;
+        private final long[] latencies;
+        private final long messages;
+        private final long elapsedNanos;
+        private final int failures;
+
+        Report(String name, long[] latencies, long messages, long elapsedNanos, int failures) {
+            this.name = name;
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.messages = messages;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = failures;
+        }
+
+        /** Prints latency percentiles and throughput. */
+        void print(PrintStream out) {
+            if (latencies.length > 0) {
+                out.printf("%-5s round trip us: p50=%.1f p99=%.1f max=%.1f%n", name,
+                        percentile(0.50), percentile(0.99), latencies[latencies.length - 1] / 1e3);
+            }
+            out.printf("%-5s throughput: %.0f msg/s (%d messages, %d failed sessions)%n", name,
+                    messages / (elapsedNanos / 1e9), messages, failures);
+        }
+
+        /** Latency at quantile {@code q} in microseconds. */
+        private double percentile(double q) {
+            int idx = (int) Math.min(latencies.length - 1, Math.floor(q * latencies.length));
+            return latencies[idx] / 1e3;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.ListUsersMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.Listener;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the blocking client's handling of a lost connection.
+ */
+public class ChatClientTest {
+
+    @Test
+    /** Without a resume token a dropped connection fails the event stream and outstanding requests at once. */
+    void failsStreamAndRequestsWithoutResumeToken() throws Exception {
+        MemoryTransport transport = new MemoryTransport();
+        Listener listener = transport.listen(9000, 0, false);
+        Thread pump = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (transport.runUntilIdle() == 0) {
+                    Thread.onSpinWait();
+                }
+            }
+        }, "memory-pump");
+        pump.setDaemon(true);
+        pump.start();
+
+        ChatClient client = new ChatClient(transport, "localhost", 9000, "alice", 16, ClientEvents.Overflow.BLOCK);
+        client.setRequestTimeout(60_000);
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        client.events().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(BaseMessage item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                failure.complete(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                failure.completeExceptionally(new AssertionError("stream completed normally"));
+            }
+        });
+
+        CompletableFuture<Void> connected = CompletableFuture.runAsync(() -> {
+            try {
+                client.connect();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Connection server = listener.accept();
+        assertEquals(MessageType.CONNECT, MessageParser.parse(server.readFrame()).getType());
+        server.write(Framing.frame(new ConnectAckMessage("OK", "welcome").serialize()));
+        connected.get(5, TimeUnit.SECONDS);
+
+        CompletableFuture<BaseMessage> request = client.request(new ListUsersMessage());
+        assertEquals(MessageType.LIST_USERS, MessageParser.parse(server.readFrame()).getType());
+        server.close();
+
+        assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof IOException);
+        ExecutionException pending = assertThrows(ExecutionException.class, () -> request.get(5, TimeUnit.SECONDS));
+        assertTrue(pending.getCause() instanceof IOException);
+        pump.interrupt();
+        listener.close();
+    }
+}
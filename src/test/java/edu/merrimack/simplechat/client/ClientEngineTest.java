@@ -0,0 +1,170 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.config.ServerConfig;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ListUsersMessage;
+import edu.merrimack.simplechat.common.protocol.UserListMessage;
+import edu.merrimack.simplechat.server.ChatServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs several engine sessions on one selector thread against a real server.
+ */
+public class ClientEngineTest {
+
+    private static final int BROADCASTS = 8;
+
+    @Test
+    /**
+     * Round-trips requests and chat on every session, and pauses reading only for the session whose
+     * subscriber falls behind.
+     */
+    void sessionsShareLoopWithoutSlowingEachOther() throws Exception {
+        int port = freePort();
+        ChatServer server = startServer(port);
+        try (ClientEngine engine = new ClientEngine(1)) {
+            EngineSession alice = engine.newSession("localhost", port, "alice");
+            EngineSession fast = engine.newSession("localhost", port, "fast");
+            EngineSession slow = engine.newSession("localhost", port, "slow", 4, ClientEvents.Overflow.BLOCK);
+            Collector fastChat = new Collector(Long.MAX_VALUE);
+            Collector aliceChat = new Collector(Long.MAX_VALUE);
+            Collector slowChat = new Collector(0);
+            fast.events().chat().subscribe(fastChat);
+            alice.events().directMessages().subscribe(aliceChat);
+            slow.events().chat().subscribe(slowChat);
+            connect(alice);
+            connect(fast);
+            connect(slow);
+
+            UserListMessage users = fast.listUsersAsync(new ListUsersMessage()).get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("alice", "fast", "slow"), users.getUsers());
+            fast.sendDirectAsync("alice", "hi alice").get(5, TimeUnit.SECONDS);
+            assertEquals("hi alice", aliceChat.await(1).get(0).getContent());
+
+            for (int i = 0; i < BROADCASTS; i++) {
+                alice.sendChatToAllAsync("m" + i).get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(BROADCASTS, fastChat.await(BROADCASTS).size());
+            assertEquals(0, slowChat.received.size());
+            fast.sendDirectAsync("alice", "still here").get(5, TimeUnit.SECONDS);
+            assertEquals("still here", aliceChat.await(2).get(1).getContent());
+
+            slowChat.subscription.request(Long.MAX_VALUE);
+            assertEquals(BROADCASTS, slowChat.await(BROADCASTS).size());
+            alice.disconnect();
+            fast.disconnect();
+            slow.disconnect();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    /** Fails the handshake and an early subscriber's stream when the server cannot be reached. */
+    void failedConnectFailsEventStream() throws Exception {
+        try (ClientEngine engine = new ClientEngine(1)) {
+            EngineSession session = engine.newSession("localhost", freePort(), "alice");
+            Collector events = new Collector(Long.MAX_VALUE);
+            session.events().subscribe(events);
+            ExecutionException failed = assertThrows(ExecutionException.class,
+                    () -> session.connectAsync().get(5, TimeUnit.SECONDS));
+            assertTrue(failed.getCause() instanceof IOException);
+            assertTrue(events.error.get(5, TimeUnit.SECONDS) instanceof IOException);
+        }
+    }
+
+    /** A port nothing is listening on. */
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    /** Starts a server on {@code port} in the background and waits until it accepts connections. */
+    private static ChatServer startServer(int port) throws InterruptedException {
+        ChatServer server = new ChatServer(new ServerConfig(port, "test.log", 10));
+        Thread runner = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "engine-test-server");
+        runner.start();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                new Socket("localhost", port).close();
+                return server;
+            } catch (IOException e) {
+                Thread.sleep(20);
+            }
+        }
+        throw new AssertionError("Server did not start listening on port " + port);
+    }
+
+    /** Connects {@code session} and waits for the handshake. */
+    private static void connect(EngineSession session) throws Exception {
+        session.connectAsync().get(5, TimeUnit.SECONDS);
+    }
+
+    /** Records chat messages, requesting {@code initialDemand} up front. */
+    private static final class Collector implements Flow.Subscriber<BaseMessage> {
+        private final long initialDemand;
+        private final List<ChatMessage> received = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Throwable> error = new CompletableFuture<>();
+        private volatile Flow.Subscription subscription;
+
+        private Collector(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(BaseMessage item) {
+            if (item instanceof ChatMessage) {
+                received.add((ChatMessage) item);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        /** Waits up to five seconds for {@code count} messages and returns what has arrived. */
+        private List<ChatMessage> await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (received.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return received;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the client's backpressured event stream.
+ */
+public class ClientEventsTest {
+
+    @Test
+    /** A typed stream sees only its messages, one per request, without other types consuming demand. */
+    void typedStreamHonoursDemand() throws InterruptedException {
+        ClientEvents events = new ClientEvents(8, ClientEvents.Overflow.BLOCK);
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        events.directMessages().subscribe(new Flow.Subscriber<ChatMessage>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(ChatMessage item) {
+                received.add(item.getContent());
+                done.countDown();
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        events.publish(new ChatMessage("alice", null, false, "hello all"));
+        events.publish(new ChatMessage("alice", "bob", true, "first"));
+        events.publish(new ErrorMessage("UNKNOWN_USER", "nope"));
+        events.publish(new ChatMessage("alice", "bob", true, "second"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "second"), received);
+        events.close();
+    }
+
+    @Test
+    /** With DROP_NEWEST a subscriber that requests nothing loses messages beyond its buffer. */
+    void dropNewestCountsOverflow() {
+        ClientEvents events = new ClientEvents(1, ClientEvents.Overflow.DROP_NEWEST);
+        events.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+
+            @Override
+            public void onNext(BaseMessage item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            events.publish(new ChatMessage("alice", null, false, "m" + i));
+        }
+        assertEquals(9L, events.droppedCount());
+        events.close();
+    }
+}
@@ -0,0 +1,49 @@
+package edu.merrimack.simplechat.client;
+
+import edu.merrimack.simplechat.common.Framing;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for incremental frame decoding on non-blocking channels.
+ */
+public class FrameDecoderTest {
+
+    @Test
+    /** Reassembles frames regardless of how the byte stream is chunked. */
+    void reassemblesAcrossChunks() throws IOException {
+        ByteBuffer stream = ByteBuffer.allocate(256);
+        stream.put(Framing.frame("{\"a\":1}"));
+        stream.put(Framing.frame("{\"b\":\"" + "x".repeat(100) + "\"}"));
+        stream.put(Framing.frame("{}"));
+        stream.flip();
+        byte[] bytes = new byte[stream.remaining()];
+        stream.get(bytes);
+
+        for (int chunk = 1; chunk <= bytes.length; chunk++) {
+            FrameDecoder decoder = new FrameDecoder();
+            List<String> frames = new ArrayList<>();
+            for (int off = 0; off < bytes.length; off += chunk) {
+                decoder.decode(ByteBuffer.wrap(bytes, off, Math.min(chunk, bytes.length - off)), frames::add);
+            }
+            assertEquals(3, frames.size(), "chunk size " + chunk);
+            assertEquals("{}", frames.get(2));
+            assertEquals(0, decoder.buffered());
+        }
+    }
+
+    @Test
+    /** Rejects a length prefix larger than the frame limit. */
+    void rejectsOversizedFrame() {
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(FrameDecoder.MAX_FRAME_BYTES + 1);
+        header.flip();
+        assertThrows(IOException.class, () -> new FrameDecoder().decode(header, json -> { }));
+    }
+}
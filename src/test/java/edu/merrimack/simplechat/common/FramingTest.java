@@ -30,4 +30,12 @@ public class FramingTest {
         int length = ((framed[0] & 0xFF) << 24) | ((framed[1] & 0xFF) << 16) | ((framed[2] & 0xFF) << 8) | (framed[3] & 0xFF);
         assertEquals(json.getBytes(ProtocolConstants.UTF8).length, length);
     }
+
+    @Test
+    /** Counts payload bytes the way framing encodes them, including multi-byte and unpaired characters. */
+    void payloadLengthMatchesEncoding() {
+        for (String json : new String[] {"{}", "caf\u00e9", "\u65e5\u672c", "\ud83d\ude00", "bad \ud83d end"}) {
+            assertEquals(json.getBytes(ProtocolConstants.UTF8).length, Framing.payloadLength(json));
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package edu.merrimack.simplechat.common.capture;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for writing and reading traffic captures.
+ */
+public class CaptureWriterTest {
+
+    @Test
+    /** Reads back frames and closes in order across several trimmed segments. */
+    void roundTripsAcrossSegments() throws Exception {
+        Path dir = Files.createTempDirectory("capture-test").resolve("run");
+        try (CaptureWriter writer = new CaptureWriter(dir, 256)) {
+            for (int i = 0; i < 100; i++) {
+                writer.frame(i % 7, ("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8));
+            }
+            writer.closed(3);
+        }
+
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(dir)) {
+            segments = files.sorted().toList();
+        }
+        assertTrue(segments.size() > 1);
+        assertTrue(Files.size(segments.get(0)) < 256);
+
+        try (CaptureReader reader = new CaptureReader(dir)) {
+            long previous = 0;
+            for (int i = 0; i < 100; i++) {
+                CaptureRecord record = reader.next();
+                assertEquals(CaptureRecord.Kind.FRAME, record.getKind());
+                assertEquals(i % 7, record.getSession());
+                assertArrayEquals(("{\"n\":" + i + "}").getBytes(StandardCharsets.UTF_8), record.getPayload());
+                assertTrue(record.getNanos() >= previous);
+                previous = record.getNanos();
+            }
+            CaptureRecord close = reader.next();
+            assertEquals(CaptureRecord.Kind.CLOSE, close.getKind());
+            assertEquals(3, close.getSession());
+            assertNull(reader.next());
+        }
+
+        for (Path segment : segments) {
+            Files.delete(segment);
+        }
+        Files.delete(dir);
+        Files.delete(dir.getParent());
+    }
+}
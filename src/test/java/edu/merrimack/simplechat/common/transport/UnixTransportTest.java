@@ -0,0 +1,49 @@
+package edu.merrimack.simplechat.common.transport;
+
+import edu.merrimack.simplechat.common.Framing;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the Unix domain socket transport.
+ */
+public class UnixTransportTest {
+
+    @Test
+    /** Carries frames both ways, replaces a stale socket file, and removes the file on close. */
+    void framesRoundTrip() throws Exception {
+        Path dir = Files.createTempDirectory("uds-test");
+        Path path = dir.resolve("chat.sock");
+        Files.createFile(path);
+        UnixTransport transport = new UnixTransport(path);
+        Listener listener = transport.listen(0, 4, false);
+        try (Connection client = transport.connect("ignored", 0)) {
+            Connection server = listener.accept();
+            client.write(Framing.frame("{\"n\":1}"));
+            assertEquals("{\"n\":1}", server.readFrame());
+            server.write(Framing.frame("{\"n\":2}"));
+            assertEquals("{\"n\":2}", client.readFrame());
+            server.close();
+            assertNull(client.readFrame());
+        } finally {
+            listener.close();
+        }
+        assertFalse(Files.exists(path));
+        Files.delete(dir);
+    }
+
+    @Test
+    /** Recognises {@code unix:} hosts and takes the socket path from them. */
+    void parsesUnixHosts() {
+        assertTrue(UnixTransport.isUnixHost("unix:/run/chat.sock"));
+        assertFalse(UnixTransport.isUnixHost("127.0.0.1"));
+        assertEquals(Path.of("/run/chat.sock"), UnixTransport.forHost("unix:/run/chat.sock").getPath());
+    }
+}
@@ -1,15 +1,27 @@
 package edu.merrimack.simplechat.protocol;
 
 import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.BatchMessage;
 import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.AckMessage;
 import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.ListUsersMessage;
 import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.protocol.Negotiation;
+import edu.merrimack.simplechat.common.protocol.PresenceDeltaMessage;
+import edu.merrimack.simplechat.common.protocol.UserListMessage;
 import org.junit.jupiter.api.Test;
 
 import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Verifies that messages can round-trip through serialization and parsing.
@@ -40,4 +52,109 @@ public class MessageParserTest {
         assertEquals(original.getUsername(), connect.getUsername());
         assertNotNull(connect.getVersion());
     }
+
+    @Test
+    /** Ensures resume tokens survive a round-trip and stay optional for legacy peers. */
+    void resumeTokenRoundTrip() throws InvalidObjectException {
+        ConnectMessage connect = (ConnectMessage) MessageParser.parse(new ConnectMessage("client-1", "alice", "tok").serialize());
+        assertEquals("tok", connect.getResumeToken());
+        ConnectAckMessage ack = (ConnectAckMessage) MessageParser.parse(new ConnectAckMessage("OK", "hi", "tok2", true).serialize());
+        assertEquals("tok2", ack.getResumeToken());
+        assertTrue(ack.isResumed());
+        ConnectAckMessage legacy = (ConnectAckMessage) MessageParser.parse(new ConnectAckMessage("OK", "hi").serialize());
+        assertNull(legacy.getResumeToken());
+    }
+
+    @Test
+    /** Ensures presence deltas keep all three change lists and summarise them on one line. */
+    void presenceDeltaRoundTrip() throws InvalidObjectException {
+        PresenceDeltaMessage original = new PresenceDeltaMessage(List.of("alice", "bob"), List.of("carol"),
+                List.of(new PresenceDeltaMessage.Rename("dave", "erin")));
+        PresenceDeltaMessage delta = (PresenceDeltaMessage) MessageParser.parse(original.serialize());
+        assertEquals(List.of("alice", "bob"), delta.getJoined());
+        assertEquals(List.of("carol"), delta.getLeft());
+        assertEquals("erin", delta.getRenamed().get(0).getTo());
+        assertEquals("alice, bob joined; carol left; dave is now known as erin", delta.toSummary());
+    }
+
+    @Test
+    /** Ensures paging and delta options round-trip on LIST_USERS and USER_LIST. */
+    void userListPagingAndDeltaRoundTrip() throws InvalidObjectException {
+        ListUsersMessage page = (ListUsersMessage) MessageParser.parse(new ListUsersMessage("bob", 50).serialize());
+        assertEquals("bob", page.getCursor());
+        assertEquals(50, page.getLimit());
+        assertEquals(-1L, page.getSinceVersion());
+        UserListMessage paged = (UserListMessage) MessageParser.parse(
+                new UserListMessage(List.of("carol", "dave"), 7, 10, "dave").serialize());
+        assertEquals(7L, paged.getVersion());
+        assertEquals(10, paged.getTotal());
+        assertEquals("dave", paged.getNextCursor());
+        UserListMessage delta = (UserListMessage) MessageParser.parse(
+                new UserListMessage(9, List.of("erin"), List.of("bob")).serialize());
+        assertTrue(delta.isDelta());
+        assertEquals(List.of("erin"), delta.getAdded());
+        assertEquals(List.of("bob"), delta.getRemoved());
+    }
+
+    @Test
+    /** Ensures the optional requestId round-trips and is required on ACK. */
+    void requestIdRoundTrip() throws InvalidObjectException {
+        ListUsersMessage query = new ListUsersMessage();
+        query.setRequestId("r1");
+        assertEquals("r1", MessageParser.parse(query.serialize()).getRequestId());
+        assertEquals("r2", MessageParser.parse(new AckMessage("r2").serialize()).getRequestId());
+        assertThrows(InvalidObjectException.class, () -> MessageParser.parse(new AckMessage(null).serialize()));
+    }
+
+    @Test
+    /** Ensures version ranges and negotiated capabilities round-trip while legacy handshakes stay valid. */
+    void negotiationRoundTrip() throws InvalidObjectException {
+        ConnectMessage connect = (ConnectMessage) MessageParser.parse(
+                new ConnectMessage("client-1", "alice", null, List.of("transfers", "heartbeat")).serialize());
+        assertEquals("1.0", connect.getVersion());
+        assertEquals("1.1", connect.getMaxVersion());
+        ConnectMessage legacy = (ConnectMessage) MessageParser.parse(
+                "{\"type\": \"CONNECT\", \"timestamp\": 1, \"clientId\": \"c\", \"version\": \"1.0\"}");
+        assertNull(legacy.getMaxVersion());
+        assertThrows(InvalidObjectException.class, () -> MessageParser.parse(
+                "{\"type\": \"CONNECT\", \"timestamp\": 1, \"clientId\": \"c\", \"version\": \"1.1\","
+                        + " \"maxVersion\": \"1.0\"}"));
+
+        ConnectAckMessage ack = (ConnectAckMessage) MessageParser.parse(
+                new ConnectAckMessage("OK", "hi", null, false, "1.1", List.of("transfers")).serialize());
+        assertEquals("1.1", ack.getVersion());
+        assertEquals(List.of("transfers"), ack.getCapabilities());
+        assertNull(((ConnectAckMessage) MessageParser.parse(new ConnectAckMessage("OK", "hi").serialize())).getVersion());
+
+        assertEquals("1.10", Negotiation.version("1.0", "2.0", "1.2", "1.10"));
+        assertNull(Negotiation.version("2.0", "2.3", "1.0", "1.1"));
+        assertEquals(List.of("transfers"), Negotiation.capabilities(List.of("heartbeat", "transfers", "transfers"),
+                List.of("presence-delta", "transfers")));
+    }
+
+    @Test
+    /** Ensures batches keep their messages in order and refuse oversized or nested contents. */
+    void batchRoundTrip() throws InvalidObjectException {
+        ChatMessage first = new ChatMessage("alice", "bob", true, "one");
+        first.setRequestId("r1");
+        BatchMessage batch = new BatchMessage(List.of(first, new ListUsersMessage()));
+        batch.setRequestId("b1");
+        BatchMessage parsed = (BatchMessage) MessageParser.parse(batch.serialize());
+        assertEquals("b1", parsed.getRequestId());
+        assertEquals(2, parsed.getMessages().size());
+        assertEquals("r1", parsed.getMessages().get(0).getRequestId());
+        assertEquals("one", ((ChatMessage) parsed.getMessages().get(0)).getContent());
+        assertTrue(parsed.getMessages().get(1) instanceof ListUsersMessage);
+
+        List<BaseMessage> tooMany = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            tooMany.add(new ListUsersMessage());
+        }
+        assertThrows(InvalidObjectException.class, () -> MessageParser.parse(new BatchMessage(tooMany).serialize()));
+        InvalidObjectException nested = assertThrows(InvalidObjectException.class, () -> MessageParser.parse(
+                new BatchMessage(List.of(new BatchMessage(tooMany))).serialize()));
+        assertTrue(nested.getMessage().endsWith("BATCH cannot be batched"), nested.getMessage());
+        assertThrows(InvalidObjectException.class, () -> MessageParser.parse(
+                new BatchMessage(List.of(new ConnectMessage("c", "alice", null, List.of()))).serialize()));
+    }
 }
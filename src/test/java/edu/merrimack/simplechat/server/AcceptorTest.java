@@ -0,0 +1,112 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.NetUtil;
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.transport.TcpTransport;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.merrimack.simplechat.server.ServerFixture.config;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spreads TCP connections over several acceptors and stops them all on shutdown.
+ */
+public class AcceptorTest {
+
+    private static final int ACCEPTORS = 4;
+    private static final int CLIENTS = 40;
+
+    @Test
+    /** Accepts on every acceptor's socket, counts each handshake once, and releases the port on stop. */
+    void acceptorsShareConnectionsAndStop() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        ChatServer server = new ChatServer(config(port, "\"maxClients\": 100, \"acceptorThreads\": " + ACCEPTORS
+                + ", \"drainTimeoutSeconds\": 1, \"presenceWindowMs\": 3600000, \"rateLimits\": {\"enabled\": false}"));
+        Thread runner = new Thread(() -> {
+            try {
+                server.start();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "acceptor-test-server");
+        runner.start();
+
+        List<Socket> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            Socket socket = connect(port);
+            clients.add(socket);
+            socket.getOutputStream().write(Framing.frame(new ConnectMessage("c" + i, "user" + i).serialize()));
+            ConnectAckMessage ack = (ConnectAckMessage) MessageParser.parse(Framing.readFrame(socket.getInputStream()));
+            assertEquals("OK", ack.getStatus());
+        }
+
+        List<Acceptor> acceptors = server.getAcceptors();
+        assertEquals(ACCEPTORS, acceptors.size());
+        long accepted = 0;
+        int busy = 0;
+        for (Acceptor acceptor : acceptors) {
+            accepted += acceptor.getAccepted();
+            if (acceptor.getAccepted() > 0) {
+                busy++;
+            }
+        }
+        assertEquals(CLIENTS, accepted);
+        assertEquals(CLIENTS, handshakes(acceptors));
+        if (new TcpTransport().supportsReusePort()) {
+            assertTrue(busy > 1, "all connections reached one acceptor");
+        }
+
+        for (Socket socket : clients) {
+            NetUtil.closeQuietly(socket);
+        }
+        server.stop();
+        runner.join(10_000);
+        assertFalse(runner.isAlive());
+        assertThrows(ConnectException.class, () -> new Socket("127.0.0.1", port).close());
+    }
+
+    /** Handshakes counted over all acceptors, waiting briefly for ones recorded just after their ack. */
+    private static long handshakes(List<Acceptor> acceptors) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (true) {
+            long total = 0;
+            for (Acceptor acceptor : acceptors) {
+                total += acceptor.getHandshakes();
+            }
+            if (total >= CLIENTS || System.nanoTime() > deadline) {
+                return total;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /** Connects to the server, retrying while it is still binding its sockets. */
+    private static Socket connect(int port) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket("127.0.0.1", port);
+            } catch (ConnectException e) {
+                if (attempt == 100) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+}
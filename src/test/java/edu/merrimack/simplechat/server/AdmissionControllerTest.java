@@ -0,0 +1,117 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.merrimack.simplechat.server.ServerFixture.next;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Holds live connections to the configured capacity, however many arrive at once.
+ */
+public class AdmissionControllerTest {
+
+    private static final int CAPACITY = 8;
+    private static final int THREADS = 16;
+
+    @Test
+    /** Never hands out more slots than the capacity while many threads reserve and release at once. */
+    void concurrentReservationsNeverExceedCapacity() throws Exception {
+        AdmissionController admission = new AdmissionController(CAPACITY, 0, 0);
+        AtomicInteger live = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger held = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 5_000; i++) {
+                    if (admission.tryReserve()) {
+                        peak.accumulateAndGet(live.incrementAndGet(), Math::max);
+                        live.decrementAndGet();
+                        admission.release();
+                    }
+                }
+                while (admission.tryReserve()) {
+                    held.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(peak.get() <= CAPACITY, "peak " + peak.get());
+        assertEquals(CAPACITY, held.get());
+        assertEquals(CAPACITY, admission.reservedCount());
+    }
+
+    @Test
+    /** Gives a freed slot to the oldest parked connection rather than to a new arrival. */
+    void parkedConnectionsGoFirst() throws Exception {
+        MemoryTransport transport = new MemoryTransport();
+        transport.listen(9000, 0, false);
+        AdmissionController admission = new AdmissionController(1, 2, 60_000);
+        assertTrue(admission.tryReserveNew());
+        MemoryConnection parked = (MemoryConnection) transport.connect("localhost", 9000);
+        assertFalse(admission.tryReserveNew());
+        assertTrue(admission.enqueue(parked));
+
+        admission.release();
+        assertFalse(admission.tryReserveNew());
+        List<Connection> expired = new ArrayList<>();
+        assertSame(parked, admission.admitNext(expired));
+        assertTrue(expired.isEmpty());
+        assertFalse(admission.tryReserve());
+        admission.release();
+        assertTrue(admission.tryReserveNew());
+    }
+
+    @Test
+    /** Counts connections that have not finished their handshake, and frees their slot when they close. */
+    void handshakingConnectionsHoldSlots() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, "\"maxClients\": 2, \"presenceWindowMs\": 3600000");
+
+        MemoryConnection first = (MemoryConnection) transport.connect("localhost", 9000);
+        MemoryConnection second = (MemoryConnection) transport.connect("localhost", 9000);
+        MemoryConnection third = (MemoryConnection) transport.connect("localhost", 9000);
+        transport.runUntilIdle();
+        assertNull(first.pollFrame());
+        assertEquals("SERVER_BUSY", ((ErrorMessage) next(third)).getCode());
+        assertTrue(third.isEndOfStream());
+
+        first.close();
+        transport.runUntilIdle();
+        MemoryConnection fourth = (MemoryConnection) transport.connect("localhost", 9000);
+        send(fourth, new ConnectMessage("c4", "dora"));
+        send(second, new ConnectMessage("c2", "bea"));
+        transport.runUntilIdle();
+        assertEquals("OK", ((ConnectAckMessage) next(fourth)).getStatus());
+        assertEquals("OK", ((ConnectAckMessage) next(second)).getStatus());
+        server.stop();
+    }
+}
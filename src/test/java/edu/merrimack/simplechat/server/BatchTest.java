@@ -0,0 +1,124 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.BatchMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.TransferCancelMessage;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.frames;
+import static edu.merrimack.simplechat.server.ServerFixture.next;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Handles {@code BATCH} requests and groups deliveries for clients that negotiated {@code batch}.
+ */
+public class BatchTest {
+
+    @Test
+    /** Handles each message of a batch in order and answers with one batch of the replies, tagged per item. */
+    void handlesBatchedRequests() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection alice = connect(transport, "alice", List.of());
+        MemoryConnection bob = connect(transport, "bob", List.of());
+
+        ChatMessage lost = new ChatMessage("alice", "nobody", true, "hello?");
+        lost.setRequestId("r2");
+        BatchMessage batch = new BatchMessage(List.of(new ChatMessage("alice", "bob", true, "one"), lost,
+                new ChatMessage("alice", "bob", true, "two")));
+        batch.setRequestId("b1");
+        send(alice, batch);
+        transport.runUntilIdle();
+
+        BatchMessage answer = (BatchMessage) next(alice);
+        assertEquals("b1", answer.getRequestId());
+        assertEquals(1, answer.getMessages().size());
+        ErrorMessage error = (ErrorMessage) answer.getMessages().get(0);
+        assertEquals("UNKNOWN_USER", error.getCode());
+        assertEquals("r2", error.getRequestId());
+        assertNull(alice.pollFrame());
+        assertEquals(List.of("one", "two"), contents(bob));
+        server.stop();
+    }
+
+    @Test
+    /** Refuses transfer traffic inside a batch, which must travel in its own frames. */
+    void refusesBatchedTransfers() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection alice = connect(transport, "alice", List.of());
+        connect(transport, "bob", List.of());
+
+        send(alice, new BatchMessage(List.of(new TransferCancelMessage("t1", "alice", "bob", "changed my mind"))));
+        transport.runUntilIdle();
+
+        BatchMessage answer = (BatchMessage) next(alice);
+        assertEquals("NOT_ALLOWED", ((ErrorMessage) answer.getMessages().get(0)).getCode());
+        server.stop();
+    }
+
+    @Test
+    /** Groups the messages replayed to a resumed client that negotiated batching into {@code BATCH} frames. */
+    void coalescesDeliveries() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection alice = connect(transport, "alice", List.of());
+        MemoryConnection bob = (MemoryConnection) transport.connect("localhost", 9000);
+        send(bob, new ConnectMessage("c-bob", "bob", null, List.of("batch")));
+        transport.runUntilIdle();
+        String token = ((ConnectAckMessage) next(bob)).getResumeToken();
+        bob.close();
+        transport.runUntilIdle();
+
+        List<String> sent = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sent.add("msg " + i);
+            send(alice, new ChatMessage("alice", "bob", true, "msg " + i));
+        }
+        transport.runUntilIdle();
+        MemoryConnection resumed = (MemoryConnection) transport.connect("localhost", 9000);
+        send(resumed, new ConnectMessage("c-bob", "bob", token, List.of("batch")));
+        transport.runUntilIdle();
+
+        assertTrue(((ConnectAckMessage) next(resumed)).isResumed());
+        List<BaseMessage> delivered = frames(resumed);
+        assertTrue(delivered.size() < sent.size());
+        assertEquals(sent, contents(delivered));
+        server.stop();
+    }
+
+    /** The chat texts a client has been sent, unpacking batches. */
+    private static List<String> contents(MemoryConnection client) throws Exception {
+        return contents(frames(client));
+    }
+
+    /** The chat texts in {@code frames}, unpacking batches. */
+    private static List<String> contents(List<BaseMessage> frames) {
+        List<String> texts = new ArrayList<>();
+        for (BaseMessage message : frames) {
+            List<BaseMessage> items = message instanceof BatchMessage
+                    ? ((BatchMessage) message).getMessages() : List.of(message);
+            for (BaseMessage item : items) {
+                if (item instanceof ChatMessage) {
+                    texts.add(((ChatMessage) item).getContent());
+                }
+            }
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,114 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.config.ServerConfig;
+import edu.merrimack.simplechat.common.protocol.UserListMessage;
+import edu.merrimack.simplechat.common.transport.TcpTransport;
+import org.junit.jupiter.api.Test;
+
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the registry's prefix index and change tracking.
+ */
+public class ClientRegistryTest {
+
+    private final ChatServer server = new ChatServer(new ServerConfig(0, "test.log", 10));
+
+    /** Creates an unconnected handler to bind names to. */
+    private ClientHandler handler() {
+        return new ClientHandler(new TcpTransport.TcpConnection(new Socket()), server, null);
+    }
+
+    @Test
+    /** Returns only names with the prefix, in order, paging with the returned cursor. */
+    void prefixLookupPages() {
+        ClientRegistry registry = new ClientRegistry();
+        for (String name : List.of("alice", "albert", "alfred", "bob", "al")) {
+            assertTrue(registry.register(name, handler()));
+        }
+        UserListMessage first = registry.findByPrefix("al", null, 2);
+        assertEquals(List.of("al", "albert"), first.getUsers());
+        assertEquals("albert", first.getNextCursor());
+        UserListMessage second = registry.findByPrefix("al", first.getNextCursor(), 2);
+        assertEquals(List.of("alfred", "alice"), second.getUsers());
+        assertNull(second.getNextCursor());
+        assertTrue(registry.findByPrefix("z", null, 10).getUsers().isEmpty());
+    }
+
+    @Test
+    /** A rename moves the name in the index and the delta log; a taken target or unbound source changes nothing. */
+    void renameUpdatesIndex() {
+        ClientRegistry registry = new ClientRegistry();
+        ClientHandler carol = handler();
+        registry.register("carol", carol);
+        registry.register("dave", handler());
+        long before = registry.version();
+        assertFalse(registry.rename("carol", "dave", carol));
+        assertFalse(registry.rename("dave", "david", carol));
+        assertFalse(registry.rename("nobody", "david", carol));
+        assertEquals(before, registry.version());
+        assertEquals(2, registry.size());
+        assertTrue(registry.rename("carol", "caroline", carol));
+        assertEquals(List.of("caroline"), registry.findByPrefix("car", null, 10).getUsers());
+        UserListMessage delta = registry.changesSince(before);
+        assertEquals(List.of("caroline"), delta.getAdded());
+        assertEquals(List.of("carol"), delta.getRemoved());
+    }
+
+    @Test
+    /** Keeps a session's id across a rename and hands freed ids to later sessions before growing. */
+    void sessionIdsStayDense() {
+        ClientRegistry registry = new ClientRegistry();
+        ClientHandler erin = handler();
+        ClientHandler frank = handler();
+        registry.register("erin", erin);
+        registry.register("frank", frank);
+        assertEquals(2, registry.sessions().limit());
+        assertTrue(registry.rename("erin", "erina", erin));
+        assertSame(erin, registry.get("erina"));
+        assertSame(erin, registry.sessions().get(erin.getSessionId()));
+        assertEquals(2, registry.size());
+        assertEquals(2, registry.sessions().limit());
+        int freed = frank.getSessionId();
+        registry.unregister("frank");
+        assertEquals(-1, frank.getSessionId());
+        ClientHandler gina = handler();
+        registry.register("gina", gina);
+        assertEquals(freed, gina.getSessionId());
+        assertEquals(2, registry.sessions().limit());
+        assertEquals(List.of("erina", "gina"), registry.listUsernames());
+    }
+
+    @Test
+    /** Labels each snapshot with the version of exactly the changes it holds while names come and go. */
+    void snapshotMatchesItsVersion() throws Exception {
+        ClientRegistry registry = new ClientRegistry();
+        ClientHandler eve = handler();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread churn = new Thread(() -> {
+            while (!done.get()) {
+                registry.register("eve", eve);
+                registry.unregister("eve");
+            }
+        });
+        churn.start();
+        try {
+            for (int i = 0; i < 200_000; i++) {
+                UserListSnapshot snapshot = registry.snapshot();
+                boolean present = snapshot.getUsers().contains("eve");
+                assertEquals(snapshot.getVersion() % 2 == 1, present, "version " + snapshot.getVersion());
+            }
+        } finally {
+            done.set(true);
+            churn.join();
+        }
+    }
+}
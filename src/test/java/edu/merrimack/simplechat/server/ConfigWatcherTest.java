@@ -0,0 +1,48 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.config.ServerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for applying reloaded server configuration.
+ */
+public class ConfigWatcherTest {
+
+    @Test
+    /** Applies a valid edit and reports the restart-only settings it could not apply. */
+    void appliesValidEdit() throws Exception {
+        Path file = Files.createTempFile("server-config", ".json");
+        Files.writeString(file, "{\"port\": 9000, \"logFile\": \"test.log\", \"maxClients\": 10}");
+        ChatServer server = new ChatServer(ServerConfig.load(file.toString()));
+        try (ConfigWatcher watcher = new ConfigWatcher(file.toString(), server)) {
+            Files.writeString(file, "{\"port\": 9001, \"logFile\": \"test.log\", \"maxClients\": 25, \"drainTimeoutSeconds\": 3}");
+            watcher.reload();
+            assertEquals(25, server.getConfig().getMaxClients());
+            assertEquals(3, server.getConfig().getDrainTimeoutSeconds());
+            assertEquals(List.of("port"), server.reconfigure(server.getConfig()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    /** Keeps the running configuration when the edited file fails validation. */
+    void rejectsInvalidEdit() throws Exception {
+        Path file = Files.createTempFile("server-config", ".json");
+        Files.writeString(file, "{\"port\": 9000, \"logFile\": \"test.log\", \"maxClients\": 10}");
+        ChatServer server = new ChatServer(ServerConfig.load(file.toString()));
+        try (ConfigWatcher watcher = new ConfigWatcher(file.toString(), server)) {
+            Files.writeString(file, "{\"port\": 9000, \"logFile\": \"test.log\", \"maxClients\": -1}");
+            watcher.reload();
+            assertEquals(10, server.getConfig().getMaxClients());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.PresenceDeltaMessage;
+import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.frames;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Shuts a server down gracefully: traffic accepted before the drain is delivered before sessions close.
+ */
+public class DrainTest {
+
+    private static final int BROADCASTS = 50;
+    private static final List<String> PRESENCE_DELTAS = List.of(ProtocolConstants.CAP_PRESENCE_DELTA);
+
+    @Test
+    /** Delivers accepted broadcasts and pending presence changes, then disconnects and closes every session. */
+    void flushesThenCloses() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED + ", \"fanOutThreshold\": 1");
+        MemoryConnection alice = connect(transport, "alice", PRESENCE_DELTAS);
+        MemoryConnection bob = connect(transport, "bob", PRESENCE_DELTAS);
+
+        for (int i = 0; i < BROADCASTS; i++) {
+            send(alice, new ChatMessage("alice", null, false, "news " + i));
+        }
+        transport.runUntilIdle();
+        server.drain("maintenance", 100);
+        transport.runUntilIdle();
+
+        List<BaseMessage> received = frames(bob);
+        List<String> chat = new ArrayList<>();
+        boolean presence = false;
+        for (BaseMessage message : received) {
+            if (message instanceof ChatMessage) {
+                chat.add(((ChatMessage) message).getContent());
+            } else if (message instanceof PresenceDeltaMessage) {
+                presence = ((PresenceDeltaMessage) message).getJoined().contains("bob");
+            }
+        }
+        assertEquals(BROADCASTS, chat.size());
+        assertEquals("news 0", chat.get(0));
+        assertEquals("news " + (BROADCASTS - 1), chat.get(BROADCASTS - 1));
+        assertTrue(presence);
+        assertTrue(received.get(received.size() - 1) instanceof DisconnectMessage);
+        List<BaseMessage> toAlice = frames(alice);
+        assertTrue(toAlice.get(toAlice.size() - 1) instanceof DisconnectMessage);
+        assertTrue(bob.isEndOfStream());
+        assertTrue(alice.isEndOfStream());
+    }
+
+    @Test
+    /** Queues the drain notice behind chat still waiting for a stalled client rather than ahead of it. */
+    void disconnectFollowsQueuedChat() throws Exception {
+        MemoryTransport memory = new MemoryTransport(1);
+        GatedTransport transport = new GatedTransport(memory);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection slow = connect(transport, memory, "slow", PRESENCE_DELTAS);
+        MemoryConnection alice = connect(transport, memory, "alice", PRESENCE_DELTAS);
+        GatedTransport.Gate gate = transport.accepted(0);
+
+        gate.hold();
+        ClientHandler handler = server.getRegistry().get("slow");
+        Thread writer = new Thread(() -> handler.send(new ServerBroadcastMessage("stuck")));
+        writer.start();
+        gate.awaitHeldWriter();
+        for (int i = 0; i < BROADCASTS; i++) {
+            send(alice, new ChatMessage("alice", null, false, "news " + i));
+        }
+        memory.runUntilIdle();
+        handler.drain("maintenance");
+        gate.release();
+        writer.join();
+        memory.runUntilIdle();
+
+        List<BaseMessage> received = frames(slow);
+        long chat = received.stream().filter(m -> m instanceof ChatMessage).count();
+        assertEquals(BROADCASTS, chat);
+        assertTrue(received.get(received.size() - 1) instanceof DisconnectMessage);
+        server.stop();
+    }
+}
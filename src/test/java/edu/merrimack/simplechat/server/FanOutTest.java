@@ -0,0 +1,117 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.frames;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the broadcast fan-out pool.
+ */
+public class FanOutTest {
+
+    @Test
+    /** Runs one sender's chained deliveries in submission order even though each runs on the pool. */
+    void chainedDeliveriesStayInOrder() {
+        FanOut fanOut = new FanOut(1);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            tail = fanOut.after(tail, () -> seen.add(n));
+        }
+        tail.join();
+        fanOut.shutdown();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, (int) seen.get(i));
+        }
+    }
+
+    @Test
+    /** Moves only audiences at or above the threshold to the pool, and none when disabled. */
+    void thresholdSelectsLargeBroadcasts() {
+        FanOut fanOut = new FanOut(100);
+        assertFalse(fanOut.isLarge(99));
+        assertTrue(fanOut.isLarge(100));
+        fanOut.setThreshold(0);
+        assertFalse(fanOut.isLarge(1_000_000));
+        fanOut.shutdown();
+    }
+
+    @Test
+    /**
+     * Keeps delivering another sender's broadcast while every pool thread waits on a reader that never
+     * reads.
+     */
+    void stalledReaderDoesNotHoldUpOtherSenders() throws Exception {
+        MemoryTransport memory = new MemoryTransport(1);
+        GatedTransport transport = new GatedTransport(memory);
+        ChatServer server = start(transport, UNLIMITED + ", \"maxClients\": 1000, \"fanOutThreshold\": 1");
+        MemoryConnection carol = connect(transport, memory, "carol", List.of());
+        connect(transport, memory, "slow", List.of());
+        int stuck = Runtime.getRuntime().availableProcessors();
+        List<MemoryConnection> senders = new ArrayList<>();
+        for (int i = 0; i < stuck; i++) {
+            senders.add(connect(transport, memory, "sender" + i, List.of()));
+        }
+        MemoryConnection bob = connect(transport, memory, "bob", List.of());
+        GatedTransport.Gate gate = transport.accepted(1);
+
+        gate.hold();
+        ClientHandler slow = server.getRegistry().get("slow");
+        Thread writer = new Thread(() -> slow.send(new ServerBroadcastMessage("stuck")));
+        writer.start();
+        gate.awaitHeldWriter();
+        for (int i = 0; i < ClientHandler.MAX_QUEUED_BULK; i++) {
+            slow.send(new ServerBroadcastMessage("queued" + i));
+        }
+        for (int i = 0; i < stuck; i++) {
+            send(senders.get(i), new ChatMessage("sender" + i, null, false, "pinned"));
+        }
+        assertTrue(awaitChats(memory, carol, stuck));
+
+        send(bob, new ChatMessage("bob", null, false, "still moving"));
+        assertTrue(awaitChats(memory, carol, 1));
+
+        gate.release();
+        writer.join();
+        server.stop();
+    }
+
+    /** Runs events until {@code client} has received {@code count} chat messages, for up to five seconds. */
+    private static boolean awaitChats(MemoryTransport memory, MemoryConnection client, int count)
+            throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        int seen = 0;
+        while (System.nanoTime() < deadline) {
+            memory.runUntilIdle();
+            for (BaseMessage message : frames(client)) {
+                if (message instanceof ChatMessage) {
+                    seen++;
+                }
+            }
+            if (seen >= count) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,160 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.transport.Connection;
+import edu.merrimack.simplechat.common.transport.FrameReceiver;
+import edu.merrimack.simplechat.common.transport.Listener;
+import edu.merrimack.simplechat.common.transport.Transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Wraps a transport so tests can stall or break the server's writes to one accepted connection, as a slow
+ * or vanished reader would.
+ */
+final class GatedTransport implements Transport {
+
+    private final Transport inner;
+    private final List<Gate> accepted = new ArrayList<>();
+
+    GatedTransport(Transport inner) {
+        this.inner = inner;
+    }
+
+    /** The {@code index}th server-side connection accepted, counting from 0. */
+    synchronized Gate accepted(int index) {
+        return accepted.get(index);
+    }
+
+    @Override
+    public Listener listen(int port, int backlog, boolean reusePort) throws IOException {
+        Listener listener = inner.listen(port, backlog, reusePort);
+        return new Listener() {
+            @Override
+            public Connection accept() throws IOException {
+                return gate(listener.accept());
+            }
+
+            @Override
+            public boolean acceptTo(Consumer<Connection> handler) {
+                return listener.acceptTo(connection -> handler.accept(gate(connection)));
+            }
+
+            @Override
+            public void close() {
+                listener.close();
+            }
+        };
+    }
+
+    @Override
+    public Connection connect(String host, int port) throws IOException {
+        return inner.connect(host, port);
+    }
+
+    private synchronized Gate gate(Connection connection) {
+        Gate gate = new Gate(connection);
+        accepted.add(gate);
+        return gate;
+    }
+
+    /**
+     * A connection whose writes can be held until released or failed. Closing it does not wake a held
+     * writer, like a socket stuck in a full send buffer.
+     */
+    static final class Gate implements Connection {
+        private final Connection connection;
+        private boolean held;
+        private boolean failed;
+        private int waiting;
+        private int passes;
+        private int passed;
+
+        private Gate(Connection connection) {
+            this.connection = connection;
+        }
+
+        /** Makes later writes wait until {@link #release()} or {@link #fail()}. */
+        synchronized void hold() {
+            held = true;
+        }
+
+        /** Lets held and later writes through. */
+        synchronized void release() {
+            held = false;
+            notifyAll();
+        }
+
+        /** Makes held and later writes throw, like a reset connection. */
+        synchronized void fail() {
+            failed = true;
+            notifyAll();
+        }
+
+        /** Lets one held write through and waits until the next write is held. */
+        synchronized void pass() throws InterruptedException {
+            int target = passed + 1;
+            passes++;
+            notifyAll();
+            while (passed < target || waiting == 0) {
+                wait();
+            }
+        }
+
+        /** Waits until a writer is held. */
+        synchronized void awaitHeldWriter() throws InterruptedException {
+            while (waiting == 0) {
+                wait();
+            }
+        }
+
+        @Override
+        public String readFrame() throws IOException {
+            return connection.readFrame();
+        }
+
+        @Override
+        public void write(byte[] frame) throws IOException {
+            synchronized (this) {
+                waiting++;
+                notifyAll();
+                try {
+                    while (held && !failed && passes == 0) {
+                        wait();
+                    }
+                    if (held && !failed) {
+                        passes--;
+                        passed++;
+                        notifyAll();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while held", e);
+                } finally {
+                    waiting--;
+                }
+                if (failed) {
+                    throw new IOException("Connection reset");
+                }
+            }
+            connection.write(frame);
+        }
+
+        @Override
+        public boolean isClosed() {
+            return connection.isClosed();
+        }
+
+        @Override
+        public void close() {
+            connection.close();
+        }
+
+        @Override
+        public boolean pushTo(FrameReceiver receiver) {
+            return connection.pushTo(receiver);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static edu.merrimack.simplechat.server.ServerFixture.DEFAULTS;
+import static edu.merrimack.simplechat.server.ServerFixture.next;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Negotiates protocol versions and capabilities in the {@code CONNECT} handshake.
+ */
+public class HandshakeTest {
+
+    @Test
+    /** Agrees on the newest shared version and the shared capabilities, and records them for the session. */
+    void negotiatesVersionAndCapabilities() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, DEFAULTS);
+        MemoryConnection client = (MemoryConnection) transport.connect("localhost", 9000);
+        send(client, new ConnectMessage("c1", "alice", null, List.of("compression", "transfers", "heartbeat")));
+        transport.runUntilIdle();
+
+        ConnectAckMessage ack = (ConnectAckMessage) next(client);
+        assertEquals("1.1", ack.getVersion());
+        assertEquals(List.of("transfers"), ack.getCapabilities());
+        ClientHandler session = server.getRegistry().get("alice");
+        assertEquals("1.1", session.getProtocolVersion());
+        assertTrue(session.hasCapability("transfers"));
+        assertFalse(session.supportsPresenceDeltas());
+        server.stop();
+    }
+
+    @Test
+    /** Answers a client that only knows version 1.0 exactly as before negotiation existed. */
+    void keepsLegacyHandshake() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, DEFAULTS);
+        MemoryConnection client = (MemoryConnection) transport.connect("localhost", 9000);
+        client.write(Framing.frame("{\"type\": \"CONNECT\", \"timestamp\": 1, \"clientId\": \"c1\","
+                + " \"username\": \"old\", \"version\": \"1.0\", \"capabilities\": [\"presence-delta\"]}"));
+        transport.runUntilIdle();
+
+        String json = client.pollFrame();
+        assertFalse(json.contains("version"));
+        assertNull(((ConnectAckMessage) MessageParser.parse(json)).getVersion());
+        ClientHandler session = server.getRegistry().get("old");
+        assertEquals("1.0", session.getProtocolVersion());
+        assertTrue(session.supportsPresenceDeltas());
+        server.stop();
+    }
+
+    @Test
+    /** Refuses a client whose versions the server does not speak or cannot read. */
+    void refusesUnsupportedVersions() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, DEFAULTS);
+        MemoryConnection client = (MemoryConnection) transport.connect("localhost", 9000);
+        client.write(Framing.frame("{\"type\": \"CONNECT\", \"timestamp\": 1, \"clientId\": \"c1\","
+                + " \"username\": \"future\", \"version\": \"2.0\", \"maxVersion\": \"2.3\"}"));
+        transport.runUntilIdle();
+
+        ErrorMessage error = (ErrorMessage) next(client);
+        assertEquals("UNSUPPORTED_VERSION", error.getCode());
+        assertTrue(error.getMessageText().contains("2.0 to 2.3"));
+        assertNull(server.getRegistry().get("future"));
+
+        MemoryConnection garbled = (MemoryConnection) transport.connect("localhost", 9000);
+        garbled.write(Framing.frame("{\"type\": \"CONNECT\", \"timestamp\": 1, \"clientId\": \"c2\","
+                + " \"username\": \"odd\", \"version\": \"v1\"}"));
+        transport.runUntilIdle();
+        assertTrue(((ErrorMessage) next(garbled)).getMessageText().contains("major.minor"));
+        server.stop();
+    }
+}
@@ -0,0 +1,89 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Estimates heavy hitters with fixed memory, directly and from a server's traffic.
+ */
+public class HeavyHittersTest {
+
+    @Test
+    /** Keeps keys with a large share of the traffic among many more distinct keys than it has room for. */
+    void findsHeavyKeysAmongNoise() {
+        AtomicLong clock = new AtomicLong();
+        HeavyHitters sketch = new HeavyHitters(64, 60_000, clock::get);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("noise" + i, 1);
+            if (i % 10 == 0) {
+                sketch.add("loud", 1);
+            }
+            if (i % 25 == 0) {
+                sketch.add("busy", 2);
+            }
+        }
+        List<TopTalkers.Entry> top = sketch.top(2);
+        assertEquals("loud", top.get(0).getKey());
+        assertEquals("busy", top.get(1).getKey());
+        assertTrue(top.get(0).getCount() >= 10_000);
+        assertTrue(top.get(0).getCount() - top.get(0).getError() <= 10_000);
+        assertTrue(top.get(1).getCount() >= 8_000);
+    }
+
+    @Test
+    /** Forgets traffic once the window has slid past it. */
+    void slidesWindow() {
+        AtomicLong clock = new AtomicLong();
+        HeavyHitters sketch = new HeavyHitters(16, 6_000, clock::get);
+        sketch.add("early", 5);
+        clock.set(3_000);
+        sketch.add("late", 1);
+        assertEquals("early", sketch.top(1).get(0).getKey());
+        assertEquals(2, sketch.top(10).size());
+
+        clock.set(6_500);
+        List<TopTalkers.Entry> top = sketch.top(10);
+        assertEquals(1, top.size());
+        assertEquals("late", top.get(0).getKey());
+        assertEquals(1, top.get(0).getCount());
+
+        clock.set(20_000);
+        assertEquals(0, sketch.top(10).size());
+    }
+
+    @Test
+    /** Counts senders, direct recipients, and broadcast deliveries as a server routes chat. */
+    void tracksServerTraffic() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection alice = connect(transport, "alice", List.of());
+        MemoryConnection bob = connect(transport, "bob", List.of());
+        connect(transport, "carol", List.of());
+
+        for (int i = 0; i < 3; i++) {
+            send(alice, new ChatMessage("alice", "bob", true, "ping " + i));
+        }
+        send(bob, new ChatMessage("bob", "carol", true, "hi"));
+        send(bob, new ChatMessage("bob", null, false, "hello all"));
+        transport.runUntilIdle();
+
+        TopTalkers talkers = server.getTopTalkers();
+        assertEquals("alice=3", talkers.topSenders(1).get(0).toString());
+        assertEquals("bob=3", talkers.topRecipients(1).get(0).toString());
+        assertEquals("bob=2", talkers.topBroadcasters(1).get(0).toString());
+        assertEquals(2, talkers.topSendersByBytes(10).size());
+        server.stop();
+    }
+}
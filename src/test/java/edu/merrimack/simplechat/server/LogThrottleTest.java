@@ -0,0 +1,21 @@
+package edu.merrimack.simplechat.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for sampling of high-volume log sites.
+ */
+public class LogThrottleTest {
+
+    @Test
+    /** Lets the burst through, then skips lines until the bucket refills. */
+    void skipsBeyondBurst() {
+        LogThrottle throttle = new LogThrottle(0.001, 2);
+        assertEquals(0L, throttle.admit());
+        assertEquals(0L, throttle.admit());
+        assertEquals(-1L, throttle.admit());
+        assertEquals(-1L, throttle.admit());
+    }
+}
@@ -0,0 +1,71 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for the per-connection priority lanes.
+ */
+public class OutboundQueueTest {
+
+    @Test
+    /** Writes control frames ahead of queued chat while keeping each lane in order. */
+    void controlJumpsAheadOfBulk() {
+        OutboundQueue queue = new OutboundQueue();
+        queue.add(OutboundQueue.Lane.BULK, null, new byte[] {1});
+        queue.add(OutboundQueue.Lane.BULK, null, new byte[] {2});
+        queue.add(OutboundQueue.Lane.CONTROL, null, new byte[] {3});
+        queue.add(OutboundQueue.Lane.CONTROL, null, new byte[] {4});
+        assertEquals(3, queue.poll().frame[0]);
+        assertEquals(4, queue.poll().frame[0]);
+        assertEquals(1, queue.poll().frame[0]);
+        assertEquals(2, queue.poll().frame[0]);
+        assertNull(queue.poll());
+    }
+
+    @Test
+    /** Lets one bulk frame through after a full burst of control frames. */
+    void bulkIsNotStarved() {
+        OutboundQueue queue = new OutboundQueue();
+        queue.add(OutboundQueue.Lane.BULK, null, new byte[] {-1});
+        for (int i = 0; i < OutboundQueue.CONTROL_BURST + 2; i++) {
+            queue.add(OutboundQueue.Lane.CONTROL, null, new byte[] {(byte) i});
+        }
+        for (int i = 0; i < OutboundQueue.CONTROL_BURST; i++) {
+            assertEquals(i, queue.poll().frame[0]);
+        }
+        assertEquals(-1, queue.poll().frame[0]);
+        assertEquals(OutboundQueue.CONTROL_BURST, queue.poll().frame[0]);
+    }
+
+    @Test
+    /** Alternates transfer chunks with chat so neither holds the other back. */
+    void transferAlternatesWithBulk() {
+        OutboundQueue queue = new OutboundQueue();
+        for (int i = 0; i < 3; i++) {
+            queue.add(OutboundQueue.Lane.TRANSFER, null, new byte[] {(byte) (10 + i)});
+        }
+        queue.add(OutboundQueue.Lane.BULK, null, new byte[] {1});
+        queue.add(OutboundQueue.Lane.BULK, null, new byte[] {2});
+        assertEquals(1, queue.poll().frame[0]);
+        assertEquals(10, queue.poll().frame[0]);
+        assertEquals(2, queue.poll().frame[0]);
+        assertEquals(11, queue.poll().frame[0]);
+        assertEquals(12, queue.poll().frame[0]);
+        assertNull(queue.poll());
+    }
+
+    @Test
+    /** Classifies chat and presence traffic as bulk and protocol responses as control. */
+    void classifiesLanes() {
+        assertEquals(OutboundQueue.Lane.BULK, OutboundQueue.laneOf(MessageType.CHAT_MESSAGE));
+        assertEquals(OutboundQueue.Lane.BULK, OutboundQueue.laneOf(MessageType.PRESENCE_DELTA));
+        assertEquals(OutboundQueue.Lane.TRANSFER, OutboundQueue.laneOf(MessageType.TRANSFER_CHUNK));
+        assertEquals(OutboundQueue.Lane.CONTROL, OutboundQueue.laneOf(MessageType.TRANSFER_ACK));
+        assertEquals(OutboundQueue.Lane.CONTROL, OutboundQueue.laneOf(MessageType.ERROR));
+        assertEquals(OutboundQueue.Lane.CONTROL, OutboundQueue.laneOf(MessageType.USER_LIST));
+    }
+}
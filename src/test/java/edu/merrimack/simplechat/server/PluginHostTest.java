@@ -0,0 +1,151 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.next;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs plugins in a server over the in-memory transport.
+ */
+public class PluginHostTest {
+
+    @Test
+    /** Delivers typed messages to a plugin, which answers as its virtual user. */
+    void pluginChatsAsVirtualUser() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED + ", \"plugins\": {\"reviewBudgetMs\": 5}");
+        Echo echo = new Echo();
+        assertTrue(server.addPlugin(echo));
+        assertFalse(server.addPlugin(echo));
+        assertThrows(IllegalArgumentException.class, () -> server.addPlugin(() -> "not valid!"));
+        MemoryConnection alice = connect(transport, "alice", List.of());
+
+        send(alice, new ChatMessage("alice", null, false, "hello"));
+        transport.runUntilIdle();
+        ChatMessage heard = (ChatMessage) echo.received.poll(5, TimeUnit.SECONDS);
+        assertEquals("hello", heard.getContent());
+        assertEquals(List.of("alice", "echo"), echo.context.listUsernames());
+
+        ChatMessage answer = (ChatMessage) await(alice, transport);
+        assertEquals("echo", answer.getFrom());
+        assertEquals("alice", answer.getTo());
+        assertEquals("echo: hello", answer.getContent());
+
+        assertTrue(server.removePlugin(echo));
+        assertTrue(echo.stopped);
+        assertEquals(List.of("alice"), server.getRegistry().listUsernames());
+        server.stop();
+    }
+
+    @Test
+    /** Rejects a message a reviewer vetoes, and lets one through when the reviewer overruns its budget. */
+    void reviewerVetoesWithinBudget() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED + ", \"plugins\": {\"reviewBudgetMs\": 20}");
+        assertTrue(server.addPlugin(new Moderator()));
+        MemoryConnection alice = connect(transport, "alice", List.of());
+        MemoryConnection bob = connect(transport, "bob", List.of());
+
+        ChatMessage spam = new ChatMessage("alice", "bob", true, "buy spam");
+        spam.setRequestId("m1");
+        send(alice, spam);
+        transport.runUntilIdle();
+        ErrorMessage error = (ErrorMessage) next(alice);
+        assertEquals("MESSAGE_REJECTED", error.getCode());
+        assertEquals("m1", error.getRequestId());
+        assertNull(bob.pollFrame());
+
+        long started = System.nanoTime();
+        send(alice, new ChatMessage("alice", "bob", true, "slow spam"));
+        transport.runUntilIdle();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000);
+        assertEquals("slow spam", ((ChatMessage) next(bob)).getContent());
+        server.stop();
+    }
+
+    /** Waits for a frame a plugin thread sends to {@code client}, running transport events meanwhile. */
+    private static BaseMessage await(MemoryConnection client, MemoryTransport transport) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            transport.runUntilIdle();
+            String frame = client.pollFrame();
+            if (frame != null) {
+                return MessageParser.parse(frame);
+            }
+            Thread.sleep(1);
+        }
+        throw new AssertionError("No frame arrived");
+    }
+
+    /** Records what it is sent and echoes chat back to its author. */
+    private static final class Echo implements ChatPlugin {
+        final BlockingQueue<BaseMessage> received = new LinkedBlockingQueue<>();
+        volatile PluginContext context;
+        volatile boolean stopped;
+
+        @Override
+        public String getUsername() {
+            return "echo";
+        }
+
+        @Override
+        public void start(PluginContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void onMessage(BaseMessage message) {
+            received.add(message);
+            if (message instanceof ChatMessage) {
+                ChatMessage chat = (ChatMessage) message;
+                context.sendDirect(chat.getFrom(), "echo: " + chat.getContent());
+            }
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+        }
+    }
+
+    /** Rejects spam, but takes far longer than any budget to decide about slow messages. */
+    private static final class Moderator implements ChatPlugin, MessageReviewer {
+
+        @Override
+        public String getUsername() {
+            return "moderator";
+        }
+
+        @Override
+        public String review(ChatMessage message) {
+            if (message.getContent().startsWith("slow")) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return message.getContent().contains("spam") ? "no spam" : null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
+import edu.merrimack.simplechat.common.protocol.UserListMessage;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.frames;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Publishes presence changes without letting a slow reader hold up everyone else.
+ */
+public class PresenceAggregatorTest {
+
+    private static final int FLUSHES = 1100;
+    private static final List<String> PRESENCE_DELTAS = List.of(ProtocolConstants.CAP_PRESENCE_DELTA);
+
+    @Test
+    /** Drops deltas a stalled client has no room for and later sends it the full user list instead. */
+    void stalledReaderDoesNotHoldUpPresence() throws Exception {
+        MemoryTransport memory = new MemoryTransport(1);
+        GatedTransport transport = new GatedTransport(memory);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection slow = connect(transport, memory, "slow", PRESENCE_DELTAS);
+        MemoryConnection bob = connect(transport, memory, "bob", PRESENCE_DELTAS);
+        GatedTransport.Gate gate = transport.accepted(0);
+
+        gate.hold();
+        Thread writer = new Thread(() -> server.getRegistry().get("slow").send(new ServerBroadcastMessage("stuck")));
+        writer.start();
+        gate.awaitHeldWriter();
+        PresenceAggregator presence = server.getPresence();
+        for (int i = 0; i < FLUSHES; i++) {
+            presence.joined("ghost" + i);
+            presence.flush();
+        }
+        memory.runUntilIdle();
+        assertEquals(FLUSHES, frames(bob).size());
+
+        gate.release();
+        writer.join();
+        presence.flush();
+        memory.runUntilIdle();
+        List<BaseMessage> received = frames(slow);
+        assertTrue(received.size() < FLUSHES);
+        assertEquals(MessageType.PRESENCE_DELTA, received.get(received.size() - 2).getType());
+        UserListMessage list = (UserListMessage) received.get(received.size() - 1);
+        assertEquals(List.of("bob", "slow"), list.getUsers());
+        server.stop();
+    }
+
+    @Test
+    /** Drops the deltas still queued behind the full user list, so the client does not apply them after it. */
+    void resyncSupersedesQueuedDeltas() throws Exception {
+        MemoryTransport memory = new MemoryTransport(1);
+        GatedTransport transport = new GatedTransport(memory);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection slow = connect(transport, memory, "slow", PRESENCE_DELTAS);
+        connect(transport, memory, "bob", PRESENCE_DELTAS);
+        GatedTransport.Gate gate = transport.accepted(0);
+
+        gate.hold();
+        Thread writer = new Thread(() -> server.getRegistry().get("slow").send(new ServerBroadcastMessage("stuck")));
+        writer.start();
+        gate.awaitHeldWriter();
+        PresenceAggregator presence = server.getPresence();
+        for (int i = 0; i < FLUSHES; i++) {
+            presence.joined("ghost" + i);
+            presence.flush();
+        }
+        gate.pass();
+        presence.flush();
+        gate.release();
+        writer.join();
+        memory.runUntilIdle();
+
+        List<BaseMessage> received = frames(slow);
+        assertEquals(MessageType.SERVER_BROADCAST, received.get(0).getType());
+        assertEquals(MessageType.PRESENCE_DELTA, received.get(1).getType());
+        UserListMessage list = (UserListMessage) received.get(2);
+        assertEquals(List.of("bob", "slow"), list.getUsers());
+        assertEquals(3, received.size());
+        server.stop();
+    }
+}
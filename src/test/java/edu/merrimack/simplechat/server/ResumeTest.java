@@ -0,0 +1,179 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectAckMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.ServerBroadcastMessage;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.merrimack.simplechat.server.ServerFixture.DEFAULTS;
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.frames;
+import static edu.merrimack.simplechat.server.ServerFixture.next;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Resumes dropped sessions by token without losing or reordering what was on its way to the old connection.
+ */
+public class ResumeTest {
+
+    @Test
+    /** Replays the frame being written and the frames queued behind it, in order, once each. */
+    void replaysInFlightAndQueuedFramesInOrder() throws Exception {
+        MemoryTransport memory = new MemoryTransport(1);
+        GatedTransport transport = new GatedTransport(memory);
+        ChatServer server = start(transport, DEFAULTS);
+        MemoryConnection bob = (MemoryConnection) transport.connect("localhost", 9000);
+        send(bob, new ConnectMessage("c-bob", "bob"));
+        memory.runUntilIdle();
+        String token = ((ConnectAckMessage) next(bob)).getResumeToken();
+        GatedTransport.Gate gate = transport.accepted(0);
+        ClientHandler session = server.getRegistry().get("bob");
+
+        gate.hold();
+        Thread writer = new Thread(() -> session.send(new ServerBroadcastMessage("m0")));
+        writer.start();
+        gate.awaitHeldWriter();
+        session.send(new ServerBroadcastMessage("m1"));
+        session.send(new ServerBroadcastMessage("m2"));
+        bob.close();
+        memory.runUntilIdle();
+        session.send(new ServerBroadcastMessage("m3"));
+
+        MemoryConnection resumed = (MemoryConnection) transport.connect("localhost", 9000);
+        send(resumed, new ConnectMessage("c-bob", "bob", token));
+        memory.runUntilIdle();
+        gate.fail();
+        writer.join();
+        session.send(new ServerBroadcastMessage("m4"));
+        memory.runUntilIdle();
+
+        assertTrue(((ConnectAckMessage) next(resumed)).isResumed());
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), texts(resumed));
+        server.stop();
+    }
+
+    @Test
+    /** Restores the parked session's username for a valid token and replays what it missed while away. */
+    void resumesUsernameAndReplaysMissedMessages() throws Exception {
+        MemoryTransport memory = new MemoryTransport(1);
+        ChatServer server = start(memory, UNLIMITED);
+        MemoryConnection alice = connect(memory, "alice", List.of());
+        MemoryConnection bob = open(memory, "bob", null);
+        String token = ack(bob).getResumeToken();
+        frames(alice);
+
+        drop(memory, bob);
+        assertEquals(1, server.getResumer().parkedCount());
+        send(alice, new ChatMessage("alice", null, false, "while you were out"));
+        send(alice, new ChatMessage("alice", "bob", true, "psst"));
+        memory.runUntilIdle();
+
+        MemoryConnection resumed = open(memory, "robert", token);
+        ConnectAckMessage ack = ack(resumed);
+        assertTrue(ack.isResumed());
+        assertNotNull(ack.getResumeToken());
+        assertFalse(token.equals(ack.getResumeToken()));
+        List<String> replayed = new ArrayList<>();
+        for (BaseMessage message : frames(resumed)) {
+            replayed.add(((ChatMessage) message).getContent());
+        }
+        assertEquals(List.of("while you were out", "psst"), replayed);
+        assertEquals(0, server.getResumer().parkedCount());
+        assertNotNull(server.getRegistry().get("bob"));
+        assertNull(server.getRegistry().get("robert"));
+        assertTrue(frames(alice).isEmpty());
+        server.stop();
+    }
+
+    @Test
+    /** Treats a second claim of the same token, like an unknown one, as a new session. */
+    void tokenCannotBeClaimedTwice() throws Exception {
+        MemoryTransport memory = new MemoryTransport(1);
+        ChatServer server = start(memory, UNLIMITED);
+        MemoryConnection bob = open(memory, "bob", null);
+        String token = ack(bob).getResumeToken();
+        drop(memory, bob);
+
+        assertTrue(ack(open(memory, "bob", token)).isResumed());
+        ClientHandler session = server.getRegistry().get("bob");
+        assertFalse(ack(open(memory, "carol", token)).isResumed());
+        assertNotNull(server.getRegistry().get("carol"));
+        assertSame(session, server.getRegistry().get("bob"));
+
+        assertFalse(ack(open(memory, "dave", "not-a-token")).isResumed());
+        assertNotNull(server.getRegistry().get("dave"));
+        server.stop();
+    }
+
+    @Test
+    /** Releases the username once the grace window passes, so the expired token gets a fresh session. */
+    void expiredTokenStartsFreshSession() throws Exception {
+        MemoryTransport memory = new MemoryTransport(1);
+        ChatServer server = start(memory, UNLIMITED + ", \"resumeGraceSeconds\": 1");
+        MemoryConnection bob = open(memory, "bob", null);
+        String token = ack(bob).getResumeToken();
+        drop(memory, bob);
+        ClientHandler parked = server.getRegistry().get("bob");
+        assertNotNull(parked);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (server.getResumer().parkedCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, server.getResumer().parkedCount());
+        assertNull(server.getRegistry().get("bob"));
+
+        ConnectAckMessage ack = ack(open(memory, "bob", token));
+        assertFalse(ack.isResumed());
+        assertNotNull(ack.getResumeToken());
+        ClientHandler fresh = server.getRegistry().get("bob");
+        assertNotNull(fresh);
+        assertFalse(fresh == parked);
+        server.stop();
+    }
+
+    /** Connects as {@code name}, presenting {@code token} when non-null, and completes the handshake. */
+    private static MemoryConnection open(MemoryTransport memory, String name, String token) throws Exception {
+        MemoryConnection client = (MemoryConnection) memory.connect("localhost", 9000);
+        send(client, new ConnectMessage("c-" + name, name, token));
+        memory.runUntilIdle();
+        return client;
+    }
+
+    /** Takes the handshake reply from a client just opened. */
+    private static ConnectAckMessage ack(MemoryConnection client) throws Exception {
+        return (ConnectAckMessage) next(client);
+    }
+
+    /** Hangs up without a DISCONNECT, as a dropped network connection would. */
+    private static void drop(MemoryTransport memory, MemoryConnection client) {
+        client.close();
+        memory.runUntilIdle();
+    }
+
+    /** The text of every server broadcast the client has received so far. */
+    private static List<String> texts(MemoryConnection client) throws Exception {
+        List<String> texts = new ArrayList<>();
+        for (BaseMessage message : frames(client)) {
+            if (message instanceof ServerBroadcastMessage) {
+                texts.add(((ServerBroadcastMessage) message).getContent());
+            }
+        }
+        return texts;
+    }
+}
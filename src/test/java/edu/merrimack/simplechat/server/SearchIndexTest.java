@@ -0,0 +1,119 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.SearchMessage;
+import edu.merrimack.simplechat.common.protocol.SearchResultsMessage;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.frames;
+import static edu.merrimack.simplechat.server.ServerFixture.next;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Searches the message history, directly and through a server over the in-memory transport.
+ */
+public class SearchIndexTest {
+
+    @Test
+    /** Finds words and joined words, pages newest first, and never keeps direct messages. */
+    void searchesRoutedMessages() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED + ", \"search\": {\"enabled\": true}");
+        MemoryConnection alice = connect(transport, "alice", List.of());
+        MemoryConnection bob = connect(transport, "bob", List.of());
+        MemoryConnection carol = connect(transport, "carol", List.of());
+
+        send(alice, new ChatMessage("alice", null, false, "Is outage-4312 over?"));
+        send(bob, new ChatMessage("bob", null, false, "lunch anyone"));
+        send(bob, new ChatMessage("bob", "alice", true, "Root cause of OUTAGE-4312 is the cache"));
+        send(carol, new ChatMessage("carol", null, false, "the outage is over"));
+        transport.runUntilIdle();
+        server.getSearch().awaitIndexed();
+        frames(alice);
+        frames(bob);
+        frames(carol);
+
+        List<ChatMessage> found = search(alice, transport, new SearchMessage("outage-4312", 10)).getMessages();
+        assertEquals(1, found.size());
+        assertEquals("alice", found.get(0).getFrom());
+        assertEquals(0, search(bob, transport, new SearchMessage("cache", 10)).getMessages().size());
+
+        SearchResultsMessage first = search(carol, transport, new SearchMessage("outage", 1));
+        assertEquals("carol", first.getMessages().get(0).getFrom());
+        SearchResultsMessage second = search(carol, transport,
+                new SearchMessage("outage", null, 0, 0, 1, first.getNextCursor()));
+        assertEquals("Is outage-4312 over?", second.getMessages().get(0).getContent());
+        SearchResultsMessage third = search(carol, transport,
+                new SearchMessage("outage", null, 0, 0, 1, second.getNextCursor()));
+        assertEquals(0, third.getMessages().size());
+        assertNull(third.getNextCursor());
+
+        List<ChatMessage> fromBob = search(bob, transport, new SearchMessage(null, "bob", 0, 0, 10, null)).getMessages();
+        assertEquals(1, fromBob.size());
+        assertEquals("lunch anyone", fromBob.get(0).getContent());
+
+        send(alice, new DisconnectMessage("bye"));
+        transport.runUntilIdle();
+        MemoryConnection claimant = connect(transport, "alice", List.of());
+        assertEquals(0, search(claimant, transport, new SearchMessage("cache", 10)).getMessages().size());
+        server.stop();
+    }
+
+    @Test
+    /** Refuses searches when the server keeps no history. */
+    void refusesSearchWhenDisabled() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection alice = connect(transport, "alice", List.of());
+        SearchMessage query = new SearchMessage("outage", 10);
+        query.setRequestId("s1");
+        send(alice, query);
+        transport.runUntilIdle();
+        ErrorMessage error = (ErrorMessage) next(alice);
+        assertEquals("SEARCH_DISABLED", error.getCode());
+        assertEquals("s1", error.getRequestId());
+        server.stop();
+    }
+
+    @Test
+    /** Restricts matches to a time range and discards whole segments once over the retention limit. */
+    void honoursTimeRangeAndRetention() throws Exception {
+        SearchIndex index = new SearchIndex(1000, 10_000, 256);
+        for (int i = 0; i < 3000; i++) {
+            index.record(new ChatMessage("user" + (i % 7), null, false, "status " + (i % 2 == 0 ? "even" : "odd") + " " + i));
+        }
+        index.awaitIndexed();
+        assertEquals(4 * 256 + 184, index.size());
+
+        List<ChatMessage> all = index.search(new SearchMessage("status", null, 0, 0, 100, null)).getMessages();
+        assertEquals("status odd 2999", all.get(0).getContent());
+        assertNull(index.search(new SearchMessage("10", 10)).getNextCursor());
+        assertEquals(0, index.search(new SearchMessage("10", 10)).getMessages().size());
+
+        long newest = all.get(0).getTimestamp();
+        List<ChatMessage> later = index.search(new SearchMessage("even", null, newest + 1, 0, 10, null)).getMessages();
+        assertEquals(0, later.size());
+        List<ChatMessage> upTo = index.search(new SearchMessage("even", "user2", 0, newest, 10, null)).getMessages();
+        assertEquals("user2", upTo.get(0).getFrom());
+        index.shutdown();
+    }
+
+    /** Sends {@code query} as {@code client} and returns the server's results. */
+    private static SearchResultsMessage search(MemoryConnection client, MemoryTransport transport,
+                                               SearchMessage query) throws Exception {
+        send(client, query);
+        transport.runUntilIdle();
+        return (SearchResultsMessage) next(client);
+    }
+}
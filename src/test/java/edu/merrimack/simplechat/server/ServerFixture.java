@@ -0,0 +1,96 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.Framing;
+import edu.merrimack.simplechat.common.config.ServerConfig;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import edu.merrimack.simplechat.common.transport.Transport;
+import merrimackutil.json.InvalidJSONException;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Starts servers for tests from a config file, as {@code ServerMain} does, and talks to them over a
+ * {@link MemoryTransport} as a client would.
+ */
+final class ServerFixture {
+
+    /** Port fixture servers listen on. */
+    static final int PORT = 9000;
+    /** A small server whose presence window never closes during a test, so presence only goes out on a flush. */
+    static final String DEFAULTS = "\"maxClients\": 10, \"presenceWindowMs\": 3600000";
+    /** {@link #DEFAULTS} without rate limits, for tests that send faster than a person would. */
+    static final String UNLIMITED = DEFAULTS + ", \"rateLimits\": {\"enabled\": false}";
+
+    private ServerFixture() {
+    }
+
+    /** Loads a config listening on {@code port} with {@code settings}, the JSON members besides port and log file. */
+    static ServerConfig config(int port, String settings) throws IOException, InvalidJSONException {
+        Path file = Files.createTempFile("server-config", ".json");
+        try {
+            Files.writeString(file, "{\"port\": " + port + ", \"logFile\": \"test.log\", " + settings + "}");
+            return ServerConfig.load(file.toString());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** Starts a server on {@code transport} listening on {@link #PORT} with {@code settings}. */
+    static ChatServer start(Transport transport, String settings) throws IOException, InvalidJSONException {
+        ChatServer server = new ChatServer(config(PORT, settings), transport);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Connects as {@code name} declaring {@code capabilities}, checks that the handshake was accepted, and
+     * discards anything else sent so far.
+     */
+    static MemoryConnection connect(MemoryTransport transport, String name, List<String> capabilities)
+            throws IOException {
+        return connect(transport, transport, name, capabilities);
+    }
+
+    /** Like {@link #connect(MemoryTransport, String, List)}, through {@code transport} wrapping {@code memory}. */
+    static MemoryConnection connect(Transport transport, MemoryTransport memory, String name,
+                                    List<String> capabilities) throws IOException {
+        MemoryConnection client = (MemoryConnection) transport.connect("localhost", PORT);
+        send(client, new ConnectMessage("c-" + name, name, null, capabilities));
+        memory.runUntilIdle();
+        assertEquals(MessageType.CONNECT_ACK, next(client).getType());
+        frames(client);
+        return client;
+    }
+
+    /** Writes {@code message} to the server as one frame. */
+    static void send(MemoryConnection client, BaseMessage message) throws IOException {
+        client.write(Framing.frame(message.serialize()));
+    }
+
+    /** Takes the next frame the client has received. */
+    static BaseMessage next(MemoryConnection client) throws InvalidObjectException {
+        return MessageParser.parse(client.pollFrame());
+    }
+
+    /** Takes every frame the client has received so far. */
+    static List<BaseMessage> frames(MemoryConnection client) throws InvalidObjectException {
+        List<BaseMessage> frames = new ArrayList<>();
+        String json;
+        while ((json = client.pollFrame()) != null) {
+            frames.add(MessageParser.parse(json));
+        }
+        return frames;
+    }
+}
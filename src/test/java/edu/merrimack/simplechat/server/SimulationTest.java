@@ -0,0 +1,91 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ChatMessage;
+import edu.merrimack.simplechat.common.protocol.ConnectMessage;
+import edu.merrimack.simplechat.common.protocol.DisconnectMessage;
+import edu.merrimack.simplechat.common.protocol.MessageParser;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a full server against simulated clients over the in-memory transport.
+ */
+public class SimulationTest {
+
+    private static final int CLIENTS = 50_000;
+
+    @Test
+    /** Takes 50k clients through handshake, a broadcast, a ring of direct messages, and disconnect. */
+    void fiftyThousandClients() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, "\"maxClients\": " + CLIENTS + ", \"acceptorThreads\": 1,"
+                + " \"fanOutThreshold\": 0, \"resumeGraceSeconds\": 0, \"presenceWindowMs\": 3600000,"
+                + " \"rateLimits\": {\"enabled\": false}");
+
+        MemoryConnection[] clients = new MemoryConnection[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = (MemoryConnection) transport.connect("localhost", 9000);
+            send(clients[i], new ConnectMessage("c" + i, name(i)));
+        }
+        transport.runUntilIdle();
+        assertEquals(CLIENTS, server.getRegistry().size());
+        for (MemoryConnection client : clients) {
+            assertEquals(MessageType.CONNECT_ACK, next(client).getType());
+        }
+
+        send(clients[0], new ChatMessage(name(0), null, false, "hello everyone"));
+        transport.runUntilIdle();
+        assertNull(clients[0].pollFrame());
+        for (int i = 1; i < CLIENTS; i++) {
+            ChatMessage chat = (ChatMessage) next(clients[i]);
+            assertEquals(name(0), chat.getFrom());
+            assertEquals("hello everyone", chat.getContent());
+        }
+
+        for (int i = 0; i < CLIENTS; i++) {
+            String to = name((i + 1) % CLIENTS);
+            send(clients[i], new ChatMessage(name(i), to, true, "hi " + to));
+        }
+        transport.runUntilIdle();
+        for (int i = 0; i < CLIENTS; i++) {
+            ChatMessage chat = (ChatMessage) next(clients[i]);
+            assertTrue(chat.isDirect());
+            assertEquals(name((i + CLIENTS - 1) % CLIENTS), chat.getFrom());
+        }
+
+        long before = transport.currentTimeMillis();
+        for (MemoryConnection client : clients) {
+            send(client, new DisconnectMessage("bye"));
+        }
+        transport.runUntilIdle();
+        assertEquals(0, server.getRegistry().size());
+        assertEquals(before + 2, transport.currentTimeMillis());
+        for (MemoryConnection client : clients) {
+            assertNull(client.pollFrame());
+            assertTrue(client.isEndOfStream());
+            client.close();
+        }
+        server.stop();
+    }
+
+    /** Simulated client {@code i}'s username. */
+    private static String name(int i) {
+        return "user" + i;
+    }
+
+    /** Takes the only frame a client should have received and parses it. */
+    private static BaseMessage next(MemoryConnection client) throws Exception {
+        String json = client.pollFrame();
+        assertEquals(0, client.available());
+        return MessageParser.parse(json);
+    }
+}
@@ -0,0 +1,36 @@
+package edu.merrimack.simplechat.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the GCRA-based token bucket used by per-session rate limiting.
+ */
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    /** Allows exactly the burst back-to-back, then reports how long to wait. */
+    void burstThenLimited() {
+        TokenBucket bucket = new TokenBucket(2, 3);
+        long now = 10 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0L, bucket.tryAcquire(now));
+        }
+        long wait = bucket.tryAcquire(now);
+        assertEquals(SECOND / 2, wait);
+    }
+
+    @Test
+    /** Refills at the configured rate once time passes. */
+    void refillsOverTime() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = 5 * SECOND;
+        assertEquals(0L, bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now + SECOND / 2) > 0);
+        assertEquals(0L, bucket.tryAcquire(now + SECOND));
+    }
+}
@@ -0,0 +1,118 @@
+package edu.merrimack.simplechat.server;
+
+import edu.merrimack.simplechat.common.ProtocolConstants;
+import edu.merrimack.simplechat.common.protocol.BaseMessage;
+import edu.merrimack.simplechat.common.protocol.ErrorMessage;
+import edu.merrimack.simplechat.common.protocol.MessageType;
+import edu.merrimack.simplechat.common.protocol.TransferAckMessage;
+import edu.merrimack.simplechat.common.protocol.TransferChunkMessage;
+import edu.merrimack.simplechat.common.protocol.TransferOfferMessage;
+import edu.merrimack.simplechat.common.transport.MemoryConnection;
+import edu.merrimack.simplechat.common.transport.MemoryTransport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static edu.merrimack.simplechat.server.ServerFixture.UNLIMITED;
+import static edu.merrimack.simplechat.server.ServerFixture.connect;
+import static edu.merrimack.simplechat.server.ServerFixture.frames;
+import static edu.merrimack.simplechat.server.ServerFixture.next;
+import static edu.merrimack.simplechat.server.ServerFixture.send;
+import static edu.merrimack.simplechat.server.ServerFixture.start;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs chunked transfers through a server over the in-memory transport.
+ */
+public class TransferRelayTest {
+
+    private static final int CHUNK = ProtocolConstants.MAX_TRANSFER_CHUNK_BYTES;
+    private static final List<String> TRANSFERS = List.of(ProtocolConstants.CAP_TRANSFERS);
+
+    @Test
+    /** Relays an accepted transfer chunk by chunk and forgets it once the recipient has everything. */
+    void relaysAcceptedTransfer() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection alice = connect(transport, "alice", TRANSFERS);
+        MemoryConnection bob = connect(transport, "bob", TRANSFERS);
+
+        TransferOfferMessage offer = new TransferOfferMessage("t1", "alice", "bob", "notes.txt", CHUNK + 10);
+        offer.setRequestId("r1");
+        send(alice, offer);
+        transport.runUntilIdle();
+        assertEquals(MessageType.ACK, next(alice).getType());
+        TransferOfferMessage relayed = (TransferOfferMessage) next(bob);
+        assertEquals(2, relayed.getChunkCount());
+        assertNull(relayed.getRequestId());
+
+        send(bob, new TransferAckMessage("t1", "alice", "bob", 0));
+        transport.runUntilIdle();
+        assertEquals(0, ((TransferAckMessage) next(alice)).getReceived());
+
+        send(alice, new TransferChunkMessage("t1", "alice", "bob", 0, new byte[CHUNK], 0, CHUNK));
+        send(alice, new TransferChunkMessage("t1", "alice", "bob", 1, new byte[10], 0, 10));
+        transport.runUntilIdle();
+        assertEquals(0, ((TransferChunkMessage) next(bob)).getSeq());
+        assertEquals(10, ((TransferChunkMessage) next(bob)).getData().length);
+
+        send(bob, new TransferAckMessage("t1", "alice", "bob", 2));
+        transport.runUntilIdle();
+        assertEquals(2, ((TransferAckMessage) next(alice)).getReceived());
+        assertEquals(0, server.getRegistry().get("alice").getTransfers().size());
+        assertEquals(0, server.getRegistry().get("bob").getTransfers().size());
+        server.stop();
+    }
+
+    @Test
+    /** Cancels a transfer whose sender runs past the window, without relaying the extra chunk. */
+    void cancelsSenderThatOverrunsWindow() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection alice = connect(transport, "alice", TRANSFERS);
+        MemoryConnection bob = connect(transport, "bob", TRANSFERS);
+
+        send(alice, new TransferOfferMessage("t1", "alice", "bob", "big.bin", 100L * CHUNK));
+        transport.runUntilIdle();
+        next(bob);
+        send(bob, new TransferAckMessage("t1", "alice", "bob", 0));
+        transport.runUntilIdle();
+        next(alice);
+
+        byte[] data = new byte[CHUNK];
+        for (int seq = 0; seq <= ProtocolConstants.TRANSFER_WINDOW; seq++) {
+            send(alice, new TransferChunkMessage("t1", "alice", "bob", seq, data, 0, data.length));
+        }
+        transport.runUntilIdle();
+        List<BaseMessage> toBob = frames(bob);
+        assertEquals(ProtocolConstants.TRANSFER_WINDOW + 1, toBob.size());
+        for (int i = 0; i < ProtocolConstants.TRANSFER_WINDOW; i++) {
+            assertEquals(MessageType.TRANSFER_CHUNK, toBob.get(i).getType());
+        }
+        assertEquals(MessageType.TRANSFER_CANCEL, toBob.get(ProtocolConstants.TRANSFER_WINDOW).getType());
+
+        List<BaseMessage> toAlice = frames(alice);
+        assertTrue(toAlice.stream().anyMatch(m -> m.getType() == MessageType.TRANSFER_CANCEL));
+        assertTrue(toAlice.stream().anyMatch(m -> m instanceof ErrorMessage
+                && "TRANSFER_VIOLATION".equals(((ErrorMessage) m).getCode())));
+        assertEquals(0, server.getRegistry().get("alice").getTransfers().size());
+        server.stop();
+    }
+
+    @Test
+    /** Refuses offers to clients that did not declare the transfers capability. */
+    void refusesRecipientWithoutCapability() throws Exception {
+        MemoryTransport transport = new MemoryTransport(1);
+        ChatServer server = start(transport, UNLIMITED);
+        MemoryConnection alice = connect(transport, "alice", TRANSFERS);
+        MemoryConnection carol = connect(transport, "carol", List.of());
+
+        send(alice, new TransferOfferMessage("t1", "alice", "carol", "notes.txt", 10));
+        transport.runUntilIdle();
+        assertEquals("TRANSFERS_UNSUPPORTED", ((ErrorMessage) next(alice)).getCode());
+        assertNull(carol.pollFrame());
+        server.stop();
+    }
+}